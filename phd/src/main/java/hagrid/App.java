@@ -2,6 +2,8 @@ package hagrid;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Scenario;
+
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 
@@ -12,11 +14,23 @@ import hagrid.demand.DemandProcessor;
 import hagrid.demand.LogisticsDataProcessor;
 import hagrid.demand.NetworkProcessor;
 import hagrid.demand.SupplyCarrierGenerator;
+import hagrid.utils.general.CarrierPlanOutput;
+import hagrid.utils.pipeline.CheckpointManager;
+import hagrid.utils.pipeline.PipelineStage;
+import hagrid.utils.pipeline.StagePipeline;
 import hagrid.utils.routing.ThreadingType;
 
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 public class App {
     private static final Logger LOGGER = LogManager.getLogger(App.class);
 
+    /** Name of the full scenario network in the stage declarations. */
+    private static final String NETWORK = "network";
+
     public static void main(String[] args) {
         LOGGER.info("Starting application...");
 
@@ -24,23 +38,93 @@ public class App {
         Injector injector = Guice.createInjector(new HagridModule("phd/input/config.xml"));
 
         // Execute processing steps in a structured manner
-        runNetworkProcessing(injector); // Step 1: Process the network data
-        runLogisticsDataProcessing(injector); // Step 2: Process the logistics data
-        runDemandProcessing(injector); // Step 3: Process the freight demand data
-        runDeliveryGeneration(injector); // Step 4: Generate parcels based on the processed demand data
-        runCarrierGeneration(injector); // Step 5: Generate carriers based on the processed demand data
-        runSupplyGeneration(injector); // Step 6: Generate supply carriers based on the generated carriers
-        
-        // runRouter(injector, ThreadingType.COMPLETABLE_FUTURE); // Step 7: Run routing for delivery supply carriers based on the generated
-                                                // carriers
-        
-        // runRouter(injector, ThreadingType.SINGLE_THREAD); // Step 7: Run routing for delivery supply carriers based on
-        //                                                    // the generated
-        // // carriers
+        StagePipeline pipeline = new StagePipeline(createStages(injector));
+
+        // Run independent stages concurrently and skip stages whose results are
+        // stored in valid checkpoints
+        HagridConfigGroup hagridConfig = injector.getInstance(HagridConfigGroup.class);
+        pipeline.setParallel(hagridConfig.isParallelStages());
+        if (hagridConfig.isCheckpoints()) {
+            pipeline.setCheckpointManager(new CheckpointManager(injector.getInstance(Scenario.class), hagridConfig,
+                    Paths.get(hagridConfig.getCheckpointDirectory()),
+                    Map.of("logistics", List.of(LogisticsDataProcessor.GEO_DATA_PATH))));
+        }
+        try {
+            pipeline.run();
+
+            // runRouter(injector, ThreadingType.COMPLETABLE_FUTURE); // Step 7: Run routing for delivery supply carriers based on the generated
+                                                    // carriers
+
+            // runRouter(injector, ThreadingType.SINGLE_THREAD); // Step 7: Run routing for delivery supply carriers based on
+            //                                                    // the generated
+            // // carriers
+        } finally {
+            // Wait for carrier plan files that are still written in the background
+            injector.getInstance(CarrierPlanOutput.class).close();
+        }
 
         LOGGER.info("Application finished.");
     }
 
+    /**
+     * Creates the stages of the pipeline together with the scenario elements they
+     * read and write and the configuration parameters their results depend on.
+     * Stages without a dependency between them, like the network processing and
+     * reading the freight demand data, may run concurrently.
+     *
+     * @param injector the Guice injector used for dependency injection.
+     * @return The stages in execution order.
+     */
+    private static List<PipelineStage> createStages(Injector injector) {
+        return List.of(
+                // Step 1: Process the network data
+                // The full network is not a scenario element, it is declared as "network"
+                new PipelineStage("network", () -> runNetworkProcessing(injector),
+                        Set.of(),
+                        Set.of(NETWORK, "carFilteredNetwork", "parcelServiceNetwork"),
+                        Set.of(HagridConfigGroup.NETWORK_XML_PATH, HagridConfigGroup.MIN_LINK_LENGTH,
+                                HagridConfigGroup.MIN_FREE_SPEED, HagridConfigGroup.FREE_SPEED_THRESHOLD,
+                                HagridConfigGroup.NETWORK_CACHE)),
+                // Step 2: Process the logistics data, hubs are snapped to the full network
+                new PipelineStage("logistics", () -> runLogisticsDataProcessing(injector),
+                        Set.of(NETWORK),
+                        Set.of("hubList", "parcelLockerList", "shippingPointList", "hanoverGeoData",
+                                "carrierVehicleTypes"),
+                        Set.of(HagridConfigGroup.HUB_DATA_PATH, HagridConfigGroup.SHIPPING_POINT_DATA_PATH,
+                                HagridConfigGroup.PARCEL_LOCKER_DATA_PATH, HagridConfigGroup.FREIGHT_VEHICLE_TYPES_PATH,
+                                HagridConfigGroup.LOCATION_PROVIDERS, HagridConfigGroup.FILTER_REGIONS,
+                                HagridConfigGroup.CONCEPT, "hubLimitDHL", "hubLimitPost")),
+                // Step 3: Read and process the freight demand data
+                new PipelineStage("demandInput", () -> injector.getInstance(DemandProcessor.class).readDemand(),
+                        Set.of(),
+                        Set.of(DemandProcessor.FREIGHT_DEMAND_DATA),
+                        Set.of(HagridConfigGroup.FREIGHT_DEMAND_PATH)),
+                new PipelineStage("demand", () -> runDemandProcessing(injector),
+                        Set.of(DemandProcessor.FREIGHT_DEMAND_DATA, "hanoverGeoData"),
+                        Set.of("carrierDemand"),
+                        Set.of(HagridConfigGroup.FILTER_REGIONS, HagridConfigGroup.SHP_PROVIDERS, "demandBorder",
+                                "dhlBorder")),
+                // Step 4: Generate parcels based on the processed demand data
+                new PipelineStage("delivery", () -> runDeliveryGeneration(injector),
+                        Set.of("carrierDemand", "parcelLockerList"),
+                        Set.of("deliveries", "summary"),
+                        Set.of(HagridConfigGroup.SHP_PROVIDERS, HagridConfigGroup.CONCEPT, "parcelLockerDemand")),
+                // Step 5: Generate carriers based on the processed demand data
+                new PipelineStage("carrier", () -> runCarrierGeneration(injector),
+                        Set.of("deliveries", "parcelServiceNetwork", "carrierVehicleTypes", "hubList", "summary"),
+                        Set.of("carriers", "hubList", "summary"),
+                        Set.of(HagridConfigGroup.CONCEPT, "cepVehCap", "deliveryRateDhl", "deliveryRateGls",
+                                "deliveryRateHermes", "deliveryRateDpd", "deliveryRateUps", "deliveryRateAmazon",
+                                "deliveryRateFedex", "deliveryRateWl", "deliveryTimeWindowStart",
+                                "deliveryTimeWindowEnd", "durationPerParcel", "maxDurationPerStop",
+                                "maxRouteDuration")),
+                // Step 6: Generate supply carriers based on the generated carriers
+                new PipelineStage("supply", () -> runSupplyGeneration(injector),
+                        Set.of("carriers", "hubList", "carrierVehicleTypes", "carFilteredNetwork"),
+                        Set.of("supply"),
+                        Set.of(HagridConfigGroup.CONCEPT)));
+    }
+
     /**
      * Runs the network processing step, initializing and executing the
      * NetworkProcessor.
@@ -158,6 +158,95 @@ public class HagridConfigGroup extends ReflectiveConfigGroup {
     // Delivery time window
     private TimeWindow deliveryTimeWindow = TimeWindow.newInstance(8 * 60 * 60, 20 * 60 * 60);
 
+    // Parallel processing
+    static final String NUMBER_OF_THREADS = "numberOfThreads";
+    private static final String NUMBER_OF_THREADS_DESC = "Number of threads used by the parallel processing modes. Use 0 for all available processors.";
+    private int numberOfThreads = 0;
+
+    static final String PARALLEL_DELIVERY_GENERATION = "parallelDeliveryGeneration";
+    private static final String PARALLEL_DELIVERY_GENERATION_DESC = "Generate deliveries for the carrier groups in parallel. Results are identical for the same global random seed.";
+    private boolean parallelDeliveryGeneration = false;
+
+    static final String PARALLEL_CARRIER_GENERATION = "parallelCarrierGeneration";
+    private static final String PARALLEL_CARRIER_GENERATION_DESC = "Build the services of all carriers in parallel and assign hub capacities afterwards in carrier order.";
+    private boolean parallelCarrierGeneration = false;
+
+    static final String PARALLEL_STAGES = "parallelStages";
+    private static final String PARALLEL_STAGES_DESC = "Run pipeline stages that do not depend on each other, like network and logistics data processing, concurrently.";
+    private boolean parallelStages = false;
+
+    static final String TABLE_EXPORT = "tableExport";
+    private static final String TABLE_EXPORT_DESC = "Additionally write deliveries, carrier services and routed tours as compressed CSV tables to the output directory.";
+    private boolean tableExport = false;
+
+    static final String OUTPUT_COMPRESSION = "outputCompression";
+    private static final String OUTPUT_COMPRESSION_DESC = "Compression of carrier plan output files: none, gzip or zstd. Carrier plans are written on a background thread.";
+    private String outputCompression = "none";
+
+    static final String NETWORK_CACHE = "networkCache";
+    private static final String NETWORK_CACHE_DESC = "Cache the network in a compact binary file that is memory mapped on later runs instead of parsing the network XML.";
+    private boolean networkCache = false;
+
+    static final String NETWORK_CACHE_DIRECTORY = "networkCacheDirectory";
+    private static final String NETWORK_CACHE_DIRECTORY_DESC = "Directory of the network cache files.";
+    private String networkCacheDirectory = "phd/output/cache";
+
+    static final String PRECOMPUTED_LINK_COSTS = "precomputedLinkCosts";
+    private static final String PRECOMPUTED_LINK_COSTS_DESC = "Compute the free speed link costs of the delivery carriers once per vehicle type instead of per routing query.";
+    private boolean precomputedLinkCosts = false;
+
+    static final String NETWORK_CONTRACTION = "networkContraction";
+    private static final String NETWORK_CONTRACTION_DESC = "Route the delivery carriers on a copy of the network in which chains of links through nodes without a junction are merged. The end nodes of service and depot links are kept. Only valid for free speed travel times.";
+    private boolean networkContraction = false;
+
+    static final String CONTRACTION_HIERARCHIES = "contractionHierarchies";
+    private static final String CONTRACTION_HIERARCHIES_DESC = "Route the delivery carriers with contraction hierarchies per vehicle type instead of SpeedyALT. Only valid for free speed travel times.";
+    private boolean contractionHierarchies = false;
+
+    static final String CONTRACTION_HIERARCHY_DIRECTORY = "contractionHierarchyDirectory";
+    private static final String CONTRACTION_HIERARCHY_DIRECTORY_DESC = "Directory the contraction hierarchies are stored in and read from on later runs.";
+    private String contractionHierarchyDirectory = "phd/output/cache";
+
+    static final String TRAVEL_TIME_PROFILE_INTERVAL = "travelTimeProfileInterval";
+    private static final String TRAVEL_TIME_PROFILE_INTERVAL_DESC = "Interval in seconds of the piecewise linear travel time profiles used for carrier replanning in the simulation. 0 uses time slices instead.";
+    private double travelTimeProfileInterval = 0.0;
+
+    static final String WARM_START_ITERATIONS = "warmStartIterations";
+    private static final String WARM_START_ITERATIONS_DESC = "Number of jsprit iterations when carriers are replanned in the simulation starting from their current tours. 0 solves each carrier from scratch.";
+    private int warmStartIterations = 0;
+
+    static final String REPLANNING_DEVIATION_THRESHOLD = "replanningDeviationThreshold";
+    private static final String REPLANNING_DEVIATION_THRESHOLD_DESC = "Relative increase of the tour travel times of a carrier under the current congested travel times above which it is replanned in the simulation. 0 selects carriers randomly instead.";
+    private double replanningDeviationThreshold = 0.0;
+
+    static final String ROUTING_TIME_BUDGET = "routingTimeBudget";
+    private static final String ROUTING_TIME_BUDGET_DESC = "Wall-clock time in seconds for routing all delivery and supply carriers, distributed over the carriers by their size. 0 uses fixed jsprit iteration counts.";
+    private double routingTimeBudget = 0.0;
+
+    static final String ROUTING_MAX_ITERATIONS = "routingMaxIterations";
+    private static final String ROUTING_MAX_ITERATIONS_DESC = "Maximum number of jsprit iterations per carrier if a routing time budget is set.";
+    private int routingMaxIterations = 2000;
+
+    static final String ROUTING_VARIATION_COEFFICIENT = "routingVariationCoefficient";
+    private static final String ROUTING_VARIATION_COEFFICIENT_DESC = "Variation coefficient of the recent jsprit solutions below which the search of a carrier stops if a routing time budget is set.";
+    private double routingVariationCoefficient = 0.001;
+
+    static final String SOLUTION_CACHE = "solutionCache";
+    private static final String SOLUTION_CACHE_DESC = "Reuse the jsprit solutions of carriers with equal routing problems, within a run and across runs.";
+    private boolean solutionCache = false;
+
+    static final String SOLUTION_CACHE_DIRECTORY = "solutionCacheDirectory";
+    private static final String SOLUTION_CACHE_DIRECTORY_DESC = "Directory the cached jsprit solutions are stored in and read from on later runs.";
+    private String solutionCacheDirectory = "phd/output/cache/solutions";
+
+    public static final String CHECKPOINTS = "checkpoints";
+    private static final String CHECKPOINTS_DESC = "Store the results of each pipeline stage and skip stages whose inputs and configuration did not change.";
+    private boolean checkpoints = false;
+
+    public static final String CHECKPOINT_DIRECTORY = "checkpointDirectory";
+    private static final String CHECKPOINT_DIRECTORY_DESC = "Directory of the pipeline stage checkpoints.";
+    private String checkpointDirectory = "phd/output/checkpoints";
+
     static final String FILTER_REGIONS = "filterRegions";
     private static final String FILTER_REGIONS_DESC = "Regions to filter freight demand data. Use 'ALL' to include all regions.";
 
@@ -561,6 +650,236 @@ public class HagridConfigGroup extends ReflectiveConfigGroup {
         this.deliveryTimeWindow = TimeWindow.newInstance(this.deliveryTimeWindow.getStart(), end);
     }
 
+    @StringGetter(NUMBER_OF_THREADS)
+    public int getNumberOfThreadsSetting() {
+        return numberOfThreads;
+    }
+
+    @StringSetter(NUMBER_OF_THREADS)
+    public void setNumberOfThreads(int numberOfThreads) {
+        this.numberOfThreads = numberOfThreads;
+    }
+
+    /**
+     * Returns the number of threads for parallel processing, resolving 0 to the
+     * number of available processors.
+     *
+     * @return the effective number of threads.
+     */
+    public int getNumberOfThreads() {
+        return numberOfThreads > 0 ? numberOfThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    @StringGetter(PARALLEL_DELIVERY_GENERATION)
+    public boolean isParallelDeliveryGeneration() {
+        return parallelDeliveryGeneration;
+    }
+
+    @StringSetter(PARALLEL_DELIVERY_GENERATION)
+    public void setParallelDeliveryGeneration(boolean parallelDeliveryGeneration) {
+        this.parallelDeliveryGeneration = parallelDeliveryGeneration;
+    }
+
+    @StringGetter(PARALLEL_CARRIER_GENERATION)
+    public boolean isParallelCarrierGeneration() {
+        return parallelCarrierGeneration;
+    }
+
+    @StringSetter(PARALLEL_CARRIER_GENERATION)
+    public void setParallelCarrierGeneration(boolean parallelCarrierGeneration) {
+        this.parallelCarrierGeneration = parallelCarrierGeneration;
+    }
+
+    @StringGetter(TABLE_EXPORT)
+    public boolean isTableExport() {
+        return tableExport;
+    }
+
+    @StringSetter(TABLE_EXPORT)
+    public void setTableExport(boolean tableExport) {
+        this.tableExport = tableExport;
+    }
+
+    @StringGetter(PARALLEL_STAGES)
+    public boolean isParallelStages() {
+        return parallelStages;
+    }
+
+    @StringSetter(PARALLEL_STAGES)
+    public void setParallelStages(boolean parallelStages) {
+        this.parallelStages = parallelStages;
+    }
+
+    @StringGetter(OUTPUT_COMPRESSION)
+    public String getOutputCompression() {
+        return outputCompression;
+    }
+
+    @StringSetter(OUTPUT_COMPRESSION)
+    public void setOutputCompression(String outputCompression) {
+        this.outputCompression = outputCompression;
+    }
+
+    @StringGetter(NETWORK_CACHE)
+    public boolean isNetworkCache() {
+        return networkCache;
+    }
+
+    @StringSetter(NETWORK_CACHE)
+    public void setNetworkCache(boolean networkCache) {
+        this.networkCache = networkCache;
+    }
+
+    @StringGetter(NETWORK_CACHE_DIRECTORY)
+    public String getNetworkCacheDirectory() {
+        return networkCacheDirectory;
+    }
+
+    @StringSetter(NETWORK_CACHE_DIRECTORY)
+    public void setNetworkCacheDirectory(String networkCacheDirectory) {
+        this.networkCacheDirectory = networkCacheDirectory;
+    }
+
+    @StringGetter(PRECOMPUTED_LINK_COSTS)
+    public boolean isPrecomputedLinkCosts() {
+        return precomputedLinkCosts;
+    }
+
+    @StringSetter(PRECOMPUTED_LINK_COSTS)
+    public void setPrecomputedLinkCosts(boolean precomputedLinkCosts) {
+        this.precomputedLinkCosts = precomputedLinkCosts;
+    }
+
+    @StringGetter(NETWORK_CONTRACTION)
+    public boolean isNetworkContraction() {
+        return networkContraction;
+    }
+
+    @StringSetter(NETWORK_CONTRACTION)
+    public void setNetworkContraction(boolean networkContraction) {
+        this.networkContraction = networkContraction;
+    }
+
+    @StringGetter(CONTRACTION_HIERARCHIES)
+    public boolean isContractionHierarchies() {
+        return contractionHierarchies;
+    }
+
+    @StringSetter(CONTRACTION_HIERARCHIES)
+    public void setContractionHierarchies(boolean contractionHierarchies) {
+        this.contractionHierarchies = contractionHierarchies;
+    }
+
+    @StringGetter(CONTRACTION_HIERARCHY_DIRECTORY)
+    public String getContractionHierarchyDirectory() {
+        return contractionHierarchyDirectory;
+    }
+
+    @StringSetter(CONTRACTION_HIERARCHY_DIRECTORY)
+    public void setContractionHierarchyDirectory(String contractionHierarchyDirectory) {
+        this.contractionHierarchyDirectory = contractionHierarchyDirectory;
+    }
+
+    @StringGetter(TRAVEL_TIME_PROFILE_INTERVAL)
+    public double getTravelTimeProfileInterval() {
+        return travelTimeProfileInterval;
+    }
+
+    @StringSetter(TRAVEL_TIME_PROFILE_INTERVAL)
+    public void setTravelTimeProfileInterval(double travelTimeProfileInterval) {
+        this.travelTimeProfileInterval = travelTimeProfileInterval;
+    }
+
+    @StringGetter(WARM_START_ITERATIONS)
+    public int getWarmStartIterations() {
+        return warmStartIterations;
+    }
+
+    @StringSetter(WARM_START_ITERATIONS)
+    public void setWarmStartIterations(int warmStartIterations) {
+        this.warmStartIterations = warmStartIterations;
+    }
+
+    @StringGetter(REPLANNING_DEVIATION_THRESHOLD)
+    public double getReplanningDeviationThreshold() {
+        return replanningDeviationThreshold;
+    }
+
+    @StringSetter(REPLANNING_DEVIATION_THRESHOLD)
+    public void setReplanningDeviationThreshold(double replanningDeviationThreshold) {
+        this.replanningDeviationThreshold = replanningDeviationThreshold;
+    }
+
+    @StringGetter(ROUTING_TIME_BUDGET)
+    public double getRoutingTimeBudget() {
+        return routingTimeBudget;
+    }
+
+    @StringSetter(ROUTING_TIME_BUDGET)
+    public void setRoutingTimeBudget(double routingTimeBudget) {
+        this.routingTimeBudget = routingTimeBudget;
+    }
+
+    @StringGetter(ROUTING_MAX_ITERATIONS)
+    public int getRoutingMaxIterations() {
+        return routingMaxIterations;
+    }
+
+    @StringSetter(ROUTING_MAX_ITERATIONS)
+    public void setRoutingMaxIterations(int routingMaxIterations) {
+        this.routingMaxIterations = routingMaxIterations;
+    }
+
+    @StringGetter(ROUTING_VARIATION_COEFFICIENT)
+    public double getRoutingVariationCoefficient() {
+        return routingVariationCoefficient;
+    }
+
+    @StringSetter(ROUTING_VARIATION_COEFFICIENT)
+    public void setRoutingVariationCoefficient(double routingVariationCoefficient) {
+        this.routingVariationCoefficient = routingVariationCoefficient;
+    }
+
+    @StringGetter(SOLUTION_CACHE)
+    public boolean isSolutionCache() {
+        return solutionCache;
+    }
+
+    @StringSetter(SOLUTION_CACHE)
+    public void setSolutionCache(boolean solutionCache) {
+        this.solutionCache = solutionCache;
+    }
+
+    @StringGetter(SOLUTION_CACHE_DIRECTORY)
+    public String getSolutionCacheDirectory() {
+        return solutionCacheDirectory;
+    }
+
+    @StringSetter(SOLUTION_CACHE_DIRECTORY)
+    public void setSolutionCacheDirectory(String solutionCacheDirectory) {
+        this.solutionCacheDirectory = solutionCacheDirectory;
+    }
+
+    @StringGetter(CHECKPOINTS)
+    public boolean isCheckpoints() {
+        return checkpoints;
+    }
+
+    @StringSetter(CHECKPOINTS)
+    public void setCheckpoints(boolean checkpoints) {
+        this.checkpoints = checkpoints;
+    }
+
+    @StringGetter(CHECKPOINT_DIRECTORY)
+    public String getCheckpointDirectory() {
+        return checkpointDirectory;
+    }
+
+    @StringSetter(CHECKPOINT_DIRECTORY)
+    public void setCheckpointDirectory(String checkpointDirectory) {
+        this.checkpointDirectory = checkpointDirectory;
+    }
+
     public boolean isWhiteLabel() {
         return this.concept == Concept.WHITE_LABEL;
     }
@@ -635,6 +954,28 @@ public class HagridConfigGroup extends ReflectiveConfigGroup {
         map.put("deliveryTimeWindowStart", "Start time of the delivery time window.");
         map.put("deliveryTimeWindowEnd", "End time of the delivery time window.");
         map.put(FILTER_REGIONS, FILTER_REGIONS_DESC);
+        map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_DESC);
+        map.put(PARALLEL_DELIVERY_GENERATION, PARALLEL_DELIVERY_GENERATION_DESC);
+        map.put(PARALLEL_CARRIER_GENERATION, PARALLEL_CARRIER_GENERATION_DESC);
+        map.put(PARALLEL_STAGES, PARALLEL_STAGES_DESC);
+        map.put(TABLE_EXPORT, TABLE_EXPORT_DESC);
+        map.put(OUTPUT_COMPRESSION, OUTPUT_COMPRESSION_DESC);
+        map.put(NETWORK_CACHE, NETWORK_CACHE_DESC);
+        map.put(NETWORK_CACHE_DIRECTORY, NETWORK_CACHE_DIRECTORY_DESC);
+        map.put(PRECOMPUTED_LINK_COSTS, PRECOMPUTED_LINK_COSTS_DESC);
+        map.put(NETWORK_CONTRACTION, NETWORK_CONTRACTION_DESC);
+        map.put(CONTRACTION_HIERARCHIES, CONTRACTION_HIERARCHIES_DESC);
+        map.put(CONTRACTION_HIERARCHY_DIRECTORY, CONTRACTION_HIERARCHY_DIRECTORY_DESC);
+        map.put(TRAVEL_TIME_PROFILE_INTERVAL, TRAVEL_TIME_PROFILE_INTERVAL_DESC);
+        map.put(WARM_START_ITERATIONS, WARM_START_ITERATIONS_DESC);
+        map.put(REPLANNING_DEVIATION_THRESHOLD, REPLANNING_DEVIATION_THRESHOLD_DESC);
+        map.put(ROUTING_TIME_BUDGET, ROUTING_TIME_BUDGET_DESC);
+        map.put(ROUTING_MAX_ITERATIONS, ROUTING_MAX_ITERATIONS_DESC);
+        map.put(ROUTING_VARIATION_COEFFICIENT, ROUTING_VARIATION_COEFFICIENT_DESC);
+        map.put(SOLUTION_CACHE, SOLUTION_CACHE_DESC);
+        map.put(SOLUTION_CACHE_DIRECTORY, SOLUTION_CACHE_DIRECTORY_DESC);
+        map.put(CHECKPOINTS, CHECKPOINTS_DESC);
+        map.put(CHECKPOINT_DIRECTORY, CHECKPOINT_DIRECTORY_DESC);
         return map;
     }
 }
@@ -16,6 +16,7 @@ import org.matsim.freight.carriers.FreightCarriersConfigGroup;
 import org.matsim.freight.carriers.controler.CarrierModule;
 import hagrid.utils.simulation.RunUtils;
 
+import java.nio.file.Paths;
 import java.util.*;
 
 /**
@@ -77,7 +78,10 @@ public class RunHAGRIDSimulation {
 
         // Create and configure the scenario
         Scenario scenario = ScenarioUtils.loadScenario(config);
-        RunUtils.loadNetworks(scenario, NETWORK_BIKE_PATH);
+        // The bike network is read from the network cache only if it is enabled
+        HagridConfigGroup hagridConfig = ConfigUtils.addOrGetModule(config, HagridConfigGroup.class);
+        RunUtils.loadNetworks(scenario, NETWORK_BIKE_PATH,
+                hagridConfig.isNetworkCache() ? Paths.get(hagridConfig.getNetworkCacheDirectory()) : null);
 
         // Clean the network to ensure connectivity
         new NetworkCleaner().run(scenario.getNetwork());
@@ -3,17 +3,21 @@ package hagrid.demand;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import hagrid.HagridConfigGroup;
+import hagrid.utils.demand.BinomialSampler;
 import hagrid.utils.demand.Delivery;
 import hagrid.utils.demand.Hub;
+import hagrid.utils.demand.MissedParcels;
+import hagrid.utils.demand.ParcelWeights;
+import hagrid.utils.demand.ParcelWeightsConverter;
 import hagrid.utils.demand.Delivery.ParcelType;
+import hagrid.utils.general.CarrierPlanOutput;
+import hagrid.utils.general.CarrierValidationReport;
 import hagrid.utils.general.HAGRIDSummary;
 import hagrid.utils.general.HAGRIDUtils;
+import hagrid.utils.general.CsvTableExporter;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.locationtech.jts.geom.Coordinate;
-import org.locationtech.jts.geom.GeometryFactory;
-import org.locationtech.jts.geom.Point;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
@@ -32,9 +36,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
 import java.util.stream.Collectors;
-import java.util.Arrays;
 import java.util.Comparator;
 import java.util.ConcurrentModificationException;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * The CarrierGenerator class is responsible for converting sorted demand
@@ -44,7 +48,6 @@ import java.util.ConcurrentModificationException;
 public class CarrierGenerator implements Runnable {
 
         private static final Logger LOGGER = LogManager.getLogger(CarrierGenerator.class);
-        private final static Random random = new Random();
 
         @Inject
         private Scenario scenario;
@@ -52,6 +55,9 @@ public class CarrierGenerator implements Runnable {
         @Inject
         private HagridConfigGroup hagridConfig;
 
+        @Inject
+        private CarrierPlanOutput carrierPlanOutput;
+
         private CarrierVehicleFactory carrierVehicleFactory;
 
         /**
@@ -83,21 +89,24 @@ public class CarrierGenerator implements Runnable {
                                         vehicleTypes, hubList);
 
                         // Validate the generated carriers and supply demand
-                        validateCarriers(carriers);
-                        validateSupplyDemand(carriers, hubList);
+                        final CarrierValidationReport report = validateCarriers(carriers);
+                        validateSupplyDemand(report.getTotal().getParcels(), hubList);
 
                         // Check and log attributes of all carriers
                         HAGRIDUtils.checkAndLogCarrierAttributes(carriers);
 
                         LOGGER.info("Carrier generation completed.");
 
-                        new CarrierPlanWriter(carriers).write("phd/output/delivery_carriers.xml");
+                        carrierPlanOutput.write(carriers, "phd/output/delivery_carriers.xml");
+                        if (hagridConfig.isTableExport()) {
+                                CsvTableExporter.writeServices(carriers, "phd/output/delivery_services.csv.gz");
+                        }
                         // HAGRIDUtils.convertDemandFromParcelsToShapeFile(carriers,
                         // "phd/output/delivery_carriers.shp");
 
 
                 } catch (Exception e) {
-                        LOGGER.error("Error generating carriers", e);
+                        throw new IllegalStateException("Error generating carriers", e);
                 }
         }
 
@@ -127,6 +136,13 @@ public class CarrierGenerator implements Runnable {
          * Generates carriers and their services based on the provided deliveries and
          * network.
          *
+         * The generation runs in two phases. In the first phase the carriers and their
+         * services are built independently of each other, which is done concurrently
+         * if parallel carrier generation is enabled. In the second phase the hubs are
+         * assigned in the iteration order of the deliveries, since hub capacities are
+         * shared between carriers. Missed parcels are drawn from one random stream per
+         * carrier, so both modes produce the same carriers for the same seed.
+         *
          * @param deliveries   Map containing the deliveries sorted by carrier ID.
          * @param subNetwork   The network used for parcel services.
          * @param hubList
@@ -137,34 +153,113 @@ public class CarrierGenerator implements Runnable {
                         final Network subNetwork, CarrierVehicleTypes vehicleTypes, Map<Id<Hub>, Hub> hubList) {
                 final Carriers carriers = new Carriers();
                 final Map<String, Double> deliveryRates = initializeDeliveryRate();
+                final List<Map.Entry<String, ArrayList<Delivery>>> carrierEntries = new ArrayList<>(
+                                deliveries.entrySet());
+
+                // Phase 1: Build carriers and services
+                final List<CarrierDraft> drafts;
+                if (hagridConfig.isParallelCarrierGeneration()) {
+                        // The nearest link lookup initializes its spatial index lazily, so build it
+                        // once before the network is queried concurrently
+                        initializeLinkIndex(subNetwork, deliveries);
+
+                        int parallelism = hagridConfig.getNumberOfThreads();
+                        LOGGER.info("Building services for {} carriers using {} threads...", carrierEntries.size(),
+                                        parallelism);
+                        try (ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism)) {
+                                drafts = forkJoinPool.submit(() -> carrierEntries.parallelStream()
+                                                .map(entry -> createCarrierDraft(entry.getKey(), entry.getValue(),
+                                                                subNetwork, deliveryRates, hubList))
+                                                .collect(Collectors.toList())).join();
+                        }
+                } else {
+                        drafts = carrierEntries.stream()
+                                        .map(entry -> createCarrierDraft(entry.getKey(), entry.getValue(),
+                                                        subNetwork, deliveryRates, hubList))
+                                        .collect(Collectors.toList());
+                }
 
-                deliveries.entrySet().stream().map(entry -> {
-                        final String carrierID = entry.getKey();
-                        final ArrayList<Delivery> carrierDeliveries = entry.getValue();
-
-                        final Carrier carrier = CarriersUtils.createCarrier(Id.create(carrierID, Carrier.class));
-
-                        setupCarrierAttributes(carrier, carrierID);
-
-                        try {
-                                addCarrierServicesToCarriers(carrier, carrierDeliveries, subNetwork, deliveryRates);
-                                addCarrierVehiclesToCarrier(carrier, hubList);
-                        } catch (ServiceCreationException e) {
-                                LOGGER.error(carrierID + ": Error creating carrier services", e);
+                // Phase 2: Assign hubs and vehicles in a deterministic order
+                int correctionFactor = 0;
+                for (CarrierDraft draft : drafts) {
+                        if (draft.servicesCreated) {
+                                addCarrierVehiclesToCarrier(draft.carrier, draft.hubCandidates);
+                                correctionFactor += draft.correctionFactor;
                         }
+                        carriers.addCarrier(draft.carrier);
+                }
 
-                        return carrier;
-                }).forEach(carriers::addCarrier);
+                // Update the correction factor in the summary
+                final HAGRIDSummary summary = (HAGRIDSummary) HAGRIDUtils.getScenarioElementAs("summary", scenario);
+                summary.setCorrectionFactor(summary.getCorrectionFactor() + correctionFactor);
 
                 logAndValidateInsufficientCarrier(carriers);
 
                 LOGGER.info("Carriers generated: {}", carriers.getCarriers().size());
 
-                scenario.addScenarioElement("carriers", carriers);
+                HAGRIDUtils.addScenarioElement("carriers", carriers, scenario);
 
                 return carriers;
         }
 
+        /**
+         * Builds a carrier with its services and ranks the hubs of its provider by
+         * distance. This does not modify any state shared between carriers.
+         *
+         * @param carrierID         The ID of the carrier.
+         * @param carrierDeliveries The deliveries for the carrier.
+         * @param subNetwork        The network used for parcel services.
+         * @param deliveryRates     The delivery rates for each provider.
+         * @param hubList           A map of hub IDs to Hub objects.
+         * @return The carrier draft.
+         */
+        private CarrierDraft createCarrierDraft(final String carrierID, final ArrayList<Delivery> carrierDeliveries,
+                        final Network subNetwork, final Map<String, Double> deliveryRates,
+                        final Map<Id<Hub>, Hub> hubList) {
+                final Carrier carrier = CarriersUtils.createCarrier(Id.create(carrierID, Carrier.class));
+                final CarrierDraft draft = new CarrierDraft(carrier);
+
+                setupCarrierAttributes(carrier, carrierID);
+
+                try {
+                        draft.correctionFactor = addCarrierServicesToCarriers(carrier, carrierDeliveries, subNetwork,
+                                        deliveryRates, createRandom(carrierID));
+                        draft.hubCandidates = rankHubsByDistance(carrier, hubList);
+                        draft.servicesCreated = true;
+                } catch (ServiceCreationException e) {
+                        LOGGER.error(carrierID + ": Error creating carrier services", e);
+                }
+
+                return draft;
+        }
+
+        /**
+         * Queries the nearest link once, so that the spatial index of the network is
+         * built before it is accessed by several threads.
+         *
+         * @param subNetwork The network used for parcel services.
+         * @param deliveries Map containing the deliveries sorted by carrier ID.
+         */
+        private static void initializeLinkIndex(final Network subNetwork,
+                        final Map<String, ArrayList<Delivery>> deliveries) {
+                deliveries.values().stream()
+                                .flatMap(List::stream)
+                                .findFirst()
+                                .ifPresent(delivery -> NetworkUtils.getNearestLinkExactly(subNetwork,
+                                                delivery.getCoordinate()));
+        }
+
+        /**
+         * Creates a random stream for the given carrier, derived from the global
+         * random seed of the scenario configuration.
+         *
+         * @param carrierID The ID of the carrier.
+         * @return A seeded random stream.
+         */
+        private Random createRandom(String carrierID) {
+                return HAGRIDUtils.createRandom(scenario.getConfig().global().getRandomSeed(), carrierID);
+        }
+
         /**
          * Logs information about carriers, including the ones with the most and least
          * services,
@@ -248,8 +343,8 @@ public class CarrierGenerator implements Runnable {
                 // Initialize the missed parcels count to 0
                 carrier.getAttributes().putAttribute("missedParcels", 0);
 
-                // Initialize the missed parcels list to null
-                carrier.getAttributes().putAttribute("missedParcelsAsList", null);
+                // Initialize the compact per-service record of missed parcels
+                carrier.getAttributes().putAttribute("missedParcelsPerService", new MissedParcels());
 
                 // Initialize the carrier type attribute to CarrierType = delivery
                 carrier.getAttributes().putAttribute("carrierType", "delivery");
@@ -263,18 +358,20 @@ public class CarrierGenerator implements Runnable {
          * services needed
          * based on the delivery rates and vehicle capacity, and adds the corresponding
          * services
-         * to the carrier. It also calculates and updates the total weight of parcels
-         * and the correction
-         * factor in the summary.
+         * to the carrier. It also calculates the total weight of parcels and the
+         * correction factor, which the caller adds to the summary.
          *
          * @param carrier           The carrier to which services are to be added.
          * @param carrierDeliveries The deliveries for the carrier.
          * @param subNetwork        The network used for parcel services.
          * @param deliveryRates     The delivery rates for each provider.
+         * @param random            The random stream for missed parcels.
+         * @return The correction factor, i.e. the number of additional services
+         *         created by splitting deliveries.
          * @throws ServiceCreationException if a service cannot be created.
          */
-        private void addCarrierServicesToCarriers(final Carrier carrier, final ArrayList<Delivery> carrierDeliveries,
-                        final Network subNetwork, final Map<String, Double> deliveryRates)
+        private int addCarrierServicesToCarriers(final Carrier carrier, final ArrayList<Delivery> carrierDeliveries,
+                        final Network subNetwork, final Map<String, Double> deliveryRates, final Random random)
                         throws ServiceCreationException {
 
                 // Retrieve the provider attribute from the carrier
@@ -302,10 +399,10 @@ public class CarrierGenerator implements Runnable {
                         final int amount = carrierDelivery.getAmount();
                         final int numberOfServices = (int) Math.ceil((double) amount / hagridConfig.getCepVehCap());
                         final int cap = hagridConfig.getCepVehCap();
-                        final List<Double> weights = new ArrayList<>(carrierDelivery.getIndividualWeights());
+                        final ParcelWeights weights = carrierDelivery.getIndividualWeights();
 
                         // Calculate the total weight of parcels for the carrier
-                        totalWeightForCarrier += weights.stream().mapToDouble(Double::doubleValue).sum();
+                        totalWeightForCarrier += weights.sum();
                         LOGGER.debug("Processing carrier delivery: " + carrierDelivery);
                         LOGGER.debug("Initial weights: " + weights);
 
@@ -314,16 +411,17 @@ public class CarrierGenerator implements Runnable {
                                         .getNearestLinkExactly(subNetwork, carrierDelivery.getCoordinate())
                                         .getId();
 
-                        // Create and add services for the carrier delivery
+                        // Create and add services for the carrier delivery. The weights of each service
+                        // are a view on the delivery weights, no copies are made.
+                        int weightOffset = 0;
                         for (int j = 0; j < numberOfServices - 1; j++) {
-                                List<Double> serviceWeights = new ArrayList<>(weights.subList(0, cap));
+                                ParcelWeights serviceWeights = weights.slice(weightOffset, weightOffset + cap);
+                                weightOffset += cap;
                                 LOGGER.debug("Service " + totalServices + ": Weights for this service: "
                                                 + serviceWeights);
-                                weights.subList(0, cap).clear();
-                                LOGGER.debug("Remaining weights after clearing: " + weights);
                                 CarrierService service = addAndGetCarrierService(carrier, linkId, rate, cap,
                                                 carrierDelivery,
-                                                totalServices++, serviceWeights);
+                                                totalServices++, serviceWeights, random);
                                 createdServices.add(service);
                                 correctionFactor++; // Increment correction factor for each split
                                 LOGGER.debug("Incremented correction factor. New value: {}", correctionFactor);
@@ -332,12 +430,13 @@ public class CarrierGenerator implements Runnable {
                         // Handle the last segment which might be smaller than the cap
                         final int remainingCapacity = amount - ((numberOfServices - 1) * cap);
                         if (remainingCapacity > 0) {
-                                List<Double> serviceWeights = new ArrayList<>(weights.subList(0, remainingCapacity));
+                                ParcelWeights serviceWeights = weights.slice(weightOffset,
+                                                weightOffset + remainingCapacity);
                                 LOGGER.debug("Service " + totalServices + ": Weights for this service: "
                                                 + serviceWeights);
                                 CarrierService service = addAndGetCarrierService(carrier, linkId, rate,
                                                 remainingCapacity, carrierDelivery,
-                                                totalServices++, serviceWeights);
+                                                totalServices++, serviceWeights, random);
                                 createdServices.add(service);
                         } else {
                                 LOGGER.warn("Remaining capacity is zero for delivery: " + carrierDelivery);
@@ -347,11 +446,9 @@ public class CarrierGenerator implements Runnable {
                 // Validate the created carrier services against the original deliveries
                 validateCarrierServices(carrierDeliveries, createdServices);
 
-                // Update the correction factor in the summary
-                final HAGRIDSummary summary = (HAGRIDSummary) HAGRIDUtils.getScenarioElementAs("summary", scenario);
-                summary.setCorrectionFactor(summary.getCorrectionFactor() + correctionFactor);
-
                 LOGGER.debug("Total weight for carrier {}: {}", carrier.getId(), totalWeightForCarrier);
+
+                return correctionFactor;
         }
 
         /**
@@ -373,14 +470,15 @@ public class CarrierGenerator implements Runnable {
          * @param carrierDelivery The delivery information.
          * @param serviceNumber   The service number for unique identification.
          * @param weights         The weights of the parcels for this service.
+         * @param random          The random stream for missed parcels.
          * @return The created CarrierService.
          * @throws ServiceCreationException if the service could not be created.
          */
         private CarrierService addAndGetCarrierService(final Carrier carrier, final Id<Link> linkId, final double rate,
                         final int capacityDemand, final Delivery carrierDelivery,
-                        final int serviceNumber, final List<Double> weights) throws ServiceCreationException {
+                        final int serviceNumber, final ParcelWeights weights, final Random random)
+                        throws ServiceCreationException {
 
-                List<Double> weightsCopy = null;
                 try {
                         final double serviceDuration = Math.min(
                                         (hagridConfig.getDurationPerParcel() * 60) * capacityDemand,
@@ -412,18 +510,11 @@ public class CarrierGenerator implements Runnable {
                                 throw new IllegalArgumentException("Weights list is null");
                         }
 
-                        // Create a copy of the weights list to avoid ConcurrentModificationException
-                        weightsCopy = new ArrayList<>(weights);
-
-                        // Convert the list of Doubles to a single String
-                        String weightsString = weightsCopy.stream()
-                                        .map(String::valueOf)
-                                        .collect(Collectors.joining(";"));
-
-                        service.getAttributes().putAttribute("weights", weightsString);
+                        // Store the weights in the compact binary string representation
+                        service.getAttributes().putAttribute("weights", ParcelWeightsConverter.encode(weights));
 
                         if (rate < 100.0) {
-                                determineMissedParcels(carrier, service, rate);
+                                determineMissedParcels(carrier, service, rate, random);
                         }
 
                         CarriersUtils.addSkill(service, "conventional");  
@@ -433,8 +524,7 @@ public class CarrierGenerator implements Runnable {
 
                 } catch (IllegalArgumentException e) {
                         // Log all necessary information for debugging
-                        String weightsStr = (weightsCopy != null) ? weightsCopy.toString()
-                                        : ((weights != null) ? weights.toString() : "null");
+                        String weightsStr = (weights != null) ? weights.toString() : "null";
                         LOGGER.error("Failed to add service. Carrier: " + carrier.getId() +
                                         ", LinkId: " + linkId + ", Rate: " + rate +
                                         ", CapacityDemand: " + capacityDemand +
@@ -444,8 +534,7 @@ public class CarrierGenerator implements Runnable {
                         throw new ServiceCreationException("Failed to add service due to illegal argument.", e);
                 } catch (ConcurrentModificationException e) {
                         // Log and handle concurrent modification
-                        String weightsStr = (weightsCopy != null) ? weightsCopy.toString()
-                                        : ((weights != null) ? weights.toString() : "null");
+                        String weightsStr = (weights != null) ? weights.toString() : "null";
                         LOGGER.error("Concurrent modification detected. Carrier: " + carrier.getId() +
                                         ", LinkId: " + linkId + ", Rate: " + rate +
                                         ", CapacityDemand: " + capacityDemand +
@@ -463,39 +552,22 @@ public class CarrierGenerator implements Runnable {
          * @param carrier The carrier for which missed parcels are being determined.
          * @param service The service being added.
          * @param rate    The delivery rate for the service.
+         * @param random  The random stream of the carrier.
          */
-        private void determineMissedParcels(final Carrier carrier, final CarrierService service, final double rate) {
-
-                final int amount = service.getCapacityDemand();
-                int missed = 0;
-                final ArrayList<Id<CarrierService>> missedDeliveries = new ArrayList<>();
-
-                for (int a = 0; a < amount; a++) {
-                        final double randomNumber = random.nextDouble() * 100;
-
-                        if (randomNumber > rate) {
-                                missedDeliveries.add(service.getId());
-                                missed++;
-                        }
-                }
-
-                final int currentMissed = (int) carrier.getAttributes().getAttribute("missedParcels");
-                final int newMissed = currentMissed + missed;
-
-                carrier.getAttributes().putAttribute("missedParcels", newMissed);
-
-                // Get the current list of missed parcels and append the new missed deliveries
-                ArrayList<Id<CarrierService>> currentMissedList = (ArrayList<Id<CarrierService>>) carrier
-                                .getAttributes()
-                                .getAttribute("missedParcelsAsList");
-
-                if (currentMissedList == null) {
-                        currentMissedList = new ArrayList<>();
+        private void determineMissedParcels(final Carrier carrier, final CarrierService service, final double rate,
+                        final Random random) {
+
+                // The number of missed parcels of a service is binomially distributed, so a
+                // single draw replaces one draw per parcel
+                final double missProbability = (100.0 - rate) / 100.0;
+                final int missed = BinomialSampler.sample(service.getCapacityDemand(), missProbability, random);
+                if (missed == 0) {
+                        return;
                 }
 
-                currentMissedList.addAll(missedDeliveries);
-
-                carrier.getAttributes().putAttribute("missedParcelsAsList", currentMissedList);
+                final MissedParcels missedParcels = getMissedParcels(carrier);
+                missedParcels.add(service.getId(), missed);
+                carrier.getAttributes().putAttribute("missedParcels", missedParcels.getTotal());
         }
 
         /**
@@ -506,13 +578,14 @@ public class CarrierGenerator implements Runnable {
          * based on the provider.
          *
          * @param carrier               The carrier to which vehicles will be added.
-         * @param hubs                  A map of hubs used to find the closest hub.
+         * @param hubCandidates         The hubs of the carrier's provider, ranked by
+         *                              distance.
          */
         private void addCarrierVehiclesToCarrier(final Carrier carrier,
-                        final Map<Id<Hub>, Hub> hubs) {
+                        final List<Hub> hubCandidates) {
 
                 // Find the closest hub for the carrier based on its ID and number of parcels
-                Hub closestHub = getClosestHub(carrier, hubs);
+                Hub closestHub = getClosestHub(carrier, hubCandidates);
 
                 // Set hub attributes for the carrier
                 carrier.getAttributes().putAttribute("hub", closestHub);
@@ -543,16 +616,52 @@ public class CarrierGenerator implements Runnable {
         }
 
         /**
-         * Finds the closest hub with enough capacity for the given number of parcels.
+         * Ranks the hubs of the carrier's provider by their distance to the closest
+         * service of the carrier. The ranking does not depend on hub capacities and
+         * can therefore be computed independently for every carrier.
          *
          * @param carrier The carrier with services to be assigned to a hub.
          * @param hubList A map of hub IDs to Hub objects.
-         * @return The closest Hub with sufficient capacity.
+         * @return The hubs of the provider, closest first.
          */
-        private static Hub getClosestHub(Carrier carrier, Map<Id<Hub>, Hub> hubList) {
+        private static List<Hub> rankHubsByDistance(Carrier carrier, Map<Id<Hub>, Hub> hubList) {
 
-                // Create a GeometryFactory for point creation
-                GeometryFactory geometryFactory = new GeometryFactory();
+                // Extract the provider from the carrier's attributes
+                String provider = (String) carrier.getAttributes().getAttribute("provider");
+
+                // Collect the service coordinates once
+                List<Coord> serviceCoords = carrier.getServices().values().stream()
+                                .map(service -> (Coord) service.getAttributes().getAttribute("coord"))
+                                .collect(Collectors.toList());
+
+                // Determine the distance of each hub to its closest service
+                Map<Hub, Double> hubDistances = new HashMap<>();
+                List<Hub> providerHubs = hubList.values().stream()
+                                .filter(hub -> hub.getProvider().contains(provider))
+                                .collect(Collectors.toList());
+                for (Hub hub : providerHubs) {
+                        double minDistance = Double.POSITIVE_INFINITY;
+                        for (Coord serviceCoord : serviceCoords) {
+                                minDistance = Math.min(minDistance, NetworkUtils.getEuclideanDistance(
+                                                serviceCoord.getX(), serviceCoord.getY(),
+                                                hub.getCoord().getX(), hub.getCoord().getY()));
+                        }
+                        hubDistances.put(hub, minDistance);
+                }
+
+                // Sort hubs by distance, keeping the order of the hub list for ties
+                providerHubs.sort(Comparator.comparingDouble(hubDistances::get));
+                return providerHubs;
+        }
+
+        /**
+         * Finds the closest hub with enough capacity for the given number of parcels.
+         *
+         * @param carrier       The carrier with services to be assigned to a hub.
+         * @param hubCandidates The hubs of the carrier's provider, ranked by distance.
+         * @return The closest Hub with sufficient capacity.
+         */
+        private static Hub getClosestHub(Carrier carrier, List<Hub> hubCandidates) {
 
                 // Determine the number of parcels for the carrier
                 int numberOfParcels = carrier.getServices().values().stream()
@@ -564,23 +673,9 @@ public class CarrierGenerator implements Runnable {
                 String provider = (String) carrier.getAttributes().getAttribute("provider");
 
                 // Find the closest hub
-                Optional<Hub> closestHub = carrier.getServices().values().stream()
-                                .flatMap(service -> {
-                                        Coord serviceCoord = (Coord) service.getAttributes().getAttribute("coord");
-                                        Point servicePoint = geometryFactory
-                                                        .createPoint(new Coordinate(serviceCoord.getX(),
-                                                                        serviceCoord.getY()));
-                                        return hubList.values().stream()
-                                                        .filter(hub -> hub.getProvider().contains(provider)
-                                                                        && hub.hasCapacity(numberOfParcels))
-                                                        .map(hub -> new Object[] { hub, servicePoint, hub.getCoord() });
-                                })
-                                .min(Comparator.comparingDouble(hubServiceCoord -> NetworkUtils.getEuclideanDistance(
-                                                ((Point) hubServiceCoord[1]).getX(),
-                                                ((Point) hubServiceCoord[1]).getY(),
-                                                ((Coord) hubServiceCoord[2]).getX(),
-                                                ((Coord) hubServiceCoord[2]).getY())))
-                                .map(hubServiceCoord -> (Hub) hubServiceCoord[0]);
+                Optional<Hub> closestHub = hubCandidates.stream()
+                                .filter(hub -> hub.hasCapacity(numberOfParcels))
+                                .findFirst();
 
                 // Throw an exception if no suitable hub is found
                 if (!closestHub.isPresent()) {
@@ -600,45 +695,37 @@ public class CarrierGenerator implements Runnable {
          * Validates the carriers by comparing the generated carrier services with the
          * original delivery summary.
          *
+         * All counters are aggregated in a single traversal of the carriers, which
+         * runs concurrently if parallel carrier generation is enabled.
+         *
          * @param carriers The carriers to be validated.
+         * @return The aggregated validation report.
          */
-        private void validateCarriers(final Carriers carriers) {
-
-                LOGGER.info("Validating carrier missed deliveries...");
-
-                try {
-                        validateMissedParcelDeliveries(carriers);
-                } catch (ServiceCreationException e) {
-                        LOGGER.error("Error validating missed deliveries", e);
-                }
-                LOGGER.info("Validation of carrier missed deliveries completed.");
+        private CarrierValidationReport validateCarriers(final Carriers carriers) {
 
                 LOGGER.info("Validating carrier services...");
 
                 final HAGRIDSummary summary = (HAGRIDSummary) HAGRIDUtils.getScenarioElementAs("summary", scenario);
                 final Map<String, Double> deliveryRates = initializeDeliveryRate(); // Initialize delivery rates
 
-                final int totalServices = carriers.getCarriers().values().stream()
-                                .mapToInt(carrier -> carrier.getServices().size())
-                                .sum();
+                final CarrierValidationReport report = CarrierValidationReport.aggregate(carriers,
+                                hagridConfig.isParallelCarrierGeneration());
+                final CarrierValidationReport.ProviderStatistics total = report.getTotal();
 
-                final int totalParcels = carriers.getCarriers().values().stream()
-                                .flatMap(carrier -> carrier.getServices().values().stream())
-                                .mapToInt(CarrierService::getCapacityDemand)
-                                .sum();
-
-                final int totalB2BServices = (int) carriers.getCarriers().values().stream()
-                                .flatMap(carrier -> carrier.getServices().values().stream())
-                                .filter(service -> ParcelType.B2B.toString()
-                                                .equals(service.getAttributes().getAttribute("type").toString()))
-                                .count();
+                // Missed parcel inconsistencies are logged but do not abort the validation
+                LOGGER.info("Validating carrier missed deliveries...");
+                if (report.getMissedParcelIssues().isEmpty()) {
+                        LOGGER.info("Validation passed for all carriers and their missed parcel deliveries.");
+                } else {
+                        report.getMissedParcelIssues().forEach(issue -> LOGGER
+                                        .error("Error validating missed deliveries. Validation failed for " + issue));
+                }
+                LOGGER.info("Validation of carrier missed deliveries completed.");
 
-                final int totalB2BParcels = carriers.getCarriers().values().stream()
-                                .flatMap(carrier -> carrier.getServices().values().stream())
-                                .filter(service -> ParcelType.B2B.toString()
-                                                .equals(service.getAttributes().getAttribute("type").toString()))
-                                .mapToInt(CarrierService::getCapacityDemand)
-                                .sum();
+                final long totalServices = total.getServices();
+                final long totalParcels = total.getParcels();
+                final long totalB2BServices = total.getB2BServices();
+                final long totalB2BParcels = total.getB2BParcels();
 
                 final int correctionFactor = summary.getCorrectionFactor(); // Get the correction factor from the
                                                                             // summary
@@ -673,55 +760,16 @@ public class CarrierGenerator implements Runnable {
                 }
 
                 // Validate capacityDemand matches the number of weights
-                carriers.getCarriers().values().forEach(carrier -> {
-                        final double[] totalServiceWeight = { 0.0 }; // Use an array to hold the weight
-
-                        carrier.getServices().values().forEach(service -> {
-                                String weightsString = (String) service.getAttributes().getAttribute("weights");
-                                List<Double> weights = parseWeights(weightsString);
-                                totalServiceWeight[0] += weights.stream().mapToDouble(Double::doubleValue).sum();
-                                if (weights.size() != service.getCapacityDemand()) {
-                                        validationErrors.append(
-                                                        String.format("Validation failed: Service %s has capacityDemand %d but %d weights.%n",
-                                                                        service.getId(), service.getCapacityDemand(),
-                                                                        weights.size()));
-                                }
-                        });
-
-                        LOGGER.debug("Total service weight for carrier {}: {}", carrier.getId(), totalServiceWeight[0]);
-                });
-
-                // Map to store the sum of parcels for each provider
-                final Map<String, List<Double>> providerParcelRates = new HashMap<>();
-
-                carriers.getCarriers().values().forEach(carrier -> {
-                        final String provider = (String) carrier.getAttributes().getAttribute("provider");
-                        final double totalCarrierParcels = carrier.getServices().values().stream()
-                                        .mapToInt(CarrierService::getCapacityDemand)
-                                        .sum();
-
-                        // Handle the type conversion properly
-                        final Object missedParcelsObj = carrier.getAttributes().getAttribute("missedParcels");
-                        final double missedCarrierParcels;
-                        if (missedParcelsObj instanceof Integer) {
-                                missedCarrierParcels = ((Integer) missedParcelsObj).doubleValue();
-                        } else if (missedParcelsObj instanceof Double) {
-                                missedCarrierParcels = (Double) missedParcelsObj;
-                        } else {
-                                missedCarrierParcels = 0.0;
-                        }
-
-                        if (totalCarrierParcels > 0) {
-                                double missedParcelRate = missedCarrierParcels / totalCarrierParcels;
-                                providerParcelRates.computeIfAbsent(provider, k -> new ArrayList<>())
-                                                .add(missedParcelRate);
-                        }
-                });
+                report.getWeightIssues().forEach(
+                                issue -> validationErrors.append("Validation failed: ").append(issue)
+                                                .append(System.lineSeparator()));
 
                 // Log the missed parcels for each provider and compare with the rate
-                providerParcelRates.forEach((provider, rates) -> {
-                        double averageMissedRate = 1
-                                        - rates.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+                report.getProviders().forEach((provider, statistics) -> {
+                        if (statistics.getRatedCarriers() == 0) {
+                                return;
+                        }
+                        double averageMissedRate = 1 - statistics.getAverageMissedRate();
                         LOGGER.info(String.format("Missed parcels for provider %s: average rate %.2f%%", provider,
                                         averageMissedRate * 100));
 
@@ -737,88 +785,7 @@ public class CarrierGenerator implements Runnable {
                 });
 
                 // Log the overall weight statistics and their distribution by provider
-                StringBuilder logBuilder = new StringBuilder();
-                logBuilder.append("=== Delivery Statistics by Provider ===\n");
-
-                long totalServiceCount = 0;
-                long totalB2BServiceCount = 0;
-                long totalParcelCount = 0;
-                long totalB2BParcelCount = 0;
-                double totalWeight = 0.0;
-                double totalB2BWeight = 0.0;
-
-                Map<String, List<CarrierService>> servicesByProvider = carriers.getCarriers().values().stream()
-                                .flatMap(carrier -> carrier.getServices().values().stream())
-                                .collect(Collectors.groupingBy(
-                                                service -> (String) service.getAttributes().getAttribute("provider")));
-
-                for (Map.Entry<String, List<CarrierService>> entry : servicesByProvider.entrySet()) {
-                        String provider = entry.getKey();
-                        List<CarrierService> services = entry.getValue();
-
-                        long providerServiceCount = services.size();
-                        long providerB2BServiceCount = services.stream()
-                                        .filter(service -> ParcelType.B2B.toString()
-                                                        .equals(service.getAttributes().getAttribute("type")
-                                                                        .toString()))
-                                        .count();
-                        long providerParcelCount = services.stream()
-                                        .mapToLong(CarrierService::getCapacityDemand)
-                                        .sum();
-                        long providerB2BParcelCount = services.stream()
-                                        .filter(service -> ParcelType.B2B.toString()
-                                                        .equals(service.getAttributes().getAttribute("type")
-                                                                        .toString()))
-                                        .mapToLong(CarrierService::getCapacityDemand)
-                                        .sum();
-
-                        double providerTotalWeight = services.stream()
-                                        .flatMapToDouble(service -> parseWeights(
-                                                        (String) service.getAttributes().getAttribute("weights"))
-                                                        .stream()
-                                                        .mapToDouble(Double::doubleValue))
-                                        .sum();
-                        double providerB2BWeight = services.stream()
-                                        .filter(service -> ParcelType.B2B.toString()
-                                                        .equals(service.getAttributes().getAttribute("type")
-                                                                        .toString()))
-                                        .flatMapToDouble(service -> parseWeights(
-                                                        (String) service.getAttributes().getAttribute("weights"))
-                                                        .stream()
-                                                        .mapToDouble(Double::doubleValue))
-                                        .sum();
-                        double providerAverageWeight = providerParcelCount == 0 ? 0
-                                        : providerTotalWeight / providerParcelCount;
-                        double providerAverageB2BWeight = providerB2BParcelCount == 0 ? 0
-                                        : providerB2BWeight / providerB2BParcelCount;
-
-                        totalServiceCount += providerServiceCount;
-                        totalB2BServiceCount += providerB2BServiceCount;
-                        totalParcelCount += providerParcelCount;
-                        totalB2BParcelCount += providerB2BParcelCount;
-                        totalWeight += providerTotalWeight;
-                        totalB2BWeight += providerB2BWeight;
-
-                        logBuilder.append(String.format(
-                                        "Provider: %s\n  Total Services     : %,d\n  B2B Services       : %,d\n  Total Parcels      : %,d\n  B2B Parcels        : %,d\n  B2B Service Ratio  : %.2f%%\n  B2B Parcel Ratio   : %.2f%%\n  Total Weight       : %.2f\n  Total B2B Weight   : %.2f\n  Average Weight     : %.2f\n  Average B2B Weight : %.2f\n\n",
-                                        provider, providerServiceCount, providerB2BServiceCount, providerParcelCount,
-                                        providerB2BParcelCount,
-                                        (double) providerB2BServiceCount / providerServiceCount * 100,
-                                        (double) providerB2BParcelCount / providerParcelCount * 100,
-                                        providerTotalWeight, providerB2BWeight, providerAverageWeight,
-                                        providerAverageB2BWeight));
-                }
-
-                double totalAverageWeight = totalParcelCount == 0 ? 0 : totalWeight / totalParcelCount;
-                double totalAverageB2BWeight = totalB2BParcelCount == 0 ? 0 : totalB2BWeight / totalB2BParcelCount;
-
-                logBuilder.append("=== Total Statistics ===\n");
-                logBuilder.append(String.format(
-                                "Total Services     : %,d\nTotal B2B Services : %,d\nTotal Parcels      : %,d\nTotal B2B Parcels  : %,d\nTotal Weight       : %.2f\nTotal B2B Weight   : %.2f\nAverage Weight     : %.2f\nAverage B2B Weight : %.2f\n",
-                                totalServiceCount, totalB2BServiceCount, totalParcelCount, totalB2BParcelCount,
-                                totalWeight, totalB2BWeight, totalAverageWeight, totalAverageB2BWeight));
-
-                LOGGER.info(logBuilder.toString());
+                LOGGER.info(report.toLogString());
 
                 if (validationErrors.length() > 0) {
                         throw new IllegalStateException(validationErrors.toString());
@@ -832,26 +799,21 @@ public class CarrierGenerator implements Runnable {
                 }
 
                 LOGGER.info("Validation of carrier completed.");
+                return report;
         }
 
         /**
          * Validates that the assigned supply demand to all hubs matches the total
          * parcels.
          *
-         * @param carriers A map of carrier IDs to Carrier objects.
-         * @param hubs     A map of hub IDs to Hub objects.
+         * @param totalParcels The total parcels across all carriers.
+         * @param hubs         A map of hub IDs to Hub objects.
          * @throws IllegalStateException If the validation fails.
          */
-        private void validateSupplyDemand(Carriers carriers, Map<Id<Hub>, Hub> hubs) {
+        private void validateSupplyDemand(long totalParcels, Map<Id<Hub>, Hub> hubs) {
                 // Log the start of the validation process
                 LOGGER.info("Starting validation of supply demand...");
 
-                // Calculate the total parcels across all carriers
-                final int totalParcels = carriers.getCarriers().values().stream()
-                                .flatMap(carrier -> carrier.getServices().values().stream())
-                                .mapToInt(CarrierService::getCapacityDemand)
-                                .sum();
-
                 // Calculate the total assigned supply demand across all hubs
                 final int totalAssignedSupplyDemand = hubs.values().stream()
                                 .mapToInt(Hub::getAssignedSupplyDemand)
@@ -891,17 +853,14 @@ public class CarrierGenerator implements Runnable {
                 Map<String, Double> originalWeightsMap = carrierDeliveries.stream()
                                 .collect(Collectors.toMap(
                                                 d -> String.format("%s_%s", d.getParcelType(), d.getCoordinate()),
-                                                d -> d.getIndividualWeights().stream().mapToDouble(Double::doubleValue)
-                                                                .sum(),
+                                                d -> d.getIndividualWeights().sum(),
                                                 Double::sum));
 
                 Map<String, Double> createdWeightsMap = createdServices.stream()
                                 .collect(Collectors.toMap(
                                                 s -> String.format("%s_%s", s.getAttributes().getAttribute("type"),
                                                                 s.getAttributes().getAttribute("coord")),
-                                                s -> Arrays.stream(((String) s.getAttributes().getAttribute("weights"))
-                                                                .split(";"))
-                                                                .mapToDouble(Double::parseDouble).sum(),
+                                                s -> parseWeights(s.getAttributes().getAttribute("weights")).sum(),
                                                 Double::sum));
 
                 for (Map.Entry<String, Double> entry : originalWeightsMap.entrySet()) {
@@ -922,51 +881,41 @@ public class CarrierGenerator implements Runnable {
         }
 
         /**
-         * Validates that the missed deliveries match the expected missed deliveries for
-         * each carrier.
+         * Returns the missed parcels record of a carrier.
          *
-         * @param carriers The list of carriers to validate.
-         * @throws ServiceCreationException if validation fails.
+         * @param carrier The carrier.
+         * @return The missed parcels per service of the carrier.
          */
-        private void validateMissedParcelDeliveries(Carriers carriers) throws ServiceCreationException {
-                for (Carrier carrier : carriers.getCarriers().values()) {
-                        int expectedMissedDeliveries = (int) carrier.getAttributes().getAttribute("missedParcels");
-                        List<Id<CarrierService>> missedDeliveries = (List<Id<CarrierService>>) carrier.getAttributes()
-                                        .getAttribute("missedParcelsAsList");
-
-                        if (missedDeliveries.size() != expectedMissedDeliveries) {
-                                throw new ServiceCreationException("Validation failed for carrier: " + carrier.getId() +
-                                                ". Expected missed parcel deliveries: " + expectedMissedDeliveries +
-                                                ", Actual missed parcel deliveries: " + missedDeliveries.size(), null);
-                        }
-                }
-
-                LOGGER.info("Validation passed for all carriers and their missed parcel deliveries.");
+        static MissedParcels getMissedParcels(Carrier carrier) {
+                return (MissedParcels) carrier.getAttributes().getAttribute("missedParcelsPerService");
         }
 
         /**
-         * Parses a semicolon-separated string of weights into a list of Double values.
+         * Parses the "weights" attribute of a service into ParcelWeights.
          *
-         * This method takes a string representation of weights, where individual
-         * weights
-         * are separated by semicolons, and converts it into a list of Double objects.
-         * If
-         * the input string is null or empty, the method returns an empty list.
+         * The attribute is usually stored in the compact binary representation of
+         * ParcelWeightsConverter, but the legacy semicolon-separated format is
+         * accepted as well. If the attribute is null or empty, an empty view is
+         * returned.
          *
-         * @param weightsString A string containing weights separated by semicolons.
-         * @return A list of Double objects representing the weights.
+         * @param weightsAttribute The "weights" attribute of a service.
+         * @return The parsed parcel weights.
          */
-        private List<Double> parseWeights(String weightsString) {
-                // Check if the input string is null or empty
-                if (weightsString == null || weightsString.isEmpty()) {
-                        // Return an empty list if the input string is null or empty
-                        return new ArrayList<>();
-                }
+        private ParcelWeights parseWeights(Object weightsAttribute) {
+                return ParcelWeightsConverter.fromAttribute(weightsAttribute);
+        }
 
-                // Split the input string by semicolons, convert each segment to a Double,
-                // and collect the results into a list
-                return Arrays.stream(weightsString.split(";"))
-                                .map(Double::valueOf)
-                                .collect(Collectors.toList());
+        /**
+         * Intermediate result of the first generation phase for a single carrier.
+         */
+        private static final class CarrierDraft {
+                private final Carrier carrier;
+                private int correctionFactor = 0;
+                private List<Hub> hubCandidates = new ArrayList<>();
+                private boolean servicesCreated = false;
+
+                private CarrierDraft(Carrier carrier) {
+                        this.carrier = carrier;
+                }
         }
 }
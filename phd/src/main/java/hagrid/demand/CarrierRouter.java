@@ -2,19 +2,32 @@ package hagrid.demand;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
-import org.matsim.freight.carriers.CarrierPlanWriter;
+import org.matsim.freight.carriers.Carrier;
+import org.matsim.freight.carriers.CarrierService;
+import org.matsim.freight.carriers.CarrierVehicle;
 import org.matsim.freight.carriers.CarrierVehicleTypes;
 import org.matsim.freight.carriers.Carriers;
 import org.matsim.freight.carriers.jsprit.NetworkBasedTransportCosts;
 
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
 import hagrid.HagridConfigGroup;
+import hagrid.utils.general.CarrierPlanOutput;
 import hagrid.utils.general.HAGRIDUtils;
+import hagrid.utils.general.CsvTableExporter;
 import hagrid.utils.routing.HAGRIDRouterUtils;
+import hagrid.utils.routing.RoutingBudget;
+import hagrid.utils.routing.SolutionCache;
 import hagrid.utils.routing.ThreadingType;
 import hagrid.utils.routing.ZoneBasedTransportCosts;
 
@@ -37,6 +50,9 @@ public class CarrierRouter implements Runnable {
     @Inject
     private HagridConfigGroup hagridConfig;
 
+    @Inject
+    private CarrierPlanOutput carrierPlanOutput;
+
     public void setThreadingType(ThreadingType threadingType) {
         this.threadingType = threadingType;
     }
@@ -81,24 +97,79 @@ public class CarrierRouter implements Runnable {
                     carFilteredNetwork,
                     vehicleTypes.getVehicleTypes().values());
             zoneBuilder.setTimeSliceWidth(1800);
+            if (hagridConfig.isPrecomputedLinkCosts()) {
+                // Free speed link costs are static, so they are computed once per vehicle type
+                zoneBuilder.setPrecomputedLinkCosts(true);
+            }
+            if (hagridConfig.isNetworkContraction()) {
+                // Free speed travel times are additive along merged link chains
+                zoneBuilder.setNetworkContraction(getLocationLinks(carriers));
+            }
+            if (hagridConfig.isContractionHierarchies()) {
+                // Free speed travel times are static per vehicle type
+                zoneBuilder.setContractionHierarchies(true, hagridConfig.getContractionHierarchyDirectory());
+            }
             final ZoneBasedTransportCosts zoneBasedCosts = zoneBuilder.build();
 
-            // Initialize the router with the specified threading type
-            Router router = new Router(threadingType);            
-
-            // Route delivery carriers
+            // Initialize the router with the specified threading type and, if set, the
+            // time budget shared by the delivery and supply carriers
+            RoutingBudget routingBudget = null;
+            if (hagridConfig.getRoutingTimeBudget() > 0) {
+                long totalSize = 0;
+                for (Carriers routed : List.of(carriers, supplyCarriers)) {
+                    for (Carrier carrier : routed.getCarriers().values()) {
+                        totalSize += RoutingBudget.getSize(carrier);
+                    }
+                }
+                int threads = threadingType == ThreadingType.SINGLE_THREAD ? 1
+                        : Runtime.getRuntime().availableProcessors();
+                routingBudget = new RoutingBudget(hagridConfig.getRoutingTimeBudget(), threads, totalSize,
+                        hagridConfig.getRoutingMaxIterations(), hagridConfig.getRoutingVariationCoefficient());
+            }
+            SolutionCache solutionCache = hagridConfig.isSolutionCache()
+                    ? new SolutionCache(Paths.get(hagridConfig.getSolutionCacheDirectory()))
+                    : null;
+            Router router = new Router(threadingType, routingBudget, solutionCache);
+
+            // Routing changes the carriers, so unrouted plans must be written first
+            carrierPlanOutput.awaitCompletion();
+
+            // Route delivery carriers and write them while the supply carriers are routed
             router.routeCarriers(carriers, zoneBasedCosts, carFilteredNetwork, "delivery");
+            carrierPlanOutput.write(carriers, "phd/output/delivery_carriers_routed.xml");
 
             // Route supply carriers
             router.routeCarriers(supplyCarriers, netBasedCosts, carFilteredNetwork, "supply");
+            carrierPlanOutput.write(supplyCarriers, "phd/output/supply_carriers_routed.xml");
 
-            // // Write the routed plans to XML files
-            new CarrierPlanWriter(carriers).write("phd/output/delivery_carriers_routed.xml");
-            new CarrierPlanWriter(supplyCarriers).write("phd/output/supply_carriers_routed.xml");
+            if (hagridConfig.isTableExport()) {
+                CsvTableExporter.writeTours(carriers, "phd/output/delivery_tours_routed.csv.gz");
+                CsvTableExporter.writeTours(supplyCarriers, "phd/output/supply_tours_routed.csv.gz");
+            }
 
             LOGGER.info("Routing process for carriers completed successfully.");
         } catch (Exception e) {
             LOGGER.error("Error routing carriers", e);
         }
     }
+
+    /**
+     * Collects the links of the services and vehicles of the carriers, whose end
+     * nodes are kept when the network is contracted.
+     *
+     * @param carriers The carriers.
+     * @return The ids of the location links.
+     */
+    private static Set<Id<Link>> getLocationLinks(Carriers carriers) {
+        Set<Id<Link>> locationLinks = new HashSet<>();
+        for (Carrier carrier : carriers.getCarriers().values()) {
+            for (CarrierService service : carrier.getServices().values()) {
+                locationLinks.add(service.getLocationLinkId());
+            }
+            for (CarrierVehicle vehicle : carrier.getCarrierCapabilities().getCarrierVehicles().values()) {
+                locationLinks.add(vehicle.getLinkId());
+            }
+        }
+        return locationLinks;
+    }
 }
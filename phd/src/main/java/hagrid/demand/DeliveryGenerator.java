@@ -14,14 +14,21 @@ import org.matsim.api.core.v01.Scenario;
 
 
 import hagrid.HagridConfigGroup;
-import hagrid.utils.GeoUtils;
 import hagrid.utils.demand.Delivery;
+import hagrid.utils.demand.DeliveryKdTree;
 import hagrid.utils.demand.Hub;
+import hagrid.utils.demand.ParcelWeightBuffer;
+import hagrid.utils.demand.ParcelWeights;
 import hagrid.utils.demand.WeightGenerator;
 import hagrid.utils.demand.Delivery.DeliveryMode;
+import hagrid.utils.general.HAGRIDUtils;
 import hagrid.utils.general.ParcelStatisticsLogger;
+import hagrid.utils.general.CsvTableExporter;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import java.util.stream.Collectors;
 
@@ -34,6 +41,9 @@ public class DeliveryGenerator implements Runnable {
 
         private static final Logger LOGGER = LogManager.getLogger(DeliveryGenerator.class);
 
+        // Maximum number of carrier groups processed by a single fork/join task
+        private static final int GROUPS_PER_TASK = 8;
+
         @Inject
         private Scenario scenario;
 
@@ -44,19 +54,17 @@ public class DeliveryGenerator implements Runnable {
 
         private WeightGenerator parcelWeightGenerator = new WeightGenerator();
 
+        private ParcelWeightBuffer parcelWeightBuffer = new ParcelWeightBuffer();
+
         @Override
         public void run() {
                 try {
                         LOGGER.info("Generating parcels from sorted carrier demand...");
-                        Map<String, List<SimpleFeature>> carrierDemand = Optional.ofNullable(
-                                        (Map<String, List<SimpleFeature>>) scenario.getScenarioElement("carrierDemand"))
-                                        .orElseThrow(() -> new IllegalStateException(
-                                                        "Carrier demand data is missing in the scenario."));
+                        Map<String, List<SimpleFeature>> carrierDemand = HAGRIDUtils
+                                        .getScenarioElementAs("carrierDemand", scenario);
 
-                        Map<Id<Hub>, Hub> parcelLockerList = Optional
-                                        .ofNullable((Map<Id<Hub>, Hub>) scenario.getScenarioElement("parcelLockerList"))
-                                        .orElseThrow(() -> new IllegalStateException(
-                                                        "Parcel locker list data is missing in the scenario."));
+                        Map<Id<Hub>, Hub> parcelLockerList = HAGRIDUtils.getScenarioElementAs("parcelLockerList",
+                                        scenario);
 
                         // Initialize provider shape mapping dynamically
                         providerShapeMapping = generateProviderShapeMapping();
@@ -70,17 +78,22 @@ public class DeliveryGenerator implements Runnable {
                         addParcelLockerServices(deliveries, parcelLockerList);
 
                         // Log parcel statistics
-                        ParcelStatisticsLogger logger = new ParcelStatisticsLogger(scenario, false); // Set to true for detailed
-                                                                                           // log
+                        // Set the second argument to true for a detailed log
+                        ParcelStatisticsLogger logger = new ParcelStatisticsLogger(scenario, false,
+                                        hagridConfig.isParallelDeliveryGeneration());
                         logger.logStatistics(deliveries);
 
+                        if (hagridConfig.isTableExport()) {
+                                CsvTableExporter.writeDeliveries(deliveries, "phd/output/deliveries.csv.gz");
+                        }
+
                         // Store parcels in scenario
-                        scenario.addScenarioElement("deliveries", deliveries);
+                        HAGRIDUtils.addScenarioElement("deliveries", deliveries, scenario);
 
                         LOGGER.info("Parcel generation completed.");
 
                 } catch (Exception e) {
-                        LOGGER.error("Error generating parcels", e);
+                        throw new IllegalStateException("Error generating parcels", e);
                 }
         }
 
@@ -185,40 +198,94 @@ public class DeliveryGenerator implements Runnable {
         /**
          * Converts the carrier demand from SimpleFeature to Delivery objects.
          *
+         * Every carrier group draws its parcel weights from its own random stream,
+         * seeded from the global random seed and the group key. The result is
+         * therefore identical for sequential and parallel generation.
+         *
          * @param carrierDemand Map of carrier demands with SimpleFeatures.
          * @return Map of carrier demands with delivery objects.
          */
         private Map<String, ArrayList<Delivery>> convertDemandFromShapeToParcels(
                         Map<String, List<SimpleFeature>> carrierDemand) {
+                if (hagridConfig.isParallelDeliveryGeneration()) {
+                        return convertDemandFromShapeToParcelsInParallel(carrierDemand);
+                }
+
                 return carrierDemand.entrySet().stream()
                                 .collect(Collectors.toMap(
                                                 Map.Entry::getKey, // Preserve the key (providerPLZ)
-                                                entry -> { // Transform the value
-                                                        String provider = entry.getKey().split("_")[0];
-                                                        return entry.getValue().stream() // Stream the SimpleFeature
-                                                                                         // list
-                                                                        .map(simpleFeature -> createDelivery(
-                                                                                        simpleFeature, provider,
-                                                                                        DeliveryMode.HOME)) // Convert
-                                                                        // each
-                                                                        // SimpleFeature
-                                                                        // to
-                                                                        // Delivery
-                                                                        .collect(Collectors
-                                                                                        .toCollection(ArrayList::new)); // Collect
-                                                                                                                        // to
-                                                                                                                        // ArrayList<Delivery>
-                                                }));
+                                                entry -> convertCarrierGroup(entry.getKey(), entry.getValue(),
+                                                                parcelWeightBuffer)));
+        }
+
+        /**
+         * Converts the carrier demand from SimpleFeature to Delivery objects in
+         * parallel. The carrier groups are partitioned across a fork/join pool, each
+         * task builds its own result map and weight buffer, and the partial maps are
+         * merged when the tasks are joined.
+         *
+         * @param carrierDemand Map of carrier demands with SimpleFeatures.
+         * @return Map of carrier demands with delivery objects.
+         */
+        private Map<String, ArrayList<Delivery>> convertDemandFromShapeToParcelsInParallel(
+                        Map<String, List<SimpleFeature>> carrierDemand) {
+                List<Map.Entry<String, List<SimpleFeature>>> carrierGroups = new ArrayList<>(
+                                carrierDemand.entrySet());
+                carrierGroups.sort(Map.Entry.comparingByKey());
+
+                int parallelism = hagridConfig.getNumberOfThreads();
+                LOGGER.info("Generating deliveries for {} carrier groups using {} threads...", carrierGroups.size(),
+                                parallelism);
+
+                try (ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism)) {
+                        return forkJoinPool.invoke(new DeliveryGenerationTask(carrierGroups, 0, carrierGroups.size()));
+                }
+        }
+
+        /**
+         * Converts the SimpleFeatures of one carrier group into Delivery objects.
+         *
+         * @param carrierKey   The key of the carrier group (provider_PLZ).
+         * @param features     The SimpleFeatures of the carrier group.
+         * @param weightBuffer The buffer to store the parcel weights in.
+         * @return List of delivery objects.
+         */
+        private ArrayList<Delivery> convertCarrierGroup(String carrierKey, List<SimpleFeature> features,
+                        ParcelWeightBuffer weightBuffer) {
+                String provider = carrierKey.split("_")[0];
+                Random random = createRandom(carrierKey);
+
+                ArrayList<Delivery> groupDeliveries = new ArrayList<>(features.size());
+                for (SimpleFeature simpleFeature : features) {
+                        groupDeliveries.add(createDelivery(simpleFeature, provider, DeliveryMode.HOME, random,
+                                        weightBuffer));
+                }
+                return groupDeliveries;
+        }
+
+        /**
+         * Creates a random stream for the given key, derived from the global random
+         * seed of the scenario configuration.
+         *
+         * @param key The key identifying the stream, e.g. the carrier group.
+         * @return A seeded random stream.
+         */
+        private Random createRandom(String key) {
+                return HAGRIDUtils.createRandom(scenario.getConfig().global().getRandomSeed(), key);
         }
 
         /**
          * Creates a Delivery object from a SimpleFeature.
          *
-         * @param feature  SimpleFeature object.
-         * @param provider Provider name.
+         * @param feature      SimpleFeature object.
+         * @param provider     Provider name.
+         * @param mode         Delivery mode.
+         * @param random       Random stream for the parcel weights.
+         * @param weightBuffer Buffer to store the parcel weights in.
          * @return Delivery object.
          */
-        private Delivery createDelivery(SimpleFeature feature, String provider, Delivery.DeliveryMode mode) {
+        private Delivery createDelivery(SimpleFeature feature, String provider, Delivery.DeliveryMode mode,
+                        Random random, ParcelWeightBuffer weightBuffer) {
                 Point point = ((MultiPoint) feature.getAttribute(0)).getCentroid();
                 Coord coord = new Coord(point.getX(), point.getY());
 
@@ -230,11 +297,8 @@ public class DeliveryGenerator implements Runnable {
                 Delivery.ParcelType b2bInfo = getB2BInformation(feature, provider);
                 boolean isB2B = Delivery.ParcelType.B2B.equals(b2bInfo);
 
-                ArrayList<Double> individualWeights = new ArrayList<>();
-                for (int i = 0; i < amount; i++) {
-                        double weight = parcelWeightGenerator.generateWeight(isB2B);
-                        individualWeights.add(weight);
-                }
+                ParcelWeights individualWeights = weightBuffer.generate(amount.intValue(),
+                                () -> parcelWeightGenerator.generateWeight(isB2B, random));
 
                 return Delivery.builder()
                                 .id(deliveryPointId + "_" + deliveryPointId)
@@ -291,27 +355,49 @@ public class DeliveryGenerator implements Runnable {
          * delivery
          * to each parcel locker and assigns it as the supplier for that locker.
          *
+         * The delivery keys are indexed by provider and postal code, and the
+         * deliveries of each postal code are indexed in a k-d tree that records the
+         * owning key, so each locker is attached in O(log n). Since the index only
+         * contains the home deliveries, the lockers are independent of each other
+         * and are matched in parallel if parallel delivery generation is enabled.
+         *
          * @param deliveries       Map of carrier demands with Delivery objects.
          * @param parcelLockerList Map of parcel locker Hubs.
          */
         private void addParcelLockerServices(Map<String, ArrayList<Delivery>> deliveries,
                         Map<Id<Hub>, Hub> parcelLockerList) {
-                parcelLockerList.values().stream()
+                List<Hub> parcelLockers = parcelLockerList.values().stream()
                                 .filter(hub -> hub.getType().contains("PACKSTATION"))
-                                .forEach(hub -> {
+                                .collect(Collectors.toList());
+
+                Map<String, List<String>> deliveryKeysByPrefix = indexDeliveryKeysByPrefix(deliveries);
+                Map<String, DeliveryKdTree> deliveryTrees = new ConcurrentHashMap<>();
+
+                // Find the closest delivery key for every parcel locker
+                List<String> closestDeliveryKeys = (hagridConfig.isParallelDeliveryGeneration()
+                                ? parcelLockers.parallelStream()
+                                : parcelLockers.stream())
+                                .map(hub -> {
                                         Integer plz = (Integer) hub.getAttributes().getAttribute("plz");
-                                        List<String> possibleDeliveryKeys = findPossibleDeliveryKeys(deliveries, plz,
-                                                        hagridConfig.isWhiteLabel());
+                                        String prefix = getDeliveryKeyPrefix(plz, hagridConfig.isWhiteLabel());
+                                        DeliveryKdTree deliveryTree = deliveryTrees.computeIfAbsent(prefix,
+                                                        p -> DeliveryKdTree.build(deliveries,
+                                                                        findPossibleDeliveryKeys(deliveryKeysByPrefix,
+                                                                                        plz, p)));
+                                        return getDeliveryKey(deliveryTree, hub);
+                                })
+                                .collect(Collectors.toList());
 
-                                        String closestDeliveryKey = getDeliveryKey(deliveries, hub,
-                                                        possibleDeliveryKeys);
+                for (int i = 0; i < parcelLockers.size(); i++) {
+                        // Create a new delivery object for the parcel locker
+                        Delivery parcelLockerDelivery = createParcelLockerDelivery(parcelLockers.get(i));
 
-                                        // Create a new delivery object for the parcel locker
-                                        Delivery parcelLockerDelivery = createParcelLockerDelivery(hub);
+                        // Add the parcel locker delivery to the corresponding delivery list
+                        deliveries.get(closestDeliveryKeys.get(i)).add(parcelLockerDelivery);
+                }
 
-                                        // Add the parcel locker delivery to the corresponding delivery list
-                                        deliveries.get(closestDeliveryKey).add(parcelLockerDelivery);
-                                });
+                LOGGER.info("Attached {} parcel lockers using {} postal code indices.", parcelLockers.size(),
+                                deliveryTrees.size());
         }
 
         /**
@@ -325,13 +411,11 @@ public class DeliveryGenerator implements Runnable {
                 int parcelLockerDemand = hagridConfig.getParcelLockerDemand();
 
                 // Generate new individual weights for the parcels
-                ArrayList<Double> individualWeights = new ArrayList<>();
-                for (int i = 0; i < parcelLockerDemand; i++) {
-                        double weight = parcelWeightGenerator.generateWeight(false); // Assuming parcel locker
-                                                                                     // deliveries are
-                                                                                     // not B2B
-                        individualWeights.add(weight);
-                }
+                Random random = createRandom(hub.getId().toString());
+                ParcelWeights individualWeights = parcelWeightBuffer.generate(parcelLockerDemand,
+                                () -> parcelWeightGenerator.generateWeight(false, random)); // Assuming parcel locker
+                                                                                            // deliveries are
+                                                                                            // not B2B
 
                 return Delivery.builder() // Start building a new Delivery object using the Builder pattern
                                 .id(hub.getId().toString()+"_locker") // Set the ID of the delivery point as a string
@@ -355,57 +439,69 @@ public class DeliveryGenerator implements Runnable {
         /**
          * Finds the closest delivery key for a given hub.
          *
-         * @param deliveries           Map of carrier demands with Delivery objects.
-         * @param hub                  The parcel locker hub.
-         * @param possibleDeliveryKeys List of possible delivery keys for the given
-         *                             postal code.
+         * @param deliveryTree The k-d tree over the deliveries of the hub's postal
+         *                     code.
+         * @param hub          The parcel locker hub.
          * @return The closest delivery key for the given hub.
          */
-        private String getDeliveryKey(Map<String, ArrayList<Delivery>> deliveries, Hub hub,
-                        List<String> possibleDeliveryKeys) {
-                List<Delivery> possibleDeliveries = possibleDeliveryKeys.stream()
-                                .flatMap(key -> deliveries.get(key).stream())
-                                .collect(Collectors.toList());
-
-                if (possibleDeliveries.isEmpty()) {
+        private String getDeliveryKey(DeliveryKdTree deliveryTree, Hub hub) {
+                if (deliveryTree.size() == 0) {
                         throw new IllegalStateException(
                                         "No deliveries found for PLZ: " + hub.getAttributes().getAttribute("plz"));
                 }
 
-                // Find the closest delivery to the current parcel locker hub
-                Delivery closestDelivery = GeoUtils.findClosestDeliveryToCoord(possibleDeliveries, hub.getCoord());
+                // Find the key of the closest delivery to the current parcel locker hub
+                return deliveryTree.findClosestKey(hub.getCoord());
+        }
 
-                // Find the corresponding delivery key for the closest delivery
-                return possibleDeliveryKeys.stream()
-                                .filter(key -> deliveries.get(key).contains(closestDelivery))
-                                .findFirst()
-                                .orElseThrow(() -> new IllegalStateException(
-                                                "No matching key found for closest delivery."));
+        /**
+         * Indexes the delivery keys by their provider and postal code prefix, e.g.
+         * "dhl_30159" for the keys "dhl_30159_0" and "dhl_30159_1".
+         *
+         * @param deliveries The map of all deliveries, where the key is the delivery
+         *                   identifier.
+         * @return A map from prefix to the matching delivery keys.
+         */
+        private static Map<String, List<String>> indexDeliveryKeysByPrefix(
+                        Map<String, ArrayList<Delivery>> deliveries) {
+                Map<String, List<String>> keysByPrefix = new HashMap<>();
+                for (String key : deliveries.keySet()) {
+                        String[] parts = key.split("_");
+                        if (parts.length < 2) {
+                                continue;
+                        }
+                        keysByPrefix.computeIfAbsent(parts[0] + "_" + parts[1], k -> new ArrayList<>()).add(key);
+                }
+                return keysByPrefix;
         }
 
         /**
-         * Finds possible delivery keys based on the provided postal code (PLZ) and
-         * whether
-         * it is a white label delivery or not. If no keys are found, it throws an
-         * exception.
+         * Returns the delivery key prefix for a postal code, depending on whether it
+         * is a white label delivery or not.
          *
-         * @param deliveries   The map of all deliveries, where the key is the delivery
-         *                     identifier.
-         * @param plz          The postal code to search for in the delivery keys.
+         * @param plz          The postal code.
          * @param isWhiteLabel Whether the search is for white label deliveries.
+         * @return The delivery key prefix.
+         */
+        private static String getDeliveryKeyPrefix(Integer plz, boolean isWhiteLabel) {
+                return isWhiteLabel ? "wl_" + plz : "dhl_" + plz;
+        }
+
+        /**
+         * Finds possible delivery keys based on the provided postal code (PLZ) and
+         * prefix. If no keys are found, it throws an exception.
+         *
+         * @param deliveryKeysByPrefix The delivery keys indexed by prefix.
+         * @param plz                  The postal code to search for in the delivery
+         *                             keys.
+         * @param prefix               The provider and postal code prefix.
          * @return A list of possible delivery keys that match the provided postal code
          *         and prefix.
          * @throws IllegalArgumentException If no matching delivery keys are found.
          */
-        private static List<String> findPossibleDeliveryKeys(Map<String, ArrayList<Delivery>> deliveries, Integer plz,
-                        boolean isWhiteLabel) {
-                // Determine the prefix based on whether it is a white label delivery or not
-                String prefix = isWhiteLabel ? "wl_" + plz : "dhl_" + plz;
-
-                // Filter the delivery keys that start with the determined prefix
-                List<String> possibleKeys = deliveries.keySet().stream()
-                                .filter(key -> key.startsWith(prefix))
-                                .collect(Collectors.toList());
+        private static List<String> findPossibleDeliveryKeys(Map<String, List<String>> deliveryKeysByPrefix,
+                        Integer plz, String prefix) {
+                List<String> possibleKeys = deliveryKeysByPrefix.getOrDefault(prefix, Collections.emptyList());
 
                 // If no keys are found, throw an exception
                 if (possibleKeys.isEmpty()) {
@@ -417,4 +513,48 @@ public class DeliveryGenerator implements Runnable {
                 return possibleKeys;
         }
 
+        /**
+         * Fork/join task that converts a range of carrier groups into deliveries.
+         * Ranges larger than GROUPS_PER_TASK are split in halves; every leaf uses
+         * its own result map and weight buffer, so no state is shared between
+         * threads.
+         */
+        private class DeliveryGenerationTask extends RecursiveTask<Map<String, ArrayList<Delivery>>> {
+
+                private final List<Map.Entry<String, List<SimpleFeature>>> carrierGroups;
+                private final int start;
+                private final int end;
+
+                DeliveryGenerationTask(List<Map.Entry<String, List<SimpleFeature>>> carrierGroups, int start,
+                                int end) {
+                        this.carrierGroups = carrierGroups;
+                        this.start = start;
+                        this.end = end;
+                }
+
+                @Override
+                protected Map<String, ArrayList<Delivery>> compute() {
+                        if (end - start <= GROUPS_PER_TASK) {
+                                ParcelWeightBuffer taskWeightBuffer = new ParcelWeightBuffer();
+                                Map<String, ArrayList<Delivery>> taskDeliveries = new HashMap<>();
+                                for (int i = start; i < end; i++) {
+                                        Map.Entry<String, List<SimpleFeature>> carrierGroup = carrierGroups.get(i);
+                                        taskDeliveries.put(carrierGroup.getKey(), convertCarrierGroup(
+                                                        carrierGroup.getKey(), carrierGroup.getValue(),
+                                                        taskWeightBuffer));
+                                }
+                                return taskDeliveries;
+                        }
+
+                        int middle = (start + end) >>> 1;
+                        DeliveryGenerationTask left = new DeliveryGenerationTask(carrierGroups, start, middle);
+                        left.fork();
+                        Map<String, ArrayList<Delivery>> rightDeliveries = new DeliveryGenerationTask(carrierGroups,
+                                        middle, end).compute();
+                        Map<String, ArrayList<Delivery>> leftDeliveries = left.join();
+                        leftDeliveries.putAll(rightDeliveries);
+                        return leftDeliveries;
+                }
+        }
+
 }
@@ -57,6 +57,8 @@ public class DemandProcessor implements Runnable {
 
     private static final Logger LOGGER = LogManager.getLogger(DemandProcessor.class);
 
+    public static final String FREIGHT_DEMAND_DATA = "freightDemandData";
+
     @Inject
     private Scenario scenario;
 
@@ -66,8 +68,16 @@ public class DemandProcessor implements Runnable {
     @Override
     public void run() {
         try {
-            LOGGER.info("Reading freight demand data from file: {}", hagridConfig.getFreightDemandPath());
-            Collection<SimpleFeature> freightFeatures = readFreightDemandData(hagridConfig.getFreightDemandPath());
+            // Use the freight demand data if it was already read by a separate stage
+            boolean demandRead;
+            synchronized (scenario) {
+                demandRead = scenario.getScenarioElement(FREIGHT_DEMAND_DATA) != null;
+            }
+            if (!demandRead) {
+                readDemand();
+            }
+            Collection<SimpleFeature> freightFeatures = HAGRIDUtils.getScenarioElementAs(FREIGHT_DEMAND_DATA,
+                    scenario);
             // Read Hanover GeoData from scenario
             Collection<SimpleFeature> hanoverGeoData = HAGRIDUtils.getScenarioElementAs("hanoverGeoData", scenario);            
 
@@ -79,11 +89,26 @@ public class DemandProcessor implements Runnable {
             Map<String, List<SimpleFeature>> carrierDemand = sortCarrierDemandSameSizeKMeans(filteredFreightFeatures);
 
             // Store data in scenario
-            scenario.addScenarioElement("carrierDemand", carrierDemand);
+            HAGRIDUtils.addScenarioElement("carrierDemand", carrierDemand, scenario);
 
             LOGGER.info("Freight demand data processing completed.");
         } catch (Exception e) {
-            LOGGER.error("Error reading freight demand data", e);
+            throw new IllegalStateException("Error processing freight demand data", e);
+        }
+    }
+
+    /**
+     * Reads the freight demand data and stores it in the scenario. Reading does
+     * not depend on other scenario elements, so it can run concurrently with the
+     * network and logistics data processing.
+     */
+    public void readDemand() {
+        try {
+            LOGGER.info("Reading freight demand data from file: {}", hagridConfig.getFreightDemandPath());
+            Collection<SimpleFeature> freightFeatures = readFreightDemandData(hagridConfig.getFreightDemandPath());
+            HAGRIDUtils.addScenarioElement(FREIGHT_DEMAND_DATA, freightFeatures, scenario);
+        } catch (Exception e) {
+            throw new IllegalStateException("Error reading freight demand data", e);
         }
     }
 
@@ -43,7 +43,7 @@ public class LogisticsDataProcessor implements Runnable {
     private static final Logger LOGGER = LogManager.getLogger(LogisticsDataProcessor.class);
 
     private static final String CARRIER_VEHICLE_TYPES = "carrierVehicleTypes";
-    private static final String geoDataPath = "phd/input/geodata/Region Hannover.shp";
+    public static final String GEO_DATA_PATH = "phd/input/geodata/Region Hannover.shp";
 
     @Inject
     private Scenario scenario;
@@ -61,8 +61,8 @@ public class LogisticsDataProcessor implements Runnable {
             LOGGER.info("Reading logistics data...");
 
             // Read shipping point data from files in the folder
-            LOGGER.info("Reading geodata of Hanover Region from folder: {}", geoDataPath);
-            Collection<SimpleFeature> hanoverGeoData = GeoFileReader.getAllFeatures(geoDataPath);
+            LOGGER.info("Reading geodata of Hanover Region from folder: {}", GEO_DATA_PATH);
+            Collection<SimpleFeature> hanoverGeoData = GeoFileReader.getAllFeatures(GEO_DATA_PATH);
 
             // Read hub data from file
             // Filter out all Hubs that are not located in the Hanover region, e.g. Nienburg
@@ -87,14 +87,14 @@ public class LogisticsDataProcessor implements Runnable {
 
             // Store data in scenario
             // Filter out all parcel lockers and shipping points that are not located in the in the config defined regions
-            scenario.addScenarioElement("hubList", hubList);
-            scenario.addScenarioElement("parcelLockerList",
+            HAGRIDUtils.addScenarioElement("hubList", hubList, scenario);
+            HAGRIDUtils.addScenarioElement("parcelLockerList",
                     GeoUtils.filterHubsByRegions(parcelLockerList, hanoverGeoData,
-                            hagridConfig.getFilterRegions()));
-            scenario.addScenarioElement("shippingPointList",
+                            hagridConfig.getFilterRegions()), scenario);
+            HAGRIDUtils.addScenarioElement("shippingPointList",
                     GeoUtils.filterHubsByRegions(shippingPointList, hanoverGeoData,
-                            hagridConfig.getFilterRegions()));
-            scenario.addScenarioElement("hanoverGeoData", hanoverGeoData);
+                            hagridConfig.getFilterRegions()), scenario);
+            HAGRIDUtils.addScenarioElement("hanoverGeoData", hanoverGeoData, scenario);
 
             LOGGER.info("Loading carrier vehicle types...");
             CarrierVehicleTypes vehicleTypes = new CarrierVehicleTypes();
@@ -103,11 +103,11 @@ public class LogisticsDataProcessor implements Runnable {
             // new CarrierVehicleTypeWriter(vehicleTypes).write("HAGRID_vehicleTypes2.0.xml");
 
 
-            scenario.addScenarioElement(CARRIER_VEHICLE_TYPES, vehicleTypes);
+            HAGRIDUtils.addScenarioElement(CARRIER_VEHICLE_TYPES, vehicleTypes, scenario);
 
             LOGGER.info("Logistics data processing completed.");
         } catch (Exception e) {
-            LOGGER.error("Error reading logistics data", e);
+            throw new IllegalStateException("Error reading logistics data", e);
         }
     }
 
@@ -12,8 +12,12 @@ import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
 import org.matsim.core.network.io.MatsimNetworkReader;
 import hagrid.HagridConfigGroup;
+import hagrid.utils.general.HAGRIDUtils;
+import hagrid.utils.network.CompactNetwork;
+import hagrid.utils.network.NetworkCache;
 import hagrid.utils.general.Region;
 
+import java.nio.file.Paths;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -47,30 +51,45 @@ public class NetworkProcessor implements Runnable {
 
             // hagridConfig.addRegion(Region.HANNOVER);
 
-            // Read the network file
-            LOGGER.info("Reading the network file from path: {}", hagridConfig.getNetworkXmlPath());
             Network network = scenario.getNetwork();
-            new MatsimNetworkReader(network).readFile(hagridConfig.getNetworkXmlPath());
+            Set<String> carMode = new HashSet<>();
+            carMode.add("car");
+            Network carFilteredNetwork = NetworkUtils.createNetwork();
 
-            // Adjust link lengths and free speeds
-            LOGGER.info("Adjusting link lengths and free speeds...");
-            for (Link link : network.getLinks().values()) {
-                if (link.getLength() < hagridConfig.getMinLinkLength()) {
-                    link.setLength(hagridConfig.getMinLinkLength());
+            if (hagridConfig.isNetworkCache()) {
+                // Build the network and the car subnetwork directly from the cached arrays
+                CompactNetwork compactNetwork = NetworkCache.load(hagridConfig.getNetworkXmlPath(),
+                        Paths.get(hagridConfig.getNetworkCacheDirectory()));
+
+                LOGGER.info("Adjusting link lengths and free speeds...");
+                compactNetwork.adjustLinks(hagridConfig.getMinLinkLength(), hagridConfig.getMinFreeSpeed());
+                compactNetwork.toNetwork(network, null, null);
+
+                LOGGER.info("Filtering network to include only car mode links...");
+                compactNetwork.toNetwork(carFilteredNetwork, compactNetwork.selectLinks(carMode), carMode);
+                LOGGER.info("Car mode network filtering completed.");
+            } else {
+                // Read the network file
+                LOGGER.info("Reading the network file from path: {}", hagridConfig.getNetworkXmlPath());
+                new MatsimNetworkReader(network).readFile(hagridConfig.getNetworkXmlPath());
+
+                // Adjust link lengths and free speeds
+                LOGGER.info("Adjusting link lengths and free speeds...");
+                for (Link link : network.getLinks().values()) {
+                    if (link.getLength() < hagridConfig.getMinLinkLength()) {
+                        link.setLength(hagridConfig.getMinLinkLength());
+                    }
+                    if (link.getFreespeed() < hagridConfig.getMinFreeSpeed()) {
+                        link.setFreespeed(hagridConfig.getMinFreeSpeed());
+                    }
                 }
-                if (link.getFreespeed() < hagridConfig.getMinFreeSpeed()) {
-                    link.setFreespeed(hagridConfig.getMinFreeSpeed());
-                }
-            }
-            LOGGER.info("Link adjustments completed.");
+                LOGGER.info("Link adjustments completed.");
 
-            // Filter network to only include car mode links
-            LOGGER.info("Filtering network to include only car mode links...");
-            Network carFilteredNetwork = NetworkUtils.createNetwork();
-            Set<String> carMode = new HashSet<>();
-            carMode.add("car");
-            new TransportModeNetworkFilter(network).filter(carFilteredNetwork, carMode);
-            LOGGER.info("Car mode network filtering completed.");
+                // Filter network to only include car mode links
+                LOGGER.info("Filtering network to include only car mode links...");
+                new TransportModeNetworkFilter(network).filter(carFilteredNetwork, carMode);
+                LOGGER.info("Car mode network filtering completed.");
+            }
 
             // Create another filtered network based on custom criteria
             LOGGER.info("Creating parcel service network based on custom criteria...");
@@ -101,13 +120,13 @@ public class NetworkProcessor implements Runnable {
             LOGGER.info("Difference in number of links between carFilteredNetwork and parcel service network: {}", (totalLinks - addedLinks));
 
             // Add the networks to the scenario
-            scenario.addScenarioElement("carFilteredNetwork", carFilteredNetwork);
-            scenario.addScenarioElement("parcelServiceNetwork", parcelServiceNetwork);
+            HAGRIDUtils.addScenarioElement("carFilteredNetwork", carFilteredNetwork, scenario);
+            HAGRIDUtils.addScenarioElement("parcelServiceNetwork", parcelServiceNetwork, scenario);
 
 
         } catch (Exception e) {
-            // Log any exceptions that occur during the network processing
-            LOGGER.error("Error processing network", e);
+            // Propagate exceptions that occur during the network processing
+            throw new IllegalStateException("Error processing network", e);
         }
     }
 
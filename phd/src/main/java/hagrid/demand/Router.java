@@ -12,14 +12,14 @@ import org.matsim.freight.carriers.jsprit.NetworkBasedTransportCosts;
 import org.matsim.freight.carriers.jsprit.NetworkRouter;
 import org.matsim.freight.carriers.jsprit.VRPTransportCosts;
 
-import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
 import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
-import com.graphhopper.jsprit.core.util.Solutions;
 
 import hagrid.utils.routing.HAGRIDRouterUtils;
 import hagrid.utils.routing.JspritCarrierTask;
 import hagrid.utils.routing.JspritTreadPoolExecutor;
+import hagrid.utils.routing.RoutingBudget;
+import hagrid.utils.routing.SolutionCache;
 import hagrid.utils.routing.ThreadingType;
 import reactor.core.publisher.Flux;
 import reactor.core.scheduler.Schedulers;
@@ -37,8 +37,26 @@ public class Router {
 
     private final ThreadingType threadingType;
 
+    private final RoutingBudget routingBudget;
+
+    private final SolutionCache solutionCache;
+
     public Router(ThreadingType threadingType) {
+        this(threadingType, null, null);
+    }
+
+    /**
+     * Constructs a Router that distributes a time budget over the carriers and
+     * reuses the solutions of equal routing problems.
+     *
+     * @param threadingType The threading type.
+     * @param routingBudget The routing budget, or null for fixed iteration counts.
+     * @param solutionCache The solution cache, or null to solve every carrier.
+     */
+    public Router(ThreadingType threadingType, RoutingBudget routingBudget, SolutionCache solutionCache) {
         this.threadingType = threadingType;
+        this.routingBudget = routingBudget;
+        this.solutionCache = solutionCache;
     }
 
     /**
@@ -82,7 +100,7 @@ public class Router {
                             Runtime.getRuntime().availableProcessors());
                     List<Future<?>> futures = sortedCarriers.stream()
                             .map(carrier -> new JspritCarrierTask(carrier, netBasedCosts, progress,
-                                    sortedCarriers.size(), network))
+                                    sortedCarriers.size(), network, routingBudget, solutionCache))
                             .map(executor::submit)
                             .collect(Collectors.toList());
 
@@ -133,6 +151,12 @@ public class Router {
         long endTime = System.currentTimeMillis();
         LOGGER.info("Finished routing all carriers using {} in {} seconds.", threadingType,
                 (endTime - startTime) / 1000);
+        if (routingBudget != null) {
+            routingBudget.logSummary();
+        }
+        if (solutionCache != null) {
+            solutionCache.logStatistics();
+        }
 
         // Plotting the runtime
         HAGRIDRouterUtils.plotCumulativeRoutingRuntime(startTime, endTime, routedTimes, threadingType.toString(), carrierType);
@@ -156,9 +180,7 @@ public class Router {
         int serviceCount = carrier.getServices().size();
 
         VehicleRoutingProblem vrp = HAGRIDRouterUtils.createRoutingProblem(carrier, network, netBasedCosts);
-        VehicleRoutingAlgorithm algorithm = HAGRIDRouterUtils.configureAlgorithm(vrp, serviceCount);
-
-        VehicleRoutingProblemSolution solution = Solutions.bestOf(algorithm.searchSolutions());
+        VehicleRoutingProblemSolution solution = HAGRIDRouterUtils.solve(vrp, carrier, routingBudget, solutionCache);
         CarrierPlan newPlan = MatsimJspritFactory.createPlan(carrier, solution);
 
         LOGGER.info("Routing plan for carrier {}", carrier.getId());
@@ -4,7 +4,9 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import hagrid.HagridConfigGroup;
 import hagrid.utils.demand.Hub;
+import hagrid.utils.general.CarrierPlanOutput;
 import hagrid.utils.general.HAGRIDUtils;
+import hagrid.utils.general.CsvTableExporter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -60,6 +62,9 @@ public class SupplyCarrierGenerator implements Runnable {
     @Inject
     private HagridConfigGroup hagridConfig;
 
+    @Inject
+    private CarrierPlanOutput carrierPlanOutput;
+
     private CarrierVehicleFactory carrierVehicleFactory;
     private CarrierVehicleTypes vehicleTypes;
     private Network network;
@@ -100,15 +105,18 @@ public class SupplyCarrierGenerator implements Runnable {
             // Validate generated supply carriers
             validateSupplyCarriers(supplyCarriers, splitSupplyCarriers, hubs, hagridConfig.isWhiteLabel());
 
-            new CarrierPlanWriter(supplyCarriers).write("phd/output/supply_carriers.xml");
+            carrierPlanOutput.write(supplyCarriers, "phd/output/supply_carriers.xml");
             // HAGRIDUtils.convertDemandFromParcelsToShapeFile(supplyCarriers, "phd/output/supply_carriers.shp");
-            new CarrierPlanWriter(splitSupplyCarriers).write("phd/output/split_supply_carriers.xml");
+            carrierPlanOutput.write(splitSupplyCarriers, "phd/output/split_supply_carriers.xml");
             // HAGRIDUtils.convertDemandFromParcelsToShapeFile(splitSupplyCarriers,
             //         "phd/output/split_supply_carriers.shp");
+            if (hagridConfig.isTableExport()) {
+                CsvTableExporter.writeServices(supplyCarriers, "phd/output/supply_services.csv.gz");
+            }
 
             LOGGER.info("Supply carrier generation completed successfully.");
         } catch (Exception e) {
-            LOGGER.error("Error generating supply carriers", e);
+            throw new IllegalStateException("Error generating supply carriers", e);
         }
     }
 
@@ -151,7 +159,7 @@ public class SupplyCarrierGenerator implements Runnable {
             }
         }
 
-        scenario.addScenarioElement("supply", splitSupplyCarriers);
+        HAGRIDUtils.addScenarioElement("supply", splitSupplyCarriers, scenario);
 
         return splitSupplyCarriers;
     }
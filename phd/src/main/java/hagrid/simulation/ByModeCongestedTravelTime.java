@@ -1,5 +1,6 @@
 package hagrid.simulation;
 
+import hagrid.utils.network.IndexedNetwork;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.router.util.TravelTime;
@@ -9,18 +10,38 @@ public class ByModeCongestedTravelTime implements TravelTime {
 
     private final String mode;
     private final TravelTime congestedTravelTime;
+    private final IndexedNetwork indexedNetwork;
+    private final long modeMask;
 
     public ByModeCongestedTravelTime(String mode, TravelTime congestedTravelTime) {
+        this(mode, congestedTravelTime, null);
+    }
+
+    /**
+     * Checks the allowed modes with the mode masks of an indexed view. Links that are
+     * not part of the view are checked with their allowed modes.
+     */
+    public ByModeCongestedTravelTime(String mode, TravelTime congestedTravelTime, IndexedNetwork indexedNetwork) {
         this.mode = mode;
         this.congestedTravelTime = congestedTravelTime;
+        this.indexedNetwork = indexedNetwork;
+        this.modeMask = indexedNetwork == null ? 0L : indexedNetwork.getModeMask(mode);
     }
 
     @Override
     public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
-        if(link.getAllowedModes().contains(mode)){
+        if(allowsMode(link)){
             return congestedTravelTime.getLinkTravelTime(link, time, person, vehicle);
         } else {
             return link.getLength()/0.001;
         }
     }
-}
\ No newline at end of file
+
+    private boolean allowsMode(Link link) {
+        int linkIndex = indexedNetwork == null ? -1 : indexedNetwork.getLinkIndex(link);
+        if (linkIndex >= 0) {
+            return indexedNetwork.allowsMode(linkIndex, modeMask);
+        }
+        return link.getAllowedModes().contains(mode);
+    }
+}
@@ -4,13 +4,13 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
@@ -45,11 +45,15 @@ import hagrid.utils.routing.UpdateDepartureTimeAndPracticalTimeWindows;
 
 import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.population.routes.NetworkRoute;
 
 import org.matsim.freight.carriers.Carrier;
 import org.matsim.freight.carriers.CarrierPlan;
 import org.matsim.freight.carriers.CarriersUtils;
+import org.matsim.freight.carriers.ScheduledTour;
+import org.matsim.freight.carriers.Tour;
 import org.matsim.freight.carriers.jsprit.MatsimJspritFactory;
 import org.matsim.freight.carriers.jsprit.NetworkBasedTransportCosts;
 import org.matsim.freight.carriers.jsprit.NetworkRouter;
@@ -93,8 +97,45 @@ public final class CarrierVehicleReRouter {
 
 	private final Network bikeNetwork;
 
+	/**
+	 * jsprit iterations when starting from the current tours, 0 to solve from
+	 * scratch
+	 */
+	private final int warmStartIterations;
+
+	/**
+	 * relative increase of the tour travel time above which a carrier is
+	 * replanned, 0 to select carriers randomly
+	 */
+	private final double deviationThreshold;
+
+	private final ReplanningExecutor replanningExecutor;
+
+	/**
+	 * Orders carriers without a measured run time first by their number of
+	 * services, since their first replanning is the most expensive, and the
+	 * others by the run time of their last replanning.
+	 */
+	private static final Comparator<CarrierPlan> LARGEST_FIRST = (plan1, plan2) -> {
+		Object runTime1 = plan1.getCarrier().getAttributes().getAttribute("algoRunTime");
+		Object runTime2 = plan2.getCarrier().getAttributes().getAttribute("algoRunTime");
+		if ((runTime1 == null) != (runTime2 == null)) {
+			return runTime1 == null ? -1 : 1;
+		}
+		if (runTime1 == null) {
+			return Integer.compare(plan2.getCarrier().getServices().size(), plan1.getCarrier().getServices().size());
+		}
+		return Double.compare((double) runTime2, (double) runTime1);
+	};
+
+	/**
+	 * plan attribute with the tour travel time at the last replanning of the plan
+	 */
+	private static final String PLANNED_TRAVEL_TIME = "plannedTravelTime";
+
 	public CarrierVehicleReRouter(Network carNetwork, Network bikeNetwork, CarrierVehicleTypes vehicleTypes, TravelTime travelTimes,
-			Boolean isUsingZones, Map<String, VRPTransportCosts> byModeVRPTransportCosts) {
+			Boolean isUsingZones, Map<String, VRPTransportCosts> byModeVRPTransportCosts, int warmStartIterations,
+			double deviationThreshold, ReplanningExecutor replanningExecutor) {
 		super();
 		this.carNetwork = carNetwork;
 		this.bikeNetwork = bikeNetwork;
@@ -102,6 +143,9 @@ public final class CarrierVehicleReRouter {
 		this.travelTimes = travelTimes;
 		this.isUsingZones = isUsingZones;
 		this.byModeVRPTransportCosts = byModeVRPTransportCosts;
+		this.warmStartIterations = warmStartIterations;
+		this.deviationThreshold = deviationThreshold;
+		this.replanningExecutor = replanningExecutor;
 
 		this.activityCosts = createVehicleRoutingActivityCosts();
 
@@ -131,6 +175,89 @@ public final class CarrierVehicleReRouter {
 		return activityCosts;
 	}
 
+	private Network getNetwork(Carrier carrier) {
+		if (isUsingZones && CarriersUtils.getCarrierMode(carrier).contains("cargobike")) {
+			return bikeNetwork;
+		}
+		return carNetwork;
+	}
+
+	/**
+	 * Calculates the travel time of the tours of a plan with the given travel
+	 * times. Each route is driven link by link from the expected departure time
+	 * of its leg, including the end link like the transport costs.
+	 */
+	private double calculateTourTravelTime(CarrierPlan plan, TravelTime travelTime) {
+		Network network = getNetwork(plan.getCarrier());
+		double tourTravelTime = 0.0;
+		for (ScheduledTour tour : plan.getScheduledTours()) {
+			for (Tour.TourElement element : tour.getTour().getTourElements()) {
+				if (element instanceof Tour.Leg leg && leg.getRoute() instanceof NetworkRoute route) {
+					double time = leg.getExpectedDepartureTime();
+					for (Id<Link> linkId : route.getLinkIds()) {
+						time += getLinkTravelTime(network, linkId, time, tour.getVehicle(), travelTime);
+					}
+					if (!route.getStartLinkId().equals(route.getEndLinkId())) {
+						time += getLinkTravelTime(network, route.getEndLinkId(), time, tour.getVehicle(), travelTime);
+					}
+					tourTravelTime += time - leg.getExpectedDepartureTime();
+				}
+			}
+		}
+		return tourTravelTime;
+	}
+
+	private static double getLinkTravelTime(Network network, Id<Link> linkId, double time,
+			org.matsim.vehicles.Vehicle vehicle, TravelTime travelTime) {
+		Link link = network.getLinks().get(linkId);
+		return link == null ? 0.0 : travelTime.getLinkTravelTime(link, time, null, vehicle);
+	}
+
+	/**
+	 * Calculates the relative increase of the tour travel time of a plan under the
+	 * current travel times compared to the travel time it was planned with. Plans
+	 * that were not replanned yet are compared to the expected transport times of
+	 * their legs.
+	 *
+	 * @return the deviation score, 0 if the plan did not degrade
+	 */
+	private double calculateDeviationScore(CarrierPlan plan) {
+		double plannedTravelTime = getPlannedTravelTime(plan);
+		if (plannedTravelTime <= 0.0) {
+			return 0.0;
+		}
+		double currentTravelTime = calculateTourTravelTime(plan, travelTimes);
+		return Math.max(0.0, currentTravelTime / plannedTravelTime - 1.0);
+	}
+
+	/**
+	 * Returns the tour travel time a plan was planned with. A carrier keeps
+	 * several plans, so the value is stored per plan. Plans that were not
+	 * replanned yet return the sum of the expected transport times of their legs.
+	 */
+	static double getPlannedTravelTime(CarrierPlan plan) {
+		Object planned = plan.getAttributes().getAttribute(PLANNED_TRAVEL_TIME);
+		if (planned != null) {
+			return (double) planned;
+		}
+		double plannedTravelTime = 0.0;
+		for (ScheduledTour tour : plan.getScheduledTours()) {
+			for (Tour.TourElement element : tour.getTour().getTourElements()) {
+				if (element instanceof Tour.Leg leg) {
+					plannedTravelTime += leg.getExpectedTransportTime();
+				}
+			}
+		}
+		return plannedTravelTime;
+	}
+
+	/**
+	 * Stores the tour travel time a plan was planned with.
+	 */
+	static void setPlannedTravelTime(CarrierPlan plan, double plannedTravelTime) {
+		plan.getAttributes().putAttribute(PLANNED_TRAVEL_TIME, plannedTravelTime);
+	}
+
 	public GenericPlanStrategy<CarrierPlan, Carrier> createStrategy() {
 
 		GenericPlanStrategyImpl<CarrierPlan, Carrier> replanningStrat = new GenericPlanStrategyImpl<CarrierPlan, Carrier>(
@@ -140,7 +267,6 @@ public final class CarrierVehicleReRouter {
 			private boolean startCarrierReplanning = false;
 
 			private HashMap<CarrierPlan, Integer> carrierActivityCounterMap = null;
-			private ForkJoinPool forkJoinPool = null;
 			private List<CarrierPlan> plansForOptimization = null;
 			private List<CarrierPlan> plansForReOptimization = null;
 
@@ -159,6 +285,9 @@ public final class CarrierVehicleReRouter {
 							carrier.getAttributes().putAttribute("hadFirstReplanning", true);
 						}
 
+					} else if (deviationThreshold > 0) {
+						// Change driven selection, the scores are calculated in finishReplanning
+						plansForReOptimization.add(carrierPlan);
 					} else {
 						Random r = new Random();
 						int result = r.nextInt(100 - 1) + 1;
@@ -273,6 +402,12 @@ public final class CarrierVehicleReRouter {
 
 //				VehicleRoutingAlgorithm algorithm = VehicleRoutingAlgorithms.readAndCreateAlgorithm(vrp,
 //						ALGORITHM_FILE, stateManager  );
+
+				// Warm start: only travel times changed, so the current tours are a good
+				// initial solution and a short improvement phase is enough
+				if (warmStartIterations > 0 && addCurrentToursAsInitialSolution(carrierPlan, vrp, stateManager, algorithm)) {
+					iterations = Math.min(iterations, warmStartIterations);
+				}
 				algorithm.setMaxIterations((int) iterations);
 				algorithm.addTerminationCriterion(new IterationWithoutImprovementTermination((int) termination));
 				algorithm.getAlgorithmListeners().addListener(new StopWatch(),
@@ -290,13 +425,55 @@ public final class CarrierVehicleReRouter {
 
 				carrierPlan.getScheduledTours().clear();
 				carrierPlan.getScheduledTours().addAll(plan.getScheduledTours());
+				if (deviationThreshold > 0) {
+					setPlannedTravelTime(carrierPlan, calculateTourTravelTime(carrierPlan, travelTimes));
+				}
+			}
+
+			/**
+			 * Converts the scheduled tours of a plan into a jsprit solution and adds it
+			 * as initial solution, so the construction heuristic is skipped.
+			 *
+			 * @return true if the tours were added
+			 */
+			private boolean addCurrentToursAsInitialSolution(CarrierPlan carrierPlan, VehicleRoutingProblem vrp,
+					StateManager stateManager, VehicleRoutingAlgorithm algorithm) {
+				if (carrierPlan.getScheduledTours().isEmpty()) {
+					return false;
+				}
+				try {
+					VehicleRoutingProblemSolution initialSolution = MatsimJspritFactory.createSolution(carrierPlan, vrp);
+					// The cost of the solution is the score of the plan, it is replaced by the
+					// objective with the current travel times
+					stateManager.informInsertionStarts(initialSolution.getRoutes(), Collections.emptyList());
+					initialSolution.setCost(algorithm.getObjectiveFunction().getCosts(initialSolution));
+					algorithm.addInitialSolution(initialSolution);
+					return true;
+				} catch (RuntimeException e) {
+					log.warn("Could not warm start carrier " + carrierPlan.getCarrier().getId()
+							+ ", solving it from scratch.", e);
+					return false;
+				}
+			}
+
+			/**
+			 * Keeps the plans whose deviation score exceeds the threshold, the most
+			 * degraded first.
+			 */
+			private void selectDegradedPlans() {
+				Map<CarrierPlan, Double> scores = new ConcurrentHashMap<>();
+				replanningExecutor.runAll(plansForReOptimization, null,
+						plan -> scores.put(plan, calculateDeviationScore(plan)));
+				plansForReOptimization.removeIf(plan -> scores.get(plan) <= deviationThreshold);
+				plansForReOptimization.sort(Comparator.comparing(scores::get, Comparator.reverseOrder()));
+				log.info(plansForReOptimization.size() + " of " + scores.size()
+						+ " carriers exceed the travel time deviation threshold of " + deviationThreshold);
 			}
 
 			@Override
 			public void prepareReplanning(ReplanningContext replanningContext) {
 
 				carrierActivityCounterMap = new HashMap<>();
-				forkJoinPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
 				plansForOptimization = new ArrayList<>();
 				plansForReOptimization = new ArrayList<>();
 
@@ -331,7 +508,11 @@ public final class CarrierVehicleReRouter {
 				// Fill carrierActivityCounterMap -> basis for sorting the carriers by number of
 				// activities before solving in parallel
 
-				Collections.shuffle(plansForReOptimization);
+				if (deviationThreshold > 0) {
+					selectDegradedPlans();
+				} else {
+					Collections.shuffle(plansForReOptimization);
+				}
 				for (CarrierPlan carrierPlan : plansForReOptimization) {
 					if (plansForOptimization.size() < MAXREPLANNINGSIZE) {
 						plansForOptimization.add(carrierPlan);
@@ -359,8 +540,8 @@ public final class CarrierVehicleReRouter {
 
 				AtomicInteger progress = new AtomicInteger();
 
-				try {
-					forkJoinPool.submit(() -> tempList.parallelStream().forEach(carrierPlan -> {
+				// Largest problems first, so no large carrier is started last
+				replanningExecutor.runAll(tempList, LARGEST_FIRST, carrierPlan -> {
 
 						log.info("ROUTING CARRIER " + progress.incrementAndGet() + " OUT OF " + tempList.size()
 								+ " TOTAL CARRIERS");
@@ -387,18 +568,7 @@ public final class CarrierVehicleReRouter {
 
 //						SolutionPrinter.print(vrp, solution, Print.VERBOSE);
 
-					})).get();
-				} catch (InterruptedException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-					throw new RuntimeException();
-				
-				} catch (ExecutionException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-					throw new RuntimeException();
-				}
-				forkJoinPool.shutdown();
+				});
 			}
 
 		};
@@ -4,12 +4,14 @@ import com.google.inject.Inject;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
 
+import hagrid.HagridConfigGroup;
 import hagrid.utils.routing.VRPTransportCostsFactory;
 import hagrid.utils.routing.ZoneBasedTransportCostsFactory;
 
 import org.matsim.api.core.v01.Scenario;
 
 import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.events.IterationEndsEvent;
@@ -50,11 +52,17 @@ public class HAGRIDSimulationModule extends AbstractModule {
 
 		bind(Carriers.class).toProvider(new CarrierProvider()).asEagerSingleton();
 		bind(CarrierStrategyManager.class).toProvider(strategyManagerFactory);
+		// Travel times and transport costs read the travel times of the last iteration
+		addControlerListenerBinding().toInstance(strategyManagerFactory);
+		addControlerListenerBinding().to(ZoneBasedTransportCostsFactory.class);
 
 		bind(CarrierScoringFunctionFactory.class).toInstance(scoringFunctionFactory);
 		
 		bind(VRPTransportCostsFactory.class).to(ZoneBasedTransportCostsFactory.class).in(Singleton.class);
 
+		// One replanning thread pool for the whole run, shut down with the controller
+		addControlerListenerBinding().to(ReplanningExecutor.class);
+
 //		bind(TourLengthAnalyzer.class).in(Singleton.class);
 //		addControlerListenerBinding().to(CommercialTrafficAnalysisListener.class);
 
@@ -116,4 +124,11 @@ public class HAGRIDSimulationModule extends AbstractModule {
 		return new ZoneBasedTransportCostsFactory(scenario, carriers, travelTimes, config);
 	}
 
+	@Provides
+	@Singleton
+	private ReplanningExecutor provideReplanningExecutor(Config config) {
+		HagridConfigGroup hagridConfig = ConfigUtils.addOrGetModule(config, HagridConfigGroup.class);
+		return new ReplanningExecutor(hagridConfig.getNumberOfThreads());
+	}
+
 }
@@ -0,0 +1,103 @@
+package hagrid.simulation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.ShutdownListener;
+
+/**
+ * The ReplanningExecutor class runs the parallel work of the carrier replanning
+ * on a thread pool that lives for the whole simulation, instead of creating a
+ * pool in every iteration.
+ *
+ * Each item is submitted as its own task, so a thread takes the next item as
+ * soon as it is done with its previous one. Items are submitted in the given
+ * order, putting the largest problems first keeps a single large carrier from
+ * delaying the end of the replanning. The pool is shut down when the controller
+ * shuts down.
+ */
+public class ReplanningExecutor implements ShutdownListener {
+
+	private static final Logger LOGGER = LogManager.getLogger(ReplanningExecutor.class);
+
+	private final ExecutorService executor;
+
+	/**
+	 * Constructs a ReplanningExecutor.
+	 *
+	 * @param threads The number of threads.
+	 */
+	public ReplanningExecutor(int threads) {
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "carrier-replanning-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		LOGGER.info("Replanning executor with {} threads created.", threads);
+	}
+
+	/**
+	 * Runs a task for each item and waits until all tasks are finished.
+	 *
+	 * @param items The items.
+	 * @param order The order the items are started in, or null to keep the order
+	 *              of the list.
+	 * @param task  The task to run for each item.
+	 * @throws RuntimeException If a task failed, after all tasks are finished.
+	 */
+	public <T> void runAll(List<T> items, Comparator<? super T> order, Consumer<? super T> task) {
+		List<T> ordered = new ArrayList<>(items);
+		if (order != null) {
+			ordered.sort(order);
+		}
+		List<Future<?>> futures = new ArrayList<>(ordered.size());
+		for (T item : ordered) {
+			futures.add(executor.submit(() -> task.accept(item)));
+		}
+
+		RuntimeException failure = null;
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while waiting for the replanning.", e);
+			} catch (ExecutionException e) {
+				if (failure == null) {
+					failure = new RuntimeException("Replanning task failed.", e.getCause());
+				} else {
+					failure.addSuppressed(e.getCause());
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	@Override
+	public void notifyShutdown(ShutdownEvent event) {
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				LOGGER.warn("Replanning tasks did not finish, stopping them.");
+				executor.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -4,12 +4,18 @@ package hagrid.simulation;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 
+import hagrid.HagridConfigGroup;
+import hagrid.utils.network.IndexedNetwork;
+import hagrid.utils.routing.TravelTimeProfile;
 import hagrid.utils.routing.VRPTransportCostsFactory;
 
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.network.Network;
 
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
 import org.matsim.core.replanning.GenericPlanStrategy;
 import org.matsim.core.replanning.GenericPlanStrategyImpl;
 import org.matsim.core.replanning.GenericStrategyManager;
@@ -30,8 +36,9 @@ import org.matsim.freight.carriers.controler.CarrierTimeAllocationMutator;
 import org.matsim.freight.carriers.usecases.chessboard.CarrierTravelDisutilities;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class ReplanningStrategies implements  Provider<CarrierStrategyManager> {
+public class ReplanningStrategies implements  Provider<CarrierStrategyManager>, IterationStartsListener {
 
 	@Inject
 	private Network network;
@@ -48,15 +55,30 @@ public class ReplanningStrategies implements  Provider<CarrierStrategyManager> {
 	@Inject
 	private VRPTransportCostsFactory vrpTransportCostsFactory;
 
+	@Inject
+	private ReplanningExecutor replanningExecutor;
+
 	private final CarrierVehicleTypes types;
 
 	private final Boolean isUsingZones;
 
+	/**
+	 * travel time per network mode, created on the first request of the mode and
+	 * dropped at the start of each iteration, so travel time profiles sample the
+	 * travel times of the last iteration
+	 */
+	private final Map<String, TravelTime> byModeTravelTimes = new ConcurrentHashMap<>();
+
 	public ReplanningStrategies(CarrierVehicleTypes types, Boolean isUsingZones) {
 		this.types = types;
 		this.isUsingZones = isUsingZones;
 	}
 
+	@Override
+	public void notifyIterationStarts(IterationStartsEvent event) {
+		byModeTravelTimes.clear();
+	}
+
 	@Override
 	public CarrierStrategyManager  get() {
 //		TravelDisutility travelDisutility = TravelDisutilities.createBaseDisutility(types, modeTravelTimes.get(TransportMode.car));
@@ -71,10 +93,22 @@ public class ReplanningStrategies implements  Provider<CarrierStrategyManager> {
 			carNetwork = (Network) scenario.getScenarioElement("carNetwork");
 		}
 		
+		// One travel time per network mode, sharing the mode masks of the indexed view
+		IndexedNetwork indexedNetwork = IndexedNetwork.create(network);
+		HagridConfigGroup hagridConfig = ConfigUtils.addOrGetModule(scenario.getConfig(), HagridConfigGroup.class);
+		double profileInterval = hagridConfig.getTravelTimeProfileInterval();
+		double endTime = scenario.getConfig().qsim().getEndTime().orElse(30 * 3600);
+
 		TravelTime myTravelTime = (link, v, person, vehicle) -> {
 
-			TravelTime myCongestedTravelTime = new ByModeCongestedTravelTime(vehicle.getType().getNetworkMode(),
-					modeTravelTimes.get(vehicle.getType().getNetworkMode()));
+			TravelTime myCongestedTravelTime = byModeTravelTimes.computeIfAbsent(vehicle.getType().getNetworkMode(),
+					mode -> {
+						// Piecewise linear profiles of the congested travel time, if enabled
+						TravelTime congestedTravelTime = profileInterval > 0
+								? new TravelTimeProfile(indexedNetwork, modeTravelTimes.get(mode), profileInterval, endTime)
+								: modeTravelTimes.get(mode);
+						return new ByModeCongestedTravelTime(mode, congestedTravelTime, indexedNetwork);
+					});
 //            if (type.getId().equals(cargoBikeType.getId())) {
 //                return myNonCongestedTravelTime.getLinkTravelTime(link, v, person, vehicle);
 //            }  else {
@@ -114,8 +148,9 @@ public class ReplanningStrategies implements  Provider<CarrierStrategyManager> {
 
 //		GenericPlanStrategy<CarrierPlan, Carrier> strategy3 = new SelectBestPlanAndOptimizeItsVehicleRouteFactory(network, types, modeTravelTimes.get(TransportMode.car),pathAlgo).createStrategy();
 		GenericPlanStrategy<CarrierPlan, Carrier> strategy3 = new CarrierVehicleReRouter(carNetwork, bikeNetwork, types, myTravelTime,
-				isUsingZones, vrpTransportCostsFactory.createVRPTransportCostsWithModeCongestedTravelTime())
-				.createStrategy();
+				isUsingZones, vrpTransportCostsFactory.createVRPTransportCostsWithModeCongestedTravelTime(),
+				hagridConfig.getWarmStartIterations(), hagridConfig.getReplanningDeviationThreshold(),
+				replanningExecutor).createStrategy();
 //		GenericPlanStrategy<CarrierPlan, Carrier> strategy3 = new CarrierVehicleReRouter(network, types, myTravelTime , vrpTransportCostsFactory.createVRPTransportCosts()).createStrategy();
 		carrierStrategyManager.addStrategy(strategy3, null, 1.0);
 		carrierStrategyManager.addChangeRequest(125, strategy3, null, 0);
@@ -1,5 +1,6 @@
 package hagrid.utils;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -22,6 +23,7 @@ import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.MultiPolygon;
 import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.operation.union.UnaryUnionOp;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
@@ -39,6 +41,8 @@ public class GeoUtils {
 
     private static final Logger LOGGER = LogManager.getLogger(GeoUtils.class);
 
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
     // Define the postal codes for each region
     private static final Map<Region, Set<String>> regionPostalCodes = new HashMap<>();
 
@@ -321,7 +325,6 @@ public class GeoUtils {
      * @return A LineString representing the link geometry
      */
     public static LineString createLineStringFromLink(Link link) {
-        GeometryFactory geometryFactory = new GeometryFactory();
         Coordinate fromCoord = new Coordinate(
                 link.getFromNode().getCoord().getX(),
                 link.getFromNode().getCoord().getY()
@@ -330,25 +333,26 @@ public class GeoUtils {
                 link.getToNode().getCoord().getX(),
                 link.getToNode().getCoord().getY()
         );
-        return geometryFactory.createLineString(new Coordinate[]{fromCoord, toCoord});
+        return GEOMETRY_FACTORY.createLineString(new Coordinate[]{fromCoord, toCoord});
     }
 
     /**
      * Retrieves the combined boundary geometry from a collection of features.
+     * The geometries are merged with a cascaded union, which is much faster than
+     * adding them one by one for many features.
      *
      * @param boundaryFeatures The collection of boundary features
-     * @return A Geometry object representing the combined boundary
+     * @return A Geometry object representing the combined boundary, or null if
+     *         there are no features
      */
     public static Geometry getBoundaryGeometry(Collection<SimpleFeature> boundaryFeatures) {
-        Geometry combinedGeometry = null;
+        List<Geometry> geometries = new ArrayList<>(boundaryFeatures.size());
         for (SimpleFeature feature : boundaryFeatures) {
-            Geometry geometry = (Geometry) feature.getDefaultGeometry();
-            if (combinedGeometry == null) {
-                combinedGeometry = geometry;
-            } else {
-                combinedGeometry = combinedGeometry.union(geometry);
-            }
+            geometries.add((Geometry) feature.getDefaultGeometry());
+        }
+        if (geometries.isEmpty()) {
+            return null;
         }
-        return combinedGeometry;
+        return UnaryUnionOp.union(geometries);
     }
 }
@@ -0,0 +1,136 @@
+package hagrid.utils.demand;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The BinomialSampler class draws samples from binomial distributions in
+ * constant time using Walker's alias method.
+ *
+ * Drawing the number of successes of n Bernoulli trials directly replaces n
+ * separate random draws by one. The alias table of every combination of trials
+ * and probability is built once and cached, which is cheap since the number of
+ * trials per service is bounded by the vehicle capacity and only a few distinct
+ * delivery rates exist. The class is thread-safe as long as every thread uses
+ * its own random stream.
+ */
+public final class BinomialSampler {
+
+    private static final Map<TableKey, AliasTable> TABLES = new ConcurrentHashMap<>();
+
+    private BinomialSampler() {
+    }
+
+    /**
+     * Samples the number of successes of the given number of independent trials.
+     *
+     * @param trials      The number of trials.
+     * @param probability The success probability of a single trial.
+     * @param random      The random stream to draw from.
+     * @return The number of successes, between 0 and trials.
+     */
+    public static int sample(int trials, double probability, Random random) {
+        if (trials < 0) {
+            throw new IllegalArgumentException("Number of trials must not be negative: " + trials);
+        }
+        if (trials == 0 || probability <= 0.0) {
+            return 0;
+        }
+        if (probability >= 1.0) {
+            return trials;
+        }
+        return TABLES.computeIfAbsent(new TableKey(trials, probability), AliasTable::new).sample(random);
+    }
+
+    /**
+     * Key of a cached alias table.
+     */
+    private record TableKey(int trials, double probability) {
+    }
+
+    /**
+     * Alias table of the probability mass function of one binomial distribution.
+     */
+    private static final class AliasTable {
+        private final double[] probabilities;
+        private final int[] aliases;
+
+        private AliasTable(TableKey key) {
+            double[] pmf = binomialPmf(key.trials(), key.probability());
+            int size = pmf.length;
+            probabilities = new double[size];
+            aliases = new int[size];
+
+            // Vose's construction of the alias table
+            double[] scaled = new double[size];
+            Deque<Integer> small = new ArrayDeque<>();
+            Deque<Integer> large = new ArrayDeque<>();
+            for (int i = 0; i < size; i++) {
+                scaled[i] = pmf[i] * size;
+                if (scaled[i] < 1.0) {
+                    small.push(i);
+                } else {
+                    large.push(i);
+                }
+            }
+            while (!small.isEmpty() && !large.isEmpty()) {
+                int less = small.pop();
+                int more = large.pop();
+                probabilities[less] = scaled[less];
+                aliases[less] = more;
+                scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+                if (scaled[more] < 1.0) {
+                    small.push(more);
+                } else {
+                    large.push(more);
+                }
+            }
+            // Remaining entries are 1 up to rounding errors
+            while (!large.isEmpty()) {
+                int index = large.pop();
+                probabilities[index] = 1.0;
+                aliases[index] = index;
+            }
+            while (!small.isEmpty()) {
+                int index = small.pop();
+                probabilities[index] = 1.0;
+                aliases[index] = index;
+            }
+        }
+
+        private int sample(Random random) {
+            double u = random.nextDouble() * probabilities.length;
+            int column = Math.min((int) u, probabilities.length - 1);
+            return (u - column) < probabilities[column] ? column : aliases[column];
+        }
+
+        /**
+         * Computes the binomial probability mass function in log space to avoid
+         * underflow for large numbers of trials.
+         */
+        private static double[] binomialPmf(int trials, double probability) {
+            double[] logPmf = new double[trials + 1];
+            double logOdds = Math.log(probability) - Math.log1p(-probability);
+            logPmf[0] = trials * Math.log1p(-probability);
+            double max = logPmf[0];
+            for (int k = 0; k < trials; k++) {
+                logPmf[k + 1] = logPmf[k] + Math.log((double) (trials - k) / (k + 1)) + logOdds;
+                max = Math.max(max, logPmf[k + 1]);
+            }
+
+            double[] pmf = new double[trials + 1];
+            double sum = 0.0;
+            for (int k = 0; k <= trials; k++) {
+                pmf[k] = Math.exp(logPmf[k] - max);
+                sum += pmf[k];
+            }
+            for (int k = 0; k <= trials; k++) {
+                pmf[k] /= sum;
+            }
+            return pmf;
+        }
+    }
+}
@@ -2,7 +2,6 @@ package hagrid.utils.demand;
 
 import org.matsim.api.core.v01.Coord;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 
 import lombok.Builder;
@@ -23,7 +22,7 @@ public class Delivery {
     private int amount;
     private ParcelType parcelType;
     private String postalCode;
-    private ArrayList<Double> individualWeights;
+    private ParcelWeights individualWeights;
     private DeliveryMode deliveryMode;
 
     /**
@@ -0,0 +1,178 @@
+package hagrid.utils.demand;
+
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Coord;
+
+/**
+ * The DeliveryKdTree class is a static two-dimensional k-d tree over delivery
+ * coordinates. Every entry remembers the key of the delivery list it belongs
+ * to, so the owning carrier group of the closest delivery is known without
+ * scanning the delivery lists again.
+ *
+ * The tree is stored implicitly in arrays: the node of a range [lo, hi) is its
+ * middle element, the children are the ranges left and right of it. After
+ * construction the tree is immutable and can be queried concurrently.
+ */
+public final class DeliveryKdTree {
+
+    private final double[] xs;
+    private final double[] ys;
+    private final int[] ordinals;
+    private final String[] keys;
+
+    private DeliveryKdTree(int size) {
+        this.xs = new double[size];
+        this.ys = new double[size];
+        this.ordinals = new int[size];
+        this.keys = new String[size];
+    }
+
+    /**
+     * Builds a tree over all deliveries of the given keys. Entries are numbered in
+     * the order of the keys and their delivery lists; among equally distant
+     * deliveries the query returns the one with the lowest number.
+     *
+     * @param deliveries The map of all deliveries by key.
+     * @param keys       The keys whose deliveries are indexed.
+     * @return The constructed tree.
+     */
+    public static DeliveryKdTree build(Map<String, ? extends List<Delivery>> deliveries, List<String> keys) {
+        int size = keys.stream().mapToInt(key -> deliveries.get(key).size()).sum();
+        DeliveryKdTree tree = new DeliveryKdTree(size);
+
+        int index = 0;
+        for (String key : keys) {
+            for (Delivery delivery : deliveries.get(key)) {
+                Coord coord = delivery.getCoordinate();
+                tree.xs[index] = coord.getX();
+                tree.ys[index] = coord.getY();
+                tree.ordinals[index] = index;
+                tree.keys[index] = key;
+                index++;
+            }
+        }
+
+        tree.build(0, size, 0);
+        return tree;
+    }
+
+    /**
+     * Returns the number of indexed deliveries.
+     *
+     * @return The size of the tree.
+     */
+    public int size() {
+        return xs.length;
+    }
+
+    /**
+     * Finds the key of the delivery closest to the given coordinate.
+     *
+     * @param coord The query coordinate.
+     * @return The key of the closest delivery.
+     * @throws IllegalStateException If the tree is empty.
+     */
+    public String findClosestKey(Coord coord) {
+        if (xs.length == 0) {
+            throw new IllegalStateException("Cannot query an empty delivery tree.");
+        }
+        Nearest nearest = new Nearest();
+        search(0, xs.length, 0, coord.getX(), coord.getY(), nearest);
+        return keys[nearest.index];
+    }
+
+    private void build(int lo, int hi, int depth) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int middle = (lo + hi) >>> 1;
+        select(lo, hi - 1, middle, (depth & 1) == 0);
+        build(lo, middle, depth + 1);
+        build(middle + 1, hi, depth + 1);
+    }
+
+    private void search(int lo, int hi, int depth, double x, double y, Nearest nearest) {
+        if (lo >= hi) {
+            return;
+        }
+        int middle = (lo + hi) >>> 1;
+
+        double dx = xs[middle] - x;
+        double dy = ys[middle] - y;
+        double distance = dx * dx + dy * dy;
+        if (distance < nearest.distance
+                || (distance == nearest.distance && ordinals[middle] < ordinals[nearest.index])) {
+            nearest.distance = distance;
+            nearest.index = middle;
+        }
+
+        double delta = (depth & 1) == 0 ? x - xs[middle] : y - ys[middle];
+        if (delta < 0) {
+            search(lo, middle, depth + 1, x, y, nearest);
+            if (delta * delta <= nearest.distance) {
+                search(middle + 1, hi, depth + 1, x, y, nearest);
+            }
+        } else {
+            search(middle + 1, hi, depth + 1, x, y, nearest);
+            if (delta * delta <= nearest.distance) {
+                search(lo, middle, depth + 1, x, y, nearest);
+            }
+        }
+    }
+
+    /**
+     * Partially sorts the range [left, right] so that the element at position k
+     * is the one that would be there after sorting by the given axis (quickselect).
+     */
+    private void select(int left, int right, int k, boolean byX) {
+        double[] values = byX ? xs : ys;
+        while (right > left) {
+            double pivot = values[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        double x = xs[i];
+        xs[i] = xs[j];
+        xs[j] = x;
+        double y = ys[i];
+        ys[i] = ys[j];
+        ys[j] = y;
+        int ordinal = ordinals[i];
+        ordinals[i] = ordinals[j];
+        ordinals[j] = ordinal;
+        String key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+    }
+
+    /**
+     * Holder for the best candidate of a single query.
+     */
+    private static final class Nearest {
+        private int index = -1;
+        private double distance = Double.POSITIVE_INFINITY;
+    }
+}
@@ -178,6 +178,11 @@ public class Hub implements Attributable {
         return this.hasCapacity && (this.assignedSupplyDemand + numberOfParcels) < this.capacityLimit;
     }
 
+    // Getter for the capacity limit of the hub
+    public int getCapacityLimit() {
+        return capacityLimit;
+    }
+
     // Setter for the capacity limit of the hub
     public void setCapacityLimit(int capacityLimit) {
         this.capacityLimit = Math.max(capacityLimit, 0);
@@ -0,0 +1,121 @@
+package hagrid.utils.demand;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.freight.carriers.CarrierService;
+
+/**
+ * The MissedParcels class stores the number of missed parcels per service of a
+ * carrier.
+ *
+ * Only services with at least one missed parcel are recorded, together with a
+ * running total in a primitive array. The former representation with one list
+ * entry per missed parcel is available as a read-only view via
+ * {@link #asList()}, which resolves entries by binary search instead of
+ * materializing the list.
+ */
+public class MissedParcels {
+
+    private final List<Id<CarrierService>> serviceIds = new ArrayList<>();
+    private int[] cumulativeCounts = new int[8];
+
+    /**
+     * Records missed parcels for a service.
+     *
+     * @param serviceId The ID of the service.
+     * @param missed    The number of missed parcels of the service.
+     */
+    public void add(Id<CarrierService> serviceId, int missed) {
+        if (missed < 0) {
+            throw new IllegalArgumentException("Number of missed parcels must not be negative: " + missed);
+        }
+        if (missed == 0) {
+            return;
+        }
+        int size = serviceIds.size();
+        if (size == cumulativeCounts.length) {
+            cumulativeCounts = Arrays.copyOf(cumulativeCounts, size * 2);
+        }
+        cumulativeCounts[size] = getTotal() + missed;
+        serviceIds.add(serviceId);
+    }
+
+    /**
+     * Returns the total number of missed parcels of the carrier.
+     *
+     * @return The total number of missed parcels.
+     */
+    public int getTotal() {
+        return serviceIds.isEmpty() ? 0 : cumulativeCounts[serviceIds.size() - 1];
+    }
+
+    /**
+     * Returns the number of services with at least one missed parcel.
+     *
+     * @return The number of affected services.
+     */
+    public int getNumberOfServices() {
+        return serviceIds.size();
+    }
+
+    /**
+     * Returns the number of missed parcels of the service at the given position.
+     *
+     * @param index The position of the service in insertion order.
+     * @return The number of missed parcels.
+     */
+    public int getMissed(int index) {
+        return cumulativeCounts[index] - (index == 0 ? 0 : cumulativeCounts[index - 1]);
+    }
+
+    /**
+     * Returns the ID of the service at the given position.
+     *
+     * @param index The position of the service in insertion order.
+     * @return The ID of the service.
+     */
+    public Id<CarrierService> getServiceId(int index) {
+        return serviceIds.get(index);
+    }
+
+    /**
+     * Returns a read-only list view that contains the service ID once per missed
+     * parcel, in insertion order.
+     *
+     * @return The list view of missed parcels.
+     */
+    public List<Id<CarrierService>> asList() {
+        return new AbstractList<>() {
+            @Override
+            public Id<CarrierService> get(int index) {
+                if (index < 0 || index >= size()) {
+                    throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size());
+                }
+                // Find the first service whose cumulative count exceeds the index
+                int position = Arrays.binarySearch(cumulativeCounts, 0, serviceIds.size(), index + 1);
+                if (position < 0) {
+                    position = -position - 1;
+                } else {
+                    while (position > 0 && cumulativeCounts[position - 1] == index + 1) {
+                        position--;
+                    }
+                }
+                return serviceIds.get(position);
+            }
+
+            @Override
+            public int size() {
+                return getTotal();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "MissedParcels [total=" + getTotal() + ", services=" + getNumberOfServices() + "]";
+    }
+}
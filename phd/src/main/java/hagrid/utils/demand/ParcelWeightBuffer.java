@@ -0,0 +1,86 @@
+package hagrid.utils.demand;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * The ParcelWeightBuffer class hands out ParcelWeights views that are backed by
+ * large shared chunks of quantized weights instead of one object per parcel.
+ *
+ * A view never spans two chunks, so previously returned views stay valid when
+ * the buffer grows. Deliveries larger than a chunk get a dedicated array.
+ * Instances are not thread-safe; parallel producers should use one buffer each.
+ */
+public class ParcelWeightBuffer {
+
+    /** Default number of weights per chunk (128 KB per chunk). */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+    private final int chunkSize;
+    private short[] chunk;
+    private int position;
+    private long totalWeights = 0;
+
+    /**
+     * Constructs a ParcelWeightBuffer with the default chunk size.
+     */
+    public ParcelWeightBuffer() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a ParcelWeightBuffer with a custom chunk size.
+     *
+     * @param chunkSize The number of weights per chunk.
+     */
+    public ParcelWeightBuffer(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        this.chunk = new short[chunkSize];
+        this.position = 0;
+    }
+
+    /**
+     * Draws the given number of weights from the supplier and stores them in the
+     * buffer.
+     *
+     * @param amount         The number of parcels.
+     * @param weightSupplier The supplier of weights in kilograms.
+     * @return A view on the stored weights.
+     */
+    public ParcelWeights generate(int amount, DoubleSupplier weightSupplier) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount must not be negative: " + amount);
+        }
+        totalWeights += amount;
+
+        if (amount > chunkSize) {
+            short[] dedicated = new short[amount];
+            for (int i = 0; i < amount; i++) {
+                dedicated[i] = ParcelWeights.quantize(weightSupplier.getAsDouble());
+            }
+            return ParcelWeights.wrap(dedicated);
+        }
+
+        if (position + amount > chunk.length) {
+            chunk = new short[chunkSize];
+            position = 0;
+        }
+
+        int start = position;
+        for (int i = 0; i < amount; i++) {
+            chunk[position++] = ParcelWeights.quantize(weightSupplier.getAsDouble());
+        }
+        return new ParcelWeights(chunk, start, amount);
+    }
+
+    /**
+     * Returns the total number of weights stored in this buffer so far.
+     *
+     * @return The number of stored weights.
+     */
+    public long getTotalWeights() {
+        return totalWeights;
+    }
+}
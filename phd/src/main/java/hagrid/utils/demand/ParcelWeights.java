@@ -0,0 +1,262 @@
+package hagrid.utils.demand;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The ParcelWeights class is a compact, read-only view on the individual parcel
+ * weights of a delivery or service.
+ *
+ * Weights are stored quantized to 10 g steps (centi-kilograms) as shorts inside
+ * a shared backing array, together with an offset and a length. Since the
+ * WeightGenerator rounds all weights to two decimals and the maximum weight is
+ * 31.5 kg, this quantization is lossless for generated parcels. Slicing a view
+ * does not copy any data.
+ */
+public final class ParcelWeights {
+
+    /** Number of quantization steps per kilogram. */
+    public static final int STEPS_PER_KG = 100;
+
+    /** Largest weight in kilograms that can be represented. */
+    public static final double MAX_WEIGHT = Short.MAX_VALUE / (double) STEPS_PER_KG;
+
+    private static final ParcelWeights EMPTY = new ParcelWeights(new short[0], 0, 0);
+
+    private final short[] buffer;
+    private final int offset;
+    private final int length;
+
+    /**
+     * Creates a view on the given backing array. The array is shared, not copied.
+     *
+     * @param buffer The backing array with quantized weights.
+     * @param offset The index of the first weight of this view.
+     * @param length The number of weights in this view.
+     */
+    ParcelWeights(short[] buffer, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > buffer.length) {
+            throw new IndexOutOfBoundsException(
+                    "Invalid view: offset " + offset + ", length " + length + ", buffer " + buffer.length);
+        }
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Returns an empty weight view.
+     *
+     * @return An empty ParcelWeights instance.
+     */
+    public static ParcelWeights empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates a standalone weight view from the given weights in kilograms.
+     *
+     * @param weights The weights in kilograms.
+     * @return A ParcelWeights instance holding the quantized weights.
+     */
+    public static ParcelWeights of(double... weights) {
+        short[] quantized = new short[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            quantized[i] = quantize(weights[i]);
+        }
+        return new ParcelWeights(quantized, 0, quantized.length);
+    }
+
+    /**
+     * Creates a standalone weight view from the given list of weights in kilograms.
+     *
+     * @param weights The weights in kilograms.
+     * @return A ParcelWeights instance holding the quantized weights.
+     */
+    public static ParcelWeights of(List<Double> weights) {
+        return of(weights.stream().mapToDouble(Double::doubleValue).toArray());
+    }
+
+    /**
+     * Creates a standalone weight view from a copy of already quantized weights.
+     *
+     * @param quantized The quantized weights.
+     * @return A ParcelWeights instance holding a copy of the given weights.
+     * @throws IllegalArgumentException If a quantized weight is negative.
+     */
+    public static ParcelWeights ofQuantized(short... quantized) {
+        for (short weight : quantized) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Quantized parcel weight out of range: " + weight);
+            }
+        }
+        return wrap(quantized.clone());
+    }
+
+    /**
+     * Creates a standalone weight view from already quantized weights. The array
+     * is taken over without copying.
+     *
+     * @param quantized The quantized weights.
+     * @return A ParcelWeights instance wrapping the given array.
+     */
+    static ParcelWeights wrap(short[] quantized) {
+        return new ParcelWeights(quantized, 0, quantized.length);
+    }
+
+    /**
+     * Quantizes a weight in kilograms to the internal short representation.
+     *
+     * @param weight The weight in kilograms.
+     * @return The quantized weight.
+     * @throws IllegalArgumentException If the weight is negative, NaN or too large.
+     */
+    public static short quantize(double weight) {
+        if (!(weight >= 0.0) || weight > MAX_WEIGHT) {
+            throw new IllegalArgumentException("Parcel weight out of range: " + weight);
+        }
+        return (short) Math.round(weight * STEPS_PER_KG);
+    }
+
+    /**
+     * Returns the number of parcels in this view.
+     *
+     * @return The number of weights.
+     */
+    public int size() {
+        return length;
+    }
+
+    /**
+     * Checks whether this view contains no weights.
+     *
+     * @return True if the view is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * Returns the weight of the parcel at the given index in kilograms.
+     *
+     * @param index The index of the parcel.
+     * @return The weight in kilograms.
+     */
+    public double get(int index) {
+        return getQuantized(index) / (double) STEPS_PER_KG;
+    }
+
+    /**
+     * Returns the quantized weight of the parcel at the given index.
+     *
+     * @param index The index of the parcel.
+     * @return The quantized weight.
+     */
+    public short getQuantized(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+        }
+        return buffer[offset + index];
+    }
+
+    /**
+     * Returns the sum of all quantized weights. Summing in integer steps avoids
+     * floating point drift for large deliveries.
+     *
+     * @return The total weight in quantization steps.
+     */
+    public long quantizedSum() {
+        long sum = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            sum += buffer[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the total weight of all parcels in kilograms.
+     *
+     * @return The total weight in kilograms.
+     */
+    public double sum() {
+        return quantizedSum() / (double) STEPS_PER_KG;
+    }
+
+    /**
+     * Returns a view on a sub range of this view without copying.
+     *
+     * @param fromIndex The first index, inclusive.
+     * @param toIndex   The last index, exclusive.
+     * @return A ParcelWeights view sharing the backing array.
+     */
+    public ParcelWeights slice(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > length || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException(
+                    "Invalid slice [" + fromIndex + ", " + toIndex + ") for length " + length);
+        }
+        return new ParcelWeights(buffer, offset + fromIndex, toIndex - fromIndex);
+    }
+
+    /**
+     * Returns a copy of the quantized weights of this view.
+     *
+     * @return A new array with the quantized weights.
+     */
+    public short[] toQuantizedArray() {
+        return Arrays.copyOfRange(buffer, offset, offset + length);
+    }
+
+    /**
+     * Returns the weights of this view in kilograms as a new array.
+     *
+     * @return A new array with the weights in kilograms.
+     */
+    public double[] toArray() {
+        double[] weights = new double[length];
+        for (int i = 0; i < length; i++) {
+            weights[i] = buffer[offset + i] / (double) STEPS_PER_KG;
+        }
+        return weights;
+    }
+
+    /**
+     * Returns the weights of this view in kilograms as a new list. Only intended
+     * for debugging and legacy consumers, since it boxes every weight.
+     *
+     * @return A new list with the weights in kilograms.
+     */
+    public List<Double> toList() {
+        List<Double> weights = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            weights.add(get(i));
+        }
+        return weights;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ParcelWeights)) {
+            return false;
+        }
+        ParcelWeights other = (ParcelWeights) o;
+        return Arrays.equals(buffer, offset, offset + length, other.buffer, other.offset, other.offset + other.length);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            result = 31 * result + buffer[i];
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return toList().toString();
+    }
+}
@@ -0,0 +1,96 @@
+package hagrid.utils.demand;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+import org.matsim.utils.objectattributes.AttributeConverter;
+
+/**
+ * The ParcelWeightsConverter converts ParcelWeights to and from the compact
+ * binary string representation used for the "weights" attribute of carrier
+ * services.
+ *
+ * The quantized weights are written as big-endian shorts and Base64 encoded
+ * behind the {@link #PREFIX} marker, which takes about 2.7 characters per parcel
+ * instead of the 4-6 characters of the former semicolon separated format.
+ * Reading still accepts the legacy "w1;w2;..." format of older carrier files.
+ */
+public class ParcelWeightsConverter implements AttributeConverter<ParcelWeights> {
+
+    /** Marker for the binary encoding, including the quantization resolution. */
+    public static final String PREFIX = "q" + ParcelWeights.STEPS_PER_KG + ":";
+
+    @Override
+    public ParcelWeights convert(String value) {
+        return decode(value);
+    }
+
+    @Override
+    public String convertToString(Object o) {
+        if (!(o instanceof ParcelWeights)) {
+            throw new IllegalArgumentException("Cannot convert " + o + " to a parcel weights string.");
+        }
+        return encode((ParcelWeights) o);
+    }
+
+    /**
+     * Encodes the given weights into the binary string representation.
+     *
+     * @param weights The weights to encode.
+     * @return The encoded string.
+     */
+    public static String encode(ParcelWeights weights) {
+        ByteBuffer bytes = ByteBuffer.allocate(weights.size() * Short.BYTES);
+        for (int i = 0; i < weights.size(); i++) {
+            bytes.putShort(weights.getQuantized(i));
+        }
+        return PREFIX + Base64.getEncoder().encodeToString(bytes.array());
+    }
+
+    /**
+     * Decodes weights from either the binary or the legacy semicolon separated
+     * representation.
+     *
+     * @param value The encoded weights, may be null or empty.
+     * @return The decoded weights.
+     */
+    public static ParcelWeights decode(String value) {
+        if (value == null || value.isEmpty()) {
+            return ParcelWeights.empty();
+        }
+
+        if (value.startsWith(PREFIX)) {
+            byte[] raw = Base64.getDecoder().decode(value.substring(PREFIX.length()));
+            if (raw.length % Short.BYTES != 0) {
+                throw new IllegalArgumentException("Corrupt parcel weights encoding of length " + raw.length);
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(raw);
+            short[] quantized = new short[raw.length / Short.BYTES];
+            for (int i = 0; i < quantized.length; i++) {
+                quantized[i] = bytes.getShort();
+            }
+            return ParcelWeights.wrap(quantized);
+        }
+
+        String[] parts = value.split(";");
+        double[] weights = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            weights[i] = Double.parseDouble(parts[i]);
+        }
+        return ParcelWeights.of(weights);
+    }
+
+    /**
+     * Reads weights from an attribute value, which can either be a ParcelWeights
+     * instance or an encoded string.
+     *
+     * @param attribute The attribute value.
+     * @return The decoded weights, empty if the attribute is null.
+     */
+    public static ParcelWeights fromAttribute(Object attribute) {
+        if (attribute instanceof ParcelWeights) {
+            return (ParcelWeights) attribute;
+        }
+        return decode((String) attribute);
+    }
+}
@@ -129,12 +129,25 @@ public class WeightGenerator {
      * @return The generated weight for the parcel.
      */
     public double generateWeight(boolean isB2B) {
+        return generateWeight(isB2B, RANDOM);
+    }
+
+    /**
+     * Generates a weight for a parcel using the given random stream. Since the
+     * weight parameters are only read, this method can be called concurrently as
+     * long as every thread uses its own random stream.
+     *
+     * @param isB2B  Whether the parcel is B2B.
+     * @param random The random stream to draw from.
+     * @return The generated weight for the parcel.
+     */
+    public double generateWeight(boolean isB2B, Random random) {
         Map<String, Double> classes = isB2B ? defaultB2BWeightClasses : this.weightClasses;
         Map<String, double[]> ranges = isB2B ? defaultB2BWeightRanges : this.weightRanges;
         Map<String, Double> alphas = isB2B ? defaultAlphaParamsB2B : this.alphaParams;
         Map<String, Double> betas = isB2B ? defaultBetaParamsB2B : this.betaParams;
 
-        double randVal = RANDOM.nextDouble();
+        double randVal = random.nextDouble();
         double cumulativeProbability = 0.0;
         for (Map.Entry<String, Double> entry : classes.entrySet()) {
             cumulativeProbability += entry.getValue();
@@ -144,11 +157,11 @@ public class WeightGenerator {
                 double high = range[1];
                 double alpha = alphas.get(entry.getKey());
                 double beta = betas.get(entry.getKey());
-                double weight = low + (high - low) * betaDistributionSample(alpha, beta);
+                double weight = low + (high - low) * betaDistributionSample(alpha, beta, random);
                 return Math.round(weight * 100.0) / 100.0;
             }
         }
-        return Math.round(RANDOM.nextDouble() * 31.5 * 100.0) / 100.0;
+        return Math.round(random.nextDouble() * 31.5 * 100.0) / 100.0;
     }
 
     /**
@@ -156,11 +169,12 @@ public class WeightGenerator {
      *
      * @param alpha The alpha parameter of the beta distribution.
      * @param beta  The beta parameter of the beta distribution.
+     * @param random The random stream to draw from.
      * @return A sample from the beta distribution.
      */
-    private double betaDistributionSample(double alpha, double beta) {
-        double sample1 = gammaDistributionSample(alpha, 1.0);
-        double sample2 = gammaDistributionSample(beta, 1.0);
+    private double betaDistributionSample(double alpha, double beta, Random random) {
+        double sample1 = gammaDistributionSample(alpha, 1.0, random);
+        double sample2 = gammaDistributionSample(beta, 1.0, random);
         return sample1 / (sample1 + sample2);
     }
 
@@ -169,13 +183,14 @@ public class WeightGenerator {
      *
      * @param shape The shape parameter of the gamma distribution.
      * @param scale The scale parameter of the gamma distribution.
+     * @param random The random stream to draw from.
      * @return A sample from the gamma distribution.
      */
-    private double gammaDistributionSample(double shape, double scale) {
+    private double gammaDistributionSample(double shape, double scale, Random random) {
         if (shape < 1) {
             shape += 1;
-            double u = RANDOM.nextDouble();
-            return gammaDistributionSample(shape, scale) * Math.pow(u, 1.0 / shape);
+            double u = random.nextDouble();
+            return gammaDistributionSample(shape, scale, random) * Math.pow(u, 1.0 / shape);
         }
 
         double d = shape - 1.0 / 3.0;
@@ -183,11 +198,11 @@ public class WeightGenerator {
         while (true) {
             double x, v;
             do {
-                x = RANDOM.nextGaussian();
+                x = random.nextGaussian();
                 v = 1.0 + c * x;
             } while (v <= 0);
             v = v * v * v;
-            double u = RANDOM.nextDouble();
+            double u = random.nextDouble();
             if (u < 1 - 0.0331 * (x * x) * (x * x) || Math.log(u) < 0.5 * x * x + d * (1 - v + Math.log(v))) {
                 return d * v * scale;
             }
@@ -0,0 +1,121 @@
+package hagrid.utils.general;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import hagrid.HagridConfigGroup;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.freight.carriers.CarrierPlanWriter;
+import org.matsim.freight.carriers.Carriers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The CarrierPlanOutput class writes carrier plan files on a background thread,
+ * so that serialization overlaps with the following processing steps.
+ *
+ * Files are written one after another in submission order and compressed
+ * according to the outputCompression setting of the HagridConfigGroup. The
+ * carriers must not be modified until {@link #awaitCompletion()} returned;
+ * steps that change submitted carriers, like routing, call it first.
+ */
+@Singleton
+public class CarrierPlanOutput implements AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(CarrierPlanOutput.class);
+
+    @Inject
+    private HagridConfigGroup hagridConfig;
+
+    private ExecutorService executor;
+    private final List<Future<?>> pending = new ArrayList<>();
+
+    /**
+     * Schedules writing the carriers to the given file. The extension of the
+     * compression is appended to the file name.
+     *
+     * @param carriers The carriers to write.
+     * @param filename The output file without compression extension.
+     * @return The name of the file that will be written.
+     */
+    public synchronized String write(Carriers carriers, String filename) {
+        final String outputFile = filename + getCompressionExtension();
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "carrier-plan-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        pending.add(executor.submit(() -> {
+            long start = System.currentTimeMillis();
+            new CarrierPlanWriter(carriers).write(outputFile);
+            LOGGER.info("Wrote {} carriers to {} in {} ms.", carriers.getCarriers().size(), outputFile,
+                    System.currentTimeMillis() - start);
+        }));
+        LOGGER.info("Scheduled writing {} carriers to {}.", carriers.getCarriers().size(), outputFile);
+        return outputFile;
+    }
+
+    /**
+     * Blocks until all scheduled files are written.
+     *
+     * @throws IllegalStateException If writing one of the files failed.
+     */
+    public synchronized void awaitCompletion() {
+        List<Future<?>> futures = new ArrayList<>(pending);
+        pending.clear();
+
+        IllegalStateException failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while writing carrier plans", e);
+            } catch (ExecutionException e) {
+                LOGGER.error("Error writing carrier plans", e.getCause());
+                if (failure == null) {
+                    failure = new IllegalStateException("Error writing carrier plans", e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Waits for all scheduled files and stops the writer thread.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            awaitCompletion();
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+                executor = null;
+            }
+        }
+    }
+
+    private String getCompressionExtension() {
+        String compression = hagridConfig.getOutputCompression();
+        switch (compression.toLowerCase()) {
+            case "none":
+                return "";
+            case "gzip":
+                return ".gz";
+            case "zstd":
+                return ".zst";
+            default:
+                throw new IllegalArgumentException("Unknown output compression: " + compression);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package hagrid.utils.general;
+
+import hagrid.utils.demand.Delivery.ParcelType;
+import hagrid.utils.demand.MissedParcels;
+import hagrid.utils.demand.ParcelWeights;
+import hagrid.utils.demand.ParcelWeightsConverter;
+import org.matsim.freight.carriers.Carrier;
+import org.matsim.freight.carriers.CarrierService;
+import org.matsim.freight.carriers.Carriers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * The CarrierValidationReport class aggregates all counters needed to validate
+ * generated carriers in a single traversal of their services.
+ *
+ * Counters are kept per provider in primitive fields; weights are summed in
+ * their quantized form, so the result is exact and independent of the order in
+ * which carriers are visited. Partial reports of different threads are merged
+ * with {@link #combine(CarrierValidationReport)}, which allows the aggregation
+ * to run as a parallel mutable reduction.
+ */
+public class CarrierValidationReport {
+
+    private final Map<String, ProviderStatistics> providers = new TreeMap<>();
+    private final List<String> weightIssues = new ArrayList<>();
+    private final List<String> missedParcelIssues = new ArrayList<>();
+
+    /**
+     * Aggregates the validation counters of all carriers.
+     *
+     * @param carriers The carriers to aggregate.
+     * @param parallel Whether carriers are visited concurrently.
+     * @return The aggregated report.
+     */
+    public static CarrierValidationReport aggregate(Carriers carriers, boolean parallel) {
+        Stream<Carrier> stream = parallel
+                ? carriers.getCarriers().values().parallelStream()
+                : carriers.getCarriers().values().stream();
+        return stream.collect(CarrierValidationReport::new, CarrierValidationReport::accept,
+                CarrierValidationReport::combine);
+    }
+
+    /**
+     * Adds the services and missed parcels of a carrier to this report.
+     *
+     * @param carrier The carrier to add.
+     */
+    public void accept(Carrier carrier) {
+        String provider = (String) carrier.getAttributes().getAttribute("provider");
+        ProviderStatistics statistics = providers.computeIfAbsent(provider, k -> new ProviderStatistics());
+
+        long carrierParcels = 0;
+        for (CarrierService service : carrier.getServices().values()) {
+            int parcels = service.getCapacityDemand();
+            ParcelWeights weights = ParcelWeightsConverter.fromAttribute(service.getAttributes().getAttribute("weights"));
+            long weight = weights.quantizedSum();
+
+            statistics.services++;
+            statistics.parcels += parcels;
+            statistics.quantizedWeight += weight;
+            if (isB2B(service.getAttributes().getAttribute("type"))) {
+                statistics.b2bServices++;
+                statistics.b2bParcels += parcels;
+                statistics.quantizedB2BWeight += weight;
+            }
+            carrierParcels += parcels;
+
+            if (weights.size() != parcels) {
+                weightIssues.add(String.format("Service %s has capacityDemand %d but %d weights.",
+                        service.getId(), parcels, weights.size()));
+            }
+        }
+
+        int missed = getMissedParcels(carrier);
+        statistics.missedParcels += missed;
+        if (carrierParcels > 0) {
+            statistics.missedRateSum += (double) missed / carrierParcels;
+            statistics.ratedCarriers++;
+        }
+
+        Object missedPerService = carrier.getAttributes().getAttribute("missedParcelsPerService");
+        if (missedPerService instanceof MissedParcels && ((MissedParcels) missedPerService).getTotal() != missed) {
+            missedParcelIssues.add(String.format("Carrier %s: expected missed parcel deliveries %d, actual %d.",
+                    carrier.getId(), missed, ((MissedParcels) missedPerService).getTotal()));
+        }
+    }
+
+    /**
+     * Merges another partial report into this one.
+     *
+     * @param other The report to merge.
+     */
+    public void combine(CarrierValidationReport other) {
+        other.providers.forEach((provider, statistics) -> providers
+                .computeIfAbsent(provider, k -> new ProviderStatistics()).combine(statistics));
+        weightIssues.addAll(other.weightIssues);
+        missedParcelIssues.addAll(other.missedParcelIssues);
+    }
+
+    /**
+     * Returns the statistics per provider, sorted by provider name.
+     *
+     * @return An unmodifiable map of provider statistics.
+     */
+    public Map<String, ProviderStatistics> getProviders() {
+        return Collections.unmodifiableMap(providers);
+    }
+
+    /**
+     * Returns the statistics summed over all providers.
+     *
+     * @return The total statistics.
+     */
+    public ProviderStatistics getTotal() {
+        ProviderStatistics total = new ProviderStatistics();
+        providers.values().forEach(total::combine);
+        return total;
+    }
+
+    /**
+     * Returns services whose number of weights does not match their capacity
+     * demand.
+     *
+     * @return An unmodifiable list of issue descriptions.
+     */
+    public List<String> getWeightIssues() {
+        return Collections.unmodifiableList(weightIssues);
+    }
+
+    /**
+     * Returns carriers whose recorded missed parcels do not match their missed
+     * parcel count.
+     *
+     * @return An unmodifiable list of issue descriptions.
+     */
+    public List<String> getMissedParcelIssues() {
+        return Collections.unmodifiableList(missedParcelIssues);
+    }
+
+    /**
+     * Formats the delivery statistics by provider and in total for logging.
+     *
+     * @return The formatted statistics.
+     */
+    public String toLogString() {
+        StringBuilder logBuilder = new StringBuilder();
+        logBuilder.append("=== Delivery Statistics by Provider ===\n");
+
+        providers.forEach((provider, statistics) -> logBuilder.append(String.format(
+                "Provider: %s\n  Total Services     : %,d\n  B2B Services       : %,d\n  Total Parcels      : %,d\n  B2B Parcels        : %,d\n  B2B Service Ratio  : %.2f%%\n  B2B Parcel Ratio   : %.2f%%\n  Total Weight       : %.2f\n  Total B2B Weight   : %.2f\n  Average Weight     : %.2f\n  Average B2B Weight : %.2f\n\n",
+                provider, statistics.getServices(), statistics.getB2BServices(), statistics.getParcels(),
+                statistics.getB2BParcels(),
+                (double) statistics.getB2BServices() / statistics.getServices() * 100,
+                (double) statistics.getB2BParcels() / statistics.getParcels() * 100,
+                statistics.getWeight(), statistics.getB2BWeight(), statistics.getAverageWeight(),
+                statistics.getAverageB2BWeight())));
+
+        ProviderStatistics total = getTotal();
+        logBuilder.append("=== Total Statistics ===\n");
+        logBuilder.append(String.format(
+                "Total Services     : %,d\nTotal B2B Services : %,d\nTotal Parcels      : %,d\nTotal B2B Parcels  : %,d\nTotal Weight       : %.2f\nTotal B2B Weight   : %.2f\nAverage Weight     : %.2f\nAverage B2B Weight : %.2f\n",
+                total.getServices(), total.getB2BServices(), total.getParcels(), total.getB2BParcels(),
+                total.getWeight(), total.getB2BWeight(), total.getAverageWeight(), total.getAverageB2BWeight()));
+        return logBuilder.toString();
+    }
+
+    private static boolean isB2B(Object type) {
+        return type == ParcelType.B2B || (type != null && ParcelType.B2B.name().equals(type.toString()));
+    }
+
+    private static int getMissedParcels(Carrier carrier) {
+        Object missed = carrier.getAttributes().getAttribute("missedParcels");
+        if (missed instanceof Number) {
+            return ((Number) missed).intValue();
+        }
+        return 0;
+    }
+
+    /**
+     * Counters of the services of one provider.
+     */
+    public static class ProviderStatistics {
+        private long services;
+        private long b2bServices;
+        private long parcels;
+        private long b2bParcels;
+        private long quantizedWeight;
+        private long quantizedB2BWeight;
+        private long missedParcels;
+        private double missedRateSum;
+        private long ratedCarriers;
+
+        private void combine(ProviderStatistics other) {
+            services += other.services;
+            b2bServices += other.b2bServices;
+            parcels += other.parcels;
+            b2bParcels += other.b2bParcels;
+            quantizedWeight += other.quantizedWeight;
+            quantizedB2BWeight += other.quantizedB2BWeight;
+            missedParcels += other.missedParcels;
+            missedRateSum += other.missedRateSum;
+            ratedCarriers += other.ratedCarriers;
+        }
+
+        public long getServices() {
+            return services;
+        }
+
+        public long getB2BServices() {
+            return b2bServices;
+        }
+
+        public long getParcels() {
+            return parcels;
+        }
+
+        public long getB2BParcels() {
+            return b2bParcels;
+        }
+
+        public long getMissedParcels() {
+            return missedParcels;
+        }
+
+        public double getWeight() {
+            return (double) quantizedWeight / ParcelWeights.STEPS_PER_KG;
+        }
+
+        public double getB2BWeight() {
+            return (double) quantizedB2BWeight / ParcelWeights.STEPS_PER_KG;
+        }
+
+        public double getAverageWeight() {
+            return parcels == 0 ? 0 : getWeight() / parcels;
+        }
+
+        public double getAverageB2BWeight() {
+            return b2bParcels == 0 ? 0 : getB2BWeight() / b2bParcels;
+        }
+
+        /**
+         * Returns the average share of missed parcels over all carriers of the
+         * provider that have at least one parcel.
+         *
+         * @return The average missed parcel rate between 0 and 1.
+         */
+        public double getAverageMissedRate() {
+            return ratedCarriers == 0 ? 0 : missedRateSum / ratedCarriers;
+        }
+
+        /**
+         * Returns the number of carriers contributing to the average missed rate.
+         *
+         * @return The number of carriers with at least one parcel.
+         */
+        public long getRatedCarriers() {
+            return ratedCarriers;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package hagrid.utils.general;
+
+import hagrid.utils.demand.Delivery;
+import hagrid.utils.demand.ParcelWeights;
+import hagrid.utils.demand.ParcelWeightsConverter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.freight.carriers.Carrier;
+import org.matsim.freight.carriers.CarrierPlan;
+import org.matsim.freight.carriers.CarrierService;
+import org.matsim.freight.carriers.Carriers;
+import org.matsim.freight.carriers.ScheduledTour;
+import org.matsim.freight.carriers.Tour;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The CsvTableExporter class writes generated deliveries, carrier services and
+ * routed tours as compressed CSV tables for analysis.
+ *
+ * Every table is streamed row by row with a {@link CsvTableWriter}, so no
+ * intermediate feature collection or document is built in memory. Weights are
+ * written as comma separated kilograms in one column.
+ */
+public class CsvTableExporter {
+
+    private static final Logger LOGGER = LogManager.getLogger(CsvTableExporter.class);
+
+    private CsvTableExporter() {
+    }
+
+    /**
+     * Writes one row per delivery.
+     *
+     * @param deliveries The deliveries by carrier key.
+     * @param filename   The output file.
+     */
+    public static void writeDeliveries(Map<String, ? extends List<Delivery>> deliveries, String filename) {
+        try (CsvTableWriter writer = new CsvTableWriter(filename, "key", "id", "provider", "postalCode", "parcelType",
+                "deliveryMode", "x", "y", "amount", "totalWeight", "weights")) {
+            for (Map.Entry<String, ? extends List<Delivery>> entry : deliveries.entrySet()) {
+                for (Delivery delivery : entry.getValue()) {
+                    Coord coord = delivery.getCoordinate();
+                    ParcelWeights weights = delivery.getIndividualWeights();
+                    writer.writeRow(entry.getKey(), delivery.getId(), delivery.getProvider(),
+                            delivery.getPostalCode(), delivery.getParcelType(), delivery.getDeliveryMode(),
+                            coord == null ? null : coord.getX(), coord == null ? null : coord.getY(),
+                            delivery.getAmount(), weights == null ? null : weights.sum(), formatWeights(weights));
+                }
+            }
+            LOGGER.info("Wrote {} deliveries to {}", writer.getRows(), filename);
+        }
+    }
+
+    /**
+     * Writes one row per carrier service.
+     *
+     * @param carriers The carriers whose services are written.
+     * @param filename The output file.
+     */
+    public static void writeServices(Carriers carriers, String filename) {
+        try (CsvTableWriter writer = new CsvTableWriter(filename, "carrier", "service", "provider", "postalCode", "type",
+                "mode", "link", "x", "y", "capacityDemand", "totalWeight", "weights")) {
+            for (Carrier carrier : carriers.getCarriers().values()) {
+                for (CarrierService service : carrier.getServices().values()) {
+                    Coord coord = (Coord) service.getAttributes().getAttribute("coord");
+                    Object weightsAttribute = service.getAttributes().getAttribute("weights");
+                    ParcelWeights weights = weightsAttribute == null ? null
+                            : ParcelWeightsConverter.fromAttribute(weightsAttribute);
+                    writer.writeRow(carrier.getId(), service.getId(),
+                            service.getAttributes().getAttribute("provider"),
+                            service.getAttributes().getAttribute("postalcode"),
+                            service.getAttributes().getAttribute("type"),
+                            service.getAttributes().getAttribute("mode"), service.getLocationLinkId(),
+                            coord == null ? null : coord.getX(), coord == null ? null : coord.getY(),
+                            service.getCapacityDemand(), weights == null ? null : weights.sum(),
+                            formatWeights(weights));
+                }
+            }
+            LOGGER.info("Wrote {} services to {}", writer.getRows(), filename);
+        }
+    }
+
+    /**
+     * Writes one row per element of the scheduled tours of the selected plans.
+     * Carriers without a selected plan are skipped.
+     *
+     * @param carriers The routed carriers.
+     * @param filename The output file.
+     */
+    public static void writeTours(Carriers carriers, String filename) {
+        try (CsvTableWriter writer = new CsvTableWriter(filename, "carrier", "tour", "vehicle", "vehicleType",
+                "element", "elementType", "service", "link", "departureTime", "arrivalTime", "duration",
+                "distance")) {
+            for (Carrier carrier : carriers.getCarriers().values()) {
+                CarrierPlan plan = carrier.getSelectedPlan();
+                if (plan == null) {
+                    continue;
+                }
+                int tourIndex = 0;
+                for (ScheduledTour scheduledTour : plan.getScheduledTours()) {
+                    Object vehicleId = scheduledTour.getVehicle().getId();
+                    Object vehicleTypeId = scheduledTour.getVehicle().getVehicleTypeId();
+                    int elementIndex = 0;
+                    for (Tour.TourElement element : scheduledTour.getTour().getTourElements()) {
+                        if (element instanceof Tour.Leg leg) {
+                            writer.writeRow(carrier.getId(), tourIndex, vehicleId, vehicleTypeId, elementIndex,
+                                    "leg", null, null, leg.getExpectedDepartureTime(),
+                                    leg.getExpectedDepartureTime() + leg.getExpectedTransportTime(),
+                                    leg.getExpectedTransportTime(),
+                                    leg.getRoute() == null ? null : leg.getRoute().getDistance());
+                        } else if (element instanceof Tour.TourActivity activity) {
+                            Object serviceId = activity instanceof Tour.ServiceActivity serviceActivity
+                                    ? serviceActivity.getService().getId()
+                                    : null;
+                            writer.writeRow(carrier.getId(), tourIndex, vehicleId, vehicleTypeId, elementIndex,
+                                    activity.getActivityType(), serviceId, activity.getLocation(), null,
+                                    activity.getExpectedArrival(), activity.getDuration(), null);
+                        }
+                        elementIndex++;
+                    }
+                    tourIndex++;
+                }
+            }
+            LOGGER.info("Wrote {} tour elements to {}", writer.getRows(), filename);
+        }
+    }
+
+    private static String formatWeights(ParcelWeights weights) {
+        if (weights == null || weights.isEmpty()) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder(weights.size() * 5);
+        for (int i = 0; i < weights.size(); i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            // Quantized weights have two decimals
+            short quantized = weights.getQuantized(i);
+            builder.append(quantized / ParcelWeights.STEPS_PER_KG).append('.');
+            int cents = quantized % ParcelWeights.STEPS_PER_KG;
+            if (cents < 10) {
+                builder.append('0');
+            }
+            builder.append(cents);
+        }
+        return builder.toString();
+    }
+}
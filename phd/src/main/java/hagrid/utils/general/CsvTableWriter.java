@@ -0,0 +1,143 @@
+package hagrid.utils.general;
+
+import org.matsim.core.utils.io.IOUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * The CsvTableWriter class streams rows of a fixed set of columns to a
+ * semicolon separated CSV file.
+ *
+ * Rows are written as they are produced and the stream is flushed every few
+ * rows, so memory use does not depend on the size of the table and the file
+ * can be read while it is still being written. The compression is chosen
+ * by the file extension (e.g. ".csv.gz" or ".csv.zst"), as for all MATSim
+ * output files.
+ */
+public class CsvTableWriter implements AutoCloseable {
+
+    /** Default number of rows between two flushes of the output stream. */
+    public static final int DEFAULT_FLUSH_INTERVAL = 1 << 16;
+
+    private static final char SEPARATOR = ';';
+
+    private final String filename;
+    private final int columns;
+    private final int flushInterval;
+    private final BufferedWriter writer;
+    private final StringBuilder row = new StringBuilder(256);
+    private long rows = 0;
+
+    /**
+     * Opens a table with the default flush interval.
+     *
+     * @param filename The output file.
+     * @param header   The column names.
+     */
+    public CsvTableWriter(String filename, String... header) {
+        this(filename, DEFAULT_FLUSH_INTERVAL, header);
+    }
+
+    /**
+     * Opens a table and writes its header.
+     *
+     * @param filename      The output file.
+     * @param flushInterval The number of rows between two flushes.
+     * @param header        The column names.
+     */
+    public CsvTableWriter(String filename, int flushInterval, String... header) {
+        if (flushInterval <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive: " + flushInterval);
+        }
+        this.filename = filename;
+        this.columns = header.length;
+        this.flushInterval = flushInterval;
+        try {
+            Path parent = Paths.get(filename).toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.writer = IOUtils.getBufferedWriter(filename);
+            writer.write(String.join(String.valueOf(SEPARATOR), header));
+            writer.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open table " + filename, e);
+        }
+    }
+
+    /**
+     * Appends a row. Null values are written as empty fields, floating point
+     * values with a dot as decimal separator.
+     *
+     * @param values The values of all columns.
+     */
+    public void writeRow(Object... values) {
+        if (values.length != columns) {
+            throw new IllegalArgumentException(
+                    "Expected " + columns + " values but got " + values.length + " for table " + filename);
+        }
+        row.setLength(0);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                row.append(SEPARATOR);
+            }
+            append(values[i]);
+        }
+        try {
+            writer.append(row);
+            writer.newLine();
+            if (++rows % flushInterval == 0) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to table " + filename, e);
+        }
+    }
+
+    /**
+     * Returns the number of rows written so far, without the header.
+     *
+     * @return The number of rows.
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not close table " + filename, e);
+        }
+    }
+
+    private void append(Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            if (Double.isFinite(number)) {
+                row.append(String.format(Locale.ROOT, "%.3f", number));
+            }
+            return;
+        }
+        if (value instanceof Number) {
+            row.append(value);
+            return;
+        }
+        String text = value.toString();
+        if (text.indexOf(SEPARATOR) >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0) {
+            row.append('"').append(text.replace("\"", "\"\"")).append('"');
+        } else {
+            row.append(text);
+        }
+    }
+}
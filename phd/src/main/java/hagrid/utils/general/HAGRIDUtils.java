@@ -34,6 +34,11 @@ import java.io.Serializable;
 import java.net.MalformedURLException;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
+import java.util.Random;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 /**
  * Utility class for HAGRID that includes methods for converting carrier
@@ -44,7 +49,8 @@ public class HAGRIDUtils {
     private static final Logger LOGGER = LogManager.getLogger(HAGRIDUtils.class);
 
     /**
-     * Retrieves the specified scenario element.
+     * Retrieves the specified scenario element. Access is synchronized on the
+     * scenario, since pipeline stages may add elements concurrently.
      *
      * @param elementName The name of the scenario element to retrieve.
      * @param <T>         The type of the scenario element.
@@ -52,29 +58,66 @@ public class HAGRIDUtils {
      * @throws IllegalStateException If the scenario element is missing.
      */
     public static <T> T getScenarioElementAs(String elementName, Scenario scenario) {
-        Object element = scenario.getScenarioElement(elementName);
+        Object element;
+        synchronized (scenario) {
+            element = scenario.getScenarioElement(elementName);
+        }
         if (element == null) {
             throw new IllegalStateException(elementName + " data is missing in the scenario.");
         }
         return (T) element;
     }
 
-    public static void checkAndLogCarrierAttributes(Carriers carriers) {
-        LOGGER.info("Starting to check and log carrier attributes");
+    /**
+     * Adds an element to the scenario. Access is synchronized on the scenario,
+     * since pipeline stages may add elements concurrently.
+     *
+     * @param elementName The name of the scenario element.
+     * @param element     The scenario element.
+     */
+    public static void addScenarioElement(String elementName, Object element, Scenario scenario) {
+        synchronized (scenario) {
+            scenario.addScenarioElement(elementName, element);
+        }
+    }
 
-        // Explicitly specify the type arguments for HashMap
-        Map<Id<Carrier>, Carrier> carrierMap = new HashMap<Id<Carrier>, Carrier>(carriers.getCarriers());
+    /**
+     * Creates a random stream for the given key, derived from the given seed. The
+     * stream is seeded with the first 8 bytes of the SHA-256 hash of the seed and
+     * the key, so different keys get independent streams even if their string
+     * hash codes collide.
+     *
+     * @param seed The global random seed.
+     * @param key  The key identifying the stream, e.g. the carrier ID.
+     * @return A seeded random stream.
+     */
+    public static Random createRandom(long seed, String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(ByteBuffer.allocate(Long.BYTES).putLong(seed).array());
+            digest.update(key.getBytes(StandardCharsets.UTF_8));
+            return new Random(ByteBuffer.wrap(digest.digest()).getLong());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
 
-        for (Carrier carrier : carrierMap.values()) {
-            Map<String, Object> carrierAttributes = new HashMap<String, Object>(carrier.getAttributes().getAsMap());
-            checkAndLogAttributes(carrierAttributes, carrier.getId().toString());
+    /**
+     * Checks that all carrier and service attributes can be converted to strings
+     * and logs them at debug level. The attribute maps are traversed in place
+     * without copying them.
+     *
+     * @param carriers The carriers to check.
+     */
+    public static void checkAndLogCarrierAttributes(Carriers carriers) {
+        LOGGER.info("Starting to check and log carrier attributes");
 
-            Map<Id<CarrierService>, CarrierService> servicesMap = new HashMap<Id<CarrierService>, CarrierService>(
-                    carrier.getServices());
+        for (Carrier carrier : carriers.getCarriers().values()) {
+            String carrierId = carrier.getId().toString();
+            checkAndLogAttributes(carrier.getAttributes().getAsMap(), carrierId);
 
-            for (CarrierService service : servicesMap.values()) {
-                Map<String, Object> serviceAttributes = new HashMap<String, Object>(service.getAttributes().getAsMap());
-                checkAndLogAttributes(serviceAttributes, carrier.getId().toString());
+            for (CarrierService service : carrier.getServices().values()) {
+                checkAndLogAttributes(service.getAttributes().getAsMap(), carrierId);
             }
         }
     }
@@ -85,13 +128,13 @@ public class HAGRIDUtils {
             Object value = entry.getValue();
             try {
                 // Enhanced logging
-                LOGGER.debug("Processing key: " + key + ", value: " + value + " for Carrier ID: " + carrierId);
+                LOGGER.debug("Processing key: {}, value: {} for Carrier ID: {}", key, value, carrierId);
 
                 // Attempt to convert the attribute to a string
                 String valueAsString = value == null ? "null" : value.toString();
 
-                LOGGER.debug("Successfully processed key: " + key + ", valueAsString: " + valueAsString
-                        + " for Carrier ID: " + carrierId);
+                LOGGER.debug("Successfully processed key: {}, valueAsString: {} for Carrier ID: {}", key,
+                        valueAsString, carrierId);
             } catch (ConcurrentModificationException e) {
                 LOGGER.error("ConcurrentModificationException for Carrier ID: " + carrierId + ", Key: " + key, e);
                 throw e; // Re-throw the exception after logging
@@ -0,0 +1,307 @@
+package hagrid.utils.general;
+
+import hagrid.utils.demand.Delivery;
+import hagrid.utils.demand.Delivery.DeliveryMode;
+import hagrid.utils.demand.Delivery.ParcelType;
+import hagrid.utils.demand.ParcelWeights;
+import org.matsim.core.utils.io.IOUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * The ParcelStatistics class aggregates delivery statistics in total, by
+ * provider, by postal code and by provider and postal code in a single pass
+ * over all deliveries.
+ *
+ * All counters are primitive and weights are summed in their quantized form,
+ * so the totals are exact. Partial statistics are merged with
+ * {@link #combine(ParcelStatistics)}, which allows the aggregation to run as a
+ * parallel mutable reduction over the delivery lists. All maps are sorted, so
+ * the written files do not depend on the iteration order of the deliveries.
+ */
+public class ParcelStatistics {
+
+    private final Counts total = new Counts();
+    private final Map<String, Counts> providers = new TreeMap<>();
+    private final Map<String, Counts> postalCodes = new TreeMap<>();
+    private final Map<String, Map<String, Counts>> providerPostalCodes = new TreeMap<>();
+
+    /**
+     * Aggregates the statistics of all deliveries.
+     *
+     * @param deliveries Map of delivery lists.
+     * @param parallel   Whether the delivery lists are visited concurrently.
+     * @return The aggregated statistics.
+     */
+    public static ParcelStatistics collect(Map<String, ? extends List<Delivery>> deliveries, boolean parallel) {
+        Stream<? extends List<Delivery>> stream = parallel
+                ? deliveries.values().parallelStream()
+                : deliveries.values().stream();
+        return stream.collect(ParcelStatistics::new, ParcelStatistics::acceptAll, ParcelStatistics::combine);
+    }
+
+    /**
+     * Adds all deliveries of a list to the statistics.
+     *
+     * @param deliveries The deliveries to add.
+     */
+    public void acceptAll(List<Delivery> deliveries) {
+        for (Delivery delivery : deliveries) {
+            accept(delivery);
+        }
+    }
+
+    /**
+     * Adds a single delivery to the statistics.
+     *
+     * @param delivery The delivery to add.
+     */
+    public void accept(Delivery delivery) {
+        final boolean b2b = ParcelType.B2B.equals(delivery.getParcelType());
+        final boolean locker = DeliveryMode.PARCEL_LOCKER.equals(delivery.getDeliveryMode())
+                || DeliveryMode.PARCEL_LOCKER_EXISTING.equals(delivery.getDeliveryMode());
+        final int amount = delivery.getAmount();
+        final long weight = delivery.getIndividualWeights().quantizedSum();
+        final String provider = delivery.getProvider();
+        final String postalCode = delivery.getPostalCode();
+
+        total.add(b2b, locker, amount, weight);
+        providers.computeIfAbsent(provider, k -> new Counts()).add(b2b, locker, amount, weight);
+        postalCodes.computeIfAbsent(postalCode, k -> new Counts()).add(b2b, locker, amount, weight);
+        providerPostalCodes.computeIfAbsent(provider, k -> new TreeMap<>())
+                .computeIfAbsent(postalCode, k -> new Counts()).add(b2b, locker, amount, weight);
+    }
+
+    /**
+     * Merges other partial statistics into these.
+     *
+     * @param other The statistics to merge.
+     */
+    public void combine(ParcelStatistics other) {
+        total.combine(other.total);
+        merge(providers, other.providers);
+        merge(postalCodes, other.postalCodes);
+        other.providerPostalCodes.forEach((provider, counts) -> merge(
+                providerPostalCodes.computeIfAbsent(provider, k -> new TreeMap<>()), counts));
+    }
+
+    private static void merge(Map<String, Counts> target, Map<String, Counts> source) {
+        source.forEach((key, counts) -> target.computeIfAbsent(key, k -> new Counts()).combine(counts));
+    }
+
+    public Counts getTotal() {
+        return total;
+    }
+
+    public Map<String, Counts> getProviders() {
+        return Collections.unmodifiableMap(providers);
+    }
+
+    public Map<String, Counts> getPostalCodes() {
+        return Collections.unmodifiableMap(postalCodes);
+    }
+
+    public Map<String, Map<String, Counts>> getProviderPostalCodes() {
+        return Collections.unmodifiableMap(providerPostalCodes);
+    }
+
+    /**
+     * Writes all aggregates to a CSV file with one row per total, provider,
+     * postal code and provider/postal code combination.
+     *
+     * @param filename The output file.
+     */
+    public void writeCsv(String filename) {
+        try (BufferedWriter writer = openWriter(filename)) {
+            writer.write("level;provider;postalCode;deliveries;b2bDeliveries;parcels;b2bParcels;weight;b2bWeight;"
+                    + "lockerDeliveries;lockerParcels");
+            writer.newLine();
+            writeCsvRow(writer, "total", "", "", total);
+            for (Map.Entry<String, Counts> entry : providers.entrySet()) {
+                writeCsvRow(writer, "provider", entry.getKey(), "", entry.getValue());
+            }
+            for (Map.Entry<String, Counts> entry : postalCodes.entrySet()) {
+                writeCsvRow(writer, "postalCode", "", entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<String, Map<String, Counts>> provider : providerPostalCodes.entrySet()) {
+                for (Map.Entry<String, Counts> entry : provider.getValue().entrySet()) {
+                    writeCsvRow(writer, "providerPostalCode", provider.getKey(), entry.getKey(), entry.getValue());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write parcel statistics to " + filename, e);
+        }
+    }
+
+    /**
+     * Writes all aggregates to a JSON file.
+     *
+     * @param filename The output file.
+     */
+    public void writeJson(String filename) {
+        try (BufferedWriter writer = openWriter(filename)) {
+            writer.write("{\n  \"total\": ");
+            writer.write(total.toJson());
+            writer.write(",\n  \"providers\": ");
+            writeJsonMap(writer, providers, "    ");
+            writer.write(",\n  \"postalCodes\": ");
+            writeJsonMap(writer, postalCodes, "    ");
+            writer.write(",\n  \"providerPostalCodes\": {");
+            String separator = "\n";
+            for (Map.Entry<String, Map<String, Counts>> provider : providerPostalCodes.entrySet()) {
+                writer.write(separator + "    " + quote(provider.getKey()) + ": ");
+                writeJsonMap(writer, provider.getValue(), "      ");
+                separator = ",\n";
+            }
+            writer.write("\n  }\n}\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write parcel statistics to " + filename, e);
+        }
+    }
+
+    private static BufferedWriter openWriter(String filename) throws IOException {
+        Path parent = Paths.get(filename).toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        return IOUtils.getBufferedWriter(filename);
+    }
+
+    private static void writeCsvRow(BufferedWriter writer, String level, String provider, String postalCode,
+            Counts counts) throws IOException {
+        writer.write(String.format(Locale.ROOT, "%s;%s;%s;%d;%d;%d;%d;%.2f;%.2f;%d;%d", level, provider,
+                postalCode, counts.deliveries, counts.b2bDeliveries, counts.parcels, counts.b2bParcels,
+                counts.getWeight(), counts.getB2BWeight(), counts.lockerDeliveries, counts.lockerParcels));
+        writer.newLine();
+    }
+
+    private static void writeJsonMap(BufferedWriter writer, Map<String, Counts> counts, String indent)
+            throws IOException {
+        writer.write("{");
+        String separator = "\n";
+        for (Map.Entry<String, Counts> entry : counts.entrySet()) {
+            writer.write(separator + indent + quote(entry.getKey()) + ": " + entry.getValue().toJson());
+            separator = ",\n";
+        }
+        writer.write("\n" + indent.substring(2) + "}");
+    }
+
+    private static String quote(String value) {
+        return "\"" + String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /**
+     * Mergeable counters of one aggregate.
+     */
+    public static class Counts {
+        private long deliveries;
+        private long b2bDeliveries;
+        private long parcels;
+        private long b2bParcels;
+        private long quantizedWeight;
+        private long quantizedB2BWeight;
+        private long lockerDeliveries;
+        private long lockerParcels;
+
+        private void add(boolean b2b, boolean locker, int amount, long weight) {
+            deliveries++;
+            parcels += amount;
+            quantizedWeight += weight;
+            if (b2b) {
+                b2bDeliveries++;
+                b2bParcels += amount;
+                quantizedB2BWeight += weight;
+            }
+            if (locker) {
+                lockerDeliveries++;
+                lockerParcels += amount;
+            }
+        }
+
+        private void combine(Counts other) {
+            deliveries += other.deliveries;
+            b2bDeliveries += other.b2bDeliveries;
+            parcels += other.parcels;
+            b2bParcels += other.b2bParcels;
+            quantizedWeight += other.quantizedWeight;
+            quantizedB2BWeight += other.quantizedB2BWeight;
+            lockerDeliveries += other.lockerDeliveries;
+            lockerParcels += other.lockerParcels;
+        }
+
+        public long getDeliveries() {
+            return deliveries;
+        }
+
+        public long getB2BDeliveries() {
+            return b2bDeliveries;
+        }
+
+        public long getParcels() {
+            return parcels;
+        }
+
+        public long getB2BParcels() {
+            return b2bParcels;
+        }
+
+        public long getLockerDeliveries() {
+            return lockerDeliveries;
+        }
+
+        public long getLockerParcels() {
+            return lockerParcels;
+        }
+
+        public double getWeight() {
+            return (double) quantizedWeight / ParcelWeights.STEPS_PER_KG;
+        }
+
+        public double getB2BWeight() {
+            return (double) quantizedB2BWeight / ParcelWeights.STEPS_PER_KG;
+        }
+
+        public double getAverageWeight() {
+            return parcels == 0 ? 0 : getWeight() / parcels;
+        }
+
+        public double getAverageB2BWeight() {
+            return b2bParcels == 0 ? 0 : getB2BWeight() / b2bParcels;
+        }
+
+        public double getB2BDeliveryRatio() {
+            return (double) b2bDeliveries / deliveries * 100;
+        }
+
+        public double getB2BParcelRatio() {
+            return (double) b2bParcels / parcels * 100;
+        }
+
+        public double getLockerDeliveryRatio() {
+            return (double) lockerDeliveries / deliveries * 100;
+        }
+
+        public double getLockerParcelRatio() {
+            return (double) lockerParcels / parcels * 100;
+        }
+
+        private String toJson() {
+            return String.format(Locale.ROOT,
+                    "{\"deliveries\": %d, \"b2bDeliveries\": %d, \"parcels\": %d, \"b2bParcels\": %d, "
+                            + "\"weight\": %.2f, \"b2bWeight\": %.2f, \"lockerDeliveries\": %d, \"lockerParcels\": %d}",
+                    deliveries, b2bDeliveries, parcels, b2bParcels, getWeight(), getB2BWeight(), lockerDeliveries,
+                    lockerParcels);
+        }
+    }
+}
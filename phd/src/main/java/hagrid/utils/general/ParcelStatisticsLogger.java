@@ -5,12 +5,10 @@ import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.Scenario;
 
 import hagrid.utils.demand.Delivery;
-import hagrid.utils.demand.Delivery.DeliveryMode;
-import hagrid.utils.demand.Delivery.ParcelType;
 
-import java.util.*;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Map;
 
 /**
  * The ParcelStatisticsLogger class is responsible for logging detailed
@@ -26,12 +24,16 @@ import java.util.stream.Collectors;
  * as well as the average weight per provider and postal code.
  *
  * Depending on the configuration, it can either log detailed statistics or just
- * an overall summary.
+ * an overall summary. All aggregates are computed in a single pass by
+ * {@link ParcelStatistics} and additionally written to CSV and JSON files.
  */
 public class ParcelStatisticsLogger {
 
         private static final Logger LOGGER = LogManager.getLogger(ParcelStatisticsLogger.class);
+        private static final String CSV_OUTPUT = "phd/output/parcel_statistics.csv";
+        private static final String JSON_OUTPUT = "phd/output/parcel_statistics.json";
         private boolean detailedLog;
+        private boolean parallel;
         private Scenario scenario;
 
         /**
@@ -42,7 +44,21 @@ public class ParcelStatisticsLogger {
          *                    statistics.
          */
         public ParcelStatisticsLogger(Scenario scenario, boolean detailedLog) {
+                this(scenario, detailedLog, false);
+        }
+
+        /**
+         * Constructor for ParcelStatisticsLogger.
+         *
+         * @param scenario    MATSim scenario object.
+         * @param detailedLog Boolean flag indicating whether to log detailed
+         *                    statistics.
+         * @param parallel    Boolean flag indicating whether the statistics are
+         *                    aggregated concurrently.
+         */
+        public ParcelStatisticsLogger(Scenario scenario, boolean detailedLog, boolean parallel) {
                 this.detailedLog = detailedLog;
+                this.parallel = parallel;
                 this.scenario = scenario;
         }
 
@@ -62,216 +78,100 @@ public class ParcelStatisticsLogger {
          * @param deliveries Map of carrier demands with Delivery objects.
          */
         public void logStatistics(Map<String, ArrayList<Delivery>> deliveries) {
-                AtomicLong totalDeliveries = new AtomicLong();
-                AtomicLong totalB2BDeliveries = new AtomicLong();
-                AtomicLong totalParcels = new AtomicLong();
-                AtomicLong totalB2BParcels = new AtomicLong();
-                AtomicLong totalWeight = new AtomicLong();
-                AtomicLong totalB2BWeight = new AtomicLong();
-                AtomicLong totalLockerDeliveries = new AtomicLong();
-                AtomicLong totalLockerParcels = new AtomicLong();
-
-                Map<String, Long> providerDeliveryCounts = new HashMap<>();
-                Map<String, Long> providerParcelCounts = new HashMap<>();
-                Map<String, Long> postalCodeProviderDeliveryCounts = new HashMap<>();
-                Map<String, Long> postalCodeProviderParcelCounts = new HashMap<>();
+                final ParcelStatistics statistics = ParcelStatistics.collect(deliveries, parallel);
+                final ParcelStatistics.Counts total = statistics.getTotal();
 
                 StringBuilder logBuilder = new StringBuilder();
 
-                deliveries.values().stream()
-                                .flatMap(List::stream)
-                                .forEach(delivery -> {
-                                        totalDeliveries.incrementAndGet();
-                                        if (Delivery.ParcelType.B2B.equals(delivery.getParcelType())) {
-                                                totalB2BDeliveries.incrementAndGet();
-                                        }
-                                        totalParcels.addAndGet(delivery.getAmount());
-                                        if (Delivery.ParcelType.B2B.equals(delivery.getParcelType())) {
-                                                totalB2BParcels.addAndGet(delivery.getAmount());
-                                        }
-                                        totalWeight.addAndGet((long) delivery.getIndividualWeights().stream()
-                                                        .mapToDouble(Double::doubleValue).sum());
-                                        if (Delivery.ParcelType.B2B.equals(delivery.getParcelType())) {
-                                                totalB2BWeight.addAndGet((long) delivery.getIndividualWeights().stream()
-                                                                .mapToDouble(Double::doubleValue).sum());
-                                        }
-                                        if (Delivery.DeliveryMode.PARCEL_LOCKER.equals(delivery.getDeliveryMode()) ||
-                                                        Delivery.DeliveryMode.PARCEL_LOCKER_EXISTING
-                                                                        .equals(delivery.getDeliveryMode())) {
-                                                totalLockerDeliveries.incrementAndGet();
-                                                totalLockerParcels.addAndGet(delivery.getAmount());
-                                        }
-                                });
-
                 if (detailedLog) {
                         // Logging statistics by provider
                         logBuilder.append("=== Delivery Statistics by Provider ===\n");
 
-                        deliveries.values().stream()
-                                        .flatMap(List::stream)
-                                        .collect(Collectors.groupingBy(Delivery::getProvider))
-                                        .forEach((provider, deliveryList) -> {
-                                                long providerDeliveryCount = deliveryList.size();
-                                                long providerB2BDeliveryCount = deliveryList.stream()
-                                                                .filter(delivery -> Delivery.ParcelType.B2B
-                                                                                .equals(delivery.getParcelType()))
-                                                                .count();
-                                                long providerParcelCount = deliveryList.stream()
-                                                                .mapToLong(Delivery::getAmount)
-                                                                .sum();
-                                                long providerB2BParcelCount = deliveryList.stream()
-                                                                .filter(delivery -> Delivery.ParcelType.B2B
-                                                                                .equals(delivery.getParcelType()))
-                                                                .mapToLong(Delivery::getAmount)
-                                                                .sum();
-
-                                                double providerTotalWeight = deliveryList.stream()
-                                                                .flatMapToDouble(delivery -> delivery
-                                                                                .getIndividualWeights()
-                                                                                .stream()
-                                                                                .mapToDouble(Double::doubleValue))
-                                                                .sum();
-                                                double providerB2BWeight = deliveryList.stream()
-                                                                .filter(delivery -> Delivery.ParcelType.B2B
-                                                                                .equals(delivery.getParcelType()))
-                                                                .flatMapToDouble(delivery -> delivery
-                                                                                .getIndividualWeights()
-                                                                                .stream()
-                                                                                .mapToDouble(Double::doubleValue))
-                                                                .sum();
-                                                double providerAverageWeight = providerParcelCount == 0 ? 0
-                                                                : providerTotalWeight / providerParcelCount;
-                                                double providerAverageB2BWeight = providerB2BParcelCount == 0 ? 0
-                                                                : providerB2BWeight / providerB2BParcelCount;
-
-                                                providerDeliveryCounts.merge(provider, providerDeliveryCount,
-                                                                Long::sum);
-                                                providerParcelCounts.merge(provider, providerParcelCount, Long::sum);
-
-                                                logBuilder.append(String.format(
-                                                                "Provider: %s\n  Total Deliveries     : %,d\n  B2B Deliveries       : %,d\n  Total Parcels        : %,d\n  B2B Parcels          : %,d\n  B2B Delivery Ratio   : %.2f%%\n  B2B Parcel Ratio     : %.2f%%\n  Average Weight       : %.2f\n  Average B2B Weight   : %.2f\n\n",
-                                                                provider, providerDeliveryCount,
-                                                                providerB2BDeliveryCount,
-                                                                providerParcelCount, providerB2BParcelCount,
-                                                                (double) providerB2BDeliveryCount
-                                                                                / providerDeliveryCount * 100,
-                                                                (double) providerB2BParcelCount / providerParcelCount
-                                                                                * 100,
-                                                                providerAverageWeight, providerAverageB2BWeight));
-                                        });
+                        statistics.getProviders().forEach((provider, counts) -> logBuilder.append(String.format(
+                                        "Provider: %s\n  Total Deliveries     : %,d\n  B2B Deliveries       : %,d\n  Total Parcels        : %,d\n  B2B Parcels          : %,d\n  B2B Delivery Ratio   : %.2f%%\n  B2B Parcel Ratio     : %.2f%%\n  Average Weight       : %.2f\n  Average B2B Weight   : %.2f\n\n",
+                                        provider, counts.getDeliveries(), counts.getB2BDeliveries(),
+                                        counts.getParcels(), counts.getB2BParcels(), counts.getB2BDeliveryRatio(),
+                                        counts.getB2BParcelRatio(), counts.getAverageWeight(),
+                                        counts.getAverageB2BWeight())));
 
                         // Logging summary by postal code
                         logBuilder.append("=== Summary by Postal Code ===\n");
 
-                        deliveries.values().stream()
-                                        .flatMap(List::stream)
-                                        .collect(Collectors.groupingBy(Delivery::getPostalCode))
-                                        .forEach((postalCode, deliveryList) -> {
-                                                long postalCodeDeliveryCount = deliveryList.size();
-                                                long postalCodeB2BDeliveryCount = deliveryList.stream()
-                                                                .filter(delivery -> Delivery.ParcelType.B2B
-                                                                                .equals(delivery.getParcelType()))
-                                                                .count();
-                                                long postalCodeParcelCount = deliveryList.stream()
-                                                                .mapToLong(Delivery::getAmount)
-                                                                .sum();
-                                                long postalCodeB2BParcelCount = deliveryList.stream()
-                                                                .filter(delivery -> Delivery.ParcelType.B2B
-                                                                                .equals(delivery.getParcelType()))
-                                                                .mapToLong(Delivery::getAmount)
-                                                                .sum();
-
-                                                double postalCodeTotalWeight = deliveryList.stream()
-                                                                .flatMapToDouble(delivery -> delivery
-                                                                                .getIndividualWeights()
-                                                                                .stream()
-                                                                                .mapToDouble(Double::doubleValue))
-                                                                .sum();
-                                                double postalCodeB2BWeight = deliveryList.stream()
-                                                                .filter(delivery -> Delivery.ParcelType.B2B
-                                                                                .equals(delivery.getParcelType()))
-                                                                .flatMapToDouble(delivery -> delivery
-                                                                                .getIndividualWeights()
-                                                                                .stream()
-                                                                                .mapToDouble(Double::doubleValue))
-                                                                .sum();
-                                                double postalCodeAverageWeight = postalCodeParcelCount == 0 ? 0
-                                                                : postalCodeTotalWeight / postalCodeParcelCount;
-                                                double postalCodeAverageB2BWeight = postalCodeB2BParcelCount == 0 ? 0
-                                                                : postalCodeB2BWeight / postalCodeB2BParcelCount;
+                        statistics.getPostalCodes().forEach((postalCode, counts) -> logBuilder.append(String.format(
+                                        "Postal Code: %s\n  Total Deliveries     : %,d\n  B2B Deliveries       : %,d\n  Total Parcels        : %,d\n  B2B Parcels          : %,d\n  B2B Delivery Ratio   : %.2f%%\n  B2B Parcel Ratio     : %.2f%%\n  Average Weight       : %.2f\n  Average B2B Weight   : %.2f\n\n",
+                                        postalCode, counts.getDeliveries(), counts.getB2BDeliveries(),
+                                        counts.getParcels(), counts.getB2BParcels(), counts.getB2BDeliveryRatio(),
+                                        counts.getB2BParcelRatio(), counts.getAverageWeight(),
+                                        counts.getAverageB2BWeight())));
 
-                                                deliveryList.forEach(delivery -> {
-                                                        String provider = delivery.getProvider();
-                                                        String key = postalCode + "_" + provider;
-                                                        postalCodeProviderDeliveryCounts.merge(key, 1L, Long::sum);
-                                                        postalCodeProviderParcelCounts.merge(key,
-                                                                        (long) delivery.getAmount(), Long::sum);
-                                                });
+                        // Logging summary by provider and postal code
+                        logBuilder.append("=== Summary by Provider and Postal Code ===\n");
 
-                                                logBuilder.append(String.format(
-                                                                "Postal Code: %s\n  Total Deliveries     : %,d\n  B2B Deliveries       : %,d\n  Total Parcels        : %,d\n  B2B Parcels          : %,d\n  B2B Delivery Ratio   : %.2f%%\n  B2B Parcel Ratio     : %.2f%%\n  Average Weight       : %.2f\n  Average B2B Weight   : %.2f\n",
-                                                                postalCode, postalCodeDeliveryCount,
-                                                                postalCodeB2BDeliveryCount,
-                                                                postalCodeParcelCount,
-                                                                postalCodeB2BParcelCount,
-                                                                (double) postalCodeB2BDeliveryCount
-                                                                                / postalCodeDeliveryCount * 100,
-                                                                (double) postalCodeB2BParcelCount
-                                                                                / postalCodeParcelCount * 100,
-                                                                postalCodeAverageWeight, postalCodeAverageB2BWeight));
-                                                logBuilder.append("\n");
-                                        });
+                        statistics.getProviderPostalCodes().forEach((provider, postalCodes) -> postalCodes
+                                        .forEach((postalCode, counts) -> logBuilder.append(String.format(
+                                                        "Provider: %s | Postal Code: %s | Deliveries: %,d | Parcels: %,d | Weight: %.2f\n",
+                                                        provider, postalCode, counts.getDeliveries(),
+                                                        counts.getParcels(), counts.getWeight()))));
 
                         logBuilder.append("=== Global Provider Proportions ===\n");
-                        providerDeliveryCounts.forEach((provider, count) -> {
-                                double deliveryProportion = (double) count / totalDeliveries.get() * 100;
-                                double parcelProportion = (double) providerParcelCounts.get(provider)
-                                                / totalParcels.get() * 100;
+                        statistics.getProviders().forEach((provider, counts) -> {
+                                double deliveryProportion = (double) counts.getDeliveries() / total.getDeliveries()
+                                                * 100;
+                                double parcelProportion = (double) counts.getParcels() / total.getParcels() * 100;
                                 logBuilder.append(String.format(
                                                 "Provider: %s\n  Delivery Proportion: %.2f%% | Parcel Proportion: %.2f%%\n",
                                                 provider, deliveryProportion, parcelProportion));
                         });
                 }
 
-                double b2bDeliveryRatio = (double) totalB2BDeliveries.get() / totalDeliveries.get() * 100;
-                double b2bParcelRatio = (double) totalB2BParcels.get() / totalParcels.get() * 100;
-                double averageWeight = totalWeight.get() / (double) totalParcels.get();
-                double averageB2BWeight = totalB2BParcels.get() == 0 ? 0 : totalB2BWeight.get() / (double) totalB2BParcels.get();
-                double lockerDeliveryRatio = (double) totalLockerDeliveries.get() / totalDeliveries.get() * 100;
-                double lockerParcelRatio = (double) totalLockerParcels.get() / totalParcels.get() * 100;
+                double b2bDeliveryRatio = total.getB2BDeliveryRatio();
+                double b2bParcelRatio = total.getB2BParcelRatio();
+                double averageWeight = total.getAverageWeight();
+                double averageB2BWeight = total.getAverageB2BWeight();
+                double lockerDeliveryRatio = total.getLockerDeliveryRatio();
+                double lockerParcelRatio = total.getLockerParcelRatio();
         
                 HAGRIDSummary summary = HAGRIDSummary.builder()
-                        .totalDeliveries((int) totalDeliveries.get())
-                        .totalB2BDeliveries((int) totalB2BDeliveries.get())
-                        .totalParcels((int) totalParcels.get())
-                        .totalB2BParcels((int) totalB2BParcels.get())
+                        .totalDeliveries((int) total.getDeliveries())
+                        .totalB2BDeliveries((int) total.getB2BDeliveries())
+                        .totalParcels((int) total.getParcels())
+                        .totalB2BParcels((int) total.getB2BParcels())
                         .b2bDeliveryRatio(b2bDeliveryRatio)
                         .b2bParcelRatio(b2bParcelRatio)
                         .averageWeight(averageWeight)
                         .averageB2BWeight(averageB2BWeight)
-                        .totalLockerDeliveries((int) totalLockerDeliveries.get())
-                        .totalLockerParcels((int) totalLockerParcels.get())
+                        .totalLockerDeliveries((int) total.getLockerDeliveries())
+                        .totalLockerParcels((int) total.getLockerParcels())
                         .lockerDeliveryRatio(lockerDeliveryRatio)
                         .lockerParcelRatio(lockerParcelRatio)
                         .build();
         
-                scenario.addScenarioElement("summary", summary);        
+                HAGRIDUtils.addScenarioElement("summary", summary, scenario);
                
                 logBuilder.append("=== Overall Summary ===\n");
-                logBuilder.append(String.format("  Total Deliveries      : %,d\n", totalDeliveries.get()));
-                logBuilder.append(String.format("  Total B2B Deliveries  : %,d\n", totalB2BDeliveries.get()));
-                logBuilder.append(String.format("  Total Parcels         : %,d\n", totalParcels.get()));
-                logBuilder.append(String.format("  Total B2B Parcels     : %,d\n", totalB2BParcels.get()));
+                logBuilder.append(String.format("  Total Deliveries      : %,d\n", total.getDeliveries()));
+                logBuilder.append(String.format("  Total B2B Deliveries  : %,d\n", total.getB2BDeliveries()));
+                logBuilder.append(String.format("  Total Parcels         : %,d\n", total.getParcels()));
+                logBuilder.append(String.format("  Total B2B Parcels     : %,d\n", total.getB2BParcels()));
                 logBuilder.append(String.format("  B2B Delivery Ratio    : %.2f%%\n", b2bDeliveryRatio));
                 logBuilder.append(String.format("  B2B Parcel Ratio      : %.2f%%\n", b2bParcelRatio));
                 logBuilder.append(String.format("  Average Weight        : %.2f\n", averageWeight));
                 logBuilder.append(String.format("  Average B2B Weight    : %.2f\n", averageB2BWeight));
-                logBuilder.append(String.format("  Total Locker Deliveries: %,d\n", totalLockerDeliveries.get()));
-                logBuilder.append(String.format("  Total Locker Parcels: %,d\n", totalLockerParcels.get()));
+                logBuilder.append(String.format("  Total Locker Deliveries: %,d\n", total.getLockerDeliveries()));
+                logBuilder.append(String.format("  Total Locker Parcels: %,d\n", total.getLockerParcels()));
                 logBuilder.append(String.format("  Locker Delivery Ratio : %.2f%%\n", lockerDeliveryRatio));
                 logBuilder.append(String.format("  Locker Parcel Ratio : %.2f%%\n", lockerParcelRatio));      
 
 
                 LOGGER.info(logBuilder.toString());
+
+                // Write the aggregates for later analysis
+                try {
+                        statistics.writeCsv(CSV_OUTPUT);
+                        statistics.writeJson(JSON_OUTPUT);
+                        LOGGER.info("Parcel statistics written to {} and {}", CSV_OUTPUT, JSON_OUTPUT);
+                } catch (UncheckedIOException e) {
+                        LOGGER.error("Error writing parcel statistics", e);
+                }
         }
 }
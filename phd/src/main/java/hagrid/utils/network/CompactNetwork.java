@@ -0,0 +1,398 @@
+package hagrid.utils.network;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * The CompactNetwork class stores a MATSim network in flat arrays instead of
+ * node and link objects. Nodes and links are addressed by their index, link
+ * modes are stored as bit masks over a mode dictionary and attributes as typed
+ * columns.
+ *
+ * The arrays can be written to and read from a binary file by
+ * {@link NetworkCache}. Subnetworks are selected as link bit sets over the
+ * arrays, and only the selected links and the nodes they reference are turned
+ * into MATSim objects by {@link #toNetwork(Network, BitSet, Set)}.
+ */
+public class CompactNetwork {
+
+    private static final Logger LOGGER = LogManager.getLogger(CompactNetwork.class);
+
+    /** Maximum number of distinct link modes, limited by the bit mask. */
+    public static final int MAX_MODES = Long.SIZE;
+
+    double capacityPeriod;
+    double effectiveLaneWidth;
+
+    String[] nodeIds;
+    double[] nodeX;
+    double[] nodeY;
+    // Null if no node has a z coordinate, NaN for nodes without one
+    double[] nodeZ;
+    List<AttributeColumn> nodeAttributes = new ArrayList<>();
+
+    String[] linkIds;
+    int[] fromNodes;
+    int[] toNodes;
+    double[] lengths;
+    double[] freespeeds;
+    double[] capacities;
+    double[] lanes;
+    long[] modeMasks;
+    String[] modes;
+    List<AttributeColumn> linkAttributes = new ArrayList<>();
+
+    CompactNetwork() {
+    }
+
+    /**
+     * Creates the compact representation of a MATSim network. Attributes of
+     * types other than strings, numbers and booleans are not stored.
+     *
+     * @param network The network to convert.
+     * @return The compact network.
+     * @throws IllegalArgumentException If the links use more than
+     *                                  {@link #MAX_MODES} modes.
+     */
+    public static CompactNetwork of(Network network) {
+        CompactNetwork compact = new CompactNetwork();
+        compact.capacityPeriod = network.getCapacityPeriod();
+        compact.effectiveLaneWidth = network.getEffectiveLaneWidth();
+
+        int nodeCount = network.getNodes().size();
+        compact.nodeIds = new String[nodeCount];
+        compact.nodeX = new double[nodeCount];
+        compact.nodeY = new double[nodeCount];
+        Map<Id<Node>, Integer> nodeIndex = new HashMap<>(nodeCount * 2);
+        ColumnBuilder nodeColumns = new ColumnBuilder(nodeCount);
+        int n = 0;
+        for (Node node : network.getNodes().values()) {
+            nodeIndex.put(node.getId(), n);
+            compact.nodeIds[n] = node.getId().toString();
+            Coord coord = node.getCoord();
+            compact.nodeX[n] = coord.getX();
+            compact.nodeY[n] = coord.getY();
+            if (coord.hasZ()) {
+                if (compact.nodeZ == null) {
+                    compact.nodeZ = new double[nodeCount];
+                    Arrays.fill(compact.nodeZ, Double.NaN);
+                }
+                compact.nodeZ[n] = coord.getZ();
+            }
+            nodeColumns.add(n, node.getAttributes());
+            n++;
+        }
+        compact.nodeAttributes = nodeColumns.build();
+
+        int linkCount = network.getLinks().size();
+        compact.linkIds = new String[linkCount];
+        compact.fromNodes = new int[linkCount];
+        compact.toNodes = new int[linkCount];
+        compact.lengths = new double[linkCount];
+        compact.freespeeds = new double[linkCount];
+        compact.capacities = new double[linkCount];
+        compact.lanes = new double[linkCount];
+        compact.modeMasks = new long[linkCount];
+        Map<String, Integer> modeIndex = new LinkedHashMap<>();
+        ColumnBuilder linkColumns = new ColumnBuilder(linkCount);
+        int l = 0;
+        for (Link link : network.getLinks().values()) {
+            compact.linkIds[l] = link.getId().toString();
+            compact.fromNodes[l] = nodeIndex.get(link.getFromNode().getId());
+            compact.toNodes[l] = nodeIndex.get(link.getToNode().getId());
+            compact.lengths[l] = link.getLength();
+            compact.freespeeds[l] = link.getFreespeed();
+            compact.capacities[l] = link.getCapacity();
+            compact.lanes[l] = link.getNumberOfLanes();
+            long mask = 0L;
+            for (String mode : link.getAllowedModes()) {
+                Integer index = modeIndex.get(mode);
+                if (index == null) {
+                    if (modeIndex.size() == MAX_MODES) {
+                        throw new IllegalArgumentException("Network uses more than " + MAX_MODES + " modes.");
+                    }
+                    index = modeIndex.size();
+                    modeIndex.put(mode, index);
+                }
+                mask |= 1L << index;
+            }
+            compact.modeMasks[l] = mask;
+            linkColumns.add(l, link.getAttributes());
+            l++;
+        }
+        compact.modes = modeIndex.keySet().toArray(new String[0]);
+        compact.linkAttributes = linkColumns.build();
+
+        if (nodeColumns.skipped + linkColumns.skipped > 0) {
+            LOGGER.warn("{} node and link attributes of unsupported types are not stored in the compact network.",
+                    nodeColumns.skipped + linkColumns.skipped);
+        }
+        return compact;
+    }
+
+    public int getNodeCount() {
+        return nodeIds.length;
+    }
+
+    public int getLinkCount() {
+        return linkIds.length;
+    }
+
+    /**
+     * Returns the bit mask of the given modes. Modes not used by any link are
+     * ignored.
+     *
+     * @param selectedModes The modes.
+     * @return The bit mask.
+     */
+    public long getModeMask(Set<String> selectedModes) {
+        long mask = 0L;
+        for (int m = 0; m < modes.length; m++) {
+            if (selectedModes.contains(modes[m])) {
+                mask |= 1L << m;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Selects all links that allow at least one of the given modes.
+     *
+     * @param selectedModes The modes.
+     * @return The indices of the selected links.
+     */
+    public BitSet selectLinks(Set<String> selectedModes) {
+        long mask = getModeMask(selectedModes);
+        BitSet selection = new BitSet(linkIds.length);
+        for (int l = 0; l < linkIds.length; l++) {
+            if ((modeMasks[l] & mask) != 0L) {
+                selection.set(l);
+            }
+        }
+        return selection;
+    }
+
+    /**
+     * Raises link lengths and free speeds below the given minimums to the
+     * minimums.
+     *
+     * @param minLength    The minimum link length.
+     * @param minFreespeed The minimum free speed.
+     */
+    public void adjustLinks(double minLength, double minFreespeed) {
+        for (int l = 0; l < linkIds.length; l++) {
+            if (lengths[l] < minLength) {
+                lengths[l] = minLength;
+            }
+            if (freespeeds[l] < minFreespeed) {
+                freespeeds[l] = minFreespeed;
+            }
+        }
+    }
+
+    /**
+     * Adds the selected links and the nodes they reference to a MATSim network.
+     *
+     * @param target        The network to add nodes and links to.
+     * @param links         The indices of the links, or null for all nodes and
+     *                      links.
+     * @param selectedModes The modes kept on the links, or null to keep all modes.
+     * @return The target network.
+     */
+    public Network toNetwork(Network target, BitSet links, Set<String> selectedModes) {
+        NetworkFactory factory = target.getFactory();
+        if (links == null) {
+            target.setCapacityPeriod(capacityPeriod);
+            target.setEffectiveLaneWidth(effectiveLaneWidth);
+        }
+
+        BitSet usedNodes = new BitSet(nodeIds.length);
+        if (links == null) {
+            usedNodes.set(0, nodeIds.length);
+        } else {
+            links.stream().forEach(l -> {
+                usedNodes.set(fromNodes[l]);
+                usedNodes.set(toNodes[l]);
+            });
+        }
+
+        // Nodes and links are added in index order, which is the original order
+        Node[] nodes = new Node[nodeIds.length];
+        for (int n = usedNodes.nextSetBit(0); n >= 0; n = usedNodes.nextSetBit(n + 1)) {
+            Coord coord = nodeZ == null || Double.isNaN(nodeZ[n]) ? new Coord(nodeX[n], nodeY[n])
+                    : new Coord(nodeX[n], nodeY[n], nodeZ[n]);
+            Node node = factory.createNode(Id.createNodeId(nodeIds[n]), coord);
+            for (AttributeColumn column : nodeAttributes) {
+                column.copyTo(n, node.getAttributes());
+            }
+            target.addNode(node);
+            nodes[n] = node;
+        }
+
+        long keptModes = selectedModes == null ? -1L : getModeMask(selectedModes);
+        Map<Long, Set<String>> modeSets = new HashMap<>();
+        IntStream indices = links == null ? IntStream.range(0, linkIds.length) : links.stream();
+        indices.forEachOrdered(l -> {
+            Link link = factory.createLink(Id.createLinkId(linkIds[l]), nodes[fromNodes[l]], nodes[toNodes[l]]);
+            link.setLength(lengths[l]);
+            link.setFreespeed(freespeeds[l]);
+            link.setCapacity(capacities[l]);
+            link.setNumberOfLanes(lanes[l]);
+            link.setAllowedModes(modeSets.computeIfAbsent(modeMasks[l] & keptModes, this::toModes));
+            for (AttributeColumn column : linkAttributes) {
+                column.copyTo(l, link.getAttributes());
+            }
+            target.addLink(link);
+        });
+        return target;
+    }
+
+    private Set<String> toModes(long mask) {
+        Set<String> set = new LinkedHashSet<>();
+        for (int m = 0; m < modes.length; m++) {
+            if ((mask & (1L << m)) != 0L) {
+                set.add(modes[m]);
+            }
+        }
+        return Collections.unmodifiableSet(set);
+    }
+
+    /**
+     * A column of one attribute with one value type. Values of all types are
+     * stored in a long array, strings as indices into a dictionary and doubles
+     * as their raw bits.
+     */
+    static final class AttributeColumn {
+
+        static final byte STRING = 0;
+        static final byte INTEGER = 1;
+        static final byte LONG = 2;
+        static final byte DOUBLE = 3;
+        static final byte BOOLEAN = 4;
+
+        final String name;
+        final byte type;
+        final BitSet present;
+        final long[] values;
+        final String[] dictionary;
+
+        AttributeColumn(String name, byte type, BitSet present, long[] values, String[] dictionary) {
+            this.name = name;
+            this.type = type;
+            this.present = present;
+            this.values = values;
+            this.dictionary = dictionary;
+        }
+
+        void copyTo(int index, Attributes attributes) {
+            if (!present.get(index)) {
+                return;
+            }
+            long value = values[index];
+            switch (type) {
+                case STRING -> attributes.putAttribute(name, dictionary[(int) value]);
+                case INTEGER -> attributes.putAttribute(name, (int) value);
+                case LONG -> attributes.putAttribute(name, value);
+                case DOUBLE -> attributes.putAttribute(name, Double.longBitsToDouble(value));
+                case BOOLEAN -> attributes.putAttribute(name, value != 0L);
+                default -> throw new IllegalStateException("Unknown attribute type " + type);
+            }
+        }
+
+        static byte typeOf(Object value) {
+            if (value instanceof String) {
+                return STRING;
+            } else if (value instanceof Integer) {
+                return INTEGER;
+            } else if (value instanceof Long) {
+                return LONG;
+            } else if (value instanceof Double) {
+                return DOUBLE;
+            } else if (value instanceof Boolean) {
+                return BOOLEAN;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Collects attribute values into columns, one per attribute name and type.
+     */
+    private static final class ColumnBuilder {
+
+        private final int size;
+        private final Map<String, Builder> columns = new LinkedHashMap<>();
+        private long skipped;
+
+        ColumnBuilder(int size) {
+            this.size = size;
+        }
+
+        void add(int index, Attributes attributes) {
+            for (Map.Entry<String, Object> entry : attributes.getAsMap().entrySet()) {
+                byte type = AttributeColumn.typeOf(entry.getValue());
+                if (type < 0) {
+                    skipped++;
+                    continue;
+                }
+                columns.computeIfAbsent(entry.getKey() + '\0' + type,
+                        key -> new Builder(entry.getKey(), type, size)).set(index, entry.getValue());
+            }
+        }
+
+        List<AttributeColumn> build() {
+            List<AttributeColumn> result = new ArrayList<>(columns.size());
+            for (Builder builder : columns.values()) {
+                result.add(new AttributeColumn(builder.name, builder.type, builder.present, builder.values,
+                        builder.dictionary == null ? null : builder.dictionary.keySet().toArray(new String[0])));
+            }
+            return result;
+        }
+
+        private static final class Builder {
+            final String name;
+            final byte type;
+            final BitSet present;
+            final long[] values;
+            final Map<String, Integer> dictionary;
+
+            Builder(String name, byte type, int size) {
+                this.name = name;
+                this.type = type;
+                this.present = new BitSet(size);
+                this.values = new long[size];
+                this.dictionary = type == AttributeColumn.STRING ? new LinkedHashMap<>() : null;
+            }
+
+            void set(int index, Object value) {
+                present.set(index);
+                values[index] = switch (type) {
+                    case AttributeColumn.STRING -> dictionary.computeIfAbsent((String) value, k -> dictionary.size());
+                    case AttributeColumn.INTEGER -> (Integer) value;
+                    case AttributeColumn.LONG -> (Long) value;
+                    case AttributeColumn.DOUBLE -> Double.doubleToRawLongBits((Double) value);
+                    default -> (Boolean) value ? 1L : 0L;
+                };
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package hagrid.utils.network;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * The IndexedNetwork class is a read-only indexed view of a MATSim network for
+ * routing. Nodes and links get dense int indices, and the end nodes, allowed
+ * modes and zones of the links are stored in flat columns. Links are looked up
+ * by the index of their id, so no hash lookups or string set checks are needed
+ * per link. Lengths and free speeds are read from the links, since they can
+ * change over time.
+ *
+ * The view is a snapshot; changes of the network after its creation are not
+ * reflected. The view references the links and thereby the network, so it is
+ * not cached globally: whoever works on a network creates the view once with
+ * {@link #create(Network)} and passes it on.
+ */
+public class IndexedNetwork {
+
+    private static final Logger LOGGER = LogManager.getLogger(IndexedNetwork.class);
+
+    /** Zone value of links without a zone attribute. */
+    public static final int NO_ZONE = Integer.MIN_VALUE;
+
+    /** Name of the link attribute holding the zone. */
+    public static final String ZONE_ATTRIBUTE = "zone";
+
+    private final Link[] links;
+    private final int[] linkIndexById;
+    private final int[] fromNodes;
+    private final int[] toNodes;
+    private final int nodeCount;
+    private final long[] modeMasks;
+    private final Map<String, Long> modeMasksByMode;
+    private final int[] zones;
+
+    private IndexedNetwork(Network network) {
+        nodeCount = network.getNodes().size();
+        int linkCount = network.getLinks().size();
+
+        Map<Id<Node>, Integer> nodeIndex = new LinkedHashMap<>(nodeCount * 2);
+        for (Node node : network.getNodes().values()) {
+            nodeIndex.put(node.getId(), nodeIndex.size());
+        }
+
+        links = new Link[linkCount];
+        linkIndexById = new int[Id.getNumberOfIds(Link.class)];
+        Arrays.fill(linkIndexById, -1);
+        fromNodes = new int[linkCount];
+        toNodes = new int[linkCount];
+        modeMasks = new long[linkCount];
+        zones = new int[linkCount];
+        Map<String, Integer> modeIndex = new LinkedHashMap<>();
+
+        int l = 0;
+        for (Link link : network.getLinks().values()) {
+            links[l] = link;
+            linkIndexById[link.getId().index()] = l;
+            fromNodes[l] = nodeIndex.get(link.getFromNode().getId());
+            toNodes[l] = nodeIndex.get(link.getToNode().getId());
+            long mask = 0L;
+            for (String mode : link.getAllowedModes()) {
+                Integer index = modeIndex.get(mode);
+                if (index == null) {
+                    if (modeIndex.size() == CompactNetwork.MAX_MODES) {
+                        throw new IllegalArgumentException(
+                                "Network uses more than " + CompactNetwork.MAX_MODES + " modes.");
+                    }
+                    index = modeIndex.size();
+                    modeIndex.put(mode, index);
+                }
+                mask |= 1L << index;
+            }
+            modeMasks[l] = mask;
+            zones[l] = toZone(link, link.getAttributes().getAttribute(ZONE_ATTRIBUTE));
+            l++;
+        }
+        Map<String, Long> masks = new HashMap<>();
+        modeIndex.forEach((mode, index) -> masks.put(mode, 1L << index));
+        modeMasksByMode = Map.copyOf(masks);
+    }
+
+    /**
+     * Creates the view of a network.
+     *
+     * @param network The network.
+     * @return The view of the network.
+     */
+    public static IndexedNetwork create(Network network) {
+        long start = System.currentTimeMillis();
+        IndexedNetwork view = new IndexedNetwork(network);
+        LOGGER.info("Indexed network view with {} nodes and {} links created in {} ms.", view.getNodeCount(),
+                view.getLinkCount(), System.currentTimeMillis() - start);
+        return view;
+    }
+
+    private static int toZone(Link link, Object value) {
+        if (value == null) {
+            return NO_ZONE;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    "Zone of link " + link.getId() + " must be an integer, but is '" + value + "'.", e);
+        }
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getLinkCount() {
+        return links.length;
+    }
+
+    /**
+     * Returns the index of a link id.
+     *
+     * @param linkId The link id.
+     * @return The index, or -1 if the link is not part of the network.
+     */
+    public int getLinkIndex(Id<Link> linkId) {
+        int index = linkId.index();
+        return index < linkIndexById.length ? linkIndexById[index] : -1;
+    }
+
+    /**
+     * Returns the index of a link object. Links of other networks with the same id
+     * are not found, since their properties may differ.
+     *
+     * @param link The link.
+     * @return The index, or -1 if the link is not part of the network.
+     */
+    public int getLinkIndex(Link link) {
+        int index = getLinkIndex(link.getId());
+        return index >= 0 && links[index] == link ? index : -1;
+    }
+
+    /**
+     * Returns the link at an index.
+     *
+     * @param index The link index, may be -1.
+     * @return The link, or null for -1.
+     */
+    public Link getLink(int index) {
+        return index < 0 ? null : links[index];
+    }
+
+    public int getFromNode(int link) {
+        return fromNodes[link];
+    }
+
+    public int getToNode(int link) {
+        return toNodes[link];
+    }
+
+    /**
+     * Returns the bit mask of a mode. Modes not used by any link have an empty
+     * mask. Callers checking many links compute the mask once per mode.
+     *
+     * @param mode The mode.
+     * @return The bit mask.
+     */
+    public long getModeMask(String mode) {
+        return modeMasksByMode.getOrDefault(mode, 0L);
+    }
+
+    /**
+     * Checks whether a link allows one of the modes of a mask.
+     *
+     * @param link     The link index.
+     * @param modeMask The mask from {@link #getModeMask(String)}.
+     * @return True if the link allows the mode.
+     */
+    public boolean allowsMode(int link, long modeMask) {
+        return (modeMasks[link] & modeMask) != 0L;
+    }
+
+    /**
+     * Returns the zone of a link.
+     *
+     * @param link The link index.
+     * @return The zone, or {@link #NO_ZONE}.
+     */
+    public int getZone(int link) {
+        return zones[link];
+    }
+}
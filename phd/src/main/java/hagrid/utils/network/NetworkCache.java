@@ -0,0 +1,297 @@
+package hagrid.utils.network;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+
+import hagrid.utils.network.CompactNetwork.AttributeColumn;
+
+/**
+ * The NetworkCache class stores networks read from MATSim network XML files as
+ * {@link CompactNetwork} in a binary cache file and maps the cache file into
+ * memory on later reads, which is much faster than parsing the XML.
+ *
+ * A cache file is identified by the absolute path, size and modification time
+ * of the network file. If the network file changes, the cache is rebuilt.
+ * Networks whose cache would exceed 2 GB are not cached.
+ */
+public class NetworkCache {
+
+    private static final Logger LOGGER = LogManager.getLogger(NetworkCache.class);
+
+    private static final int MAGIC = 0x48474e57; // "HGNW"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private NetworkCache() {
+    }
+
+    /**
+     * Loads a network file as compact network, from the cache if it is up to
+     * date and from the XML file otherwise. A missing or outdated cache is
+     * written after reading the XML file.
+     *
+     * @param networkFile    The MATSim network XML file.
+     * @param cacheDirectory The directory of the cache files.
+     * @return The compact network.
+     */
+    public static CompactNetwork load(String networkFile, Path cacheDirectory) {
+        long start = System.currentTimeMillis();
+        String source;
+        Path cacheFile;
+        try {
+            Path path = Paths.get(networkFile).toAbsolutePath();
+            source = path + ";" + Files.size(path) + ";" + Files.getLastModifiedTime(path).toMillis();
+            cacheFile = cacheDirectory.resolve(path.getFileName() + "." + Integer.toHexString(path.hashCode())
+                    + ".bin");
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not access network file " + networkFile, e);
+        }
+
+        if (Files.isRegularFile(cacheFile)) {
+            try {
+                CompactNetwork network = read(cacheFile, source);
+                if (network != null) {
+                    LOGGER.info("Network with {} nodes and {} links loaded from cache {} in {} ms.",
+                            network.getNodeCount(), network.getLinkCount(), cacheFile,
+                            System.currentTimeMillis() - start);
+                    return network;
+                }
+                LOGGER.info("Network cache {} is outdated.", cacheFile);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Could not read network cache " + cacheFile + ", reading the network file.", e);
+            }
+        }
+
+        LOGGER.info("Reading the network file from path: {}", networkFile);
+        Network network = NetworkUtils.createNetwork();
+        new MatsimNetworkReader(network).readFile(networkFile);
+        CompactNetwork compact = CompactNetwork.of(network);
+        LOGGER.info("Network file read in {} ms.", System.currentTimeMillis() - start);
+
+        try {
+            Files.createDirectories(cacheDirectory);
+            Path temporary = Files.createTempFile(cacheDirectory, cacheFile.getFileName().toString(), ".tmp");
+            write(compact, source, temporary);
+            if (Files.size(temporary) > Integer.MAX_VALUE) {
+                LOGGER.warn("Network cache exceeds 2 GB and cannot be mapped, the network is not cached.");
+                Files.delete(temporary);
+            } else {
+                Files.move(temporary, cacheFile, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                LOGGER.info("Network cache written to {}.", cacheFile);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not write network cache " + cacheFile, e);
+        }
+        return compact;
+    }
+
+    /**
+     * Writes a compact network to a cache file.
+     *
+     * @param network The compact network.
+     * @param source  The identification of the network file.
+     * @param file    The cache file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(CompactNetwork network, String source, Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeStrings(out, new String[] { source });
+            out.writeDouble(network.capacityPeriod);
+            out.writeDouble(network.effectiveLaneWidth);
+
+            out.writeInt(network.nodeIds.length);
+            writeStrings(out, network.nodeIds);
+            writeDoubles(out, network.nodeX);
+            writeDoubles(out, network.nodeY);
+            out.writeBoolean(network.nodeZ != null);
+            if (network.nodeZ != null) {
+                writeDoubles(out, network.nodeZ);
+            }
+            writeColumns(out, network.nodeAttributes);
+
+            out.writeInt(network.linkIds.length);
+            writeStrings(out, network.linkIds);
+            writeInts(out, network.fromNodes);
+            writeInts(out, network.toNodes);
+            writeDoubles(out, network.lengths);
+            writeDoubles(out, network.freespeeds);
+            writeDoubles(out, network.capacities);
+            writeDoubles(out, network.lanes);
+            writeLongs(out, network.modeMasks);
+            writeStrings(out, network.modes);
+            writeColumns(out, network.linkAttributes);
+        }
+    }
+
+    /**
+     * Reads a compact network from a memory mapped cache file.
+     *
+     * @param file   The cache file.
+     * @param source The expected identification of the network file.
+     * @return The compact network, or null if the cache belongs to another
+     *         version of the network file.
+     * @throws IOException If the file cannot be read or is not a network cache.
+     */
+    public static CompactNetwork read(Path file, String source) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a network cache file: " + file);
+            }
+            if (buffer.getInt() != VERSION || !source.equals(readStrings(buffer)[0])) {
+                return null;
+            }
+
+            CompactNetwork network = new CompactNetwork();
+            network.capacityPeriod = buffer.getDouble();
+            network.effectiveLaneWidth = buffer.getDouble();
+
+            int nodes = buffer.getInt();
+            network.nodeIds = readStrings(buffer);
+            network.nodeX = readDoubles(buffer, nodes);
+            network.nodeY = readDoubles(buffer, nodes);
+            network.nodeZ = buffer.get() != 0 ? readDoubles(buffer, nodes) : null;
+            network.nodeAttributes = readColumns(buffer, nodes);
+
+            int links = buffer.getInt();
+            network.linkIds = readStrings(buffer);
+            network.fromNodes = readInts(buffer, links);
+            network.toNodes = readInts(buffer, links);
+            network.lengths = readDoubles(buffer, links);
+            network.freespeeds = readDoubles(buffer, links);
+            network.capacities = readDoubles(buffer, links);
+            network.lanes = readDoubles(buffer, links);
+            network.modeMasks = readLongs(buffer, links);
+            network.modes = readStrings(buffer);
+            network.linkAttributes = readColumns(buffer, links);
+            return network;
+        }
+    }
+
+    /**
+     * Writes strings as one UTF-8 block with end offsets, so that they are read
+     * with a single bulk copy.
+     */
+    private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+        int[] ends = new int[values.length];
+        List<byte[]> encoded = new ArrayList<>(values.length);
+        int length = 0;
+        for (int i = 0; i < values.length; i++) {
+            byte[] bytes = values[i].getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            length += bytes.length;
+            ends[i] = length;
+        }
+        out.writeInt(values.length);
+        writeInts(out, ends);
+        out.writeInt(length);
+        for (byte[] bytes : encoded) {
+            out.write(bytes);
+        }
+    }
+
+    private static String[] readStrings(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        int[] ends = readInts(buffer, count);
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        String[] values = new String[count];
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            values[i] = new String(bytes, start, ends[i] - start, StandardCharsets.UTF_8);
+            start = ends[i];
+        }
+        return values;
+    }
+
+    private static void writeColumns(DataOutputStream out, List<AttributeColumn> columns) throws IOException {
+        out.writeInt(columns.size());
+        for (AttributeColumn column : columns) {
+            writeStrings(out, new String[] { column.name });
+            out.writeByte(column.type);
+            long[] present = column.present.toLongArray();
+            out.writeInt(present.length);
+            writeLongs(out, present);
+            writeLongs(out, column.values);
+            if (column.type == AttributeColumn.STRING) {
+                writeStrings(out, column.dictionary);
+            }
+        }
+    }
+
+    private static List<AttributeColumn> readColumns(ByteBuffer buffer, int size) {
+        int count = buffer.getInt();
+        List<AttributeColumn> columns = new ArrayList<>(count);
+        for (int c = 0; c < count; c++) {
+            String name = readStrings(buffer)[0];
+            byte type = buffer.get();
+            BitSet present = BitSet.valueOf(readLongs(buffer, buffer.getInt()));
+            long[] values = readLongs(buffer, size);
+            String[] dictionary = type == AttributeColumn.STRING ? readStrings(buffer) : null;
+            columns.add(new AttributeColumn(name, type, present, values, dictionary));
+        }
+        return columns;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static void writeLongs(DataOutputStream out, long[] values) throws IOException {
+        for (long value : values) {
+            out.writeLong(value);
+        }
+    }
+
+    private static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+        for (double value : values) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    private static long[] readLongs(ByteBuffer buffer, int count) {
+        long[] values = new long[count];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + count * Long.BYTES);
+        return values;
+    }
+
+    private static double[] readDoubles(ByteBuffer buffer, int count) {
+        double[] values = new double[count];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + count * Double.BYTES);
+        return values;
+    }
+}
@@ -0,0 +1,217 @@
+package hagrid.utils.network;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
+
+/**
+ * The NetworkContraction class simplifies the topology of a network by merging
+ * chains of links through nodes without a junction into single links.
+ *
+ * A node is contracted if it connects exactly two neighbours, either by one
+ * incoming and one outgoing link or by a pair of links in both directions, and
+ * the links passing through it have the same modes, free speed, capacity, lanes
+ * and attributes. A merged link keeps the id and attributes of the first link of
+ * its chain and the summed length, so free speed travel times are unchanged.
+ * Links with turn restrictions are not merged, and nodes can be kept
+ * explicitly, for example the end nodes of the links that locations are
+ * snapped to, so queries between them need no mapping.
+ *
+ * The ids of the original links of a merged link are stored in the link
+ * attribute {@link #ORIGINAL_LINKS_ATTRIBUTE}, so the mapping is kept when the
+ * contracted network is written and read again. Links that were not merged keep
+ * their id and have no such attribute.
+ */
+public class NetworkContraction {
+
+    private static final Logger LOGGER = LogManager.getLogger(NetworkContraction.class);
+
+    /** Link attribute with the comma separated ids of the original links. */
+    public static final String ORIGINAL_LINKS_ATTRIBUTE = "originalLinks";
+
+    private NetworkContraction() {
+    }
+
+    /**
+     * Creates the contracted copy of a network. The network itself is not
+     * changed.
+     *
+     * @param network   The network to contract.
+     * @param keptNodes The ids of nodes that are not contracted.
+     * @return A new network with merged link chains.
+     */
+    public static Network contract(Network network, Set<Id<Node>> keptNodes) {
+        long start = System.currentTimeMillis();
+
+        // Links are collected from the network itself, since nodes may be shared
+        // with other networks and then also list their links
+        Map<Node, List<Link>> inLinks = new IdentityHashMap<>();
+        Map<Node, List<Link>> outLinks = new IdentityHashMap<>();
+        for (Link link : network.getLinks().values()) {
+            inLinks.computeIfAbsent(link.getToNode(), node -> new ArrayList<>(2)).add(link);
+            outLinks.computeIfAbsent(link.getFromNode(), node -> new ArrayList<>(2)).add(link);
+        }
+
+        Map<Link, Link> successors = new IdentityHashMap<>();
+        for (Link link : network.getLinks().values()) {
+            if (keptNodes.contains(link.getToNode().getId())) {
+                continue;
+            }
+            Link successor = findSuccessor(link, inLinks.get(link.getToNode()), outLinks.get(link.getToNode()));
+            if (successor != null) {
+                successors.put(link, successor);
+            }
+        }
+        Set<Link> hasPredecessor = Collections.newSetFromMap(new IdentityHashMap<>());
+        hasPredecessor.addAll(successors.values());
+
+        // Walk the chains from their first links, links on closed loops stay single
+        List<List<Link>> chains = new ArrayList<>();
+        Set<Link> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Link link : network.getLinks().values()) {
+            if (hasPredecessor.contains(link)) {
+                continue;
+            }
+            List<Link> chain = new ArrayList<>();
+            for (Link current = link; current != null && visited.add(current); current = successors.get(current)) {
+                chain.add(current);
+            }
+            chains.add(chain);
+        }
+        for (Link link : network.getLinks().values()) {
+            if (visited.add(link)) {
+                chains.add(List.of(link));
+            }
+        }
+
+        Network contracted = NetworkUtils.createNetwork();
+        contracted.setCapacityPeriod(network.getCapacityPeriod());
+        contracted.setEffectiveLaneWidth(network.getEffectiveLaneWidth());
+        NetworkFactory factory = contracted.getFactory();
+
+        for (List<Link> chain : chains) {
+            Link first = chain.get(0);
+            Link last = chain.get(chain.size() - 1);
+            Node fromNode = copyNode(first.getFromNode(), contracted, factory);
+            Node toNode = copyNode(last.getToNode(), contracted, factory);
+
+            Link newLink = factory.createLink(first.getId(), fromNode, toNode);
+            newLink.setAllowedModes(new HashSet<>(first.getAllowedModes()));
+            newLink.setCapacity(first.getCapacity());
+            newLink.setFreespeed(first.getFreespeed());
+            newLink.setNumberOfLanes(first.getNumberOfLanes());
+            AttributesUtils.copyAttributesFromTo(first, newLink);
+
+            double length = 0.0;
+            List<String> originalIds = new ArrayList<>(chain.size());
+            for (Link link : chain) {
+                length += link.getLength();
+                originalIds.add(link.getId().toString());
+            }
+            newLink.setLength(length);
+            if (chain.size() > 1) {
+                newLink.getAttributes().putAttribute(ORIGINAL_LINKS_ATTRIBUTE, String.join(",", originalIds));
+            } else if (NetworkUtils.getDisallowedNextLinks(first) != null) {
+                NetworkUtils.setDisallowedNextLinks(newLink, NetworkUtils.getDisallowedNextLinks(first));
+            }
+            contracted.addLink(newLink);
+        }
+
+        LOGGER.info("Network contracted from {} nodes and {} links to {} nodes and {} links in {} ms.",
+                network.getNodes().size(), network.getLinks().size(), contracted.getNodes().size(),
+                contracted.getLinks().size(), System.currentTimeMillis() - start);
+        return contracted;
+    }
+
+    /**
+     * Returns the link that continues a link through its to node, if the node
+     * can be contracted and both links can be merged.
+     */
+    private static Link findSuccessor(Link link, List<Link> in, List<Link> out) {
+        if (in == null || out == null || in.size() != out.size() || in.size() > 2) {
+            return null;
+        }
+        for (Link inLink : in) {
+            // Turn restrictions at the node would refer to merged links
+            if (NetworkUtils.getDisallowedNextLinks(inLink) != null) {
+                return null;
+            }
+        }
+        Node previous = link.getFromNode();
+        Link successor = null;
+        for (Link candidate : out) {
+            if (candidate.getToNode() != previous) {
+                if (successor != null) {
+                    return null;
+                }
+                successor = candidate;
+            }
+        }
+        if (successor == null || successor.getToNode() == link.getToNode()) {
+            return null;
+        }
+        if (in.size() == 2) {
+            // Both directions have to pass through the node between the same two neighbours
+            Node next = successor.getToNode();
+            Link other = in.get(0) == link ? in.get(1) : in.get(0);
+            Link otherOut = out.get(0) == successor ? out.get(1) : out.get(0);
+            if (other.getFromNode() != next || otherOut.getToNode() != previous) {
+                return null;
+            }
+        }
+        return canMerge(link, successor) ? successor : null;
+    }
+
+    private static boolean canMerge(Link link, Link successor) {
+        return link.getAllowedModes().equals(successor.getAllowedModes())
+                && link.getFreespeed() == successor.getFreespeed()
+                && link.getCapacity() == successor.getCapacity()
+                && link.getNumberOfLanes() == successor.getNumberOfLanes()
+                && NetworkUtils.getDisallowedNextLinks(successor) == null
+                && Objects.equals(link.getAttributes().getAsMap(), successor.getAttributes().getAsMap());
+    }
+
+    private static Node copyNode(Node node, Network contracted, NetworkFactory factory) {
+        Node copy = contracted.getNodes().get(node.getId());
+        if (copy == null) {
+            copy = factory.createNode(node.getId(), node.getCoord());
+            AttributesUtils.copyAttributesFromTo(node, copy);
+            contracted.addNode(copy);
+        }
+        return copy;
+    }
+
+    /**
+     * Returns the ids of the original links of a link of a contracted network.
+     *
+     * @param contractedLink A link of a contracted network.
+     * @return The ids of the original links in driving order.
+     */
+    public static List<Id<Link>> getOriginalLinkIds(Link contractedLink) {
+        Object originalLinks = contractedLink.getAttributes().getAttribute(ORIGINAL_LINKS_ATTRIBUTE);
+        if (originalLinks == null) {
+            return List.of(contractedLink.getId());
+        }
+        String[] ids = originalLinks.toString().split(",");
+        List<Id<Link>> linkIds = new ArrayList<>(ids.length);
+        for (String id : ids) {
+            linkIds.add(Id.createLinkId(id));
+        }
+        return linkIds;
+    }
+}
@@ -2,18 +2,24 @@ package hagrid.utils.network;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import org.geotools.api.feature.simple.SimpleFeature;
 
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
-import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 
+import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
@@ -139,6 +145,9 @@ public class NetworkFilterAndReducer {
 
     /**
      * Filters the network to include only links that intersect with the given boundary features.
+     * The boundary is unioned once and prepared for the intersection tests, links outside
+     * the boundary envelope are skipped without a geometry test, and the links are tested
+     * in parallel. Only nodes used by the remaining links are created.
      *
      * @param network          The MATSim network to filter
      * @param boundaryFeatures The collection of boundary features (from a shapefile)
@@ -146,6 +155,7 @@ public class NetworkFilterAndReducer {
      */
     private static Network filterNetworkByBoundary(Network network, Collection<SimpleFeature> boundaryFeatures) {
         LOGGER.info("Filtering network based on boundary shapefile...");
+        long start = System.currentTimeMillis();
 
         // Create a new network to store the filtered links
         Network filteredNetwork = NetworkUtils.createNetwork();
@@ -153,64 +163,76 @@ public class NetworkFilterAndReducer {
 
         // Get the boundary geometry (assuming the shapefile contains one or more polygons)
         Geometry boundaryGeometry = GeoUtils.getBoundaryGeometry(boundaryFeatures);
+        if (boundaryGeometry == null) {
+            throw new IllegalArgumentException("The boundary shapefile contains no features.");
+        }
+        PreparedGeometry preparedBoundary = PreparedGeometryFactory.prepare(boundaryGeometry);
+        Envelope boundaryEnvelope = boundaryGeometry.getEnvelopeInternal();
 
         // Note: It is assumed that both the network and the shapefile are in the same coordinate system.
         // Ensure that this is the case; otherwise, the spatial operations will not work correctly.
 
+        // Test the links in parallel, the results are applied in link order below
+        List<Link> links = new ArrayList<>(network.getLinks().values());
+        boolean[] intersecting = new boolean[links.size()];
+        IntStream.range(0, links.size()).parallel().forEach(i -> {
+            Link link = links.get(i);
+            Coord fromCoord = link.getFromNode().getCoord();
+            Coord toCoord = link.getToNode().getCoord();
+            Envelope linkEnvelope = new Envelope(fromCoord.getX(), toCoord.getX(), fromCoord.getY(), toCoord.getY());
+            intersecting[i] = boundaryEnvelope.intersects(linkEnvelope)
+                    && preparedBoundary.intersects(GeoUtils.createLineStringFromLink(link));
+        });
+
+        // Collect the nodes used by the intersecting links
+        Set<Id<Node>> nodesToInclude = new HashSet<>();
+        for (int i = 0; i < links.size(); i++) {
+            if (intersecting[i]) {
+                nodesToInclude.add(links.get(i).getFromNode().getId());
+                nodesToInclude.add(links.get(i).getToNode().getId());
+            }
+        }
+
         // Copy nodes
         for (Node node : network.getNodes().values()) {
-            Node newNode = factory.createNode(node.getId(), node.getCoord());
-            AttributesUtils.copyAttributesFromTo(node, newNode);
-            filteredNetwork.addNode(newNode);
+            if (nodesToInclude.contains(node.getId())) {
+                Node newNode = factory.createNode(node.getId(), node.getCoord());
+                AttributesUtils.copyAttributesFromTo(node, newNode);
+                filteredNetwork.addNode(newNode);
+            }
         }
 
         // Copy links that intersect with the boundary
-        Set<Id<Node>> nodesToInclude = new HashSet<>();
-        for (Link link : network.getLinks().values()) {
-            // Convert the link to a LineString geometry
-            LineString linkGeometry = GeoUtils.createLineStringFromLink(link);
-
-            // Check if the link intersects with the boundary geometry
-            if (linkGeometry.intersects(boundaryGeometry)) {
-                nodesToInclude.add(link.getFromNode().getId());
-                nodesToInclude.add(link.getToNode().getId());
-
-                Node fromNode = filteredNetwork.getNodes().get(link.getFromNode().getId());
-                Node toNode = filteredNetwork.getNodes().get(link.getToNode().getId());
-
-                Link newLink = factory.createLink(link.getId(), fromNode, toNode);
-
-                // Copy attributes
-                newLink.setAllowedModes(new HashSet<>(link.getAllowedModes()));
-                newLink.setCapacity(link.getCapacity());
-                newLink.setFreespeed(link.getFreespeed());
-                newLink.setLength(link.getLength());
-                newLink.setNumberOfLanes(link.getNumberOfLanes());
-                NetworkUtils.setType(newLink, NetworkUtils.getType(link));
-                AttributesUtils.copyAttributesFromTo(link, newLink);
-
-                // Copy DisallowedNextLinks (if any)
-                DisallowedNextLinks disallowedNextLinks = NetworkUtils.getDisallowedNextLinks(link);
-                if (disallowedNextLinks != null) {
-                    NetworkUtils.setDisallowedNextLinks(newLink, disallowedNextLinks.copyOnlyModes(newLink.getAllowedModes()));
-                }
-
-                filteredNetwork.addLink(newLink);
+        for (int i = 0; i < links.size(); i++) {
+            if (!intersecting[i]) {
+                continue;
             }
-        }
-
-        // Remove nodes that are not used by the valid links
-        Set<Id<Node>> nodesToRemove = new HashSet<>();
-        for (Node node : filteredNetwork.getNodes().values()) {
-            if (!nodesToInclude.contains(node.getId())) {
-                nodesToRemove.add(node.getId());
+            Link link = links.get(i);
+            Node fromNode = filteredNetwork.getNodes().get(link.getFromNode().getId());
+            Node toNode = filteredNetwork.getNodes().get(link.getToNode().getId());
+
+            Link newLink = factory.createLink(link.getId(), fromNode, toNode);
+
+            // Copy attributes
+            newLink.setAllowedModes(new HashSet<>(link.getAllowedModes()));
+            newLink.setCapacity(link.getCapacity());
+            newLink.setFreespeed(link.getFreespeed());
+            newLink.setLength(link.getLength());
+            newLink.setNumberOfLanes(link.getNumberOfLanes());
+            NetworkUtils.setType(newLink, NetworkUtils.getType(link));
+            AttributesUtils.copyAttributesFromTo(link, newLink);
+
+            // Copy DisallowedNextLinks (if any)
+            DisallowedNextLinks disallowedNextLinks = NetworkUtils.getDisallowedNextLinks(link);
+            if (disallowedNextLinks != null) {
+                NetworkUtils.setDisallowedNextLinks(newLink, disallowedNextLinks.copyOnlyModes(newLink.getAllowedModes()));
             }
-        }
-        for (Id<Node> nodeId : nodesToRemove) {
-            filteredNetwork.removeNode(nodeId);
+
+            filteredNetwork.addLink(newLink);
         }
 
-        LOGGER.info("Boundary-based network filtering completed.");
+        LOGGER.info("Boundary-based network filtering completed: {} of {} links kept in {} ms.",
+                filteredNetwork.getLinks().size(), links.size(), System.currentTimeMillis() - start);
         return filteredNetwork;
     }
 
@@ -0,0 +1,214 @@
+package hagrid.utils.pipeline;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * Base class of codecs that write scenario elements in a compact binary format
+ * with data streams.
+ *
+ * Every file starts with a magic number and the format version of the codec,
+ * so outdated checkpoints are rejected instead of being misread. Helpers for
+ * nullable strings and attributes of primitive types, coordinates and enums are
+ * shared by all codecs.
+ *
+ * @param <T> The type of the scenario element.
+ */
+public abstract class BinaryElementCodec<T> implements ElementCodec<T> {
+
+    private static final Logger LOGGER = LogManager.getLogger(BinaryElementCodec.class);
+
+    private static final int MAGIC = 0x48414752; // "HAGR"
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final byte TYPE_STRING = 0;
+    private static final byte TYPE_INTEGER = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_DOUBLE = 3;
+    private static final byte TYPE_BOOLEAN = 4;
+    private static final byte TYPE_COORD = 5;
+    private static final byte TYPE_ENUM = 6;
+
+    @Override
+    public String getExtension() {
+        return ".bin";
+    }
+
+    @Override
+    public final void write(T element, Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(getVersion());
+            writeElement(element, out);
+        }
+    }
+
+    @Override
+    public final T read(Path file, Function<String, Object> elements) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a HAGRID checkpoint file: " + file);
+            }
+            int version = in.readInt();
+            if (version != getVersion()) {
+                throw new IOException("Unsupported checkpoint version " + version + " in " + file);
+            }
+            return readElement(in, elements);
+        }
+    }
+
+    /**
+     * Returns the format version, to be increased whenever the format changes.
+     *
+     * @return The format version.
+     */
+    protected abstract int getVersion();
+
+    protected abstract void writeElement(T element, DataOutputStream out) throws IOException;
+
+    protected abstract T readElement(DataInputStream in, Function<String, Object> elements) throws IOException;
+
+    /**
+     * Writes a nullable string as UTF-8 bytes with a length prefix. Unlike
+     * {@link DataOutputStream#writeUTF(String)} the length is not limited to 64 KB.
+     */
+    protected static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    protected static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes all attributes of primitive types, strings, coordinates and enums. Other
+     * attributes are skipped, since they cannot be restored without knowing
+     * their type.
+     */
+    protected static void writeAttributes(DataOutputStream out, Attributes attributes) throws IOException {
+        Map<String, Object> map = attributes.getAsMap();
+        int count = 0;
+        for (Object value : map.values()) {
+            if (isSupported(value)) {
+                count++;
+            }
+        }
+        out.writeInt(count);
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            Object value = entry.getValue();
+            if (!isSupported(value)) {
+                LOGGER.debug("Skipping attribute {} of unsupported type {}", entry.getKey(),
+                        value == null ? null : value.getClass().getName());
+                continue;
+            }
+            writeString(out, entry.getKey());
+            if (value instanceof String) {
+                out.writeByte(TYPE_STRING);
+                writeString(out, (String) value);
+            } else if (value instanceof Integer) {
+                out.writeByte(TYPE_INTEGER);
+                out.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                out.writeByte(TYPE_LONG);
+                out.writeLong((Long) value);
+            } else if (value instanceof Double) {
+                out.writeByte(TYPE_DOUBLE);
+                out.writeDouble((Double) value);
+            } else if (value instanceof Boolean) {
+                out.writeByte(TYPE_BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            } else if (value instanceof Coord) {
+                out.writeByte(TYPE_COORD);
+                writeCoord(out, (Coord) value);
+            } else {
+                out.writeByte(TYPE_ENUM);
+                writeString(out, ((Enum<?>) value).getDeclaringClass().getName());
+                writeString(out, ((Enum<?>) value).name());
+            }
+        }
+    }
+
+    protected static void readAttributes(DataInputStream in, Attributes attributes) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String key = readString(in);
+            byte type = in.readByte();
+            switch (type) {
+                case TYPE_STRING -> attributes.putAttribute(key, readString(in));
+                case TYPE_INTEGER -> attributes.putAttribute(key, in.readInt());
+                case TYPE_LONG -> attributes.putAttribute(key, in.readLong());
+                case TYPE_DOUBLE -> attributes.putAttribute(key, in.readDouble());
+                case TYPE_BOOLEAN -> attributes.putAttribute(key, in.readBoolean());
+                case TYPE_COORD -> attributes.putAttribute(key, readCoord(in));
+                case TYPE_ENUM -> attributes.putAttribute(key, readEnum(in));
+                default -> throw new IOException("Unknown attribute type " + type + " for attribute " + key);
+            }
+        }
+    }
+
+    protected static void writeCoord(DataOutputStream out, Coord coord) throws IOException {
+        out.writeBoolean(coord != null);
+        if (coord == null) {
+            return;
+        }
+        out.writeDouble(coord.getX());
+        out.writeDouble(coord.getY());
+        out.writeBoolean(coord.hasZ());
+        if (coord.hasZ()) {
+            out.writeDouble(coord.getZ());
+        }
+    }
+
+    protected static Coord readCoord(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        double x = in.readDouble();
+        double y = in.readDouble();
+        return in.readBoolean() ? new Coord(x, y, in.readDouble()) : new Coord(x, y);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Enum<?> readEnum(DataInputStream in) throws IOException {
+        String className = readString(in);
+        String name = readString(in);
+        try {
+            return Enum.valueOf((Class<? extends Enum>) Class.forName(className).asSubclass(Enum.class), name);
+        } catch (ClassNotFoundException | ClassCastException | IllegalArgumentException e) {
+            throw new IOException("Cannot restore enum attribute " + className + "." + name, e);
+        }
+    }
+
+    private static boolean isSupported(Object value) {
+        return value instanceof String || value instanceof Integer || value instanceof Long
+                || value instanceof Double || value instanceof Boolean || value instanceof Coord
+                || value instanceof Enum;
+    }
+}
@@ -0,0 +1,46 @@
+package hagrid.utils.pipeline;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+
+/**
+ * Binary codec for the carrier demand, the freight demand features grouped by
+ * carrier. The groups are restored in their original iteration order, the
+ * features as by {@link FeaturesCodec}.
+ */
+public class CarrierDemandCodec extends BinaryElementCodec<Map<String, List<SimpleFeature>>> {
+
+    @Override
+    protected int getVersion() {
+        return 1;
+    }
+
+    @Override
+    protected void writeElement(Map<String, List<SimpleFeature>> carrierDemand, DataOutputStream out)
+            throws IOException {
+        out.writeInt(carrierDemand.size());
+        for (Map.Entry<String, List<SimpleFeature>> entry : carrierDemand.entrySet()) {
+            writeString(out, entry.getKey());
+            FeaturesCodec.writeFeatures(out, entry.getValue());
+        }
+    }
+
+    @Override
+    protected Map<String, List<SimpleFeature>> readElement(DataInputStream in, Function<String, Object> elements)
+            throws IOException {
+        int size = in.readInt();
+        Map<String, List<SimpleFeature>> carrierDemand = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            String carrier = readString(in);
+            carrierDemand.put(carrier, FeaturesCodec.readFeatures(in));
+        }
+        return carrierDemand;
+    }
+}
@@ -0,0 +1,183 @@
+package hagrid.utils.pipeline;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.freight.carriers.Carrier;
+import org.matsim.freight.carriers.CarrierCapabilities.FleetSize;
+import org.matsim.freight.carriers.CarrierService;
+import org.matsim.freight.carriers.CarrierVehicle;
+import org.matsim.freight.carriers.CarrierVehicleTypes;
+import org.matsim.freight.carriers.Carriers;
+import org.matsim.freight.carriers.CarriersUtils;
+import org.matsim.freight.carriers.TimeWindow;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleType;
+
+import hagrid.utils.demand.Hub;
+import hagrid.utils.demand.MissedParcels;
+
+/**
+ * Binary codec for carriers with their services, vehicles, capabilities and
+ * attributes. The carrier vehicle types have to be restored before, vehicles
+ * refer to them by their ID.
+ *
+ * The hub of a carrier is linked again by the stored hub ID to the restored hub
+ * list, the missed parcels per service are stored with the carrier. Carriers
+ * are checkpointed before they are routed, so carriers with plans or shipments
+ * are rejected instead of being restored incompletely.
+ */
+public class CarriersCodec extends BinaryElementCodec<Carriers> {
+
+    private static final Logger LOGGER = LogManager.getLogger(CarriersCodec.class);
+
+    private static final String HUB = "hub";
+    private static final String HUB_ID = "hubId";
+    private static final String MISSED_PARCELS = "missedParcelsPerService";
+
+    private static final FleetSize[] FLEET_SIZES = FleetSize.values();
+
+    @Override
+    protected int getVersion() {
+        return 1;
+    }
+
+    @Override
+    protected void writeElement(Carriers carriers, DataOutputStream out) throws IOException {
+        out.writeInt(carriers.getCarriers().size());
+        for (Carrier carrier : carriers.getCarriers().values()) {
+            if (!carrier.getPlans().isEmpty() || !carrier.getShipments().isEmpty()) {
+                throw new IOException("Carrier " + carrier.getId()
+                        + " has plans or shipments, which are not stored in checkpoints.");
+            }
+            writeString(out, carrier.getId().toString());
+            writeAttributes(out, carrier.getAttributes());
+            writeMissedParcels(out, carrier.getAttributes().getAttribute(MISSED_PARCELS));
+
+            out.writeByte(carrier.getCarrierCapabilities().getFleetSize().ordinal());
+            out.writeInt(carrier.getCarrierCapabilities().getVehicleTypes().size());
+            for (VehicleType type : carrier.getCarrierCapabilities().getVehicleTypes()) {
+                writeString(out, type.getId().toString());
+            }
+            out.writeInt(carrier.getCarrierCapabilities().getCarrierVehicles().size());
+            for (CarrierVehicle vehicle : carrier.getCarrierCapabilities().getCarrierVehicles().values()) {
+                writeString(out, vehicle.getId().toString());
+                writeString(out, vehicle.getLinkId().toString());
+                writeString(out, vehicle.getType().getId().toString());
+                out.writeDouble(vehicle.getEarliestStartTime());
+                out.writeDouble(vehicle.getLatestEndTime());
+                writeAttributes(out, vehicle.getAttributes());
+            }
+
+            out.writeInt(carrier.getServices().size());
+            for (CarrierService service : carrier.getServices().values()) {
+                writeString(out, service.getId().toString());
+                writeString(out, service.getLocationLinkId().toString());
+                out.writeInt(service.getCapacityDemand());
+                out.writeDouble(service.getServiceDuration());
+                out.writeDouble(service.getServiceStartTimeWindow().getStart());
+                out.writeDouble(service.getServiceStartTimeWindow().getEnd());
+                writeAttributes(out, service.getAttributes());
+            }
+        }
+    }
+
+    private static void writeMissedParcels(DataOutputStream out, Object attribute) throws IOException {
+        MissedParcels missed = attribute instanceof MissedParcels missedParcels ? missedParcels : null;
+        out.writeInt(missed == null ? -1 : missed.getNumberOfServices());
+        for (int i = 0; missed != null && i < missed.getNumberOfServices(); i++) {
+            writeString(out, missed.getServiceId(i).toString());
+            out.writeInt(missed.getMissed(i));
+        }
+    }
+
+    @Override
+    protected Carriers readElement(DataInputStream in, Function<String, Object> elements) throws IOException {
+        if (!(elements.apply("carrierVehicleTypes") instanceof CarrierVehicleTypes vehicleTypes)) {
+            throw new IOException("Carrier vehicle types must be restored before the carriers.");
+        }
+        Map<?, ?> hubs = elements.apply("hubList") instanceof Map<?, ?> hubList ? hubList : null;
+        if (hubs == null) {
+            LOGGER.debug("No hub list restored, carriers are restored without hubs.");
+        }
+
+        Carriers carriers = new Carriers();
+        int size = in.readInt();
+        for (int c = 0; c < size; c++) {
+            Carrier carrier = CarriersUtils.createCarrier(Id.create(readString(in), Carrier.class));
+            readAttributes(in, carrier.getAttributes());
+            int missedServices = in.readInt();
+            if (missedServices >= 0) {
+                MissedParcels missed = new MissedParcels();
+                for (int i = 0; i < missedServices; i++) {
+                    missed.add(Id.create(readString(in), CarrierService.class), in.readInt());
+                }
+                carrier.getAttributes().putAttribute(MISSED_PARCELS, missed);
+            }
+            linkHub(carrier, hubs);
+
+            carrier.getCarrierCapabilities().setFleetSize(FLEET_SIZES[in.readByte()]);
+            int types = in.readInt();
+            for (int i = 0; i < types; i++) {
+                carrier.getCarrierCapabilities().getVehicleTypes().add(getVehicleType(vehicleTypes, readString(in)));
+            }
+            int vehicles = in.readInt();
+            for (int i = 0; i < vehicles; i++) {
+                Id<Vehicle> vehicleId = Id.create(readString(in), Vehicle.class);
+                Id<Link> linkId = Id.createLinkId(readString(in));
+                VehicleType type = getVehicleType(vehicleTypes, readString(in));
+                CarrierVehicle vehicle = CarrierVehicle.Builder.newInstance(vehicleId, linkId, type)
+                        .setEarliestStart(in.readDouble())
+                        .setLatestEnd(in.readDouble())
+                        .build();
+                readAttributes(in, vehicle.getAttributes());
+                CarriersUtils.addCarrierVehicle(carrier, vehicle);
+            }
+
+            int services = in.readInt();
+            for (int i = 0; i < services; i++) {
+                CarrierService.Builder builder = CarrierService.Builder.newInstance(
+                        Id.create(readString(in), CarrierService.class), Id.createLinkId(readString(in)));
+                builder.setCapacityDemand(in.readInt());
+                builder.setServiceDuration(in.readDouble());
+                builder.setServiceStartTimeWindow(TimeWindow.newInstance(in.readDouble(), in.readDouble()));
+                CarrierService service = builder.build();
+                readAttributes(in, service.getAttributes());
+                CarriersUtils.addService(carrier, service);
+            }
+            carriers.addCarrier(carrier);
+        }
+        return carriers;
+    }
+
+    private static VehicleType getVehicleType(CarrierVehicleTypes vehicleTypes, String typeId) throws IOException {
+        VehicleType type = vehicleTypes.getVehicleTypes().get(Id.create(typeId, VehicleType.class));
+        if (type == null) {
+            throw new IOException("Vehicle type " + typeId + " is not in the restored carrier vehicle types.");
+        }
+        return type;
+    }
+
+    /**
+     * Sets the hub attribute of a carrier with a hub ID to the hub of the
+     * restored hub list, so updates of the hubs by later stages reach the list.
+     */
+    private static void linkHub(Carrier carrier, Map<?, ?> hubs) throws IOException {
+        Object hubId = carrier.getAttributes().getAttribute(HUB_ID);
+        if (hubId == null || hubs == null) {
+            return;
+        }
+        Object hub = hubs.get(Id.create(hubId.toString(), Hub.class));
+        if (hub == null) {
+            throw new IOException("Hub " + hubId + " of carrier " + carrier.getId() + " is not in the hub list.");
+        }
+        carrier.getAttributes().putAttribute(HUB, hub);
+    }
+}
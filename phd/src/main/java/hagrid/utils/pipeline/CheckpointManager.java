@@ -0,0 +1,408 @@
+package hagrid.utils.pipeline;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Scenario;
+
+import hagrid.HagridConfigGroup;
+
+/**
+ * The CheckpointManager stores the scenario elements produced by each pipeline
+ * stage on disk and restores them in later runs, so that stages whose inputs did
+ * not change are skipped.
+ *
+ * Every checkpoint is identified by a SHA-256 key over the name of the stage,
+ * the random seed, the configuration parameters declared by the stage, the size
+ * and modification time of the input files referenced by these parameters or
+ * added for the stage, and the keys of the earlier stages that produced the
+ * elements the stage reads or modifies. A change of these invalidates the
+ * checkpoint of the stage and of all stages depending on it, while parameters
+ * that only affect the execution, like the number of threads, invalidate
+ * nothing. Changes of the code itself are not detected; increase
+ * {@link #FORMAT_VERSION} or delete the checkpoint directory after changing the
+ * generation logic.
+ *
+ * Only elements with a registered {@link ElementCodec} are stored. A run resumes
+ * after the latest stage for which all elements needed by the remaining stages
+ * can be restored. Codecs are registered for all scenario elements produced by
+ * the pipeline stages, so any stage can be resumed; the full network is not a
+ * scenario element and is cached by the network processing itself. Elements are
+ * only added to the scenario once all of them were read, so a failed restore
+ * leaves the scenario unchanged.
+ */
+public class CheckpointManager {
+
+    private static final Logger LOGGER = LogManager.getLogger(CheckpointManager.class);
+
+    /** Version of the checkpoint layout, part of every checkpoint key. */
+    public static final int FORMAT_VERSION = 3;
+
+    private static final String MANIFEST = "manifest.properties";
+    private static final String KEY = "key";
+    private static final String ELEMENTS = "elements";
+
+    private final Scenario scenario;
+    private final HagridConfigGroup hagridConfig;
+    private final Path directory;
+    private final Map<String, List<String>> additionalInputs = new HashMap<>();
+    private final Map<String, ElementCodec<?>> codecs = new LinkedHashMap<>();
+    private List<String> keys;
+
+    /**
+     * Constructs a CheckpointManager with the codecs of all scenario elements
+     * created by the HAGRID pipeline.
+     *
+     * @param scenario         The scenario holding the elements.
+     * @param hagridConfig     The configuration, part of the checkpoint keys.
+     * @param directory        The directory of the checkpoints.
+     * @param additionalInputs Input files that are not referenced by the
+     *                         configuration, by the name of the stage reading
+     *                         them.
+     */
+    public CheckpointManager(Scenario scenario, HagridConfigGroup hagridConfig, Path directory,
+            Map<String, ? extends Collection<String>> additionalInputs) {
+        this.scenario = scenario;
+        this.hagridConfig = hagridConfig;
+        this.directory = directory;
+        additionalInputs.forEach((stage, inputs) -> this.additionalInputs.put(stage, new ArrayList<>(inputs)));
+
+        // Elements are restored in this order, vehicle types are needed to read carriers
+        registerCodec("carFilteredNetwork", new NetworkCodec());
+        registerCodec("parcelServiceNetwork", new NetworkCodec());
+        registerCodec("hubList", new HubMapCodec());
+        registerCodec("parcelLockerList", new HubMapCodec());
+        registerCodec("shippingPointList", new HubMapCodec());
+        registerCodec("hanoverGeoData", new FeaturesCodec());
+        registerCodec("carrierVehicleTypes", new VehicleTypesCodec());
+        registerCodec("freightDemandData", new FeaturesCodec());
+        registerCodec("carrierDemand", new CarrierDemandCodec());
+        registerCodec("summary", new SummaryCodec());
+        registerCodec("deliveries", new DeliveriesCodec());
+        registerCodec("carriers", new CarriersCodec());
+        registerCodec("supply", new CarriersCodec());
+    }
+
+    /**
+     * Registers the codec of a scenario element.
+     *
+     * @param element The name of the scenario element.
+     * @param codec   The codec of the element.
+     */
+    public void registerCodec(String element, ElementCodec<?> codec) {
+        codecs.put(element, codec);
+    }
+
+    /**
+     * Restores the elements needed to resume the pipeline after the latest stage
+     * with a valid checkpoint.
+     *
+     * @param stages The stages of the pipeline in execution order.
+     * @return The index of the first stage that has to be run.
+     */
+    public int restore(List<PipelineStage> stages) {
+        List<String> keys = computeKeys(stages);
+        List<Set<String>> stored = new ArrayList<>();
+        for (int i = 0; i < stages.size(); i++) {
+            Set<String> elements = readManifest(stages.get(i), keys.get(i));
+            if (elements == null) {
+                break;
+            }
+            stored.add(elements);
+        }
+
+        for (int first = stored.size(); first > 0; first--) {
+            Map<String, PipelineStage> sources = findSources(stages, stored, first);
+            if (sources == null) {
+                continue;
+            }
+            try {
+                restoreElements(sources);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Could not restore checkpoints, running all stages.", e);
+                return 0;
+            }
+            LOGGER.info("Skipping stages {} restored from checkpoints.",
+                    stages.subList(0, first).stream().map(PipelineStage::getName).collect(Collectors.toList()));
+            return first;
+        }
+        return 0;
+    }
+
+    /**
+     * Stores the produced elements of a stage. Nothing is stored if one of the
+     * produced elements with a codec is missing.
+     *
+     * @param stages The stages of the pipeline in execution order.
+     * @param index  The index of the stage to store.
+     */
+    public void save(List<PipelineStage> stages, int index) {
+        PipelineStage stage = stages.get(index);
+        String key = computeKeys(stages).get(index);
+        Path stageDirectory = directory.resolve(stage.getName());
+
+        // Other stages may add elements concurrently. Elements without a codec
+        // need not be scenario elements, like the full network.
+        Map<String, Object> elements = new LinkedHashMap<>();
+        synchronized (scenario) {
+            for (String element : stage.getProduces()) {
+                if (codecs.containsKey(element)) {
+                    elements.put(element, scenario.getScenarioElement(element));
+                }
+            }
+        }
+        for (Map.Entry<String, Object> element : elements.entrySet()) {
+            if (element.getValue() == null) {
+                LOGGER.warn("Stage {} did not produce {}, no checkpoint is written.", stage.getName(),
+                        element.getKey());
+                return;
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            Files.createDirectories(stageDirectory);
+            // The manifest is written last, so an interrupted checkpoint is never used
+            Files.deleteIfExists(stageDirectory.resolve(MANIFEST));
+
+            List<String> written = new ArrayList<>();
+            for (String element : stage.getProduces()) {
+                ElementCodec<?> codec = codecs.get(element);
+                if (codec == null) {
+                    LOGGER.debug("No checkpoint codec for {}, skipping it.", element);
+                    continue;
+                }
+                write(codec, elements.get(element), stageDirectory.resolve(element + codec.getExtension()));
+                written.add(element);
+            }
+
+            Properties manifest = new Properties();
+            manifest.setProperty(KEY, key);
+            manifest.setProperty(ELEMENTS, String.join(",", written));
+            try (OutputStream out = Files.newOutputStream(stageDirectory.resolve(MANIFEST))) {
+                manifest.store(out, "HAGRID checkpoint of stage " + stage.getName());
+            }
+            LOGGER.info("Checkpoint of stage {} with {} written in {} ms.", stage.getName(), written,
+                    System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Could not write checkpoint of stage " + stage.getName(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void write(ElementCodec<T> codec, Object element, Path file) throws IOException {
+        codec.write((T) element, file);
+    }
+
+    /**
+     * Finds for every element consumed by the stages from the given index on the
+     * last earlier stage that produced it. Returns null if such an element was
+     * not stored in the checkpoint of that stage.
+     */
+    private Map<String, PipelineStage> findSources(List<PipelineStage> stages, List<Set<String>> stored,
+            int first) {
+        Set<String> needed = new LinkedHashSet<>();
+        stages.subList(first, stages.size()).forEach(stage -> needed.addAll(stage.getConsumes()));
+
+        Map<String, PipelineStage> sources = new HashMap<>();
+        for (String element : needed) {
+            for (int i = first - 1; i >= 0; i--) {
+                if (stages.get(i).getProduces().contains(element)) {
+                    if (!stored.get(i).contains(element)) {
+                        return null;
+                    }
+                    sources.put(element, stages.get(i));
+                    break;
+                }
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Reads all elements first and adds them to the scenario only when every
+     * element was read, so a failure leaves the scenario as it was.
+     */
+    private void restoreElements(Map<String, PipelineStage> sources) throws IOException {
+        Map<String, Object> restored = new LinkedHashMap<>();
+        Function<String, Object> elements = name -> {
+            if (restored.containsKey(name)) {
+                return restored.get(name);
+            }
+            synchronized (scenario) {
+                return scenario.getScenarioElement(name);
+            }
+        };
+        for (Map.Entry<String, ElementCodec<?>> entry : codecs.entrySet()) {
+            PipelineStage source = sources.get(entry.getKey());
+            if (source == null) {
+                continue;
+            }
+            long start = System.currentTimeMillis();
+            Path file = directory.resolve(source.getName()).resolve(entry.getKey() + entry.getValue().getExtension());
+            restored.put(entry.getKey(), entry.getValue().read(file, elements));
+            LOGGER.info("Read {} from checkpoint of stage {} in {} ms.", entry.getKey(), source.getName(),
+                    System.currentTimeMillis() - start);
+        }
+        synchronized (scenario) {
+            for (Map.Entry<String, Object> element : restored.entrySet()) {
+                if (scenario.getScenarioElement(element.getKey()) != null) {
+                    scenario.removeScenarioElement(element.getKey());
+                }
+                scenario.addScenarioElement(element.getKey(), element.getValue());
+            }
+        }
+        LOGGER.info("Restored {} from checkpoints.", restored.keySet());
+    }
+
+    private Set<String> readManifest(PipelineStage stage, String key) {
+        Path manifestFile = directory.resolve(stage.getName()).resolve(MANIFEST);
+        if (!Files.isRegularFile(manifestFile)) {
+            return null;
+        }
+        Properties manifest = new Properties();
+        try (InputStream in = Files.newInputStream(manifestFile)) {
+            manifest.load(in);
+        } catch (IOException e) {
+            LOGGER.warn("Could not read checkpoint manifest " + manifestFile, e);
+            return null;
+        }
+        if (!key.equals(manifest.getProperty(KEY))) {
+            LOGGER.info("Checkpoint of stage {} is outdated.", stage.getName());
+            return null;
+        }
+        String elements = manifest.getProperty(ELEMENTS, "");
+        return elements.isEmpty() ? Set.of()
+                : new LinkedHashSet<>(Arrays.asList(elements.split(",")));
+    }
+
+    /**
+     * Computes the keys of all stages once, input files are not inspected again
+     * when later checkpoints are written.
+     */
+    private synchronized List<String> computeKeys(List<PipelineStage> stages) {
+        if (keys != null && keys.size() == stages.size()) {
+            return keys;
+        }
+        Map<String, String> params = hagridConfig.getParams();
+        List<String> computed = new ArrayList<>(stages.size());
+        for (int i = 0; i < stages.size(); i++) {
+            PipelineStage stage = stages.get(i);
+            StringBuilder builder = new StringBuilder();
+            builder.append("format=").append(FORMAT_VERSION).append('\n');
+            builder.append("stage=").append(stage.getName()).append('\n');
+            builder.append("seed=").append(scenario.getConfig().global().getRandomSeed()).append('\n');
+            for (String param : new TreeSet<>(stage.getParameters())) {
+                if (!params.containsKey(param)) {
+                    throw new IllegalArgumentException(
+                            "Stage " + stage.getName() + " declares the unknown parameter " + param);
+                }
+                builder.append(param).append('=').append(params.get(param)).append('\n');
+                appendInput(builder, params.get(param));
+            }
+            for (String input : additionalInputs.getOrDefault(stage.getName(), List.of())) {
+                appendInput(builder, input);
+            }
+            for (int upstream : findUpstream(stages, i)) {
+                builder.append("upstream=").append(computed.get(upstream)).append('\n');
+            }
+            computed.add(sha256(builder.toString()));
+        }
+        keys = computed;
+        return keys;
+    }
+
+    /**
+     * Finds the last earlier stage producing each element a stage reads or
+     * modifies.
+     */
+    private static Set<Integer> findUpstream(List<PipelineStage> stages, int index) {
+        Set<String> elements = new LinkedHashSet<>(stages.get(index).getConsumes());
+        elements.addAll(stages.get(index).getProduces());
+        Set<Integer> upstream = new TreeSet<>();
+        for (String element : elements) {
+            for (int i = index - 1; i >= 0; i--) {
+                if (stages.get(i).getProduces().contains(element)) {
+                    upstream.add(i);
+                    break;
+                }
+            }
+        }
+        return upstream;
+    }
+
+    /**
+     * Appends size and modification time of an input. For files all siblings with
+     * the same base name are included to cover shapefile components, for
+     * directories all contained files.
+     */
+    private static void appendInput(StringBuilder builder, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        try {
+            Path path = Paths.get(value);
+            List<Path> files = new ArrayList<>();
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> children = Files.list(path)) {
+                    children.filter(Files::isRegularFile).forEach(files::add);
+                }
+            } else if (Files.isRegularFile(path)) {
+                String name = path.getFileName().toString();
+                String baseName = name.contains(".") ? name.substring(0, name.indexOf('.')) : name;
+                Path parent = path.toAbsolutePath().getParent();
+                try (Stream<Path> siblings = Files.list(parent)) {
+                    siblings.filter(Files::isRegularFile)
+                            .filter(file -> file.getFileName().toString().startsWith(baseName + ".")
+                                    || file.getFileName().toString().equals(baseName))
+                            .forEach(files::add);
+                }
+            }
+            files.sort(null);
+            for (Path file : files) {
+                builder.append("input=").append(file.toAbsolutePath()).append(';')
+                        .append(Files.size(file)).append(';')
+                        .append(Files.getLastModifiedTime(file).toMillis()).append('\n');
+            }
+        } catch (InvalidPathException e) {
+            // Not a path
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not inspect input " + value, e);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package hagrid.utils.pipeline;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.matsim.api.core.v01.Coord;
+
+import hagrid.utils.demand.Delivery;
+import hagrid.utils.demand.Delivery.DeliveryMode;
+import hagrid.utils.demand.Delivery.ParcelType;
+import hagrid.utils.demand.ParcelWeights;
+
+/**
+ * Binary codec for the generated deliveries. Parcel weights are written in
+ * their quantized form, so restored deliveries are identical to the generated
+ * ones. The weights of all deliveries of one key share a single backing array.
+ */
+public class DeliveriesCodec extends BinaryElementCodec<Map<String, ArrayList<Delivery>>> {
+
+    private static final ParcelType[] PARCEL_TYPES = ParcelType.values();
+    private static final DeliveryMode[] DELIVERY_MODES = DeliveryMode.values();
+
+    @Override
+    protected int getVersion() {
+        return 1;
+    }
+
+    @Override
+    protected void writeElement(Map<String, ArrayList<Delivery>> deliveries, DataOutputStream out)
+            throws IOException {
+        out.writeInt(deliveries.size());
+        for (Map.Entry<String, ArrayList<Delivery>> entry : deliveries.entrySet()) {
+            writeString(out, entry.getKey());
+            List<Delivery> list = entry.getValue();
+
+            int totalWeights = 0;
+            for (Delivery delivery : list) {
+                totalWeights += delivery.getIndividualWeights() == null ? 0 : delivery.getIndividualWeights().size();
+            }
+            out.writeInt(totalWeights);
+            for (Delivery delivery : list) {
+                ParcelWeights weights = delivery.getIndividualWeights();
+                for (int i = 0; weights != null && i < weights.size(); i++) {
+                    out.writeShort(weights.getQuantized(i));
+                }
+            }
+
+            out.writeInt(list.size());
+            for (Delivery delivery : list) {
+                writeString(out, delivery.getId());
+                writeCoord(out, delivery.getCoordinate());
+                writeString(out, delivery.getProvider());
+                out.writeInt(delivery.getAmount());
+                out.writeByte(delivery.getParcelType() == null ? -1 : delivery.getParcelType().ordinal());
+                writeString(out, delivery.getPostalCode());
+                out.writeByte(delivery.getDeliveryMode() == null ? -1 : delivery.getDeliveryMode().ordinal());
+                out.writeInt(delivery.getIndividualWeights() == null ? -1 : delivery.getIndividualWeights().size());
+
+                Map<String, Integer> supplyDistribution = delivery.getSupplyDistribution();
+                out.writeInt(supplyDistribution == null ? -1 : supplyDistribution.size());
+                if (supplyDistribution != null) {
+                    for (Map.Entry<String, Integer> supply : supplyDistribution.entrySet()) {
+                        writeString(out, supply.getKey());
+                        out.writeInt(supply.getValue());
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    protected Map<String, ArrayList<Delivery>> readElement(DataInputStream in, Function<String, Object> elements)
+            throws IOException {
+        int keys = in.readInt();
+        Map<String, ArrayList<Delivery>> deliveries = new LinkedHashMap<>();
+        for (int k = 0; k < keys; k++) {
+            String key = readString(in);
+
+            short[] quantized = new short[in.readInt()];
+            for (int i = 0; i < quantized.length; i++) {
+                quantized[i] = in.readShort();
+            }
+            ParcelWeights allWeights = ParcelWeights.ofQuantized(quantized);
+
+            int size = in.readInt();
+            ArrayList<Delivery> list = new ArrayList<>(size);
+            int weightOffset = 0;
+            for (int d = 0; d < size; d++) {
+                String id = readString(in);
+                Coord coordinate = readCoord(in);
+                String provider = readString(in);
+                int amount = in.readInt();
+                byte parcelType = in.readByte();
+                String postalCode = readString(in);
+                byte deliveryMode = in.readByte();
+                int weightCount = in.readInt();
+
+                ParcelWeights weights = null;
+                if (weightCount >= 0) {
+                    weights = allWeights.slice(weightOffset, weightOffset + weightCount);
+                    weightOffset += weightCount;
+                }
+
+                int supplyCount = in.readInt();
+                HashMap<String, Integer> supplyDistribution = null;
+                if (supplyCount >= 0) {
+                    supplyDistribution = new HashMap<>();
+                    for (int s = 0; s < supplyCount; s++) {
+                        supplyDistribution.put(readString(in), in.readInt());
+                    }
+                }
+
+                list.add(Delivery.builder()
+                        .supplyDistribution(supplyDistribution)
+                        .id(id)
+                        .coordinate(coordinate)
+                        .provider(provider)
+                        .amount(amount)
+                        .parcelType(parcelType < 0 ? null : PARCEL_TYPES[parcelType])
+                        .postalCode(postalCode)
+                        .individualWeights(weights)
+                        .deliveryMode(deliveryMode < 0 ? null : DELIVERY_MODES[deliveryMode])
+                        .build());
+            }
+            deliveries.put(key, list);
+        }
+        return deliveries;
+    }
+}
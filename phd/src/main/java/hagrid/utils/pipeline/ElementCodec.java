@@ -0,0 +1,42 @@
+package hagrid.utils.pipeline;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Function;
+
+/**
+ * An ElementCodec writes one kind of scenario element to a checkpoint file and
+ * reads it back.
+ *
+ * @param <T> The type of the scenario element.
+ */
+public interface ElementCodec<T> {
+
+    /**
+     * Returns the file extension of the checkpoint file, including the dot.
+     *
+     * @return The file extension.
+     */
+    String getExtension();
+
+    /**
+     * Writes the element to the given file.
+     *
+     * @param element The element to write.
+     * @param file    The checkpoint file.
+     * @throws IOException If writing fails.
+     */
+    void write(T element, Path file) throws IOException;
+
+    /**
+     * Reads the element from the given file. Elements restored before it from
+     * the same checkpoints are available by name, even though they are only
+     * added to the scenario after all elements were read.
+     *
+     * @param file     The checkpoint file.
+     * @param elements The scenario elements by name, null if there is none.
+     * @return The restored element.
+     * @throws IOException If reading fails.
+     */
+    T read(Path file, Function<String, Object> elements) throws IOException;
+}
@@ -0,0 +1,239 @@
+package hagrid.utils.pipeline;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.api.feature.type.AttributeDescriptor;
+import org.geotools.api.referencing.FactoryException;
+import org.geotools.api.referencing.crs.CoordinateReferenceSystem;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.referencing.CRS;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKBWriter;
+
+/**
+ * Binary codec for collections of simple features, like the freight demand data
+ * and the geo data of Hanover. The feature types are stored once with their
+ * coordinate reference system as WKT, the features with their IDs and attribute
+ * values. Geometries are stored as two-dimensional WKB, since all inputs are
+ * planar.
+ *
+ * Attribute values other than strings, numbers, booleans, dates and geometries
+ * cannot be restored, writing them fails, so no checkpoint is used for them.
+ */
+public class FeaturesCodec extends BinaryElementCodec<Collection<SimpleFeature>> {
+
+    private static final byte VALUE_NULL = 0;
+    private static final byte VALUE_STRING = 1;
+    private static final byte VALUE_INTEGER = 2;
+    private static final byte VALUE_LONG = 3;
+    private static final byte VALUE_DOUBLE = 4;
+    private static final byte VALUE_FLOAT = 5;
+    private static final byte VALUE_SHORT = 6;
+    private static final byte VALUE_BOOLEAN = 7;
+    private static final byte VALUE_DATE = 8;
+    private static final byte VALUE_BIG_DECIMAL = 9;
+    private static final byte VALUE_GEOMETRY = 10;
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    @Override
+    protected int getVersion() {
+        return 1;
+    }
+
+    @Override
+    protected void writeElement(Collection<SimpleFeature> features, DataOutputStream out) throws IOException {
+        writeFeatures(out, features);
+    }
+
+    @Override
+    protected Collection<SimpleFeature> readElement(DataInputStream in, Function<String, Object> elements)
+            throws IOException {
+        return readFeatures(in);
+    }
+
+    /**
+     * Writes the types of the features followed by the features.
+     */
+    static void writeFeatures(DataOutputStream out, Collection<SimpleFeature> features) throws IOException {
+        Map<SimpleFeatureType, Integer> types = new IdentityHashMap<>();
+        List<SimpleFeatureType> typeList = new ArrayList<>();
+        for (SimpleFeature feature : features) {
+            if (types.putIfAbsent(feature.getFeatureType(), typeList.size()) == null) {
+                typeList.add(feature.getFeatureType());
+            }
+        }
+        out.writeInt(typeList.size());
+        for (SimpleFeatureType type : typeList) {
+            writeType(out, type);
+        }
+
+        WKBWriter wkbWriter = new WKBWriter(2);
+        out.writeInt(features.size());
+        for (SimpleFeature feature : features) {
+            out.writeInt(types.get(feature.getFeatureType()));
+            writeString(out, feature.getID());
+            List<Object> values = feature.getAttributes();
+            for (Object value : values) {
+                writeValue(out, value, wkbWriter);
+            }
+        }
+    }
+
+    static List<SimpleFeature> readFeatures(DataInputStream in) throws IOException {
+        SimpleFeatureType[] types = new SimpleFeatureType[in.readInt()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = readType(in);
+        }
+
+        WKBReader wkbReader = new WKBReader(GEOMETRY_FACTORY);
+        int size = in.readInt();
+        List<SimpleFeature> features = new ArrayList<>(size);
+        for (int f = 0; f < size; f++) {
+            SimpleFeatureType type = types[in.readInt()];
+            String id = readString(in);
+            Object[] values = new Object[type.getAttributeCount()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = readValue(in, wkbReader);
+            }
+            features.add(SimpleFeatureBuilder.build(type, values, id));
+        }
+        return features;
+    }
+
+    private static void writeType(DataOutputStream out, SimpleFeatureType type) throws IOException {
+        writeString(out, type.getTypeName());
+        CoordinateReferenceSystem crs = type.getCoordinateReferenceSystem();
+        try {
+            writeString(out, crs == null ? null : crs.toWKT());
+        } catch (UnsupportedOperationException e) {
+            throw new IOException("Coordinate reference system of " + type.getTypeName() + " has no WKT.", e);
+        }
+        writeString(out, type.getGeometryDescriptor() == null ? null : type.getGeometryDescriptor().getLocalName());
+        out.writeInt(type.getAttributeCount());
+        for (AttributeDescriptor descriptor : type.getAttributeDescriptors()) {
+            writeString(out, descriptor.getLocalName());
+            writeString(out, descriptor.getType().getBinding().getName());
+        }
+    }
+
+    private static SimpleFeatureType readType(DataInputStream in) throws IOException {
+        SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
+        builder.setName(readString(in));
+        String crs = readString(in);
+        if (crs != null) {
+            try {
+                builder.setCRS(CRS.parseWKT(crs));
+            } catch (FactoryException e) {
+                throw new IOException("Cannot restore coordinate reference system " + crs, e);
+            }
+        }
+        String defaultGeometry = readString(in);
+        int attributes = in.readInt();
+        for (int i = 0; i < attributes; i++) {
+            String name = readString(in);
+            String binding = readString(in);
+            try {
+                builder.add(name, Class.forName(binding));
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Unknown binding " + binding + " of attribute " + name, e);
+            }
+        }
+        if (defaultGeometry != null) {
+            builder.setDefaultGeometry(defaultGeometry);
+        }
+        return builder.buildFeatureType();
+    }
+
+    private static void writeValue(DataOutputStream out, Object value, WKBWriter wkbWriter) throws IOException {
+        if (value == null) {
+            out.writeByte(VALUE_NULL);
+        } else if (value instanceof String string) {
+            out.writeByte(VALUE_STRING);
+            writeString(out, string);
+        } else if (value instanceof Integer integer) {
+            out.writeByte(VALUE_INTEGER);
+            out.writeInt(integer);
+        } else if (value instanceof Long longValue) {
+            out.writeByte(VALUE_LONG);
+            out.writeLong(longValue);
+        } else if (value instanceof Double doubleValue) {
+            out.writeByte(VALUE_DOUBLE);
+            out.writeDouble(doubleValue);
+        } else if (value instanceof Float floatValue) {
+            out.writeByte(VALUE_FLOAT);
+            out.writeFloat(floatValue);
+        } else if (value instanceof Short shortValue) {
+            out.writeByte(VALUE_SHORT);
+            out.writeShort(shortValue);
+        } else if (value instanceof Boolean booleanValue) {
+            out.writeByte(VALUE_BOOLEAN);
+            out.writeBoolean(booleanValue);
+        } else if (value instanceof Date date) {
+            out.writeByte(VALUE_DATE);
+            out.writeLong(date.getTime());
+        } else if (value instanceof BigDecimal decimal) {
+            out.writeByte(VALUE_BIG_DECIMAL);
+            writeString(out, decimal.toString());
+        } else if (value instanceof Geometry geometry) {
+            out.writeByte(VALUE_GEOMETRY);
+            byte[] wkb = wkbWriter.write(geometry);
+            out.writeInt(wkb.length);
+            out.write(wkb);
+        } else {
+            throw new IOException("Feature attribute of type " + value.getClass().getName() + " cannot be stored.");
+        }
+    }
+
+    private static Object readValue(DataInputStream in, WKBReader wkbReader) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_STRING:
+                return readString(in);
+            case VALUE_INTEGER:
+                return in.readInt();
+            case VALUE_LONG:
+                return in.readLong();
+            case VALUE_DOUBLE:
+                return in.readDouble();
+            case VALUE_FLOAT:
+                return in.readFloat();
+            case VALUE_SHORT:
+                return in.readShort();
+            case VALUE_BOOLEAN:
+                return in.readBoolean();
+            case VALUE_DATE:
+                return new Date(in.readLong());
+            case VALUE_BIG_DECIMAL:
+                return new BigDecimal(readString(in));
+            case VALUE_GEOMETRY:
+                byte[] wkb = new byte[in.readInt()];
+                in.readFully(wkb);
+                try {
+                    return wkbReader.read(wkb);
+                } catch (ParseException e) {
+                    throw new IOException("Invalid geometry in checkpoint", e);
+                }
+            default:
+                throw new IOException("Unknown feature attribute type " + type);
+        }
+    }
+}
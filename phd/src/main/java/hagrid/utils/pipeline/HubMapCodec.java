@@ -0,0 +1,72 @@
+package hagrid.utils.pipeline;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.matsim.api.core.v01.Id;
+
+import hagrid.utils.demand.Hub;
+
+/**
+ * Binary codec for maps of hubs, parcel lockers and shipping points. The map is
+ * restored in its original iteration order, including the assigned supply
+ * demand and capacity limits of the hubs.
+ */
+public class HubMapCodec extends BinaryElementCodec<Map<Id<Hub>, Hub>> {
+
+    @Override
+    protected int getVersion() {
+        return 1;
+    }
+
+    @Override
+    protected void writeElement(Map<Id<Hub>, Hub> hubs, DataOutputStream out) throws IOException {
+        out.writeInt(hubs.size());
+        for (Hub hub : hubs.values()) {
+            writeString(out, hub.getId().toString());
+            writeString(out, hub.getProvider());
+            writeCoord(out, hub.getCoord());
+            writeString(out, hub.getAddress());
+            writeString(out, hub.getType());
+            writeString(out, hub.getLink() == null ? null : hub.getLink().toString());
+            out.writeInt(hub.getCapacityLimit());
+            out.writeInt(hub.getAssignedSupplyDemand());
+            out.writeInt(hub.getWLSupplyDemandByProvider().size());
+            for (Map.Entry<String, Integer> entry : hub.getWLSupplyDemandByProvider().entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+            writeAttributes(out, hub.getAttributes());
+        }
+    }
+
+    @Override
+    protected Map<Id<Hub>, Hub> readElement(DataInputStream in, Function<String, Object> elements)
+            throws IOException {
+        int size = in.readInt();
+        Map<Id<Hub>, Hub> hubs = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            Hub hub = new Hub(Id.create(readString(in), Hub.class), readString(in), readCoord(in));
+            hub.setAddress(readString(in));
+            hub.setType(readString(in));
+            String link = readString(in);
+            if (link != null) {
+                hub.setLink(Id.createLinkId(link));
+            }
+            // The capacity limit must be set first, it determines the capacity flag
+            hub.setCapacityLimit(in.readInt());
+            hub.setAssignedSupplyDemand(in.readInt());
+            int providers = in.readInt();
+            for (int p = 0; p < providers; p++) {
+                hub.setProviderWLSupplyDemand(readString(in), in.readInt());
+            }
+            readAttributes(in, hub.getAttributes());
+            hubs.put(hub.getId(), hub);
+        }
+        return hubs;
+    }
+}
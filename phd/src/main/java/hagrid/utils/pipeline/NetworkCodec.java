@@ -0,0 +1,94 @@
+package hagrid.utils.pipeline;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+/**
+ * Binary codec for MATSim networks. Nodes and links are written with their
+ * geometry, link properties, allowed modes and attributes of primitive types.
+ * Reading the binary format is considerably faster than parsing network XML.
+ */
+public class NetworkCodec extends BinaryElementCodec<Network> {
+
+    @Override
+    protected int getVersion() {
+        return 1;
+    }
+
+    @Override
+    protected void writeElement(Network network, DataOutputStream out) throws IOException {
+        out.writeDouble(network.getCapacityPeriod());
+        out.writeDouble(network.getEffectiveLaneWidth());
+
+        out.writeInt(network.getNodes().size());
+        for (Node node : network.getNodes().values()) {
+            writeString(out, node.getId().toString());
+            writeCoord(out, node.getCoord());
+            writeAttributes(out, node.getAttributes());
+        }
+
+        out.writeInt(network.getLinks().size());
+        for (Link link : network.getLinks().values()) {
+            writeString(out, link.getId().toString());
+            writeString(out, link.getFromNode().getId().toString());
+            writeString(out, link.getToNode().getId().toString());
+            out.writeDouble(link.getLength());
+            out.writeDouble(link.getFreespeed());
+            out.writeDouble(link.getCapacity());
+            out.writeDouble(link.getNumberOfLanes());
+            out.writeInt(link.getAllowedModes().size());
+            for (String mode : link.getAllowedModes()) {
+                writeString(out, mode);
+            }
+            writeAttributes(out, link.getAttributes());
+        }
+    }
+
+    @Override
+    protected Network readElement(DataInputStream in, Function<String, Object> elements)
+            throws IOException {
+        Network network = NetworkUtils.createNetwork();
+        NetworkFactory factory = network.getFactory();
+        network.setCapacityPeriod(in.readDouble());
+        network.setEffectiveLaneWidth(in.readDouble());
+
+        int nodes = in.readInt();
+        for (int i = 0; i < nodes; i++) {
+            Node node = factory.createNode(Id.createNodeId(readString(in)), readCoord(in));
+            readAttributes(in, node.getAttributes());
+            network.addNode(node);
+        }
+
+        int links = in.readInt();
+        for (int i = 0; i < links; i++) {
+            Id<Link> linkId = Id.createLinkId(readString(in));
+            Node fromNode = network.getNodes().get(Id.createNodeId(readString(in)));
+            Node toNode = network.getNodes().get(Id.createNodeId(readString(in)));
+            Link link = factory.createLink(linkId, fromNode, toNode);
+            link.setLength(in.readDouble());
+            link.setFreespeed(in.readDouble());
+            link.setCapacity(in.readDouble());
+            link.setNumberOfLanes(in.readDouble());
+            int modes = in.readInt();
+            Set<String> allowedModes = new HashSet<>(modes);
+            for (int m = 0; m < modes; m++) {
+                allowedModes.add(readString(in));
+            }
+            link.setAllowedModes(allowedModes);
+            readAttributes(in, link.getAttributes());
+            network.addLink(link);
+        }
+        return network;
+    }
+}
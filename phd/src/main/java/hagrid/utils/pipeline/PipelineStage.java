@@ -0,0 +1,62 @@
+package hagrid.utils.pipeline;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The PipelineStage class describes one processing step of the HAGRID pipeline
+ * together with the scenario elements it reads and writes.
+ *
+ * Elements that a stage modifies in place, like the hub list whose assigned
+ * supply demand is updated during carrier generation, are declared as both
+ * consumed and produced.
+ *
+ * The HAGRID configuration parameters a stage reads are part of the checkpoint
+ * key of the stage. Parameters that only affect how a stage is executed, like
+ * the number of threads, are not declared.
+ */
+@Getter
+@ToString(of = { "name", "consumes", "produces" })
+public class PipelineStage {
+
+    private final String name;
+    private final Runnable action;
+    private final Set<String> consumes;
+    private final Set<String> produces;
+    private final Set<String> parameters;
+
+    /**
+     * Constructs a PipelineStage.
+     *
+     * @param name     The unique name of the stage.
+     * @param action   The processing step.
+     * @param consumes The scenario elements read by the stage.
+     * @param produces The scenario elements created or modified by the stage.
+     */
+    public PipelineStage(String name, Runnable action, Set<String> consumes, Set<String> produces) {
+        this(name, action, consumes, produces, Set.of());
+    }
+
+    /**
+     * Constructs a PipelineStage that reads configuration parameters.
+     *
+     * @param name       The unique name of the stage.
+     * @param action     The processing step.
+     * @param consumes   The scenario elements read by the stage.
+     * @param produces   The scenario elements created or modified by the stage.
+     * @param parameters The HAGRID configuration parameters that determine the
+     *                   results of the stage.
+     */
+    public PipelineStage(String name, Runnable action, Set<String> consumes, Set<String> produces,
+            Set<String> parameters) {
+        this.name = name;
+        this.action = action;
+        this.consumes = Collections.unmodifiableSet(new LinkedHashSet<>(consumes));
+        this.produces = Collections.unmodifiableSet(new LinkedHashSet<>(produces));
+        this.parameters = Collections.unmodifiableSet(new LinkedHashSet<>(parameters));
+    }
+}
@@ -0,0 +1,204 @@
+package hagrid.utils.pipeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The StagePipeline class runs the stages of the HAGRID pipeline.
+ *
+ * Stages run in the given order by default. In parallel mode the stages form a
+ * graph over the scenario elements they consume and produce, and every stage
+ * starts as soon as all earlier stages it depends on are finished. A stage
+ * depends on an earlier stage if it reads or writes an element the earlier stage
+ * writes, or writes an element the earlier stage reads. The given order must
+ * therefore be a valid sequential order.
+ *
+ * If a stage fails, no further stages are started and the failure is rethrown
+ * by {@link #run()} after all running stages are finished.
+ *
+ * If a {@link CheckpointManager} is set, stages with valid checkpoints are
+ * skipped and their results restored, and the results of every executed stage
+ * are stored before dependent stages start.
+ */
+public class StagePipeline {
+
+    private static final Logger LOGGER = LogManager.getLogger(StagePipeline.class);
+
+    private final List<PipelineStage> stages;
+    private final List<List<Integer>> dependencies;
+    private CheckpointManager checkpointManager;
+    private boolean parallel;
+
+    /**
+     * Constructs a StagePipeline.
+     *
+     * @param stages The stages in a valid sequential order.
+     */
+    public StagePipeline(List<PipelineStage> stages) {
+        this.stages = Collections.unmodifiableList(new ArrayList<>(stages));
+        this.dependencies = computeDependencies(this.stages);
+    }
+
+    public void setCheckpointManager(CheckpointManager checkpointManager) {
+        this.checkpointManager = checkpointManager;
+    }
+
+    /**
+     * Sets whether independent stages are run concurrently.
+     *
+     * @param parallel True to run independent stages concurrently.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public List<PipelineStage> getStages() {
+        return stages;
+    }
+
+    /**
+     * Returns the indices of the earlier stages a stage depends on.
+     *
+     * @param index The index of the stage.
+     * @return The indices of the stages it waits for.
+     */
+    public List<Integer> getDependencies(int index) {
+        return dependencies.get(index);
+    }
+
+    /**
+     * Runs all stages that cannot be restored from checkpoints.
+     *
+     * @throws IllegalStateException If a stage failed, with the failure of the
+     *                               stage as cause.
+     */
+    public void run() {
+        int first = checkpointManager == null ? 0 : checkpointManager.restore(stages);
+        if (first == stages.size()) {
+            LOGGER.info("All stages restored from checkpoints, nothing to run.");
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        if (parallel) {
+            runParallel(first);
+        } else {
+            for (int i = first; i < stages.size(); i++) {
+                runStage(i);
+            }
+        }
+        LOGGER.info("Pipeline finished in {} ms.", System.currentTimeMillis() - start);
+    }
+
+    private void runParallel(int first) {
+        int threads = Math.max(1, Math.min(stages.size() - first, Runtime.getRuntime().availableProcessors()));
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "pipeline-stage-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(stages.size());
+        try {
+            for (int i = 0; i < stages.size(); i++) {
+                if (i < first) {
+                    // Restored from checkpoints
+                    futures.add(CompletableFuture.completedFuture(null));
+                    continue;
+                }
+                CompletableFuture<?>[] predecessors = dependencies.get(i).stream()
+                        .map(futures::get)
+                        .toArray(CompletableFuture[]::new);
+                int index = i;
+                futures.add(CompletableFuture.allOf(predecessors).thenRunAsync(() -> {
+                    if (failure.get() != null) {
+                        throw new CancellationMarker();
+                    }
+                    try {
+                        runStage(index);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                        throw e;
+                    }
+                }, executor));
+            }
+
+            // Wait for all stages, including those still running after a failure
+            for (CompletableFuture<Void> future : futures) {
+                try {
+                    future.join();
+                } catch (CompletionException e) {
+                    // Reported below
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private void runStage(int index) {
+        PipelineStage stage = stages.get(index);
+        long start = System.currentTimeMillis();
+        LOGGER.info("Running stage {}...", stage.getName());
+        try {
+            stage.getAction().run();
+        } catch (RuntimeException e) {
+            LOGGER.error("Stage " + stage.getName() + " failed", e);
+            throw new IllegalStateException("Stage " + stage.getName() + " failed", e);
+        }
+        LOGGER.info("Stage {} finished in {} ms.", stage.getName(), System.currentTimeMillis() - start);
+
+        if (checkpointManager != null) {
+            checkpointManager.save(stages, index);
+        }
+    }
+
+    /**
+     * Computes for every stage the earlier stages it has to wait for.
+     */
+    private static List<List<Integer>> computeDependencies(List<PipelineStage> stages) {
+        List<List<Integer>> dependencies = new ArrayList<>(stages.size());
+        for (int i = 0; i < stages.size(); i++) {
+            PipelineStage stage = stages.get(i);
+            List<Integer> predecessors = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                PipelineStage earlier = stages.get(j);
+                boolean readAfterWrite = !Collections.disjoint(stage.getConsumes(), earlier.getProduces());
+                boolean writeAfterWrite = !Collections.disjoint(stage.getProduces(), earlier.getProduces());
+                boolean writeAfterRead = !Collections.disjoint(stage.getProduces(), earlier.getConsumes());
+                if (readAfterWrite || writeAfterWrite || writeAfterRead) {
+                    predecessors.add(j);
+                }
+            }
+            dependencies.add(Collections.unmodifiableList(predecessors));
+        }
+        return Collections.unmodifiableList(dependencies);
+    }
+
+    /**
+     * Marks stages that were not started because another stage failed.
+     */
+    private static final class CancellationMarker extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        CancellationMarker() {
+            super("Stage not started after an earlier failure", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package hagrid.utils.pipeline;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.function.Function;
+
+
+import hagrid.utils.general.HAGRIDSummary;
+
+/**
+ * Binary codec for the delivery summary.
+ */
+public class SummaryCodec extends BinaryElementCodec<HAGRIDSummary> {
+
+    @Override
+    protected int getVersion() {
+        return 1;
+    }
+
+    @Override
+    protected void writeElement(HAGRIDSummary summary, DataOutputStream out) throws IOException {
+        out.writeInt(summary.getTotalDeliveries());
+        out.writeInt(summary.getTotalB2BDeliveries());
+        out.writeInt(summary.getTotalParcels());
+        out.writeInt(summary.getTotalB2BParcels());
+        out.writeDouble(summary.getB2bDeliveryRatio());
+        out.writeDouble(summary.getB2bParcelRatio());
+        out.writeDouble(summary.getAverageWeight());
+        out.writeDouble(summary.getAverageB2BWeight());
+        out.writeInt(summary.getTotalLockerDeliveries());
+        out.writeInt(summary.getTotalLockerParcels());
+        out.writeDouble(summary.getLockerDeliveryRatio());
+        out.writeDouble(summary.getLockerParcelRatio());
+        out.writeInt(summary.getCorrectionFactor());
+    }
+
+    @Override
+    protected HAGRIDSummary readElement(DataInputStream in, Function<String, Object> elements)
+            throws IOException {
+        return HAGRIDSummary.builder()
+                .totalDeliveries(in.readInt())
+                .totalB2BDeliveries(in.readInt())
+                .totalParcels(in.readInt())
+                .totalB2BParcels(in.readInt())
+                .b2bDeliveryRatio(in.readDouble())
+                .b2bParcelRatio(in.readDouble())
+                .averageWeight(in.readDouble())
+                .averageB2BWeight(in.readDouble())
+                .totalLockerDeliveries(in.readInt())
+                .totalLockerParcels(in.readInt())
+                .lockerDeliveryRatio(in.readDouble())
+                .lockerParcelRatio(in.readDouble())
+                .correctionFactor(in.readInt())
+                .build();
+    }
+}
@@ -0,0 +1,117 @@
+package hagrid.utils.pipeline;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.function.Function;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.freight.carriers.CarrierVehicleTypes;
+import org.matsim.vehicles.CostInformation;
+import org.matsim.vehicles.VehicleCapacity;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleUtils;
+
+/**
+ * Binary codec for carrier vehicle types. Besides the properties of the types,
+ * the attributes of the types, their capacity, cost and engine information are
+ * stored, which hold the skills and the waiting and service costs.
+ */
+public class VehicleTypesCodec extends BinaryElementCodec<CarrierVehicleTypes> {
+
+    @Override
+    protected int getVersion() {
+        return 1;
+    }
+
+    @Override
+    protected void writeElement(CarrierVehicleTypes vehicleTypes, DataOutputStream out) throws IOException {
+        out.writeInt(vehicleTypes.getVehicleTypes().size());
+        for (VehicleType type : vehicleTypes.getVehicleTypes().values()) {
+            writeString(out, type.getId().toString());
+            writeString(out, type.getDescription());
+            writeString(out, type.getNetworkMode());
+            out.writeDouble(type.getMaximumVelocity());
+            out.writeDouble(type.getLength());
+            out.writeDouble(type.getWidth());
+            out.writeDouble(type.getPcuEquivalents());
+            out.writeDouble(type.getFlowEfficiencyFactor());
+            writeAttributes(out, type.getAttributes());
+
+            VehicleCapacity capacity = type.getCapacity();
+            writeInteger(out, capacity.getSeats());
+            writeInteger(out, capacity.getStandingRoom());
+            writeDouble(out, capacity.getVolumeInCubicMeters());
+            writeDouble(out, capacity.getWeightInTons());
+            writeDouble(out, capacity.getOther());
+            writeAttributes(out, capacity.getAttributes());
+
+            CostInformation costs = type.getCostInformation();
+            writeDouble(out, costs.getFixedCosts());
+            writeDouble(out, costs.getCostsPerMeter());
+            writeDouble(out, costs.getCostsPerSecond());
+            writeAttributes(out, costs.getAttributes());
+
+            writeAttributes(out, type.getEngineInformation().getAttributes());
+        }
+    }
+
+    @Override
+    protected CarrierVehicleTypes readElement(DataInputStream in, Function<String, Object> elements)
+            throws IOException {
+        CarrierVehicleTypes vehicleTypes = new CarrierVehicleTypes();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            VehicleType type = VehicleUtils.getFactory().createVehicleType(Id.create(readString(in),
+                    VehicleType.class));
+            type.setDescription(readString(in));
+            type.setNetworkMode(readString(in));
+            type.setMaximumVelocity(in.readDouble());
+            type.setLength(in.readDouble());
+            type.setWidth(in.readDouble());
+            type.setPcuEquivalents(in.readDouble());
+            type.setFlowEfficiencyFactor(in.readDouble());
+            readAttributes(in, type.getAttributes());
+
+            VehicleCapacity capacity = type.getCapacity();
+            capacity.setSeats(readInteger(in));
+            capacity.setStandingRoom(readInteger(in));
+            capacity.setVolumeInCubicMeters(readDouble(in));
+            capacity.setWeightInTons(readDouble(in));
+            capacity.setOther(readDouble(in));
+            readAttributes(in, capacity.getAttributes());
+
+            CostInformation costs = type.getCostInformation();
+            costs.setFixedCost(readDouble(in));
+            costs.setCostsPerMeter(readDouble(in));
+            costs.setCostsPerSecond(readDouble(in));
+            readAttributes(in, costs.getAttributes());
+
+            readAttributes(in, type.getEngineInformation().getAttributes());
+            vehicleTypes.getVehicleTypes().put(type.getId(), type);
+        }
+        return vehicleTypes;
+    }
+
+    private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readInteger(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    private static void writeDouble(DataOutputStream out, Double value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static Double readDouble(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readDouble() : null;
+    }
+}
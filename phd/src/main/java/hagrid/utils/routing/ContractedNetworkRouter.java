@@ -0,0 +1,111 @@
+package hagrid.utils.routing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.vehicles.Vehicle;
+
+import hagrid.utils.network.NetworkContraction;
+
+/**
+ * The ContractedNetworkRouter class computes least cost paths between nodes of
+ * an original network on its contracted copy, see {@link NetworkContraction},
+ * and returns them with the original nodes and links.
+ *
+ * Nodes that were contracted away are not part of the contracted network.
+ * Queries from or to such a node are answered by a calculator on the original
+ * network, which is created on the first such query. All other paths are equal
+ * to the paths on the original network, since a path between two kept nodes
+ * can only pass a contracted node by following its whole chain.
+ */
+class ContractedNetworkRouter implements LeastCostPathCalculator {
+
+    private final Network contracted;
+    private final Map<Id<Link>, Link[]> originalLinks;
+    private final LeastCostPathCalculator contractedRouter;
+    private final Supplier<LeastCostPathCalculator> originalRouterFactory;
+    private LeastCostPathCalculator originalRouter;
+
+    /**
+     * Constructs a ContractedNetworkRouter.
+     *
+     * @param contracted            The contracted network.
+     * @param originalLinks         The original links of every contracted link,
+     *                              from {@link #mapOriginalLinks(Network, Network)}.
+     * @param contractedRouter      The calculator on the contracted network.
+     * @param originalRouterFactory The factory of the calculator on the original
+     *                              network.
+     */
+    ContractedNetworkRouter(Network contracted, Map<Id<Link>, Link[]> originalLinks,
+            LeastCostPathCalculator contractedRouter, Supplier<LeastCostPathCalculator> originalRouterFactory) {
+        this.contracted = contracted;
+        this.originalLinks = originalLinks;
+        this.contractedRouter = contractedRouter;
+        this.originalRouterFactory = originalRouterFactory;
+    }
+
+    /**
+     * Maps the id of every link of a contracted network to its original links in
+     * driving order. The map is immutable after creation and can be shared by all
+     * calculators of a network.
+     *
+     * @param contracted The contracted network.
+     * @param original   The original network.
+     * @return The original links by contracted link id.
+     */
+    static Map<Id<Link>, Link[]> mapOriginalLinks(Network contracted, Network original) {
+        Map<Id<Link>, Link[]> originalLinks = new HashMap<>(contracted.getLinks().size() * 2);
+        for (Link link : contracted.getLinks().values()) {
+            List<Id<Link>> linkIds = NetworkContraction.getOriginalLinkIds(link);
+            Link[] links = new Link[linkIds.size()];
+            for (int i = 0; i < links.length; i++) {
+                links[i] = original.getLinks().get(linkIds.get(i));
+                if (links[i] == null) {
+                    throw new IllegalArgumentException(
+                            "Link " + linkIds.get(i) + " of contracted link " + link.getId()
+                                    + " is not part of the original network.");
+                }
+            }
+            originalLinks.put(link.getId(), links);
+        }
+        return originalLinks;
+    }
+
+    @Override
+    public Path calcLeastCostPath(Node fromNode, Node toNode, double starttime, Person person, Vehicle vehicle) {
+        Node from = contracted.getNodes().get(fromNode.getId());
+        Node to = contracted.getNodes().get(toNode.getId());
+        if (from == null || to == null) {
+            if (originalRouter == null) {
+                originalRouter = originalRouterFactory.get();
+            }
+            return originalRouter.calcLeastCostPath(fromNode, toNode, starttime, person, vehicle);
+        }
+        Path path = contractedRouter.calcLeastCostPath(from, to, starttime, person, vehicle);
+        if (path == null) {
+            return null;
+        }
+
+        List<Link> links = new ArrayList<>(path.links.size() * 2);
+        for (Link link : path.links) {
+            for (Link originalLink : originalLinks.get(link.getId())) {
+                links.add(originalLink);
+            }
+        }
+        List<Node> nodes = new ArrayList<>(links.size() + 1);
+        nodes.add(fromNode);
+        for (Link link : links) {
+            nodes.add(link.getToNode());
+        }
+        return new Path(nodes, links, path.travelTime, path.travelCost);
+    }
+}
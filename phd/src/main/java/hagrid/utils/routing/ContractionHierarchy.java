@@ -0,0 +1,830 @@
+package hagrid.utils.routing;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import hagrid.utils.network.IndexedNetwork;
+
+/**
+ * The ContractionHierarchy class answers shortest path queries on a network
+ * with a fixed metric, for example free speed travel times of one vehicle type.
+ *
+ * Preprocessing contracts the nodes one by one in the order of their
+ * importance and adds shortcuts for shortest paths that would otherwise run
+ * through contracted nodes. A query then runs a bidirectional Dijkstra search
+ * that only follows edges towards more important nodes, which settles a few
+ * hundred nodes instead of a large part of the network.
+ *
+ * Every edge stores the cost, travel time and distance of the path it
+ * represents, so queries return all three without unpacking shortcuts. Queries
+ * are thread-safe. The search states are pooled: a query borrows one and
+ * returns it afterwards, so at most as many states exist as queries ran at the
+ * same time, independent of the threads that ran them.
+ *
+ * Hierarchies can be stored in a file. A stored hierarchy is only used if it
+ * was built for the same network and metric.
+ */
+public class ContractionHierarchy {
+
+    private static final Logger LOGGER = LogManager.getLogger(ContractionHierarchy.class);
+
+    private static final int MAGIC = 0x48474348; // "HGCH"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /** Maximum number of nodes settled by a witness search. */
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    /**
+     * Maximum number of nodes settled by a witness search while estimating
+     * priorities, fewer found witnesses only overestimate the shortcuts.
+     */
+    private static final int PRIORITY_SETTLE_LIMIT = 50;
+
+    private final int nodeCount;
+    private final long checksum;
+
+    // Edges towards more important nodes, stored at their less important from node
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final double[] upCosts;
+    private final double[] upTimes;
+    private final double[] upDistances;
+
+    // Edges from more important nodes, stored at their less important to node
+    private final int[] downOffsets;
+    private final int[] downSources;
+    private final double[] downCosts;
+    private final double[] downTimes;
+    private final double[] downDistances;
+
+    private final ConcurrentLinkedQueue<Query> idleQueries = new ConcurrentLinkedQueue<>();
+
+    private ContractionHierarchy(int nodeCount, long checksum, int[] upOffsets, int[] upTargets, double[] upCosts,
+            double[] upTimes, double[] upDistances, int[] downOffsets, int[] downSources, double[] downCosts,
+            double[] downTimes, double[] downDistances) {
+        this.nodeCount = nodeCount;
+        this.checksum = checksum;
+        this.upOffsets = upOffsets;
+        this.upTargets = upTargets;
+        this.upCosts = upCosts;
+        this.upTimes = upTimes;
+        this.upDistances = upDistances;
+        this.downOffsets = downOffsets;
+        this.downSources = downSources;
+        this.downCosts = downCosts;
+        this.downTimes = downTimes;
+        this.downDistances = downDistances;
+    }
+
+    /**
+     * Returns the hierarchy of a network and metric, read from a file if one was
+     * stored for the same network and metric, and built and stored otherwise.
+     *
+     * @param network   The network.
+     * @param costs     The cost of every link index, must not be negative.
+     * @param times     The travel time of every link index.
+     * @param distances The distance of every link index.
+     * @param file      The file of the hierarchy, or null to not store it.
+     * @return The hierarchy.
+     */
+    public static ContractionHierarchy load(IndexedNetwork network, double[] costs, double[] times, double[] distances,
+            Path file) {
+        long checksum = checksum(network, costs, times, distances);
+        if (file != null && Files.isRegularFile(file)) {
+            try {
+                ContractionHierarchy hierarchy = read(file, checksum);
+                if (hierarchy != null) {
+                    LOGGER.info("Contraction hierarchy loaded from {}.", file);
+                    return hierarchy;
+                }
+                LOGGER.info("Contraction hierarchy {} belongs to another network or metric.", file);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Could not read contraction hierarchy " + file + ", building it.", e);
+            }
+        }
+
+        ContractionHierarchy hierarchy = build(network, costs, times, distances);
+        if (file != null) {
+            try {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+                Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(),
+                        file.getFileName().toString(), ".tmp");
+                hierarchy.write(temporary);
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                LOGGER.info("Contraction hierarchy written to {}.", file);
+            } catch (IOException e) {
+                LOGGER.warn("Could not write contraction hierarchy " + file, e);
+            }
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Builds the hierarchy of a network and metric.
+     *
+     * @param network   The network.
+     * @param costs     The cost of every link index, must not be negative.
+     * @param times     The travel time of every link index.
+     * @param distances The distance of every link index.
+     * @return The hierarchy.
+     */
+    public static ContractionHierarchy build(IndexedNetwork network, double[] costs, double[] times,
+            double[] distances) {
+        long start = System.currentTimeMillis();
+        Builder builder = new Builder(network, costs, times, distances);
+        builder.contractAll();
+        ContractionHierarchy hierarchy = builder.createHierarchy(checksum(network, costs, times, distances));
+        LOGGER.info("Contraction hierarchy with {} nodes, {} original edges and {} shortcuts built in {} ms.",
+                network.getNodeCount(), builder.originalEdges, builder.shortcuts,
+                System.currentTimeMillis() - start);
+        return hierarchy;
+    }
+
+    /**
+     * Computes the least cost path between two nodes.
+     *
+     * @param fromNode The index of the from node.
+     * @param toNode   The index of the to node.
+     * @return The cost, travel time and distance of the path, or null if the to
+     *         node cannot be reached.
+     */
+    public PathCosts route(int fromNode, int toNode) {
+        if (fromNode == toNode) {
+            return new PathCosts(0.0, 0.0, 0.0);
+        }
+        Query query = idleQueries.poll();
+        if (query == null) {
+            query = new Query(nodeCount);
+        }
+        try {
+            return query.run(fromNode, toNode);
+        } finally {
+            idleQueries.offer(query);
+        }
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Cost, travel time and distance of a path.
+     */
+    public static final class PathCosts {
+        public final double cost;
+        public final double time;
+        public final double distance;
+
+        PathCosts(double cost, double time, double distance) {
+            this.cost = cost;
+            this.time = time;
+            this.distance = distance;
+        }
+    }
+
+    /**
+     * Search state for bidirectional queries, used by one query at a time.
+     */
+    private final class Query {
+        private final double[] forwardCosts;
+        private final double[] forwardTimes;
+        private final double[] forwardDistances;
+        private final double[] backwardCosts;
+        private final double[] backwardTimes;
+        private final double[] backwardDistances;
+        private final NodeHeap forwardHeap = new NodeHeap();
+        private final NodeHeap backwardHeap = new NodeHeap();
+        private int[] touched = new int[64];
+        private int touchedCount;
+
+        Query(int nodeCount) {
+            forwardCosts = new double[nodeCount];
+            forwardTimes = new double[nodeCount];
+            forwardDistances = new double[nodeCount];
+            backwardCosts = new double[nodeCount];
+            backwardTimes = new double[nodeCount];
+            backwardDistances = new double[nodeCount];
+            Arrays.fill(forwardCosts, Double.POSITIVE_INFINITY);
+            Arrays.fill(backwardCosts, Double.POSITIVE_INFINITY);
+        }
+
+        PathCosts run(int fromNode, int toNode) {
+            try {
+                visit(fromNode);
+                forwardCosts[fromNode] = 0.0;
+                forwardTimes[fromNode] = 0.0;
+                forwardDistances[fromNode] = 0.0;
+                forwardHeap.push(fromNode, 0.0);
+                visit(toNode);
+                backwardCosts[toNode] = 0.0;
+                backwardTimes[toNode] = 0.0;
+                backwardDistances[toNode] = 0.0;
+                backwardHeap.push(toNode, 0.0);
+
+                double best = Double.POSITIVE_INFINITY;
+                int meeting = -1;
+                while (true) {
+                    boolean forward = !forwardHeap.isEmpty() && forwardHeap.peekKey() < best;
+                    boolean backward = !backwardHeap.isEmpty() && backwardHeap.peekKey() < best;
+                    if (!forward && !backward) {
+                        break;
+                    }
+                    if (forward) {
+                        double key = forwardHeap.peekKey();
+                        int node = forwardHeap.pop();
+                        if (key <= forwardCosts[node]) {
+                            double total = key + backwardCosts[node];
+                            if (total < best) {
+                                best = total;
+                                meeting = node;
+                            }
+                            if (!isStalled(node, downOffsets, downSources, downCosts, forwardCosts)) {
+                                    relax(node, upOffsets, upTargets, upCosts, upTimes, upDistances, forwardCosts,
+                                        forwardTimes, forwardDistances, forwardHeap);
+                            }
+                        }
+                    }
+                    if (backward) {
+                        double key = backwardHeap.peekKey();
+                        int node = backwardHeap.pop();
+                        if (key <= backwardCosts[node]) {
+                            double total = key + forwardCosts[node];
+                            if (total < best) {
+                                best = total;
+                                meeting = node;
+                            }
+                            if (!isStalled(node, upOffsets, upTargets, upCosts, backwardCosts)) {
+                                relax(node, downOffsets, downSources, downCosts, downTimes, downDistances,
+                                        backwardCosts, backwardTimes, backwardDistances, backwardHeap);
+                            }
+                        }
+                    }
+                }
+                if (meeting < 0) {
+                    return null;
+                }
+                return new PathCosts(best, forwardTimes[meeting] + backwardTimes[meeting],
+                        forwardDistances[meeting] + backwardDistances[meeting]);
+            } finally {
+                reset();
+            }
+        }
+
+        /**
+         * Stall on demand: a node need not be expanded if a more important node
+         * reached by the same search offers a cheaper way to it.
+         */
+        private boolean isStalled(int node, int[] offsets, int[] heads, double[] edgeCosts, double[] nodeCosts) {
+            for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                if (nodeCosts[heads[e]] + edgeCosts[e] < nodeCosts[node]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void relax(int node, int[] offsets, int[] heads, double[] edgeCosts, double[] edgeTimes,
+                double[] edgeDistances, double[] nodeCosts, double[] nodeTimes, double[] nodeDistances,
+                NodeHeap heap) {
+            for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                int head = heads[e];
+                double cost = nodeCosts[node] + edgeCosts[e];
+                if (cost < nodeCosts[head]) {
+                    if (forwardCosts[head] == Double.POSITIVE_INFINITY
+                            && backwardCosts[head] == Double.POSITIVE_INFINITY) {
+                        visit(head);
+                    }
+                    nodeCosts[head] = cost;
+                    nodeTimes[head] = nodeTimes[node] + edgeTimes[e];
+                    nodeDistances[head] = nodeDistances[node] + edgeDistances[e];
+                    heap.push(head, cost);
+                }
+            }
+        }
+
+        private void visit(int node) {
+            if (touchedCount == touched.length) {
+                touched = Arrays.copyOf(touched, touched.length * 2);
+            }
+            touched[touchedCount++] = node;
+        }
+
+        private void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                forwardCosts[touched[i]] = Double.POSITIVE_INFINITY;
+                backwardCosts[touched[i]] = Double.POSITIVE_INFINITY;
+            }
+            touchedCount = 0;
+            forwardHeap.clear();
+            backwardHeap.clear();
+        }
+    }
+
+    /**
+     * Binary min heap of node indices with lazy deletion, outdated entries are
+     * skipped by the searches.
+     */
+    private static final class NodeHeap {
+        private int[] nodes = new int[64];
+        private double[] keys = new double[64];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        double peekKey() {
+            return keys[0];
+        }
+
+        void push(int node, double key) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                keys[i] = keys[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            keys[i] = key;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            size--;
+            if (size > 0) {
+                int node = nodes[size];
+                double key = keys[size];
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && keys[child + 1] < keys[child]) {
+                        child++;
+                    }
+                    if (keys[child] >= key) {
+                        break;
+                    }
+                    nodes[i] = nodes[child];
+                    keys[i] = keys[child];
+                    i = child;
+                }
+                nodes[i] = node;
+                keys[i] = key;
+            }
+            return top;
+        }
+    }
+
+    /**
+     * Edge of the graph during preprocessing, either a link or a shortcut.
+     */
+    private static final class Edge {
+        final int from;
+        final int to;
+        double cost;
+        double time;
+        double distance;
+
+        Edge(int from, int to, double cost, double time, double distance) {
+            this.from = from;
+            this.to = to;
+            this.cost = cost;
+            this.time = time;
+            this.distance = distance;
+        }
+    }
+
+    /**
+     * Contracts the nodes of a network in the order of their edge difference.
+     */
+    private static final class Builder {
+        private final int nodeCount;
+        private final List<List<Edge>> outEdges;
+        private final List<List<Edge>> inEdges;
+        private final List<Edge> edges = new ArrayList<>();
+        private final int[] ranks;
+        private final int[] contractedNeighbours;
+        private final int[] depths;
+        private final double[] priorities;
+        private final boolean[] contracted;
+        private int originalEdges;
+        private int shortcuts;
+
+        // Witness search state
+        private final double[] witnessCosts;
+        private final int[] targetStamps;
+        private int witnessStamp;
+        private final NodeHeap witnessHeap = new NodeHeap();
+        private int[] witnessTouched = new int[64];
+        private int witnessTouchedCount;
+
+        Builder(IndexedNetwork network, double[] costs, double[] times, double[] distances) {
+            nodeCount = network.getNodeCount();
+            outEdges = new ArrayList<>(nodeCount);
+            inEdges = new ArrayList<>(nodeCount);
+            for (int n = 0; n < nodeCount; n++) {
+                outEdges.add(new ArrayList<>(4));
+                inEdges.add(new ArrayList<>(4));
+            }
+            ranks = new int[nodeCount];
+            contractedNeighbours = new int[nodeCount];
+            depths = new int[nodeCount];
+            priorities = new double[nodeCount];
+            contracted = new boolean[nodeCount];
+            witnessCosts = new double[nodeCount];
+            targetStamps = new int[nodeCount];
+            Arrays.fill(witnessCosts, Double.POSITIVE_INFINITY);
+
+            for (int l = 0; l < network.getLinkCount(); l++) {
+                if (costs[l] < 0.0) {
+                    throw new IllegalArgumentException("Negative cost of link " + network.getLink(l).getId());
+                }
+                int from = network.getFromNode(l);
+                int to = network.getToNode(l);
+                if (from != to && addOrImprove(from, to, costs[l], times[l], distances[l])) {
+                    originalEdges++;
+                }
+            }
+        }
+
+        /**
+         * Adds an edge or improves an existing parallel edge.
+         *
+         * @return True if a new edge was added.
+         */
+        private boolean addOrImprove(int from, int to, double cost, double time, double distance) {
+            for (Edge edge : outEdges.get(from)) {
+                if (edge.to == to) {
+                    if (cost < edge.cost || (cost == edge.cost && time < edge.time)) {
+                        edge.cost = cost;
+                        edge.time = time;
+                        edge.distance = distance;
+                    }
+                    return false;
+                }
+            }
+            Edge edge = new Edge(from, to, cost, time, distance);
+            outEdges.get(from).add(edge);
+            inEdges.get(to).add(edge);
+            edges.add(edge);
+            return true;
+        }
+
+        void contractAll() {
+            PriorityQueue<double[]> queue = new PriorityQueue<>(Math.max(1, nodeCount),
+                    (a, b) -> a[0] != b[0] ? Double.compare(a[0], b[0]) : Double.compare(a[1], b[1]));
+            for (int n = 0; n < nodeCount; n++) {
+                priorities[n] = priority(n);
+                queue.add(new double[] { priorities[n], n });
+            }
+
+            int rank = 0;
+            while (!queue.isEmpty()) {
+                double[] entry = queue.poll();
+                int node = (int) entry[1];
+                if (contracted[node] || entry[0] != priorities[node]) {
+                    // Outdated entry, the node was queued again with a new priority
+                    continue;
+                }
+                // Lazy update, the priority may have changed since the node was queued
+                double priority = priority(node);
+                if (!queue.isEmpty() && priority > queue.peek()[0]) {
+                    priorities[node] = priority;
+                    queue.add(new double[] { priority, node });
+                    continue;
+                }
+
+                List<Edge> neighbours = new ArrayList<>(inEdges.get(node));
+                neighbours.addAll(outEdges.get(node));
+                contract(node, false);
+                ranks[node] = rank++;
+                if (rank % 100000 == 0) {
+                    LOGGER.info("{} of {} nodes contracted.", rank, nodeCount);
+                }
+
+                // The priorities of the neighbours change with the contraction
+                for (Edge edge : neighbours) {
+                    int neighbour = edge.from == node ? edge.to : edge.from;
+                    if (!contracted[neighbour]) {
+                        depths[neighbour] = Math.max(depths[neighbour], depths[node] + 1);
+                        double neighbourPriority = priority(neighbour);
+                        if (neighbourPriority != priorities[neighbour]) {
+                            priorities[neighbour] = neighbourPriority;
+                            queue.add(new double[] { neighbourPriority, neighbour });
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Priority of a node, nodes with lower priority are contracted first. It
+         * prefers nodes that add few shortcuts, have few contracted neighbours and a
+         * low depth in the hierarchy, which keeps the searches small.
+         */
+        private double priority(int node) {
+            int removed = outEdges.get(node).size() + inEdges.get(node).size();
+            int added = contract(node, true);
+            return 2 * (added - removed) + contractedNeighbours[node] + depths[node];
+        }
+
+        /**
+         * Contracts a node or counts the shortcuts contracting it would need.
+         *
+         * @return The number of shortcuts.
+         */
+        private int contract(int node, boolean simulate) {
+            List<Edge> in = inEdges.get(node);
+            List<Edge> out = outEdges.get(node);
+            double maxOutCost = 0.0;
+            for (Edge edge : out) {
+                maxOutCost = Math.max(maxOutCost, edge.cost);
+            }
+
+            int count = 0;
+            List<Edge> newShortcuts = simulate ? null : new ArrayList<>();
+            for (Edge inEdge : in) {
+                if (out.isEmpty()) {
+                    break;
+                }
+                // The search ends when all out neighbours are settled
+                witnessStamp++;
+                int targets = 0;
+                for (Edge outEdge : out) {
+                    if (outEdge.to != inEdge.from && targetStamps[outEdge.to] != witnessStamp) {
+                        targetStamps[outEdge.to] = witnessStamp;
+                        targets++;
+                    }
+                }
+                witnessSearch(inEdge.from, node, inEdge.cost + maxOutCost, targets,
+                        simulate ? PRIORITY_SETTLE_LIMIT : WITNESS_SETTLE_LIMIT);
+                for (Edge outEdge : out) {
+                    if (outEdge.to == inEdge.from) {
+                        continue;
+                    }
+                    double cost = inEdge.cost + outEdge.cost;
+                    if (witnessCosts[outEdge.to] > cost) {
+                        count++;
+                        if (!simulate) {
+                            newShortcuts.add(new Edge(inEdge.from, outEdge.to, cost, inEdge.time + outEdge.time,
+                                    inEdge.distance + outEdge.distance));
+                        }
+                    }
+                }
+                resetWitnessSearch();
+            }
+            if (simulate) {
+                return count;
+            }
+
+            // Remove the node from the remaining graph
+            contracted[node] = true;
+            for (Edge edge : in) {
+                outEdges.get(edge.from).remove(edge);
+                contractedNeighbours[edge.from]++;
+            }
+            for (Edge edge : out) {
+                inEdges.get(edge.to).remove(edge);
+                contractedNeighbours[edge.to]++;
+            }
+            for (Edge shortcut : newShortcuts) {
+                if (addOrImprove(shortcut.from, shortcut.to, shortcut.cost, shortcut.time, shortcut.distance)) {
+                    shortcuts++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Computes the costs from a node to its neighbours without passing the node
+         * that is contracted, limited to a maximum cost and number of settled nodes.
+         * The search stops early once all target nodes are settled.
+         */
+        private void witnessSearch(int source, int excluded, double maxCost, int targets, int settleLimit) {
+            if (targets == 0) {
+                return;
+            }
+            witnessCosts[source] = 0.0;
+            witnessVisit(source);
+            witnessHeap.push(source, 0.0);
+            int settled = 0;
+            while (!witnessHeap.isEmpty() && settled < settleLimit) {
+                double key = witnessHeap.peekKey();
+                int node = witnessHeap.pop();
+                if (key > witnessCosts[node]) {
+                    continue;
+                }
+                if (key > maxCost) {
+                    break;
+                }
+                settled++;
+                if (targetStamps[node] == witnessStamp && --targets == 0) {
+                    break;
+                }
+                for (Edge edge : outEdges.get(node)) {
+                    if (edge.to == excluded || contracted[edge.to]) {
+                        continue;
+                    }
+                    double cost = key + edge.cost;
+                    if (cost < witnessCosts[edge.to]) {
+                        if (witnessCosts[edge.to] == Double.POSITIVE_INFINITY) {
+                            witnessVisit(edge.to);
+                        }
+                        witnessCosts[edge.to] = cost;
+                        witnessHeap.push(edge.to, cost);
+                    }
+                }
+            }
+        }
+
+        private void witnessVisit(int node) {
+            if (witnessTouchedCount == witnessTouched.length) {
+                witnessTouched = Arrays.copyOf(witnessTouched, witnessTouched.length * 2);
+            }
+            witnessTouched[witnessTouchedCount++] = node;
+        }
+
+        private void resetWitnessSearch() {
+            for (int i = 0; i < witnessTouchedCount; i++) {
+                witnessCosts[witnessTouched[i]] = Double.POSITIVE_INFINITY;
+            }
+            witnessTouchedCount = 0;
+            witnessHeap.clear();
+        }
+
+        ContractionHierarchy createHierarchy(long checksum) {
+            int[] upOffsets = new int[nodeCount + 1];
+            int[] downOffsets = new int[nodeCount + 1];
+            for (Edge edge : edges) {
+                if (ranks[edge.from] < ranks[edge.to]) {
+                    upOffsets[edge.from + 1]++;
+                } else {
+                    downOffsets[edge.to + 1]++;
+                }
+            }
+            for (int n = 0; n < nodeCount; n++) {
+                upOffsets[n + 1] += upOffsets[n];
+                downOffsets[n + 1] += downOffsets[n];
+            }
+
+            int ups = upOffsets[nodeCount];
+            int downs = downOffsets[nodeCount];
+            int[] upTargets = new int[ups];
+            double[] upCosts = new double[ups];
+            double[] upTimes = new double[ups];
+            double[] upDistances = new double[ups];
+            int[] downSources = new int[downs];
+            double[] downCosts = new double[downs];
+            double[] downTimes = new double[downs];
+            double[] downDistances = new double[downs];
+            int[] upNext = Arrays.copyOf(upOffsets, nodeCount);
+            int[] downNext = Arrays.copyOf(downOffsets, nodeCount);
+            for (Edge edge : edges) {
+                if (ranks[edge.from] < ranks[edge.to]) {
+                    int e = upNext[edge.from]++;
+                    upTargets[e] = edge.to;
+                    upCosts[e] = edge.cost;
+                    upTimes[e] = edge.time;
+                    upDistances[e] = edge.distance;
+                } else {
+                    int e = downNext[edge.to]++;
+                    downSources[e] = edge.from;
+                    downCosts[e] = edge.cost;
+                    downTimes[e] = edge.time;
+                    downDistances[e] = edge.distance;
+                }
+            }
+            return new ContractionHierarchy(nodeCount, checksum, upOffsets, upTargets, upCosts, upTimes,
+                    upDistances, downOffsets, downSources, downCosts, downTimes, downDistances);
+        }
+    }
+
+    /**
+     * Computes a checksum over the topology and the metric of a network.
+     */
+    private static long checksum(IndexedNetwork network, double[] costs, double[] times, double[] distances) {
+        long hash = 1125899906842597L;
+        hash = 31 * hash + network.getNodeCount();
+        hash = 31 * hash + network.getLinkCount();
+        for (int l = 0; l < network.getLinkCount(); l++) {
+            hash = 31 * hash + network.getFromNode(l);
+            hash = 31 * hash + network.getToNode(l);
+            hash = 31 * hash + Double.doubleToLongBits(costs[l]);
+            hash = 31 * hash + Double.doubleToLongBits(times[l]);
+            hash = 31 * hash + Double.doubleToLongBits(distances[l]);
+        }
+        return hash;
+    }
+
+    /**
+     * Writes the hierarchy to a file.
+     *
+     * @param file The file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(checksum);
+            out.writeInt(nodeCount);
+            out.writeInt(upTargets.length);
+            out.writeInt(downSources.length);
+            writeInts(out, upOffsets);
+            writeInts(out, upTargets);
+            writeDoubles(out, upCosts);
+            writeDoubles(out, upTimes);
+            writeDoubles(out, upDistances);
+            writeInts(out, downOffsets);
+            writeInts(out, downSources);
+            writeDoubles(out, downCosts);
+            writeDoubles(out, downTimes);
+            writeDoubles(out, downDistances);
+        }
+    }
+
+    /**
+     * Reads a hierarchy from a memory mapped file.
+     *
+     * @param file     The file.
+     * @param checksum The expected checksum of the network and metric.
+     * @return The hierarchy, or null if it belongs to another network or metric.
+     * @throws IOException If the file cannot be read or is not a hierarchy.
+     */
+    public static ContractionHierarchy read(Path file, long checksum) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a contraction hierarchy file: " + file);
+            }
+            if (buffer.getInt() != VERSION || buffer.getLong() != checksum) {
+                return null;
+            }
+            int nodeCount = buffer.getInt();
+            int ups = buffer.getInt();
+            int downs = buffer.getInt();
+            return new ContractionHierarchy(nodeCount, checksum, readInts(buffer, nodeCount + 1),
+                    readInts(buffer, ups), readDoubles(buffer, ups), readDoubles(buffer, ups),
+                    readDoubles(buffer, ups), readInts(buffer, nodeCount + 1), readInts(buffer, downs),
+                    readDoubles(buffer, downs), readDoubles(buffer, downs), readDoubles(buffer, downs));
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+        for (double value : values) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    private static double[] readDoubles(ByteBuffer buffer, int count) {
+        double[] values = new double[count];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + count * Double.BYTES);
+        return values;
+    }
+}
@@ -6,7 +6,17 @@ import com.graphhopper.jsprit.core.algorithm.listener.VehicleRoutingAlgorithmLis
 import com.graphhopper.jsprit.core.algorithm.state.StateManager;
 import com.graphhopper.jsprit.core.algorithm.state.UpdateEndLocationIfRouteIsOpen;
 import com.graphhopper.jsprit.core.algorithm.termination.IterationWithoutImprovementTermination;
+import com.graphhopper.jsprit.core.algorithm.termination.TimeTermination;
+import com.graphhopper.jsprit.core.algorithm.termination.VariationCoefficientTermination;
+import com.graphhopper.jsprit.core.problem.Location;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.util.Solutions;
 import com.graphhopper.jsprit.analysis.toolbox.StopWatch;
 
 import org.apache.logging.log4j.Logger;
@@ -26,6 +36,7 @@ import java.awt.BasicStroke;
 import java.awt.Color;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
@@ -39,6 +50,8 @@ public class HAGRIDRouterUtils {
 
     private static final Logger LOGGER = LogManager.getLogger(HAGRIDRouterUtils.class);
     private static final int MAX_DRIVE_DURATION = 8 * 3600; // example value, adjust as needed
+    private static final int VARIATION_COEFFICIENT_ITERATIONS = 20;
+    private static final String FIXED_ITERATIONS_SETTINGS = "fixedIterations";
 
     /**
      * Configures the routing algorithm.
@@ -48,6 +61,155 @@ public class HAGRIDRouterUtils {
      * @return The configured vehicle routing algorithm.
      */
     public static VehicleRoutingAlgorithm configureAlgorithm(VehicleRoutingProblem vrp, int serviceCount) {
+        VehicleRoutingAlgorithm algorithm = buildAlgorithm(vrp, serviceCount);
+
+        int iterations = serviceCount > 250 ? 20 : 40;
+        int termination = serviceCount > 250 ? 3 : 5;
+
+        algorithm.setMaxIterations(iterations);
+        algorithm.addTerminationCriterion(new IterationWithoutImprovementTermination(termination));
+        return algorithm;
+    }
+
+    /**
+     * Configures the routing algorithm with a time limit. The search stops when
+     * the time limit or the maximum number of iterations is reached, or when the
+     * variation coefficient of the recent solutions falls below the threshold.
+     *
+     * @param vrp                  The vehicle routing problem.
+     * @param serviceCount         The number of services.
+     * @param timeLimit            The time limit in milliseconds.
+     * @param maxIterations        The maximum number of iterations.
+     * @param variationCoefficient The variation coefficient threshold.
+     * @return The configured vehicle routing algorithm.
+     */
+    public static VehicleRoutingAlgorithm configureAlgorithm(VehicleRoutingProblem vrp, int serviceCount,
+            long timeLimit, int maxIterations, double variationCoefficient) {
+        VehicleRoutingAlgorithm algorithm = buildAlgorithm(vrp, serviceCount);
+
+        algorithm.setMaxIterations(maxIterations);
+        TimeTermination timeTermination = new TimeTermination(timeLimit);
+        algorithm.addTerminationCriterion(timeTermination);
+        algorithm.addListener(timeTermination);
+        VariationCoefficientTermination variationTermination = new VariationCoefficientTermination(
+                VARIATION_COEFFICIENT_ITERATIONS, variationCoefficient);
+        algorithm.addTerminationCriterion(variationTermination);
+        algorithm.addListener(variationTermination);
+        return algorithm;
+    }
+
+    /**
+     * Solves the routing problem of a carrier, with a time limit from the budget
+     * if one is given and with the fixed iteration counts otherwise. If a cache is
+     * given, the routes of an equal problem solved with the same settings are
+     * reused with their cost under the current objective, and new solutions are
+     * stored.
+     *
+     * @param vrp     The vehicle routing problem.
+     * @param carrier The carrier.
+     * @param budget  The routing budget, or null.
+     * @param cache   The solution cache, or null.
+     * @return The best solution.
+     */
+    public static VehicleRoutingProblemSolution solve(VehicleRoutingProblem vrp, Carrier carrier,
+            RoutingBudget budget, SolutionCache cache) {
+        SolutionCache.Fingerprint fingerprint = cache == null ? null
+                : SolutionCache.fingerprint(vrp, budget == null ? FIXED_ITERATIONS_SETTINGS : budget.getSettings());
+        if (fingerprint != null) {
+            VehicleRoutingProblemSolution cached = cache.get(vrp, fingerprint);
+            if (cached != null) {
+                // Only the routes are cached, the cost follows from the current objective
+                cached.setCost(getObjective(vrp, cached));
+                LOGGER.info("Reusing cached solution {} for carrier {}", fingerprint.getHash(), carrier.getId());
+                if (budget != null) {
+                    budget.completeCached(carrier, cached.getCost());
+                }
+                return cached;
+            }
+        }
+        VehicleRoutingProblemSolution solution = solve(vrp, carrier, budget);
+        if (fingerprint != null) {
+            cache.put(fingerprint, solution);
+        }
+        return solution;
+    }
+
+    private static VehicleRoutingProblemSolution solve(VehicleRoutingProblem vrp, Carrier carrier,
+            RoutingBudget budget) {
+        int serviceCount = carrier.getServices().size();
+        if (budget == null) {
+            return Solutions.bestOf(configureAlgorithm(vrp, serviceCount).searchSolutions());
+        }
+        long start = System.currentTimeMillis();
+        long timeLimit = budget.allocate(RoutingBudget.getSize(carrier));
+        VehicleRoutingAlgorithm algorithm = configureAlgorithm(vrp, serviceCount, timeLimit,
+                budget.getMaxIterations(), budget.getVariationCoefficient());
+        VehicleRoutingProblemSolution solution = Solutions.bestOf(algorithm.searchSolutions());
+        budget.complete(carrier, timeLimit, System.currentTimeMillis() - start, solution.getCost());
+        return solution;
+    }
+
+    /**
+     * Computes the objective of a solution as the default objective of jsprit
+     * does: the fixed costs of the vehicles, the transport and activity costs of
+     * the routes and a penalty per unassigned job, which grows with the priority
+     * of the job and the largest average transport cost between two jobs. The
+     * arrival and end times of the activities have to be set.
+     *
+     * @param vrp      The vehicle routing problem.
+     * @param solution The solution.
+     * @return The objective.
+     */
+    public static double getObjective(VehicleRoutingProblem vrp, VehicleRoutingProblemSolution solution) {
+        VehicleRoutingTransportCosts transportCosts = vrp.getTransportCosts();
+        double costs = 0.0;
+        for (VehicleRoute route : solution.getRoutes()) {
+            costs += route.getVehicle().getType().getVehicleCostParams().fix;
+            TourActivity previous = route.getStart();
+            for (TourActivity activity : route.getActivities()) {
+                costs += transportCosts.getTransportCost(previous.getLocation(), activity.getLocation(),
+                        previous.getEndTime(), route.getDriver(), route.getVehicle());
+                costs += vrp.getActivityCosts().getActivityCost(activity, activity.getArrTime(), route.getDriver(),
+                        route.getVehicle());
+                previous = activity;
+            }
+            costs += transportCosts.getTransportCost(previous.getLocation(), route.getEnd().getLocation(),
+                    previous.getEndTime(), route.getDriver(), route.getVehicle());
+        }
+        if (!solution.getUnassignedJobs().isEmpty()) {
+            double maxCosts = getMaxJobDistance(vrp);
+            for (Job job : solution.getUnassignedJobs()) {
+                costs += maxCosts * 2 * (11 - job.getPriority());
+            }
+        }
+        return costs;
+    }
+
+    /**
+     * Returns the largest average transport cost between the locations of two
+     * services, which jsprit uses to scale the penalty of unassigned jobs.
+     */
+    private static double getMaxJobDistance(VehicleRoutingProblem vrp) {
+        VehicleRoutingTransportCosts transportCosts = vrp.getTransportCosts();
+        List<Location> locations = new ArrayList<>();
+        for (Job job : vrp.getJobs().values()) {
+            if (job instanceof Service service) {
+                locations.add(service.getLocation());
+            }
+        }
+        double maxDistance = 0.0;
+        for (int i = 0; i < locations.size(); i++) {
+            for (int j = i + 1; j < locations.size(); j++) {
+                double distance = (transportCosts.getTransportCost(locations.get(i), locations.get(j), 0.0, null,
+                        null) + transportCosts.getTransportCost(locations.get(j), locations.get(i), 0.0, null, null))
+                        / 2.0;
+                maxDistance = Math.max(maxDistance, distance);
+            }
+        }
+        return maxDistance;
+    }
+
+    private static VehicleRoutingAlgorithm buildAlgorithm(VehicleRoutingProblem vrp, int serviceCount) {
         StateManager stateManager = new StateManager(vrp);
         stateManager.addStateUpdater(new UpdateEndLocationIfRouteIsOpen());
         stateManager.addStateUpdater(new UpdateDepartureTimeAndPracticalTimeWindows(stateManager,
@@ -72,11 +234,6 @@ public class HAGRIDRouterUtils {
                 .setProperty(Jsprit.Parameter.RANDOM_BEST_MAX_SHARE, String.valueOf(randomServicesReplanned))
                 .buildAlgorithm();
 
-        int iterations = serviceCount > 250 ? 20 : 40;
-        int termination = serviceCount > 250 ? 3 : 5;
-
-        algorithm.setMaxIterations(iterations);
-        algorithm.addTerminationCriterion(new IterationWithoutImprovementTermination(termination));
         algorithm.getAlgorithmListeners().addListener(new StopWatch(), VehicleRoutingAlgorithmListeners.Priority.HIGH);
         algorithm.addListener(new DepartureTimeReScheduler());
 
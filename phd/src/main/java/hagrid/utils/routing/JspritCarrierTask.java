@@ -1,9 +1,7 @@
 package hagrid.utils.routing;
 
-import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
 import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
-import com.graphhopper.jsprit.core.util.Solutions;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 import org.matsim.api.core.v01.network.Network;
@@ -24,6 +22,8 @@ public class JspritCarrierTask implements Runnable {
     private final AtomicInteger startedVRPCounter;
     private final int taskCount;
     private final Network network;
+    private final RoutingBudget routingBudget;
+    private final SolutionCache solutionCache;
 
     /**
      * Constructs a new JspritCarrierTask.
@@ -34,14 +34,19 @@ public class JspritCarrierTask implements Runnable {
      * @param startedVRPCounter  The counter for started VRP tasks.
      * @param taskCount          The total number of tasks.
      * @param network            The network.
+     * @param routingBudget      The routing budget, or null for fixed iteration counts.
+     * @param solutionCache      The solution cache, or null.
      */
     public JspritCarrierTask(Carrier carrier, VRPTransportCosts netBasedCosts,
-                             AtomicInteger startedVRPCounter, int taskCount, Network network) {
+                             AtomicInteger startedVRPCounter, int taskCount, Network network,
+                             RoutingBudget routingBudget, SolutionCache solutionCache) {
         this.carrier = carrier;
         this.netBasedCosts = netBasedCosts;
         this.startedVRPCounter = startedVRPCounter;
         this.taskCount = taskCount;
         this.network = network;
+        this.routingBudget = routingBudget;
+        this.solutionCache = solutionCache;
     }
 
     public int getPriority() {
@@ -57,9 +62,7 @@ public class JspritCarrierTask implements Runnable {
         int serviceCount = carrier.getServices().size();
 
         VehicleRoutingProblem vrp = HAGRIDRouterUtils.createRoutingProblem(carrier, network, netBasedCosts);
-        VehicleRoutingAlgorithm algorithm = HAGRIDRouterUtils.configureAlgorithm(vrp, serviceCount);
-
-        VehicleRoutingProblemSolution solution = Solutions.bestOf(algorithm.searchSolutions());
+        VehicleRoutingProblemSolution solution = HAGRIDRouterUtils.solve(vrp, carrier, routingBudget, solutionCache);
         CarrierPlan newPlan = MatsimJspritFactory.createPlan(carrier, solution);
 
         LOGGER.info("Routing plan for carrier {}", carrier.getId());
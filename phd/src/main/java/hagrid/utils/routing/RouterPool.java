@@ -0,0 +1,67 @@
+package hagrid.utils.routing;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import org.matsim.core.router.util.LeastCostPathCalculator;
+
+/**
+ * The RouterPool class is a bounded pool of least cost path calculators. A
+ * calculator is borrowed for a single query and returned afterwards, so the
+ * calculators are not bound to threads and are reused by any thread of any
+ * executor. At most as many calculators are created as are borrowed at the
+ * same time, and never more than the maximum size; further borrowers wait
+ * until a calculator is returned.
+ */
+class RouterPool {
+
+    private final Supplier<LeastCostPathCalculator> factory;
+    private final Semaphore permits;
+    private final ConcurrentLinkedQueue<LeastCostPathCalculator> idle = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructs a RouterPool.
+     *
+     * @param factory The factory creating new calculators.
+     * @param maxSize The maximum number of calculators.
+     */
+    RouterPool(Supplier<LeastCostPathCalculator> factory, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The router pool size must be positive, but is " + maxSize);
+        }
+        this.factory = factory;
+        this.permits = new Semaphore(maxSize);
+    }
+
+    /**
+     * Borrows a calculator, creating it if no idle calculator is available. The
+     * calculator must be returned with {@link #release(LeastCostPathCalculator)}.
+     *
+     * @return The calculator, used exclusively by the caller until it is
+     *         returned.
+     */
+    LeastCostPathCalculator borrow() {
+        permits.acquireUninterruptibly();
+        LeastCostPathCalculator router = idle.poll();
+        if (router == null) {
+            try {
+                router = factory.get();
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+        return router;
+    }
+
+    /**
+     * Returns a borrowed calculator to the pool.
+     *
+     * @param router The calculator.
+     */
+    void release(LeastCostPathCalculator router) {
+        idle.offer(router);
+        permits.release();
+    }
+}
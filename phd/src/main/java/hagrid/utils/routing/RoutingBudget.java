@@ -0,0 +1,149 @@
+package hagrid.utils.routing;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.freight.carriers.Carrier;
+
+/**
+ * The RoutingBudget class distributes a wall-clock time budget of a routing
+ * phase over the carriers, proportionally to their number of services and
+ * shipments.
+ *
+ * Carriers are solved in parallel, so the budget is converted into thread time
+ * for the given number of threads. A carrier reserves its share of the
+ * remaining time when its search starts and returns the unused part when it is
+ * finished, so time saved by carriers that converge early goes to the carriers
+ * routed later. No reservation exceeds the wall-clock time left since the
+ * first reservation, so a carrier holding a large share of all services cannot
+ * extend the phase beyond the budget. Carriers solved from a cache return their
+ * whole share. The achieved objective and the time spent are logged per carrier
+ * and in total.
+ */
+public class RoutingBudget {
+
+    private static final Logger LOGGER = LogManager.getLogger(RoutingBudget.class);
+
+    private final long budgetMillis;
+    private final int threads;
+    private final long wallClockMillis;
+    private final int maxIterations;
+    private final double variationCoefficient;
+    private long remainingMillis;
+    private long remainingSize;
+    private long spentMillis;
+    private double totalObjective;
+    private int carriers;
+    private long startMillis = -1;
+
+    /**
+     * Constructs a RoutingBudget.
+     *
+     * @param budgetSeconds        The wall-clock budget of the routing phase in
+     *                             seconds.
+     * @param threads              The number of carriers routed in parallel.
+     * @param totalSize            The total number of services and shipments of
+     *                             all carriers routed with this budget.
+     * @param maxIterations        The maximum number of iterations of a search.
+     * @param variationCoefficient The variation coefficient of the recent
+     *                             solutions below which a search stops.
+     */
+    public RoutingBudget(double budgetSeconds, int threads, long totalSize, int maxIterations,
+            double variationCoefficient) {
+        this.wallClockMillis = (long) (budgetSeconds * 1000.0);
+        this.budgetMillis = wallClockMillis * threads;
+        this.threads = threads;
+        this.maxIterations = maxIterations;
+        this.variationCoefficient = variationCoefficient;
+        this.remainingMillis = budgetMillis;
+        this.remainingSize = Math.max(1, totalSize);
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    public double getVariationCoefficient() {
+        return variationCoefficient;
+    }
+
+    /**
+     * Describes the settings that determine how long and how far a search runs,
+     * so solutions found with other settings can be told apart.
+     *
+     * @return The settings.
+     */
+    public String getSettings() {
+        return "budget=" + wallClockMillis + "ms,threads=" + threads + ",maxIterations=" + maxIterations
+                + ",variationCoefficient=" + variationCoefficient;
+    }
+
+    /**
+     * Returns the size of a carrier used to distribute the budget.
+     *
+     * @param carrier The carrier.
+     * @return The number of services and shipments.
+     */
+    public static int getSize(Carrier carrier) {
+        return carrier.getServices().size() + carrier.getShipments().size();
+    }
+
+    /**
+     * Reserves the time for the search of a carrier, at most the wall-clock time
+     * left of the budget.
+     *
+     * @param size The size of the carrier.
+     * @return The time limit of the search in milliseconds, at least 1.
+     */
+    public synchronized long allocate(int size) {
+        long now = System.currentTimeMillis();
+        if (startMillis < 0) {
+            startMillis = now;
+        }
+        long allocation = remainingSize <= size ? remainingMillis : remainingMillis * size / remainingSize;
+        allocation = Math.min(allocation, wallClockMillis - (now - startMillis));
+        allocation = Math.max(1, allocation);
+        remainingMillis -= allocation;
+        remainingSize = Math.max(1, remainingSize - size);
+        return allocation;
+    }
+
+    /**
+     * Returns the unused part of a reservation and reports the result of a
+     * carrier.
+     *
+     * @param carrier    The carrier.
+     * @param allocation The time limit returned by {@link #allocate(int)}.
+     * @param spent      The time spent in milliseconds.
+     * @param objective  The objective of the best solution.
+     */
+    public synchronized void complete(Carrier carrier, long allocation, long spent, double objective) {
+        remainingMillis += allocation - spent;
+        spentMillis += spent;
+        totalObjective += objective;
+        carriers++;
+        LOGGER.info("Carrier {} reached objective {} in {} of {} ms.", carrier.getId(), objective, spent,
+                allocation);
+    }
+
+    /**
+     * Reports a carrier whose solution was taken from a cache. Its share of the
+     * remaining time goes to the carriers routed later.
+     *
+     * @param carrier   The carrier.
+     * @param objective The objective of the cached solution.
+     */
+    public synchronized void completeCached(Carrier carrier, double objective) {
+        remainingSize = Math.max(1, remainingSize - getSize(carrier));
+        totalObjective += objective;
+        carriers++;
+        LOGGER.info("Carrier {} reached objective {} from the solution cache.", carrier.getId(), objective);
+    }
+
+    /**
+     * Logs the total objective and time of all completed carriers.
+     */
+    public synchronized void logSummary() {
+        LOGGER.info("Routing budget: {} carriers reached a total objective of {} in {} of {} ms thread time.",
+                carriers, totalObjective, spentMillis, budgetMillis);
+    }
+}
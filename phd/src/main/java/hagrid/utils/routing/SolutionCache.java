@@ -0,0 +1,489 @@
+package hagrid.utils.routing;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.graphhopper.jsprit.core.algorithm.state.UpdateActivityTimes;
+import com.graphhopper.jsprit.core.problem.Capacity;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.RouteActivityVisitor;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity.JobActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TimeWindow;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl.VehicleCostParams;
+
+import hagrid.utils.network.IndexedNetwork;
+
+/**
+ * The SolutionCache class stores the best jsprit solutions of routing problems,
+ * so carriers with the same problem are not solved again, within a run and, if
+ * a directory is given, across runs.
+ *
+ * A problem is identified by a fingerprint of the solver settings, of its
+ * services, vehicles, vehicle types and fleet size, and of the transport costs
+ * and times between its locations for each vehicle type, at the earliest
+ * departure and in the middle of the operating time of the type. Changes of
+ * the network or the travel times thereby change the fingerprint. With
+ * {@link ZoneBasedTransportCosts}, locations in different zones share the
+ * transport data of their zones, so it is queried once per pair of zones, and
+ * locations within a zone are only compared with the next location of the zone;
+ * otherwise all pairs of locations are queried. Ids are not part of the
+ * fingerprint: services and vehicles are ordered by their properties and
+ * solutions are stored by these positions, so carriers with equal problems
+ * share their solutions. Problems with other jobs than services are not cached.
+ *
+ * Only the routes and the objective they reached are stored, and a solution is
+ * replaced by a better one of the same problem. The cost of a restored solution
+ * is 0 and has to be computed with the current objective by the caller.
+ */
+public class SolutionCache {
+
+    private static final Logger LOGGER = LogManager.getLogger(SolutionCache.class);
+
+    private static final String FILE_SUFFIX = ".solution";
+    private static final String OBJECTIVE = "objective";
+
+    private final Path directory;
+    private final Map<String, List<String>> solutions = new ConcurrentHashMap<>();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * Constructs a SolutionCache.
+     *
+     * @param directory The directory to store the solutions in and read them
+     *                  from, or null to keep them in memory only.
+     */
+    public SolutionCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * The fingerprint of a routing problem with its services and vehicles in
+     * canonical order.
+     */
+    public static class Fingerprint {
+        private final String hash;
+        private final List<Service> services;
+        private final List<Vehicle> vehicles;
+
+        private Fingerprint(String hash, List<Service> services, List<Vehicle> vehicles) {
+            this.hash = hash;
+            this.services = services;
+            this.vehicles = vehicles;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+    }
+
+    /**
+     * Creates the fingerprint of a routing problem.
+     *
+     * @param vrp      The routing problem.
+     * @param settings The settings of the solver, such as its time budget and
+     *                 iterations.
+     * @return The fingerprint, or null if the problem cannot be cached.
+     */
+    public static Fingerprint fingerprint(VehicleRoutingProblem vrp, String settings) {
+        List<Service> services = new ArrayList<>(vrp.getJobs().size());
+        for (Job job : vrp.getJobs().values()) {
+            if (job.getClass() != Service.class) {
+                return null;
+            }
+            services.add((Service) job);
+        }
+        if (vrp.getVehicles().isEmpty()) {
+            return null;
+        }
+        Map<Service, String> serviceKeys = new IdentityHashMap<>();
+        for (Service service : services) {
+            serviceKeys.put(service, describe(service));
+        }
+        Map<Vehicle, String> vehicleKeys = new IdentityHashMap<>();
+        List<Vehicle> vehicles = new ArrayList<>(vrp.getVehicles());
+        for (Vehicle vehicle : vehicles) {
+            vehicleKeys.put(vehicle, describe(vehicle));
+        }
+        services.sort(Comparator.comparing(serviceKeys::get));
+        vehicles.sort(Comparator.comparing(vehicleKeys::get));
+
+        MessageDigest digest = sha256();
+        update(digest, settings);
+        update(digest, vrp.getFleetSize().toString());
+        update(digest, vrp.getTransportCosts().getClass().getName());
+        for (Vehicle vehicle : vehicles) {
+            update(digest, vehicleKeys.get(vehicle));
+        }
+        for (Service service : services) {
+            update(digest, serviceKeys.get(service));
+        }
+        updateMatrix(digest, vrp, services, vehicles);
+        return new Fingerprint(HexFormat.of().formatHex(digest.digest()), services, vehicles);
+    }
+
+    /**
+     * Adds the transport costs and times between the locations of the problem
+     * for the first vehicle of each type in canonical order. Pairs of locations
+     * in different zones are added once per pair of zones, and locations in the
+     * same zone only with the next location of the zone.
+     */
+    private static void updateMatrix(MessageDigest digest, VehicleRoutingProblem vrp, List<Service> services,
+            List<Vehicle> vehicles) {
+        Map<String, Location> locationsById = new TreeMap<>();
+        for (Service service : services) {
+            locationsById.putIfAbsent(service.getLocation().getId(), service.getLocation());
+        }
+        Map<String, Vehicle> vehiclesByType = new TreeMap<>();
+        for (Vehicle vehicle : vehicles) {
+            locationsById.putIfAbsent(vehicle.getStartLocation().getId(), vehicle.getStartLocation());
+            if (vehicle.getEndLocation() != null) {
+                locationsById.putIfAbsent(vehicle.getEndLocation().getId(), vehicle.getEndLocation());
+            }
+            vehiclesByType.putIfAbsent(vehicle.getType().getTypeId(), vehicle);
+        }
+        List<Location> locations = new ArrayList<>(locationsById.values());
+        int[] zones = getZones(vrp.getTransportCosts(), locations);
+        int[] nextInZone = getNextInZone(zones);
+
+        for (Vehicle vehicle : vehiclesByType.values()) {
+            for (double departureTime : getSampleTimes(vehicle)) {
+                Set<Long> zonePairs = new HashSet<>();
+                ByteBuffer buffer = ByteBuffer.allocate(2 * Double.BYTES);
+                for (int from = 0; from < locations.size(); from++) {
+                    for (int to = 0; to < locations.size(); to++) {
+                        if (zones[from] != IndexedNetwork.NO_ZONE && zones[to] != IndexedNetwork.NO_ZONE
+                                && (zones[from] == zones[to] ? nextInZone[from] != to
+                                        : !zonePairs.add(((long) zones[from] << 32) | (zones[to] & 0xffffffffL)))) {
+                            continue;
+                        }
+                        buffer.clear();
+                        buffer.putDouble(vrp.getTransportCosts().getTransportCost(locations.get(from),
+                                locations.get(to), departureTime, null, vehicle));
+                        buffer.putDouble(vrp.getTransportCosts().getTransportTime(locations.get(from),
+                                locations.get(to), departureTime, null, vehicle));
+                        digest.update(buffer.array());
+                    }
+                }
+            }
+        }
+    }
+
+    private static int[] getZones(VehicleRoutingTransportCosts transportCosts, List<Location> locations) {
+        int[] zones = new int[locations.size()];
+        for (int i = 0; i < zones.length; i++) {
+            zones[i] = transportCosts instanceof ZoneBasedTransportCosts zoneBasedCosts
+                    ? zoneBasedCosts.getZone(locations.get(i))
+                    : IndexedNetwork.NO_ZONE;
+        }
+        return zones;
+    }
+
+    /**
+     * Links the locations of each zone in a cycle.
+     */
+    private static int[] getNextInZone(int[] zones) {
+        int[] next = new int[zones.length];
+        Map<Integer, Integer> first = new HashMap<>();
+        Map<Integer, Integer> last = new HashMap<>();
+        for (int i = 0; i < zones.length; i++) {
+            next[i] = i;
+            if (zones[i] == IndexedNetwork.NO_ZONE) {
+                continue;
+            }
+            Integer previous = last.put(zones[i], i);
+            if (previous == null) {
+                first.put(zones[i], i);
+            } else {
+                next[previous] = i;
+            }
+        }
+        for (Map.Entry<Integer, Integer> entry : last.entrySet()) {
+            next[entry.getValue()] = first.get(entry.getKey());
+        }
+        return next;
+    }
+
+    private static double[] getSampleTimes(Vehicle vehicle) {
+        double earliest = vehicle.getEarliestDeparture();
+        double latest = vehicle.getLatestArrival();
+        if (latest >= Double.MAX_VALUE || latest <= earliest) {
+            return new double[] { earliest };
+        }
+        return new double[] { earliest, (earliest + latest) / 2.0 };
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+
+    private static String describe(Service service) {
+        StringBuilder key = new StringBuilder("S|");
+        key.append(describe(service.getLocation())).append('|');
+        key.append(describe(service.getSize())).append('|');
+        key.append(service.getServiceDuration()).append('|');
+        for (TimeWindow timeWindow : service.getTimeWindows()) {
+            key.append(timeWindow.getStart()).append('-').append(timeWindow.getEnd()).append(';');
+        }
+        key.append('|').append(new TreeSet<>(service.getRequiredSkills().values()));
+        key.append('|').append(service.getPriority());
+        return key.toString();
+    }
+
+    private static String describe(Vehicle vehicle) {
+        VehicleType type = vehicle.getType();
+        VehicleCostParams costs = type.getVehicleCostParams();
+        StringBuilder key = new StringBuilder("V|");
+        key.append(type.getTypeId()).append('|');
+        key.append(describe(type.getCapacityDimensions())).append('|');
+        key.append(costs.fix).append(',').append(costs.perDistanceUnit).append(',')
+                .append(costs.perTransportTimeUnit).append(',').append(costs.perWaitingTimeUnit).append(',')
+                .append(costs.perServiceTimeUnit).append('|');
+        key.append(type.getMaxVelocity()).append('|').append(type.getProfile()).append('|');
+        key.append(describe(vehicle.getStartLocation())).append('|');
+        key.append(describe(vehicle.getEndLocation())).append('|');
+        key.append(vehicle.getEarliestDeparture()).append('-').append(vehicle.getLatestArrival()).append('|');
+        key.append(vehicle.isReturnToDepot()).append('|');
+        key.append(new TreeSet<>(vehicle.getSkills().values()));
+        return key.toString();
+    }
+
+    private static String describe(Location location) {
+        return location == null ? "-" : location.getId();
+    }
+
+    private static String describe(Capacity capacity) {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < capacity.getNuOfDimensions(); i++) {
+            key.append(capacity.get(i)).append(',');
+        }
+        return key.toString();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    /**
+     * Returns the cached solution of a problem, built for the services and
+     * vehicles of the problem. The cost of the solution is not set.
+     *
+     * @param vrp         The routing problem.
+     * @param fingerprint The fingerprint of the problem.
+     * @return The solution, or null if none is cached.
+     */
+    public VehicleRoutingProblemSolution get(VehicleRoutingProblem vrp, Fingerprint fingerprint) {
+        List<String> lines = load(fingerprint.hash);
+        if (lines == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        try {
+            VehicleRoutingProblemSolution solution = decode(vrp, fingerprint, lines);
+            hits.incrementAndGet();
+            return solution;
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not use cached solution " + fingerprint.hash, e);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    private List<String> load(String hash) {
+        List<String> lines = solutions.get(hash);
+        if (lines == null && directory != null) {
+            Path file = directory.resolve(hash + FILE_SUFFIX);
+            if (Files.isRegularFile(file)) {
+                try {
+                    lines = solutions.computeIfAbsent(hash, key -> readLines(file));
+                } catch (UncheckedIOException e) {
+                    LOGGER.warn("Could not read cached solution " + file, e.getCause());
+                }
+            }
+        }
+        return lines;
+    }
+
+    private static List<String> readLines(Path file) {
+        try {
+            return Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Stores the solution of a problem, unless a solution with a lower or equal
+     * objective is stored already.
+     *
+     * @param fingerprint The fingerprint of the problem.
+     * @param solution    The solution.
+     */
+    public void put(Fingerprint fingerprint, VehicleRoutingProblemSolution solution) {
+        List<String> lines = encode(fingerprint, solution);
+        if (lines == null) {
+            return;
+        }
+        load(fingerprint.hash);
+        List<String> stored = solutions.merge(fingerprint.hash, lines,
+                (existing, candidate) -> getObjective(candidate) < getObjective(existing) ? candidate : existing);
+        if (stored != lines || directory == null) {
+            return;
+        }
+        Path file = directory.resolve(fingerprint.hash + FILE_SUFFIX);
+        try {
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, fingerprint.hash, ".tmp");
+            Files.write(temporary, lines, StandardCharsets.UTF_8);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Could not write cached solution " + file, e);
+        }
+    }
+
+    /**
+     * Encodes a solution by its objective and the canonical positions of its
+     * vehicles and services.
+     *
+     * @return The lines, or null if the solution contains other activities than
+     *         services.
+     */
+    private static List<String> encode(Fingerprint fingerprint, VehicleRoutingProblemSolution solution) {
+        Map<Object, Integer> serviceIndices = new IdentityHashMap<>();
+        for (int i = 0; i < fingerprint.services.size(); i++) {
+            serviceIndices.put(fingerprint.services.get(i), i);
+        }
+        Map<Object, Integer> vehicleIndices = new IdentityHashMap<>();
+        for (int i = 0; i < fingerprint.vehicles.size(); i++) {
+            vehicleIndices.put(fingerprint.vehicles.get(i), i);
+        }
+
+        List<String> lines = new ArrayList<>();
+        lines.add(OBJECTIVE + " " + solution.getCost());
+        for (VehicleRoute route : solution.getRoutes()) {
+            Integer vehicleIndex = vehicleIndices.get(route.getVehicle());
+            if (vehicleIndex == null) {
+                return null;
+            }
+            StringBuilder line = new StringBuilder("route ").append(vehicleIndex).append(' ')
+                    .append(route.getDepartureTime());
+            for (TourActivity activity : route.getActivities()) {
+                Integer serviceIndex = activity instanceof JobActivity jobActivity
+                        ? serviceIndices.get(jobActivity.getJob())
+                        : null;
+                if (serviceIndex == null) {
+                    return null;
+                }
+                line.append(' ').append(serviceIndex);
+            }
+            lines.add(line.toString());
+        }
+        StringBuilder unassigned = new StringBuilder("unassigned");
+        for (Job job : solution.getUnassignedJobs()) {
+            Integer serviceIndex = serviceIndices.get(job);
+            if (serviceIndex == null) {
+                return null;
+            }
+            unassigned.append(' ').append(serviceIndex);
+        }
+        lines.add(unassigned.toString());
+        return lines;
+    }
+
+    private static VehicleRoutingProblemSolution decode(VehicleRoutingProblem vrp, Fingerprint fingerprint,
+            List<String> lines) {
+        List<VehicleRoute> routes = new ArrayList<>();
+        Collection<Job> unassigned = new ArrayList<>();
+        RouteActivityVisitor activityTimes = new RouteActivityVisitor();
+        activityTimes.addActivityVisitor(new UpdateActivityTimes(vrp.getTransportCosts(), vrp.getActivityCosts()));
+        for (String line : lines) {
+            String[] fields = line.split(" ");
+            switch (fields[0]) {
+                case OBJECTIVE:
+                    break;
+                case "route":
+                    VehicleRoute.Builder builder = VehicleRoute.Builder
+                            .newInstance(fingerprint.vehicles.get(Integer.parseInt(fields[1])))
+                            .setJobActivityFactory(vrp.getJobActivityFactory())
+                            .setDepartureTime(Double.parseDouble(fields[2]));
+                    for (int i = 3; i < fields.length; i++) {
+                        builder.addService(fingerprint.services.get(Integer.parseInt(fields[i])));
+                    }
+                    VehicleRoute route = builder.build();
+                    activityTimes.visit(route);
+                    routes.add(route);
+                    break;
+                case "unassigned":
+                    for (int i = 1; i < fields.length; i++) {
+                        unassigned.add(fingerprint.services.get(Integer.parseInt(fields[i])));
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown line in cached solution: " + line);
+            }
+        }
+        return new VehicleRoutingProblemSolution(routes, unassigned, 0.0);
+    }
+
+    /**
+     * Returns the objective stored with the lines of a solution, or infinity for
+     * solutions stored without one.
+     */
+    private static double getObjective(List<String> lines) {
+        for (String line : lines) {
+            if (line.startsWith(OBJECTIVE + " ")) {
+                try {
+                    return Double.parseDouble(line.substring(OBJECTIVE.length() + 1));
+                } catch (NumberFormatException e) {
+                    return Double.POSITIVE_INFINITY;
+                }
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Logs the number of problems answered from the cache and solved again.
+     */
+    public void logStatistics() {
+        LOGGER.info("Solution cache: {} carriers reused, {} carriers solved.", hits.get(), misses.get());
+    }
+}
@@ -0,0 +1,117 @@
+package hagrid.utils.routing;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+import hagrid.utils.network.IndexedNetwork;
+
+/**
+ * The TravelTimeProfile class approximates a time dependent travel time, like
+ * the congested travel time of the simulation, by piecewise linear functions
+ * per link. The source travel time is sampled at breakpoints in a fixed
+ * interval and interpolated linearly between them, after the last breakpoint
+ * the last value is used.
+ *
+ * A link is sampled on its first request, so the profile reflects the source
+ * travel time at that moment, the same way the cost cache of
+ * {@link ZoneBasedTransportCosts} keeps the first computed value. When the
+ * source changes, e.g. after an iteration of the simulation, {@link #reset()}
+ * drops the samples so links are sampled again on their next request. Links
+ * whose travel time does not change over the day only store one value. The source
+ * is sampled without person and vehicle, links that are not part of the
+ * network view are passed to the source directly.
+ */
+public class TravelTimeProfile implements TravelTime {
+
+    private final IndexedNetwork indexedNetwork;
+    private final TravelTime source;
+    private final double interval;
+    private final int breakpoints;
+    private final AtomicReferenceArray<double[]> profiles;
+
+    /**
+     * Constructs a TravelTimeProfile.
+     *
+     * @param indexedNetwork The view of the network the links belong to.
+     * @param source     The travel time to approximate.
+     * @param interval   The interval between breakpoints in seconds.
+     * @param endTime    The time of the last breakpoint in seconds.
+     */
+    public TravelTimeProfile(IndexedNetwork indexedNetwork, TravelTime source, double interval, double endTime) {
+        if (interval <= 0.0) {
+            throw new IllegalArgumentException("The profile interval must be positive, but is " + interval);
+        }
+        this.indexedNetwork = indexedNetwork;
+        this.source = source;
+        this.interval = interval;
+        this.breakpoints = (int) Math.ceil(endTime / interval) + 1;
+        this.profiles = new AtomicReferenceArray<>(indexedNetwork.getLinkCount());
+    }
+
+    @Override
+    public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+        int linkIndex = indexedNetwork.getLinkIndex(link);
+        if (linkIndex < 0) {
+            return source.getLinkTravelTime(link, time, person, vehicle);
+        }
+        double[] profile = profiles.get(linkIndex);
+        if (profile == null) {
+            profile = sample(link);
+            // Concurrent samples of a link are equal, the first one is kept
+            if (!profiles.compareAndSet(linkIndex, null, profile)) {
+                profile = profiles.get(linkIndex);
+            }
+        }
+        return interpolate(profile, time, interval);
+    }
+
+    /**
+     * Drops all sampled profiles. Must not be called while travel times are
+     * requested.
+     */
+    public void reset() {
+        for (int i = 0; i < profiles.length(); i++) {
+            profiles.set(i, null);
+        }
+    }
+
+    private double[] sample(Link link) {
+        double[] values = new double[breakpoints];
+        boolean constant = true;
+        for (int i = 0; i < breakpoints; i++) {
+            values[i] = source.getLinkTravelTime(link, i * interval, null, null);
+            constant &= values[i] == values[0];
+        }
+        return constant ? new double[] { values[0] } : values;
+    }
+
+    /**
+     * Interpolates a piecewise linear function with breakpoints in a fixed
+     * interval starting at time 0.
+     *
+     * @param values   The values at the breakpoints.
+     * @param time     The time.
+     * @param interval The interval between breakpoints.
+     * @return The interpolated value.
+     */
+    static double interpolate(double[] values, double time, double interval) {
+        if (values.length == 1 || time <= 0.0) {
+            return values[0];
+        }
+        double position = time / interval;
+        int index = (int) position;
+        if (index >= values.length - 1) {
+            return values[values.length - 1];
+        }
+        double fraction = position - index;
+        return values[index] + fraction * (values[index + 1] - values[index]);
+    }
+
+    public double getInterval() {
+        return interval;
+    }
+}
@@ -23,6 +23,7 @@ import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.router.speedy.SpeedyALTFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
@@ -40,8 +41,16 @@ import org.matsim.utils.objectattributes.attributable.AttributesImpl;
 import org.matsim.vehicles.VehicleType;
 import org.matsim.vehicles.VehicleUtils;
 
+import hagrid.utils.network.IndexedNetwork;
+import hagrid.utils.network.NetworkContraction;
+
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.DoubleFunction;
 
 /**
  * This calculates transport-times, transport-costs and the distance to cover
@@ -51,10 +60,11 @@ import java.util.concurrent.ConcurrentHashMap;
  * and the fromLink and not the toLink.
  *
  * <p>
- * It can be used with multiple threads. Note that each thread gets its own
- * leastCostPathCalculator. It is created only once and cached afterwards. Thus
- * it requires a threadSafe leastCostPathCalculatorFactory (the calculator
- * itself does not need to be thread-safe).
+ * It can be used with multiple threads. Note that each query borrows a
+ * leastCostPathCalculator from a bounded pool and returns it afterwards, so
+ * calculators are reused across threads and executors. Thus it requires a
+ * threadSafe leastCostPathCalculatorFactory (the calculator itself does not
+ * need to be thread-safe).
  *
  * <p>
  * If the client of this class requests cost-information to get from
@@ -103,14 +113,37 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 
 		private final Attributes attributes = new AttributesImpl();
 
+		/**
+		 * the index of the type in the {@link VehicleTypeIndex}, or -1 if unknown
+		 */
+		final int typeIndex;
+
+		/**
+		 * the mask of the network mode in the {@link IndexedNetwork} of the transport
+		 * costs, only valid if the typeIndex is known
+		 */
+		final long modeMask;
+
 		public MatsimVehicleWrapper(com.graphhopper.jsprit.core.problem.vehicle.Vehicle vehicle) {
 			this.id = Id.create(vehicle.getId(), org.matsim.vehicles.Vehicle.class);
 			this.type = makeType(vehicle.getType().getTypeId(), vehicle.getType().getMaxVelocity());
+			this.typeIndex = -1;
+			this.modeMask = 0L;
 		}
 
 		public MatsimVehicleWrapper(CarrierVehicle vehicle) {
 			this.id = vehicle.getId();
 			this.type = vehicle.getType();
+			this.typeIndex = -1;
+			this.modeMask = 0L;
+		}
+
+		MatsimVehicleWrapper(com.graphhopper.jsprit.core.problem.vehicle.Vehicle vehicle,
+				VehicleTypeIndex vehicleTypeIndex, IndexedNetwork indexedNetwork) {
+			this.id = Id.create(vehicle.getId(), org.matsim.vehicles.Vehicle.class);
+			this.type = makeType(vehicle.getType().getTypeId(), vehicle.getType().getMaxVelocity());
+			this.typeIndex = vehicleTypeIndex.getIndex(vehicle.getType().getTypeId());
+			this.modeMask = indexedNetwork.getModeMask(type.getNetworkMode());
 		}
 
 		private org.matsim.vehicles.VehicleType makeType(String typeId, double maxVelocity) {
@@ -244,6 +277,53 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 
 	}
 
+	/**
+	 * Stores the transport data of a relation at breakpoints in a fixed interval
+	 * of departure times. Breakpoints are computed on first use, values between
+	 * them are interpolated linearly. Departure times outside of the profile, like
+	 * the open latest arrival of jsprit's backward calls, use the first or last
+	 * breakpoint.
+	 */
+	static class TransportDataProfile {
+		private double[] costs = new double[0];
+		private double[] times = new double[0];
+		private double[] distances = new double[0];
+		private boolean[] computed = new boolean[0];
+
+		synchronized TransportData get(double departureTime, double interval, int lastBreakpoint,
+				DoubleFunction<TransportData> calculator) {
+			double position = Math.min(Math.max(0.0, departureTime / interval), lastBreakpoint);
+			int index = (int) position;
+			ensureBreakpoint(index, interval, lastBreakpoint, calculator);
+			if (index == lastBreakpoint) {
+				return new TransportData(costs[index], times[index], distances[index]);
+			}
+			ensureBreakpoint(index + 1, interval, lastBreakpoint, calculator);
+			double fraction = position - index;
+			return new TransportData(costs[index] + fraction * (costs[index + 1] - costs[index]),
+					times[index] + fraction * (times[index + 1] - times[index]),
+					distances[index] + fraction * (distances[index + 1] - distances[index]));
+		}
+
+		private void ensureBreakpoint(int index, double interval, int lastBreakpoint,
+				DoubleFunction<TransportData> calculator) {
+			if (index >= computed.length) {
+				int length = Math.min(Math.max(index + 1, computed.length * 2), lastBreakpoint + 1);
+				costs = Arrays.copyOf(costs, length);
+				times = Arrays.copyOf(times, length);
+				distances = Arrays.copyOf(distances, length);
+				computed = Arrays.copyOf(computed, length);
+			}
+			if (!computed[index]) {
+				TransportData data = calculator.apply(index * interval);
+				costs[index] = data.transportCosts;
+				times[index] = data.transportTime;
+				distances[index] = data.transportDistance;
+				computed[index] = true;
+			}
+		}
+	}
+
 	/**
 	 * Calculates vehicle-type-dependent travelDisutility per link.
 	 *
@@ -260,34 +340,39 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 
 		private final TravelTime travelTime;
 
-		private Map<String, VehicleTypeVarCosts> typeSpecificCosts = new HashMap<String, ZoneBasedTransportCosts.VehicleTypeVarCosts>();
+		private final VehicleTypeIndex vehicleTypeIndex;
 
 		/**
 		 * Constructs travelDisutility according to the builder.
 		 *
 		 */
-		private BaseVehicleTransportCosts(Map<String, VehicleTypeVarCosts> typeSpecificCosts, TravelTime travelTime) {
+		private BaseVehicleTransportCosts(VehicleTypeIndex vehicleTypeIndex, TravelTime travelTime) {
 			this.travelTime = travelTime;
-			this.typeSpecificCosts = typeSpecificCosts;
+			this.vehicleTypeIndex = vehicleTypeIndex;
 		}
 
 		@Override
 		public double getLinkTravelDisutility(Link link, double time, Person person,
 				org.matsim.vehicles.Vehicle vehicle) {
-			VehicleTypeVarCosts typeCosts = typeSpecificCosts.get(vehicle.getType().getId().toString());
-			if (typeCosts == null)
+			int typeIndex = vehicle instanceof MatsimVehicleWrapper wrapper ? wrapper.typeIndex : -1;
+			if (typeIndex < 0) {
+				typeIndex = vehicleTypeIndex.getIndex(vehicle.getType().getId().toString());
+			}
+			if (typeIndex < 0)
 				throw new IllegalStateException(
 						"type specific costs for " + vehicle.getType().getId().toString() + " are missing.");
 			double tt = travelTime.getLinkTravelTime(link, time, person, vehicle);
-			return typeCosts.perMeter * link.getLength() + typeCosts.perSecond * tt;
+			return vehicleTypeIndex.getPerMeter(typeIndex) * link.getLength()
+					+ vehicleTypeIndex.getPerSecond(typeIndex) * tt;
 		}
 
 		@Override
 		public double getLinkMinimumTravelDisutility(Link link) {
 			double minDisutility = Double.MAX_VALUE;
 			double free_tt = link.getLength() / link.getFreespeed();
-			for (VehicleTypeVarCosts c : typeSpecificCosts.values()) {
-				double disu = c.perMeter * link.getLength() + c.perSecond * free_tt;
+			for (int t = 0; t < vehicleTypeIndex.size(); t++) {
+				double disu = vehicleTypeIndex.getPerMeter(t) * link.getLength()
+						+ vehicleTypeIndex.getPerSecond(t) * free_tt;
 				if (disu < minDisutility)
 					minDisutility = disu;
 			}
@@ -296,6 +381,54 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 
 	}
 
+	/**
+	 * Immutable index of the vehicle types with type specific costs. Each type id
+	 * gets a dense index, and the costs per meter and per second are stored in
+	 * arrays, so the travel disutility of a link is evaluated without looking up
+	 * the type id. It is created once by the builder and shared by all threads.
+	 */
+	static class VehicleTypeIndex {
+
+		private final Map<String, Integer> indices;
+
+		private final double[] perMeter;
+
+		private final double[] perSecond;
+
+		private VehicleTypeIndex(Map<String, VehicleTypeVarCosts> typeSpecificCosts) {
+			Map<String, Integer> indices = new HashMap<String, Integer>();
+			this.perMeter = new double[typeSpecificCosts.size()];
+			this.perSecond = new double[typeSpecificCosts.size()];
+			for (Map.Entry<String, VehicleTypeVarCosts> entry : typeSpecificCosts.entrySet()) {
+				int index = indices.size();
+				indices.put(entry.getKey(), index);
+				perMeter[index] = entry.getValue().perMeter;
+				perSecond[index] = entry.getValue().perSecond;
+			}
+			this.indices = Map.copyOf(indices);
+		}
+
+		/**
+		 * @return the index of the type, or -1 if it has no type specific costs
+		 */
+		int getIndex(String typeId) {
+			Integer index = indices.get(typeId);
+			return index == null ? -1 : index;
+		}
+
+		int size() {
+			return perMeter.length;
+		}
+
+		double getPerMeter(int typeIndex) {
+			return perMeter[typeIndex];
+		}
+
+		double getPerSecond(int typeIndex) {
+			return perSecond[typeIndex];
+		}
+	}
+
 	private static class VehicleTypeVarCosts {
 		final double perMeter;
 		final double perSecond;
@@ -307,6 +440,134 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 		}
 	}
 
+	/**
+	 * Travel disutility and travel time of a static travel time, precomputed per
+	 * vehicle type and link. The table of a vehicle type is filled on its first
+	 * request with the vehicle of that request, afterwards a link costs two array
+	 * reads. Values are stored as float to halve the memory of the tables.
+	 * Vehicles without type index and links that are not part of the network view
+	 * are passed to the source disutility and travel time.
+	 */
+	static class PrecomputedLinkCosts implements TravelDisutility, TravelTime {
+
+		private final IndexedNetwork indexedNetwork;
+
+		private final VehicleTypeIndex vehicleTypeIndex;
+
+		private final TravelDisutility sourceDisutility;
+
+		private final TravelTime sourceTravelTime;
+
+		private final AtomicReferenceArray<float[]> costs;
+
+		private final AtomicReferenceArray<float[]> times;
+
+		PrecomputedLinkCosts(IndexedNetwork indexedNetwork, VehicleTypeIndex vehicleTypeIndex,
+				TravelDisutility sourceDisutility, TravelTime sourceTravelTime) {
+			this.indexedNetwork = indexedNetwork;
+			this.vehicleTypeIndex = vehicleTypeIndex;
+			this.sourceDisutility = sourceDisutility;
+			this.sourceTravelTime = sourceTravelTime;
+			this.costs = new AtomicReferenceArray<float[]>(vehicleTypeIndex.size());
+			this.times = new AtomicReferenceArray<float[]>(vehicleTypeIndex.size());
+		}
+
+		@Override
+		public double getLinkTravelDisutility(Link link, double time, Person person,
+				org.matsim.vehicles.Vehicle vehicle) {
+			int linkIndex = indexedNetwork.getLinkIndex(link);
+			if (linkIndex < 0 || !(vehicle instanceof MatsimVehicleWrapper wrapper) || wrapper.typeIndex < 0) {
+				return sourceDisutility.getLinkTravelDisutility(link, time, person, vehicle);
+			}
+			float[] typeCosts = costs.get(wrapper.typeIndex);
+			if (typeCosts == null) {
+				typeCosts = fill(wrapper);
+			}
+			return typeCosts[linkIndex];
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(Link link) {
+			return sourceDisutility.getLinkMinimumTravelDisutility(link);
+		}
+
+		@Override
+		public double getLinkTravelTime(Link link, double time, Person person, org.matsim.vehicles.Vehicle vehicle) {
+			int linkIndex = indexedNetwork.getLinkIndex(link);
+			if (linkIndex < 0 || !(vehicle instanceof MatsimVehicleWrapper wrapper) || wrapper.typeIndex < 0) {
+				return sourceTravelTime.getLinkTravelTime(link, time, person, vehicle);
+			}
+			float[] typeTimes = times.get(wrapper.typeIndex);
+			if (typeTimes == null) {
+				fill(wrapper);
+				typeTimes = times.get(wrapper.typeIndex);
+			}
+			return typeTimes[linkIndex];
+		}
+
+		/**
+		 * Fills the tables of the type of a vehicle. Concurrent fills compute equal
+		 * tables, the first one is kept.
+		 */
+		private float[] fill(MatsimVehicleWrapper vehicle) {
+			int linkCount = indexedNetwork.getLinkCount();
+			float[] typeCosts = new float[linkCount];
+			float[] typeTimes = new float[linkCount];
+			for (int l = 0; l < linkCount; l++) {
+				Link link = indexedNetwork.getLink(l);
+				typeCosts[l] = (float) sourceDisutility.getLinkTravelDisutility(link, 0.0, null, vehicle);
+				typeTimes[l] = (float) sourceTravelTime.getLinkTravelTime(link, 0.0, null, vehicle);
+			}
+			// Times first, so that the costs of a type are only visible with its times
+			times.compareAndSet(vehicle.typeIndex, null, typeTimes);
+			costs.compareAndSet(vehicle.typeIndex, null, typeCosts);
+			return costs.get(vehicle.typeIndex);
+		}
+	}
+
+	/**
+	 * Free speed travel time limited by the maximum velocity of the vehicle. Links
+	 * that do not allow the network mode of the vehicle get a prohibitive travel
+	 * time. The mode check uses the mode masks of the {@link IndexedNetwork}.
+	 */
+	static class ModeRestrictedFreespeedTravelTime implements TravelTime {
+
+		private final IndexedNetwork indexedNetwork;
+
+		ModeRestrictedFreespeedTravelTime(IndexedNetwork indexedNetwork) {
+			this.indexedNetwork = indexedNetwork;
+		}
+
+		@Override
+		public double getLinkTravelTime(Link link, double time, Person person,
+				org.matsim.vehicles.Vehicle vehicle) {
+			double velocity;
+			if (vehicle.getType().getMaximumVelocity() < link.getFreespeed(time)) {
+				velocity = vehicle.getType().getMaximumVelocity();
+			} else
+				velocity = link.getFreespeed(time);
+			if (velocity <= 0.0)
+				throw new IllegalStateException("velocity must be bigger than zero");
+
+			String mode = vehicle.getType().getNetworkMode();
+			int linkIndex = indexedNetwork.getLinkIndex(link);
+			boolean allowed;
+			if (linkIndex < 0) {
+				allowed = link.getAllowedModes().contains(mode);
+			} else if (vehicle instanceof MatsimVehicleWrapper wrapper && wrapper.typeIndex >= 0) {
+				allowed = indexedNetwork.allowsMode(linkIndex, wrapper.modeMask);
+			} else {
+				allowed = indexedNetwork.allowsMode(linkIndex, indexedNetwork.getModeMask(mode));
+			}
+
+			if (allowed) {
+				return link.getLength() / Math.min(velocity, link.getFreespeed());
+			} else {
+				return link.getLength() / 0.001;
+			}
+		}
+	}
+
 	/**
 	 * Calculates disutilites including toll.
 	 *
@@ -358,32 +619,11 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 
 		/**
 		 * By default it takes <code>link.getFreespeed(time);</code> to calculate the
-		 * travelTime over that link.
+		 * travelTime over that link, see {@link ModeRestrictedFreespeedTravelTime}.
 		 */
-		private TravelTime travelTime = new TravelTime() {
+		private TravelTime travelTime;
 
-			@Override
-			public double getLinkTravelTime(Link link, double time, Person person,
-					org.matsim.vehicles.Vehicle vehicle) {
-				double velocity;
-				if (vehicle.getType().getMaximumVelocity() < link.getFreespeed(time)) {
-					velocity = vehicle.getType().getMaximumVelocity();
-				} else
-					velocity = link.getFreespeed(time);
-				if (velocity <= 0.0)
-					throw new IllegalStateException("velocity must be bigger than zero");
-				
-				String mode = vehicle.getType().getNetworkMode();
-				
-		        if(link.getAllowedModes().contains(mode)){
-		            return link.getLength()/Math.min(velocity, link.getFreespeed());
-		        } else {
-		            return link.getLength()/0.001;
-		        }
-				
-//				return link.getLength() / velocity;
-			}
-		};
+		private IndexedNetwork indexedNetwork;
 
 		private TravelDisutility baseDisutility;
 
@@ -408,8 +648,27 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 
 		private final Map<String, VehicleTypeVarCosts> typeSpecificCosts = new HashMap<String, ZoneBasedTransportCosts.VehicleTypeVarCosts>();
 
+		private VehicleTypeIndex vehicleTypeIndex;
+
 		private boolean isFIFO = false;
 
+		private boolean precomputedLinkCosts = false;
+
+		private boolean contractionHierarchies = false;
+
+		private double profileInterval = 0.0;
+		private double profileEndTime = 0.0;
+
+		private int maxRouters = Runtime.getRuntime().availableProcessors();
+
+		private String contractionHierarchyDirectory;
+
+		private Set<Id<Link>> contractionKeptLinks;
+
+		private Network contractedNetwork;
+
+		private Map<Id<Link>, Link[]> originalLinks;
+
 		private final String defaultTypeId = UUID.randomUUID().toString();
 
 		/**
@@ -495,6 +754,108 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 			return this;
 		}
 
+		/**
+		 * Sets the indexed view of the network used for link lookups, zones and mode
+		 * checks. By default a view of the network is created.
+		 */
+		public Builder setIndexedNetwork(IndexedNetwork indexedNetwork) {
+			this.indexedNetwork = indexedNetwork;
+			return this;
+		}
+
+		/**
+		 * Enables the profile mode. Instead of routing each relation once per
+		 * time-bin, transport data are computed at departure times in the given
+		 * interval and interpolated linearly between them. The cache then holds one
+		 * profile per relation and vehicle type, and the time-bin width is not used.
+		 * <p>
+		 * Combine this with a {@link TravelTimeProfile} to also interpolate the
+		 * travel times of the links.
+		 *
+		 * @param profileInterval the interval between breakpoints in seconds, or 0
+		 *                        to use time-bins
+		 * @param profileEndTime  the time of the last breakpoint in seconds, later
+		 *                        departures use the last breakpoint
+		 * @return this builder
+		 */
+		public Builder setTravelTimeProfiles(double profileInterval, double profileEndTime) {
+			this.profileInterval = profileInterval;
+			this.profileEndTime = profileEndTime;
+			return this;
+		}
+
+		/**
+		 * Precomputes the travel disutility and travel time of each link per vehicle
+		 * type, so the leastCostPathCalculator reads them from arrays instead of
+		 * evaluating them for every visited link.
+		 * <p>
+		 * This only applies to the default free speed travel time without FIFO,
+		 * since other travel times may depend on the time. Otherwise it is ignored.
+		 *
+		 * @param precomputedLinkCosts true to precompute the link costs
+		 * @return this builder
+		 */
+		public Builder setPrecomputedLinkCosts(boolean precomputedLinkCosts) {
+			this.precomputedLinkCosts = precomputedLinkCosts;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum number of leastCostPathCalculators. Calculators are pooled
+		 * and borrowed per query, so this bounds the memory of the routers
+		 * independent of the number of threads calling the transport costs. By
+		 * default it is the number of available processors.
+		 *
+		 * @param maxRouters the maximum number of calculators
+		 * @return this builder
+		 */
+		public Builder setMaxRouters(int maxRouters) {
+			this.maxRouters = maxRouters;
+			return this;
+		}
+
+		/**
+		 * Computes paths with a {@link ContractionHierarchy} per vehicle type instead
+		 * of the leastCostPathCalculator. The hierarchy is built on first use of a
+		 * vehicle type with the travel disutility and travel time at time 0.
+		 * <p>
+		 * A hierarchy is built from a single time slice, so it is only valid for the
+		 * default free speed travel time. {@link #build()} rejects contraction
+		 * hierarchies together with a travel time, a travel disutility or a road
+		 * pricing calculator.
+		 *
+		 * @param contractionHierarchies true to use contraction hierarchies
+		 * @param directory              the directory to store the hierarchies in
+		 *                               and read them from, or null to not store
+		 *                               them
+		 * @return this builder
+		 */
+		public Builder setContractionHierarchies(boolean contractionHierarchies, String directory) {
+			this.contractionHierarchies = contractionHierarchies;
+			this.contractionHierarchyDirectory = directory;
+			return this;
+		}
+
+		/**
+		 * Routes on a copy of the network in which chains of links through nodes
+		 * without a junction are merged, see {@link NetworkContraction}. The end
+		 * nodes of the given links are kept, so paths between these links are
+		 * computed on the contracted network only. Paths are returned with the
+		 * links of the original network.
+		 * <p>
+		 * Merged links are costed as a whole, so this is only valid for the
+		 * default free speed travel time. {@link #build()} rejects it together with
+		 * a travel time, a travel disutility or a road pricing calculator.
+		 *
+		 * @param keptLinks the links whose end nodes are kept, usually the links
+		 *                  of the service locations and depots
+		 * @return this builder
+		 */
+		public Builder setNetworkContraction(Set<Id<Link>> keptLinks) {
+			this.contractionKeptLinks = keptLinks;
+			return this;
+		}
+
 		public Builder setRoadPricingCalculator(VehicleTypeDependentRoadPricingCalculator calculator) {
 			withToll = true;
 			this.roadPricingCalculator = calculator;
@@ -518,10 +879,44 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 		 * @return
 		 */
 		public ZoneBasedTransportCosts build() {
+			if (contractionHierarchies && (travelTime != null || baseDisutility != null || withToll)) {
+				throw new IllegalStateException("Contraction hierarchies are built from the travel time at time 0 "
+						+ "and require the free speed travel time without toll.");
+			}
+			if (contractionKeptLinks != null && (travelTime != null || baseDisutility != null || withToll)) {
+				throw new IllegalStateException("Network contraction costs merged links as a whole "
+						+ "and requires the free speed travel time without toll.");
+			}
+			if (indexedNetwork == null) {
+				indexedNetwork = IndexedNetwork.create(network);
+			}
+			if (contractionKeptLinks != null) {
+				Set<Id<Node>> keptNodes = new HashSet<>();
+				for (Id<Link> linkId : contractionKeptLinks) {
+					Link link = network.getLinks().get(linkId);
+					if (link != null) {
+						keptNodes.add(link.getFromNode().getId());
+						keptNodes.add(link.getToNode().getId());
+					}
+				}
+				contractedNetwork = NetworkContraction.contract(network, keptNodes);
+				originalLinks = ContractedNetworkRouter.mapOriginalLinks(contractedNetwork, network);
+			}
+			vehicleTypeIndex = new VehicleTypeIndex(typeSpecificCosts);
+			boolean staticTravelTime = travelTime == null;
+			if (travelTime == null) {
+				travelTime = new ModeRestrictedFreespeedTravelTime(indexedNetwork);
+			}
 			if (baseDisutility == null) {
 				if (isFIFO)
 					travelTime = new FiFoTravelTime(travelTime, timeSliceWidth);
-				baseDisutility = new BaseVehicleTransportCosts(typeSpecificCosts, travelTime);
+				baseDisutility = new BaseVehicleTransportCosts(vehicleTypeIndex, travelTime);
+				if (precomputedLinkCosts && staticTravelTime && !isFIFO) {
+					PrecomputedLinkCosts linkCosts = new PrecomputedLinkCosts(indexedNetwork, vehicleTypeIndex,
+							baseDisutility, travelTime);
+					baseDisutility = linkCosts;
+					travelTime = linkCosts;
+				}
 			}
 			if (withToll) {
 				finalDisutility = new VehicleTransportCostsIncludingToll(baseDisutility, roadPricingCalculator);
@@ -547,6 +942,8 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 
 	private final Network network;
 
+	private final IndexedNetwork indexedNetwork;
+
 	/**
 	 * cost-cache to cache transport-costs and transport-times (see
 	 * {@link TransportData}) according to {@link TransportDataKey}
@@ -554,10 +951,38 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 	private final ConcurrentHashMap<TransportDataKey, TransportData> costCache = new ConcurrentHashMap<TransportDataKey, TransportData>();
 
 	/**
-	 * caches leastCostPathCalculators according to
-	 * <code>Thread.currentThread().getId()</code>
+	 * bounded pool of leastCostPathCalculators, borrowed for each query
+	 */
+	private final RouterPool routerPool;
+
+	/**
+	 * contraction hierarchies according to the vehicle type, if enabled. The
+	 * hierarchies are built outside of the map by the first requesting thread,
+	 * others wait for the task.
 	 */
-	private final ConcurrentHashMap<Long, LeastCostPathCalculator> routerCache = new ConcurrentHashMap<Long, LeastCostPathCalculator>();
+	private final ConcurrentHashMap<String, FutureTask<ContractionHierarchy>> hierarchies = new ConcurrentHashMap<String, FutureTask<ContractionHierarchy>>();
+
+	private final boolean contractionHierarchies;
+
+	/**
+	 * profile-cache to cache transport-data profiles over the departure time,
+	 * used instead of the cost-cache if a profile interval is set
+	 */
+	private final ConcurrentHashMap<TransportDataKey, TransportDataProfile> profileCache = new ConcurrentHashMap<TransportDataKey, TransportDataProfile>();
+
+	private final double profileInterval;
+
+	private final int lastProfileBreakpoint;
+
+	private final String contractionHierarchyDirectory;
+
+	/**
+	 * the contracted copy of the network and the original links of its links, if
+	 * enabled
+	 */
+	private final Network contractedNetwork;
+
+	private final Map<Id<Link>, Link[]> originalLinks;
 
 	private final TravelDisutility travelDisutility;
 
@@ -572,7 +997,17 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 
 //	public final Counter ttRequestedCounter;
 
-	private final Map<String, org.matsim.vehicles.Vehicle> matsimVehicles = new HashMap<String, org.matsim.vehicles.Vehicle>();
+	/**
+	 * one matsim-vehicle per vehicle type, shared by all threads
+	 */
+	private final ConcurrentHashMap<String, MatsimVehicleWrapper> matsimVehicles = new ConcurrentHashMap<String, MatsimVehicleWrapper>();
+
+	private final VehicleTypeIndex vehicleTypeIndex;
+
+	/**
+	 * the vehicle used if no vehicle is given, only its type is relevant
+	 */
+	private final VehicleImpl defaultVehicle;
 
 	private final VehicleTypeDependentRoadPricingCalculator roadPricingCalc;
 
@@ -590,10 +1025,25 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 		this.travelDisutility = builder.finalDisutility;
 		this.travelTime = builder.travelTime;
 		this.network = builder.network;
+		this.indexedNetwork = builder.indexedNetwork;
+		this.contractionHierarchies = builder.contractionHierarchies;
+		this.profileInterval = builder.profileInterval;
+		this.lastProfileBreakpoint = builder.profileInterval > 0
+				? (int) Math.ceil(builder.profileEndTime / builder.profileInterval)
+				: 0;
+		this.contractionHierarchyDirectory = builder.contractionHierarchyDirectory;
+		this.contractedNetwork = builder.contractedNetwork;
+		this.originalLinks = builder.originalLinks;
 		this.leastCostPathCalculatorFactory = builder.leastCostPathCalculatorFactory;
 		this.roadPricingCalc = builder.roadPricingCalculator;
 		this.timeSliceWidth = builder.timeSliceWidth;
 		this.defaultTypeId = builder.defaultTypeId;
+		this.vehicleTypeIndex = builder.vehicleTypeIndex;
+		this.defaultVehicle = VehicleImpl.Builder.newInstance("default")
+				.setType(com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl.Builder
+						.newInstance(defaultTypeId).build())
+				.setStartLocation(Location.newInstance(defaultTypeId)).build();
+		this.routerPool = new RouterPool(this::createLeastCostPathCalculator, builder.maxRouters);
 //		this.ttMemorizedCounter = new Counter("#TransportCostValues cached ");
 //		this.ttRequestedCounter = new Counter("numTravelCosts requested ");
 	}
@@ -617,27 +1067,30 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 			return 0.0;
 		}
 		if (vehicle == null) {
-			vehicle = getDefaultVehicle(fromId);
+			vehicle = defaultVehicle;
 		}
 		if(departureTime < 0) {
 			departureTime = 0;
 		}
+		if (profileInterval > 0) {
+			return getProfileTransportData(fromId, toId, departureTime, vehicle).transportTime;
+		}
 		String typeId = vehicle.getType().getTypeId();
 		int timeSlice = getTimeSlice(departureTime);	
 		
-		Id<Link> fromLinkId = Id.create(fromId.getId(), Link.class);
-		Id<Link> toLinkId = Id.create(toId.getId(), Link.class);
-		Link fromLink = network.getLinks().get(fromLinkId);
-		Link toLink = network.getLinks().get(toLinkId);
+		int fromLinkIndex = indexedNetwork.getLinkIndex(Id.create(fromId.getId(), Link.class));
+		int toLinkIndex = indexedNetwork.getLinkIndex(Id.create(toId.getId(), Link.class));
+		Link fromLink = indexedNetwork.getLink(fromLinkIndex);
+		Link toLink = indexedNetwork.getLink(toLinkIndex);
 		
-		Boolean isUsingZones = checkZoneUsage(fromLink, toLink);
+		Boolean isUsingZones = checkZoneUsage(fromLinkIndex, toLinkIndex);
 
 		int fromZone = 0;
 		int toZone = 0;
 		
 		if(isUsingZones) {	
-			fromZone = (int) fromLink.getAttributes().getAttribute("zone");
-			toZone = (int) toLink.getAttributes().getAttribute("zone");
+			fromZone = indexedNetwork.getZone(fromLinkIndex);
+			toZone = indexedNetwork.getZone(toLinkIndex);
 		}
 		
 		TransportData data = null;
@@ -659,7 +1112,6 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 
 			// because path not includes in&out Link
 			org.matsim.vehicles.Vehicle matsimVehicle = getMatsimVehicle(vehicle);
-			LeastCostPathCalculator router = createLeastCostPathCalculator();
 			if(departureTime < 0) {
 				System.out.println("Time: " +departureTime);
 				System.out.println("Vehicle: " +matsimVehicle.getId());			
@@ -669,23 +1121,7 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 				System.out.println("To: " +toLink.toString());
 				System.out.println("To: " +toId);
 			}
-			Path path = router.calcLeastCostPath(fromLink.getToNode(), toLink.getFromNode(), departureTime, null,
-					matsimVehicle);
-//			if(path == null) return Double.MAX_VALUE;
-			double additionalCostTo = travelDisutility.getLinkTravelDisutility(toLink, departureTime + path.travelTime,
-					null, matsimVehicle);
-			double additionalTimeTo = travelTime.getLinkTravelTime(toLink, departureTime + path.travelTime, null,
-					matsimVehicle);
-
-			double travelDistance = fromLink.getLength();
-			Iterator<Link> iter = path.links.iterator();
-			while (iter.hasNext()) {
-				Link link = iter.next();
-				travelDistance = travelDistance + link.getLength();
-			}
-			transportTime = path.travelTime;
-			TransportData newData = new TransportData(path.travelCost + additionalCostTo,
-					path.travelTime + additionalTimeTo, travelDistance);
+			TransportData newData = calculateTransportData(typeId, fromLink, toLink, departureTime, matsimVehicle);
 			TransportData existingData = costCache.putIfAbsent(transportDataKey, newData);
 //			ttMemorizedCounter.incCounter();
 			if (existingData == null) {
@@ -697,12 +1133,6 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 		return transportTime;
 	}
 
-	private VehicleImpl getDefaultVehicle(Location fromId) {
-		return VehicleImpl.Builder.newInstance("default").setType(
-				com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl.Builder.newInstance(defaultTypeId).build())
-				.setStartLocation(fromId).build();
-	}
-
 	private void informEndCalc() {
 		for (InternalLeastCostPathCalculatorListener l : listeners)
 			l.endCalculation(Thread.currentThread().getId());
@@ -735,25 +1165,27 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 			return 0.0;
 		}
 		if (vehicle == null) {
-			vehicle = getDefaultVehicle(fromId);
+			vehicle = defaultVehicle;
+		}
+		if (profileInterval > 0) {
+			return getProfileTransportData(fromId, toId, departureTime, vehicle).transportCosts;
 		}
 
-		LeastCostPathCalculator router = createLeastCostPathCalculator();
 		int timeSlice = getTimeSlice(departureTime);
 		String typeId = vehicle.getType().getTypeId();
 		
-		Id<Link> fromLinkId = Id.create(fromId.getId(), Link.class);
-		Id<Link> toLinkId = Id.create(toId.getId(), Link.class);
-		Link fromLink = network.getLinks().get(fromLinkId);
-		Link toLink = network.getLinks().get(toLinkId);
+		int fromLinkIndex = indexedNetwork.getLinkIndex(Id.create(fromId.getId(), Link.class));
+		int toLinkIndex = indexedNetwork.getLinkIndex(Id.create(toId.getId(), Link.class));
+		Link fromLink = indexedNetwork.getLink(fromLinkIndex);
+		Link toLink = indexedNetwork.getLink(toLinkIndex);
 		
-		Boolean isUsingZones = checkZoneUsage(fromLink, toLink);
+		Boolean isUsingZones = checkZoneUsage(fromLinkIndex, toLinkIndex);
 		int fromZone = 0;
 		int toZone = 0;
 		
 		if(isUsingZones) {	
-			fromZone = (int) fromLink.getAttributes().getAttribute("zone");
-			toZone = (int) toLink.getAttributes().getAttribute("zone");
+			fromZone = indexedNetwork.getZone(fromLinkIndex);
+			toZone = indexedNetwork.getZone(toLinkIndex);
 		}
 		
 		TransportData data = null;
@@ -773,22 +1205,7 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 		} else {
 			informStartCalc();
 			org.matsim.vehicles.Vehicle matsimVehicle = getMatsimVehicle(vehicle);
-			Path path = router.calcLeastCostPath(fromLink.getToNode(), toLink.getFromNode(), departureTime, null,
-					matsimVehicle);
-//			if(path == null) return Double.MAX_VALUE;
-			double additionalCostTo = travelDisutility.getLinkTravelDisutility(toLink, departureTime + path.travelTime,
-					null, matsimVehicle);
-			double additionalTimeTo = travelTime.getLinkTravelTime(toLink, departureTime + path.travelTime, null,
-					matsimVehicle);
-			double travelDistance = fromLink.getLength();
-			Iterator<Link> iter = path.links.iterator();
-			while (iter.hasNext()) {
-				Link link = iter.next();
-				travelDistance = travelDistance + link.getLength();
-			}
-
-			TransportData newData = new TransportData(path.travelCost + additionalCostTo,
-					path.travelTime + additionalTimeTo, travelDistance);
+			TransportData newData = calculateTransportData(typeId, fromLink, toLink, departureTime, matsimVehicle);
 			TransportData existingData = costCache.putIfAbsent(transportDataKey, newData);
 //			ttMemorizedCounter.incCounter();
 			if (existingData == null) {
@@ -801,12 +1218,12 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 		return transportCost;
 	}
 
-	private Boolean checkZoneUsage(Link fromLink, Link toLink) {		
+	private Boolean checkZoneUsage(int fromLinkIndex, int toLinkIndex) {
 		
-		if(fromLink.getAttributes().getAttribute("zone") == null) {	
+		if(fromLinkIndex < 0 || indexedNetwork.getZone(fromLinkIndex) == IndexedNetwork.NO_ZONE) {
 			return false;
 		}
-        return toLink.getAttributes().getAttribute("zone") != null;
+        return toLinkIndex >= 0 && indexedNetwork.getZone(toLinkIndex) != IndexedNetwork.NO_ZONE;
     }
 
 	/**
@@ -827,22 +1244,25 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 			return 0.0;
 		}
 		if (vehicle == null) {
-			vehicle = getDefaultVehicle(fromId);
+			vehicle = defaultVehicle;
+		}
+		if (profileInterval > 0) {
+			return getProfileTransportData(fromId, toId, departureTime, vehicle).transportDistance;
 		}
 		String typeId = vehicle.getType().getTypeId();
 		int timeSlice = getTimeSlice(departureTime);
-		Id<Link> fromLinkId = Id.create(fromId.getId(), Link.class);
-		Id<Link> toLinkId = Id.create(toId.getId(), Link.class);
-		Link fromLink = network.getLinks().get(fromLinkId);
-		Link toLink = network.getLinks().get(toLinkId);	
+		int fromLinkIndex = indexedNetwork.getLinkIndex(Id.create(fromId.getId(), Link.class));
+		int toLinkIndex = indexedNetwork.getLinkIndex(Id.create(toId.getId(), Link.class));
+		Link fromLink = indexedNetwork.getLink(fromLinkIndex);
+		Link toLink = indexedNetwork.getLink(toLinkIndex);
 		
-		Boolean isUsingZones = checkZoneUsage(fromLink, toLink);
+		Boolean isUsingZones = checkZoneUsage(fromLinkIndex, toLinkIndex);
 		int fromZone = 0;
 		int toZone = 0;
 		
 		if(isUsingZones) {	
-			fromZone = (int) fromLink.getAttributes().getAttribute("zone");
-			toZone = (int) toLink.getAttributes().getAttribute("zone");
+			fromZone = indexedNetwork.getZone(fromLinkIndex);
+			toZone = indexedNetwork.getZone(toLinkIndex);
 		}
 		
 		TransportData data = null;
@@ -860,23 +1280,8 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 		} else {
 			informStartCalc();
 
-			travelDistance = fromLink.getLength();
 			org.matsim.vehicles.Vehicle matsimVehicle = getMatsimVehicle(vehicle);
-			LeastCostPathCalculator router = createLeastCostPathCalculator();
-			Path path = router.calcLeastCostPath(fromLink.getToNode(), toLink.getFromNode(), departureTime, null,
-					matsimVehicle);
-//			if(path == null) return Double.MAX_VALUE;
-			double additionalCostTo = travelDisutility.getLinkTravelDisutility(toLink, departureTime + path.travelTime,
-					null, matsimVehicle);
-			double additionalTimeTo = travelTime.getLinkTravelTime(toLink, departureTime + path.travelTime, null,
-					matsimVehicle);
-			Iterator<Link> iter = path.links.iterator();
-			while (iter.hasNext()) {
-				Link link = iter.next();
-				travelDistance = travelDistance + link.getLength();
-			}
-			TransportData newData = new TransportData(path.travelCost + additionalCostTo,
-					path.travelTime + additionalTimeTo, travelDistance);
+			TransportData newData = calculateTransportData(typeId, fromLink, toLink, departureTime, matsimVehicle);
 			TransportData existingData = costCache.putIfAbsent(transportDataKey, newData);
 //			ttMemorizedCounter.incCounter();
 			if (existingData == null) {
@@ -888,6 +1293,155 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 		return travelDistance;
 	}
 
+	/**
+	 * Gets the transport data in profile mode. The profile of the relation is
+	 * looked up in the profile-cache, which has one entry per relation and
+	 * vehicle type instead of one per time-bin, and interpolated at the departure
+	 * time.
+	 */
+	private TransportData getProfileTransportData(Location fromId, Location toId, double departureTime,
+			Vehicle vehicle) {
+		String typeId = vehicle.getType().getTypeId();
+		int fromLinkIndex = indexedNetwork.getLinkIndex(Id.create(fromId.getId(), Link.class));
+		int toLinkIndex = indexedNetwork.getLinkIndex(Id.create(toId.getId(), Link.class));
+		Link fromLink = indexedNetwork.getLink(fromLinkIndex);
+		Link toLink = indexedNetwork.getLink(toLinkIndex);
+
+		TransportDataKey transportDataKey;
+		if (checkZoneUsage(fromLinkIndex, toLinkIndex)
+				&& indexedNetwork.getZone(fromLinkIndex) != indexedNetwork.getZone(toLinkIndex)) {
+			transportDataKey = makeKey(indexedNetwork.getZone(fromLinkIndex) + "_zone",
+					indexedNetwork.getZone(toLinkIndex) + "_zone", 0, typeId);
+		} else {
+			transportDataKey = makeKey(fromId.getId(), toId.getId(), 0, typeId);
+		}
+
+		TransportDataProfile profile = profileCache.computeIfAbsent(transportDataKey,
+				key -> new TransportDataProfile());
+		org.matsim.vehicles.Vehicle matsimVehicle = getMatsimVehicle(vehicle);
+		return profile.get(departureTime, profileInterval, lastProfileBreakpoint, breakpointTime -> {
+			informStartCalc();
+			TransportData data = calculateTransportData(typeId, fromLink, toLink, breakpointTime, matsimVehicle);
+			informEndCalc();
+			return data;
+		});
+	}
+
+	/**
+	 * Calculates the transport data from the end of fromLink to the end of toLink.
+	 * The path is computed with the leastCostPathCalculator or, if enabled, with
+	 * the contraction hierarchy of the vehicle type.
+	 */
+	private TransportData calculateTransportData(String typeId, Link fromLink, Link toLink, double departureTime,
+			org.matsim.vehicles.Vehicle matsimVehicle) {
+		double pathCost;
+		double pathTime;
+		// because path not includes in&out Link
+		double travelDistance = fromLink.getLength();
+		if (contractionHierarchies) {
+			ContractionHierarchy.PathCosts path = getContractionHierarchy(typeId, matsimVehicle).route(
+					indexedNetwork.getToNode(indexedNetwork.getLinkIndex(fromLink)),
+					indexedNetwork.getFromNode(indexedNetwork.getLinkIndex(toLink)));
+			if (path == null) {
+				throw new IllegalStateException(
+						"No path from link " + fromLink.getId() + " to link " + toLink.getId());
+			}
+			pathCost = path.cost;
+			pathTime = path.time;
+			travelDistance = travelDistance + path.distance;
+		} else {
+			LeastCostPathCalculator router = routerPool.borrow();
+			Path path;
+			try {
+				path = router.calcLeastCostPath(fromLink.getToNode(), toLink.getFromNode(), departureTime, null,
+						matsimVehicle);
+			} finally {
+				routerPool.release(router);
+			}
+//			if(path == null) return Double.MAX_VALUE;
+			pathCost = path.travelCost;
+			pathTime = path.travelTime;
+			Iterator<Link> iter = path.links.iterator();
+			while (iter.hasNext()) {
+				Link link = iter.next();
+				travelDistance = travelDistance + link.getLength();
+			}
+		}
+		double additionalCostTo = travelDisutility.getLinkTravelDisutility(toLink, departureTime + pathTime,
+				null, matsimVehicle);
+		double additionalTimeTo = travelTime.getLinkTravelTime(toLink, departureTime + pathTime, null,
+				matsimVehicle);
+		return new TransportData(pathCost + additionalCostTo, pathTime + additionalTimeTo, travelDistance);
+	}
+
+	/**
+	 * Returns the contraction hierarchy of a vehicle type, built on first use
+	 * from the travel disutility and travel time at time 0. The hierarchy is built
+	 * by the first requesting thread without holding a lock of the map, so
+	 * hierarchies of different vehicle types are built in parallel.
+	 */
+	private ContractionHierarchy getContractionHierarchy(String typeId, org.matsim.vehicles.Vehicle matsimVehicle) {
+		FutureTask<ContractionHierarchy> task = hierarchies.get(typeId);
+		if (task == null) {
+			FutureTask<ContractionHierarchy> newTask = new FutureTask<>(
+					() -> createContractionHierarchy(typeId, matsimVehicle));
+			task = hierarchies.putIfAbsent(typeId, newTask);
+			if (task == null) {
+				task = newTask;
+				newTask.run();
+			}
+		}
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the contraction hierarchy of " + typeId, e);
+		} catch (ExecutionException e) {
+			// A failed build is not kept, so a later request tries again
+			hierarchies.remove(typeId, task);
+			throw new IllegalStateException("Could not build the contraction hierarchy of " + typeId, e.getCause());
+		}
+	}
+
+	private ContractionHierarchy createContractionHierarchy(String id, org.matsim.vehicles.Vehicle matsimVehicle) {
+		int linkCount = indexedNetwork.getLinkCount();
+		double[] costs = new double[linkCount];
+		double[] times = new double[linkCount];
+		double[] distances = new double[linkCount];
+		for (int l = 0; l < linkCount; l++) {
+			Link link = indexedNetwork.getLink(l);
+			costs[l] = travelDisutility.getLinkTravelDisutility(link, 0.0, null, matsimVehicle);
+			times[l] = travelTime.getLinkTravelTime(link, 0.0, null, matsimVehicle);
+			distances[l] = link.getLength();
+		}
+		java.nio.file.Path file = contractionHierarchyDirectory == null ? null
+				: Paths.get(contractionHierarchyDirectory, id.replaceAll("[^A-Za-z0-9._-]", "_") + ".ch");
+		return ContractionHierarchy.load(indexedNetwork, costs, times, distances, file);
+	}
+
+	/**
+	 * Clears the cost-cache and the profile-cache, so the transport data is
+	 * computed again with the current travel time. Must not be called while
+	 * transport costs are requested.
+	 */
+	public void clearCaches() {
+		costCache.clear();
+		profileCache.clear();
+	}
+
+	/**
+	 * Returns the zone of a location. Transport data between locations in
+	 * different zones is computed once per pair of zones.
+	 *
+	 * @param location The location.
+	 * @return The zone, or {@link IndexedNetwork#NO_ZONE} if the link of the
+	 *         location has none.
+	 */
+	public int getZone(Location location) {
+		int linkIndex = indexedNetwork.getLinkIndex(Id.create(location.getId(), Link.class));
+		return linkIndex < 0 ? IndexedNetwork.NO_ZONE : indexedNetwork.getZone(linkIndex);
+	}
+
 	/**
 	 * @return the listeners
 	 */
@@ -933,30 +1487,30 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 		if (matsimVehicle != null) {
 			return matsimVehicle;
 		}
-		matsimVehicle = new MatsimVehicleWrapper(vehicle);
-		matsimVehicles.put(typeId, matsimVehicle);
-		return matsimVehicle;
+		return matsimVehicles.computeIfAbsent(typeId,
+				id -> new MatsimVehicleWrapper(vehicle, vehicleTypeIndex, indexedNetwork));
 	}
 
 	private TransportDataKey makeKey(String fromId, String toId, long time, String vehicleType) {
 		return new TransportDataKey(fromId, toId, time, vehicleType);
 	}
 
+	/**
+	 * Creates a new leastCostPathCalculator with the travel disutility and travel
+	 * time of these transport costs. The calculator is not taken from the pool
+	 * and owned by the caller.
+	 */
 	public LeastCostPathCalculator getRouter() {
 		return createLeastCostPathCalculator();
 	}
 
 	private LeastCostPathCalculator createLeastCostPathCalculator() {
-		LeastCostPathCalculator router = routerCache.get(Thread.currentThread().getId());
-		if (router == null) {
-			LeastCostPathCalculator newRouter = leastCostPathCalculatorFactory.createPathCalculator(network,
-					travelDisutility, travelTime);
-			router = routerCache.putIfAbsent(Thread.currentThread().getId(), newRouter);
-			if (router == null) {
-				router = newRouter;
-			}
+		if (contractedNetwork != null) {
+			return new ContractedNetworkRouter(contractedNetwork, originalLinks,
+					leastCostPathCalculatorFactory.createPathCalculator(contractedNetwork, travelDisutility, travelTime),
+					() -> leastCostPathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime));
 		}
-		return router;
+		return leastCostPathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
 	}
 
 	private int getTimeSlice(double time) {
@@ -973,6 +1527,15 @@ public class ZoneBasedTransportCosts implements VRPTransportCosts {
 		return network;
 	}
 
+	/**
+	 * Gets the indexed view of the network.
+	 *
+	 * @return {@link IndexedNetwork}
+	 */
+	public IndexedNetwork getIndexedNetwork() {
+		return indexedNetwork;
+	}
+
 	/**
 	 * Gets the travel-time.
 	 *
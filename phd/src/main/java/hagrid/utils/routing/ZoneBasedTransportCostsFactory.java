@@ -1,11 +1,15 @@
 package hagrid.utils.routing;
 
+import hagrid.HagridConfigGroup;
+import hagrid.utils.network.IndexedNetwork;
 import org.apache.logging.log4j.core.Logger;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.TransportMode;
 
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.freight.carriers.Carriers;
 import org.matsim.freight.carriers.FreightCarriersConfigGroup;
@@ -16,18 +20,27 @@ import org.matsim.vehicles.VehicleUtils;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
+ * The transport costs and travel time profiles created by the factory cache
+ * the travel times they read. At the start of each iteration the caches are
+ * cleared, so the replanning uses the travel times of the last iteration.
+ *
  * @author steffenaxer & LB
  */
 
-public class ZoneBasedTransportCostsFactory implements VRPTransportCostsFactory {
+public class ZoneBasedTransportCostsFactory implements VRPTransportCostsFactory, IterationStartsListener {
     Scenario scenario;
     Carriers carriers;
     Map<String, TravelTime> travelTimes;
     Config config;
+    private IndexedNetwork indexedNetwork;
+    private final List<ZoneBasedTransportCosts> createdTransportCosts = new CopyOnWriteArrayList<>();
+    private final List<TravelTimeProfile> createdProfiles = new CopyOnWriteArrayList<>();
     private static final Logger log = (Logger) org.apache.logging.log4j.LogManager
             .getLogger(ZoneBasedTransportCostsFactory.class);
 
@@ -62,8 +75,9 @@ public class ZoneBasedTransportCostsFactory implements VRPTransportCostsFactory
                     scenario.getNetwork(),
                     vehicleTypes);
             zoneBuilder.setTimeSliceWidth(freightConfigGroup.getTravelTimeSliceWidth());
-            zoneBuilder.setTravelTime(travelTimes.get(mode));
-            byModeVRPTransportCosts.put(mode, zoneBuilder.build());
+            zoneBuilder.setIndexedNetwork(getIndexedNetwork());
+            configureTravelTime(zoneBuilder, travelTimes.get(mode));
+            byModeVRPTransportCosts.put(mode, register(zoneBuilder.build()));
         }
 
         return byModeVRPTransportCosts;
@@ -81,8 +95,55 @@ public class ZoneBasedTransportCostsFactory implements VRPTransportCostsFactory
                 vehicleTypes);
 
         zoneBuilder.setTimeSliceWidth(freightConfigGroup.getTravelTimeSliceWidth());
-        zoneBuilder.setTravelTime(travelTimes.get(TransportMode.car));
-        return zoneBuilder.build();
+        zoneBuilder.setIndexedNetwork(getIndexedNetwork());
+        configureTravelTime(zoneBuilder, travelTimes.get(TransportMode.car));
+        return register(zoneBuilder.build());
 
     }
+
+    private ZoneBasedTransportCosts register(ZoneBasedTransportCosts transportCosts) {
+        createdTransportCosts.add(transportCosts);
+        return transportCosts;
+    }
+
+    @Override
+    public void notifyIterationStarts(IterationStartsEvent event) {
+        if (createdTransportCosts.isEmpty()) {
+            return;
+        }
+        createdProfiles.forEach(TravelTimeProfile::reset);
+        createdTransportCosts.forEach(ZoneBasedTransportCosts::clearCaches);
+        log.info("Cleared the caches of " + createdTransportCosts.size() + " transport costs and "
+                + createdProfiles.size() + " travel time profiles.");
+    }
+
+    /**
+     * Returns the view of the scenario network, created once and shared by all
+     * transport costs of this factory.
+     */
+    private synchronized IndexedNetwork getIndexedNetwork() {
+        if (indexedNetwork == null) {
+            indexedNetwork = IndexedNetwork.create(scenario.getNetwork());
+        }
+        return indexedNetwork;
+    }
+
+    /**
+     * Sets the travel time of a builder. If a profile interval is configured, the
+     * travel time is approximated by piecewise linear profiles and the transport
+     * costs interpolate between departure times instead of using time slices.
+     */
+    private void configureTravelTime(ZoneBasedTransportCosts.Builder zoneBuilder, TravelTime travelTime) {
+        HagridConfigGroup hagridConfig = ConfigUtils.addOrGetModule(config, HagridConfigGroup.class);
+        double interval = hagridConfig.getTravelTimeProfileInterval();
+        if (interval > 0) {
+            double endTime = config.qsim().getEndTime().orElse(30 * 3600);
+            TravelTimeProfile profile = new TravelTimeProfile(getIndexedNetwork(), travelTime, interval, endTime);
+            createdProfiles.add(profile);
+            zoneBuilder.setTravelTime(profile);
+            zoneBuilder.setTravelTimeProfiles(interval, endTime);
+        } else {
+            zoneBuilder.setTravelTime(travelTime);
+        }
+    }
 }
@@ -25,7 +25,9 @@ import org.matsim.freight.carriers.FreightCarriersConfigGroup;
 import org.matsim.vehicles.*;
 
 import hagrid.utils.GeoUtils;
+import hagrid.utils.network.NetworkCache;
 
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -139,9 +141,27 @@ public class RunUtils {
      * @param networkBikePath Path to the bike network file
      */
     public static void loadNetworks(Scenario scenario, String networkBikePath) {
+        loadNetworks(scenario, networkBikePath, null);
+    }
+
+    /**
+     * Loads the networks for different modes and adds them to the scenario. The
+     * bike network is read from a binary network cache if a cache directory is
+     * given.
+     *
+     * @param scenario        MATSim scenario object
+     * @param networkBikePath Path to the bike network file
+     * @param cacheDirectory  Directory of the network cache, or null to read the
+     *                        network XML
+     */
+    public static void loadNetworks(Scenario scenario, String networkBikePath, Path cacheDirectory) {
         // Load bike network
         Network bikeNetwork = NetworkUtils.createNetwork();
-        new MatsimNetworkReader(bikeNetwork).readFile(networkBikePath);
+        if (cacheDirectory != null) {
+            NetworkCache.load(networkBikePath, cacheDirectory).toNetwork(bikeNetwork, null, null);
+        } else {
+            new MatsimNetworkReader(bikeNetwork).readFile(networkBikePath);
+        }
         scenario.addScenarioElement("bikeNetwork", bikeNetwork);
 
         // Load car network
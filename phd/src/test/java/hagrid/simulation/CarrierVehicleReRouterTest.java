@@ -0,0 +1,46 @@
+package hagrid.simulation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.freight.carriers.Carrier;
+import org.matsim.freight.carriers.CarrierPlan;
+import org.matsim.freight.carriers.CarriersUtils;
+
+/**
+ * Unit tests for the planned travel time of the CarrierVehicleReRouter.
+ */
+public class CarrierVehicleReRouterTest {
+
+    @Test
+    public void plannedTravelTimeIsKeptPerPlan() {
+        Carrier carrier = CarriersUtils.createCarrier(Id.create("carrier", Carrier.class));
+        CarrierPlan first = new CarrierPlan(carrier, new ArrayList<>());
+        CarrierPlan second = new CarrierPlan(carrier, new ArrayList<>());
+        carrier.addPlan(first);
+        carrier.addPlan(second);
+
+        CarrierVehicleReRouter.setPlannedTravelTime(first, 3600.0);
+        CarrierVehicleReRouter.setPlannedTravelTime(second, 5400.0);
+
+        assertEquals(3600.0, CarrierVehicleReRouter.getPlannedTravelTime(first), 0.0);
+        assertEquals(5400.0, CarrierVehicleReRouter.getPlannedTravelTime(second), 0.0);
+
+        CarrierVehicleReRouter.setPlannedTravelTime(second, 7200.0);
+        assertEquals(3600.0, CarrierVehicleReRouter.getPlannedTravelTime(first), 0.0);
+        assertEquals(7200.0, CarrierVehicleReRouter.getPlannedTravelTime(second), 0.0);
+    }
+
+    @Test
+    public void planWithoutBaselineIgnoresOtherPlans() {
+        Carrier carrier = CarriersUtils.createCarrier(Id.create("carrier", Carrier.class));
+        CarrierPlan replanned = new CarrierPlan(carrier, new ArrayList<>());
+        CarrierPlan initial = new CarrierPlan(carrier, new ArrayList<>());
+        CarrierVehicleReRouter.setPlannedTravelTime(replanned, 1800.0);
+
+        assertEquals(0.0, CarrierVehicleReRouter.getPlannedTravelTime(initial), 0.0);
+    }
+}
@@ -0,0 +1,87 @@
+package hagrid.utils.demand;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the BinomialSampler, comparing seeded samples with the
+ * expected counts of the binomial distribution.
+ */
+public class BinomialSamplerTest {
+
+    private static final int SAMPLES = 200_000;
+
+    private static double binomialProbability(int trials, int successes, double probability) {
+        double coefficient = 1.0;
+        for (int i = 0; i < successes; i++) {
+            coefficient = coefficient * (trials - i) / (i + 1);
+        }
+        return coefficient * Math.pow(probability, successes) * Math.pow(1.0 - probability, trials - successes);
+    }
+
+    private static void assertMatchesDistribution(int trials, double probability, long seed) {
+        Random random = new Random(seed);
+        int[] counts = new int[trials + 1];
+        for (int i = 0; i < SAMPLES; i++) {
+            int sample = BinomialSampler.sample(trials, probability, random);
+            assertTrue(sample >= 0 && sample <= trials);
+            counts[sample]++;
+        }
+        for (int k = 0; k <= trials; k++) {
+            double expected = SAMPLES * binomialProbability(trials, k, probability);
+            // Five standard deviations of the count, at least one parcel
+            double tolerance = Math.max(1.0, 5.0 * Math.sqrt(expected * (1.0 - expected / SAMPLES)));
+            assertEquals("Count of " + k + " successes", expected, counts[k], tolerance);
+        }
+    }
+
+    @Test
+    public void matchesTheDistributionOfMissedParcels() {
+        // Delivery rates of 95 % and 80 % for services of different sizes
+        assertMatchesDistribution(1, 0.05, 1L);
+        assertMatchesDistribution(8, 0.05, 2L);
+        assertMatchesDistribution(20, 0.2, 3L);
+        assertMatchesDistribution(150, 0.5, 4L);
+    }
+
+    @Test
+    public void totalMissedParcelsMatchTheDeliveryRate() {
+        Random random = new Random(42L);
+        int services = 10_000;
+        int parcelsPerService = 6;
+        double missProbability = 0.08;
+        long missed = 0;
+        for (int i = 0; i < services; i++) {
+            missed += BinomialSampler.sample(parcelsPerService, missProbability, random);
+        }
+        double expected = services * parcelsPerService * missProbability;
+        double deviation = Math.sqrt(expected * (1.0 - missProbability));
+        assertEquals(expected, missed, 5.0 * deviation);
+    }
+
+    @Test
+    public void isReproducibleWithTheSameSeed() {
+        Random first = new Random(7L);
+        Random second = new Random(7L);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(BinomialSampler.sample(12, 0.15, first), BinomialSampler.sample(12, 0.15, second));
+        }
+    }
+
+    @Test
+    public void handlesDegenerateDistributions() {
+        Random random = new Random(1L);
+        assertEquals(0, BinomialSampler.sample(0, 0.5, random));
+        assertEquals(0, BinomialSampler.sample(10, 0.0, random));
+        assertEquals(10, BinomialSampler.sample(10, 1.0, random));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeTrials() {
+        BinomialSampler.sample(-1, 0.5, new Random(1L));
+    }
+}
@@ -0,0 +1,94 @@
+package hagrid.utils.demand;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the quantized ParcelWeights, their string encoding and the
+ * ParcelWeightBuffer.
+ */
+public class ParcelWeightsTest {
+
+    @Test
+    public void quantizationIsLosslessForGeneratedWeights() {
+        // The WeightGenerator rounds to two decimals and caps at 31.5 kg
+        for (int steps = 0; steps <= 3150; steps++) {
+            double weight = steps / 100.0;
+            ParcelWeights weights = ParcelWeights.of(weight);
+            assertEquals(weight, weights.get(0), 0.0);
+            assertEquals(steps, weights.getQuantized(0));
+        }
+    }
+
+    @Test
+    public void roundsToTheNearestStep() {
+        assertEquals(123, ParcelWeights.quantize(1.234));
+        assertEquals(124, ParcelWeights.quantize(1.236));
+        assertEquals(ParcelWeights.MAX_WEIGHT, ParcelWeights.of(ParcelWeights.MAX_WEIGHT).get(0), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeWeights() {
+        ParcelWeights.quantize(-0.01);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTooLargeWeights() {
+        ParcelWeights.quantize(ParcelWeights.MAX_WEIGHT + 0.01);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNaN() {
+        ParcelWeights.quantize(Double.NaN);
+    }
+
+    @Test
+    public void sumsInSteps() {
+        ParcelWeights weights = ParcelWeights.of(0.1, 0.2, 0.3);
+        assertEquals(60, weights.quantizedSum());
+        assertEquals(0.6, weights.sum(), 0.0);
+    }
+
+    @Test
+    public void slicesShareTheBackingArray() {
+        ParcelWeights weights = ParcelWeights.of(1.0, 2.0, 3.0, 4.0);
+        ParcelWeights slice = weights.slice(1, 3);
+        assertArrayEquals(new double[] { 2.0, 3.0 }, slice.toArray(), 0.0);
+        assertEquals(ParcelWeights.of(2.0, 3.0), slice);
+        assertEquals(ParcelWeights.of(2.0, 3.0).hashCode(), slice.hashCode());
+        assertTrue(slice.slice(1, 1).isEmpty());
+    }
+
+    @Test
+    public void encodingRoundTrips() {
+        ParcelWeights weights = ParcelWeights.of(0.0, 0.01, 12.34, 31.5);
+        String encoded = ParcelWeightsConverter.encode(weights);
+        assertTrue(encoded.startsWith(ParcelWeightsConverter.PREFIX));
+        assertEquals(weights, ParcelWeightsConverter.decode(encoded));
+        assertEquals(weights.slice(1, 3), ParcelWeightsConverter.decode(ParcelWeightsConverter.encode(
+                weights.slice(1, 3))));
+        assertTrue(ParcelWeightsConverter.decode(ParcelWeightsConverter.encode(ParcelWeights.empty())).isEmpty());
+    }
+
+    @Test
+    public void decodesTheLegacyFormat() {
+        assertEquals(ParcelWeights.of(1.5, 2.25), ParcelWeightsConverter.decode("1.5;2.25"));
+        assertTrue(ParcelWeightsConverter.decode(null).isEmpty());
+    }
+
+    @Test
+    public void bufferedViewsStayValidWhenTheBufferGrows() {
+        ParcelWeightBuffer buffer = new ParcelWeightBuffer(4);
+        double[] next = { 0.0 };
+        ParcelWeights first = buffer.generate(3, () -> next[0] += 1.0);
+        ParcelWeights second = buffer.generate(3, () -> next[0] += 1.0);
+        ParcelWeights large = buffer.generate(6, () -> next[0] += 1.0);
+        assertArrayEquals(new double[] { 1.0, 2.0, 3.0 }, first.toArray(), 0.0);
+        assertArrayEquals(new double[] { 4.0, 5.0, 6.0 }, second.toArray(), 0.0);
+        assertEquals(6, large.size());
+        assertEquals(7.0, large.get(0), 0.0);
+    }
+}
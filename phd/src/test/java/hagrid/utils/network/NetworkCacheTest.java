@@ -0,0 +1,160 @@
+package hagrid.utils.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+/**
+ * Round-trip tests for the CompactNetwork and the NetworkCache.
+ */
+public class NetworkCacheTest {
+
+    private static final String SOURCE = "network.xml;1;2";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Network createNetwork() {
+        Network network = NetworkUtils.createNetwork();
+        network.setCapacityPeriod(1800.0);
+        Node a = NetworkUtils.createAndAddNode(network, Id.createNodeId("a"), new Coord(0.0, 0.0));
+        Node b = NetworkUtils.createAndAddNode(network, Id.createNodeId("b"), new Coord(100.0, 0.0, 12.5));
+        Node c = NetworkUtils.createAndAddNode(network, Id.createNodeId("c"), new Coord(100.0, 100.0));
+        a.getAttributes().putAttribute("signal", true);
+
+        Link ab = NetworkUtils.createAndAddLink(network, Id.createLinkId("ab"), a, b, 100.0, 13.9, 1200.0, 2.0);
+        ab.setAllowedModes(Set.of("car", "freight"));
+        ab.getAttributes().putAttribute("type", "primary");
+        ab.getAttributes().putAttribute("zone", 7);
+        ab.getAttributes().putAttribute("osmId", 123456789012L);
+        ab.getAttributes().putAttribute("slope", 0.02);
+        Link bc = NetworkUtils.createAndAddLink(network, Id.createLinkId("bc"), b, c, 0.5, 0.1, 600.0, 1.0);
+        bc.setAllowedModes(Set.of("bike"));
+        bc.getAttributes().putAttribute("type", "cycleway");
+        Link ca = NetworkUtils.createAndAddLink(network, Id.createLinkId("ca"), c, a, 141.4, 8.3, 900.0, 1.0);
+        ca.setAllowedModes(Set.of("car", "bike"));
+        return network;
+    }
+
+    private static void assertNetworksEqual(Network expected, Network actual) {
+        assertEquals(expected.getCapacityPeriod(), actual.getCapacityPeriod(), 0.0);
+        assertEquals(expected.getEffectiveLaneWidth(), actual.getEffectiveLaneWidth(), 0.0);
+        assertEquals(new ArrayList<>(expected.getNodes().keySet()), new ArrayList<>(actual.getNodes().keySet()));
+        for (Node node : expected.getNodes().values()) {
+            Node restored = actual.getNodes().get(node.getId());
+            assertEquals(node.getCoord(), restored.getCoord());
+            assertEquals(node.getCoord().hasZ(), restored.getCoord().hasZ());
+            assertEquals(node.getAttributes().getAsMap(), restored.getAttributes().getAsMap());
+        }
+        assertEquals(new ArrayList<>(expected.getLinks().keySet()), new ArrayList<>(actual.getLinks().keySet()));
+        for (Link link : expected.getLinks().values()) {
+            Link restored = actual.getLinks().get(link.getId());
+            assertEquals(link.getFromNode().getId(), restored.getFromNode().getId());
+            assertEquals(link.getToNode().getId(), restored.getToNode().getId());
+            assertEquals(link.getLength(), restored.getLength(), 0.0);
+            assertEquals(link.getFreespeed(), restored.getFreespeed(), 0.0);
+            assertEquals(link.getCapacity(), restored.getCapacity(), 0.0);
+            assertEquals(link.getNumberOfLanes(), restored.getNumberOfLanes(), 0.0);
+            assertEquals(link.getAllowedModes(), restored.getAllowedModes());
+            assertEquals(link.getAttributes().getAsMap(), restored.getAttributes().getAsMap());
+        }
+    }
+
+    @Test
+    public void compactNetworkRoundTrips() {
+        Network network = createNetwork();
+        Network restored = CompactNetwork.of(network).toNetwork(NetworkUtils.createNetwork(), null, null);
+        assertNetworksEqual(network, restored);
+    }
+
+    @Test
+    public void cacheFileRoundTrips() throws IOException {
+        Network network = createNetwork();
+        Path file = folder.getRoot().toPath().resolve("network.bin");
+        NetworkCache.write(CompactNetwork.of(network), SOURCE, file);
+
+        CompactNetwork read = NetworkCache.read(file, SOURCE);
+        assertNetworksEqual(network, read.toNetwork(NetworkUtils.createNetwork(), null, null));
+    }
+
+    @Test
+    public void cacheOfAnotherSourceIsOutdated() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("network.bin");
+        NetworkCache.write(CompactNetwork.of(createNetwork()), SOURCE, file);
+        assertNull(NetworkCache.read(file, "network.xml;1;3"));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("network.bin");
+        Files.write(file, new byte[] { 0, 1, 2, 3, 4, 5, 6, 7 });
+        NetworkCache.read(file, SOURCE);
+    }
+
+    @Test
+    public void loadsTheNetworkFileAndThenTheCache() throws IOException {
+        Network network = createNetwork();
+        Path networkFile = folder.getRoot().toPath().resolve("network.xml.gz");
+        NetworkUtils.writeNetwork(network, networkFile.toString());
+        Path cacheDirectory = folder.getRoot().toPath().resolve("cache");
+
+        Network fromXml = NetworkCache.load(networkFile.toString(), cacheDirectory)
+                .toNetwork(NetworkUtils.createNetwork(), null, null);
+        try (Stream<Path> files = Files.list(cacheDirectory)) {
+            assertEquals(1, files.filter(file -> file.toString().endsWith(".bin")).count());
+        }
+        Network fromCache = NetworkCache.load(networkFile.toString(), cacheDirectory)
+                .toNetwork(NetworkUtils.createNetwork(), null, null);
+        assertNetworksEqual(fromXml, fromCache);
+        assertEquals(network.getLinks().size(), fromCache.getLinks().size());
+    }
+
+    @Test
+    public void selectsLinksByMode() {
+        CompactNetwork compact = CompactNetwork.of(createNetwork());
+        BitSet bikeLinks = compact.selectLinks(Set.of("bike"));
+        Network bikeNetwork = compact.toNetwork(NetworkUtils.createNetwork(), bikeLinks, Set.of("bike"));
+
+        assertEquals(List.of(Id.createLinkId("bc"), Id.createLinkId("ca")),
+                new ArrayList<>(bikeNetwork.getLinks().keySet()));
+        assertEquals(Set.of("b", "c", "a"), Set.of(bikeNetwork.getNodes().keySet().stream()
+                .map(Id::toString).toArray(String[]::new)));
+        for (Link link : bikeNetwork.getLinks().values()) {
+            assertEquals(Set.of("bike"), link.getAllowedModes());
+        }
+    }
+
+    @Test
+    public void adjustsShortAndSlowLinks() {
+        CompactNetwork compact = CompactNetwork.of(createNetwork());
+        compact.adjustLinks(1.0, 0.5);
+        Network adjusted = compact.toNetwork(NetworkUtils.createNetwork(), null, null);
+        Iterator<? extends Link> links = adjusted.getLinks().values().iterator();
+        Link ab = links.next();
+        Link bc = links.next();
+        assertEquals(100.0, ab.getLength(), 0.0);
+        assertEquals(1.0, bc.getLength(), 0.0);
+        assertEquals(0.5, bc.getFreespeed(), 0.0);
+        assertTrue(ab.getFreespeed() > 13.0);
+    }
+}
@@ -0,0 +1,104 @@
+package hagrid.utils.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+/**
+ * Unit tests for the NetworkContraction.
+ */
+public class NetworkContractionTest {
+
+    @Test
+    public void mergesChainsInBothDirections() {
+        Network contracted = NetworkContraction.contract(createNetwork(), Set.of());
+
+        // a-b-c-d is merged in both directions, the junction d and its links are kept
+        assertEquals(Set.of("a", "d", "e", "f"), nodeIds(contracted));
+        assertEquals(6, contracted.getLinks().size());
+
+        Link forward = contracted.getLinks().get(Id.createLinkId("ab"));
+        assertEquals(300.0, forward.getLength(), 1e-9);
+        assertEquals("d", forward.getToNode().getId().toString());
+        assertEquals(List.of(Id.createLinkId("ab"), Id.createLinkId("bc"), Id.createLinkId("cd")),
+                NetworkContraction.getOriginalLinkIds(forward));
+
+        Link backward = contracted.getLinks().get(Id.createLinkId("dc"));
+        assertEquals(List.of(Id.createLinkId("dc"), Id.createLinkId("cb"), Id.createLinkId("ba")),
+                NetworkContraction.getOriginalLinkIds(backward));
+
+        Link single = contracted.getLinks().get(Id.createLinkId("de"));
+        assertNull(single.getAttributes().getAttribute(NetworkContraction.ORIGINAL_LINKS_ATTRIBUTE));
+        assertEquals(List.of(Id.createLinkId("de")), NetworkContraction.getOriginalLinkIds(single));
+    }
+
+    @Test
+    public void keepsGivenNodes() {
+        Network contracted = NetworkContraction.contract(createNetwork(), Set.of(Id.createNodeId("c")));
+
+        assertEquals(Set.of("a", "c", "d", "e", "f"), nodeIds(contracted));
+        assertEquals(List.of(Id.createLinkId("ab"), Id.createLinkId("bc")),
+                NetworkContraction.getOriginalLinkIds(contracted.getLinks().get(Id.createLinkId("ab"))));
+        assertEquals(List.of(Id.createLinkId("cd")),
+                NetworkContraction.getOriginalLinkIds(contracted.getLinks().get(Id.createLinkId("cd"))));
+    }
+
+    @Test
+    public void keepsLinksWithDifferentProperties() {
+        Network network = createNetwork();
+        network.getLinks().get(Id.createLinkId("bc")).setFreespeed(20.0);
+        network.getLinks().get(Id.createLinkId("cb")).setFreespeed(20.0);
+
+        Network contracted = NetworkContraction.contract(network, Set.of());
+
+        // b and c connect links of different speeds, so they are kept
+        assertEquals(Set.of("a", "b", "c", "d", "e", "f"), nodeIds(contracted));
+        assertEquals(network.getLinks().size(), contracted.getLinks().size());
+    }
+
+    /**
+     * Creates the chain a-b-c-d in both directions, with a junction at d to e and
+     * f.
+     */
+    static Network createNetwork() {
+        Network network = NetworkUtils.createNetwork();
+        String[] chain = { "a", "b", "c", "d" };
+        for (int i = 0; i < chain.length; i++) {
+            NetworkUtils.createAndAddNode(network, Id.createNodeId(chain[i]), new Coord(i * 100.0, 0.0));
+        }
+        NetworkUtils.createAndAddNode(network, Id.createNodeId("e"), new Coord(300.0, 100.0));
+        NetworkUtils.createAndAddNode(network, Id.createNodeId("f"), new Coord(400.0, 0.0));
+        for (int i = 0; i + 1 < chain.length; i++) {
+            addLink(network, chain[i], chain[i + 1]);
+            addLink(network, chain[i + 1], chain[i]);
+        }
+        addLink(network, "d", "e");
+        addLink(network, "e", "d");
+        addLink(network, "d", "f");
+        addLink(network, "f", "d");
+        return network;
+    }
+
+    private static void addLink(Network network, String from, String to) {
+        Node fromNode = network.getNodes().get(Id.createNodeId(from));
+        Node toNode = network.getNodes().get(Id.createNodeId(to));
+        NetworkUtils.createAndAddLink(network, Id.createLinkId(from + to), fromNode, toNode, 100.0, 10.0, 1000.0,
+                1.0);
+    }
+
+    private static Set<String> nodeIds(Network network) {
+        return network.getNodes().keySet().stream().map(Id::toString)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,166 @@
+package hagrid.utils.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.freight.carriers.Carrier;
+import org.matsim.freight.carriers.CarrierCapabilities.FleetSize;
+import org.matsim.freight.carriers.CarrierPlan;
+import org.matsim.freight.carriers.CarrierService;
+import org.matsim.freight.carriers.CarrierVehicle;
+import org.matsim.freight.carriers.CarrierVehicleTypes;
+import org.matsim.freight.carriers.Carriers;
+import org.matsim.freight.carriers.CarriersUtils;
+import org.matsim.freight.carriers.TimeWindow;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleUtils;
+
+import hagrid.utils.demand.Delivery.DeliveryMode;
+import hagrid.utils.demand.Delivery.ParcelType;
+import hagrid.utils.demand.Hub;
+import hagrid.utils.demand.MissedParcels;
+
+/**
+ * Round-trip tests for the CarriersCodec and the VehicleTypesCodec.
+ */
+public class CarriersCodecTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static CarrierVehicleTypes createVehicleTypes() {
+        VehicleType type = VehicleUtils.getFactory().createVehicleType(Id.create("van", VehicleType.class));
+        type.setNetworkMode("car");
+        type.setMaximumVelocity(15.0);
+        type.getCapacity().setOther(120.0);
+        type.getCostInformation().setFixedCost(50.0);
+        type.getCostInformation().setCostsPerMeter(0.001);
+        type.getCostInformation().setCostsPerSecond(0.01);
+        VehicleUtils.setCostsPerSecondWaiting(type.getCostInformation(), 0.002);
+        CarriersUtils.addSkill(type, "conventional");
+        CarrierVehicleTypes vehicleTypes = new CarrierVehicleTypes();
+        vehicleTypes.getVehicleTypes().put(type.getId(), type);
+        return vehicleTypes;
+    }
+
+    private static Carriers createCarriers(CarrierVehicleTypes vehicleTypes) {
+        VehicleType type = vehicleTypes.getVehicleTypes().get(Id.create("van", VehicleType.class));
+        Carrier carrier = CarriersUtils.createCarrier(Id.create("dhl_30159", Carrier.class));
+        carrier.getCarrierCapabilities().setFleetSize(FleetSize.INFINITE);
+        carrier.getCarrierCapabilities().getVehicleTypes().add(type);
+        carrier.getAttributes().putAttribute("provider", "dhl");
+        carrier.getAttributes().putAttribute("numberOfParcels", 42);
+        carrier.getAttributes().putAttribute("hubId", "hub1");
+        MissedParcels missed = new MissedParcels();
+        missed.add(Id.create("s1", CarrierService.class), 3);
+        carrier.getAttributes().putAttribute("missedParcelsPerService", missed);
+
+        CarriersUtils.addCarrierVehicle(carrier, CarrierVehicle.Builder
+                .newInstance(Id.create("v1", Vehicle.class), Id.createLinkId("depot"), type)
+                .setEarliestStart(6 * 3600.0).setLatestEnd(16 * 3600.0).build());
+
+        CarrierService.Builder builder = CarrierService.Builder.newInstance(Id.create("s1", CarrierService.class),
+                Id.createLinkId("l1"));
+        builder.setCapacityDemand(4);
+        builder.setServiceDuration(180.0);
+        builder.setServiceStartTimeWindow(TimeWindow.newInstance(8 * 3600.0, 18 * 3600.0));
+        CarrierService service = builder.build();
+        service.getAttributes().putAttribute("coord", new Coord(1.5, 2.5));
+        service.getAttributes().putAttribute("type", ParcelType.B2C);
+        service.getAttributes().putAttribute("mode", DeliveryMode.PARCEL_LOCKER);
+        service.getAttributes().putAttribute("weights", "AAEC");
+        CarriersUtils.addService(carrier, service);
+
+        Carriers carriers = new Carriers();
+        carriers.addCarrier(carrier);
+        return carriers;
+    }
+
+    @Test
+    public void restoresVehicleTypes() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("types.bin");
+        new VehicleTypesCodec().write(createVehicleTypes(), file);
+        CarrierVehicleTypes restored = new VehicleTypesCodec().read(file, name -> null);
+
+        VehicleType type = restored.getVehicleTypes().get(Id.create("van", VehicleType.class));
+        assertEquals("car", type.getNetworkMode());
+        assertEquals(15.0, type.getMaximumVelocity(), DELTA);
+        assertEquals(120.0, type.getCapacity().getOther(), DELTA);
+        assertEquals(50.0, type.getCostInformation().getFixedCosts(), DELTA);
+        assertEquals(0.001, type.getCostInformation().getCostsPerMeter(), DELTA);
+        assertEquals(0.01, type.getCostInformation().getCostsPerSecond(), DELTA);
+        assertEquals(0.002, VehicleUtils.getCostsPerSecondWaiting(type.getCostInformation()), DELTA);
+        assertEquals(createVehicleTypes().getVehicleTypes().get(type.getId()).getAttributes().getAsMap(),
+                type.getAttributes().getAsMap());
+    }
+
+    @Test
+    public void restoresCarriers() throws IOException {
+        CarrierVehicleTypes vehicleTypes = createVehicleTypes();
+        Hub hub = new Hub(Id.create("hub1", Hub.class), "dhl", new Coord(0.0, 0.0));
+        Map<Id<Hub>, Hub> hubs = new LinkedHashMap<>();
+        hubs.put(hub.getId(), hub);
+        Map<String, Object> elements = new LinkedHashMap<>();
+        elements.put("carrierVehicleTypes", vehicleTypes);
+        elements.put("hubList", hubs);
+
+        Path file = folder.getRoot().toPath().resolve("carriers.bin");
+        new CarriersCodec().write(createCarriers(vehicleTypes), file);
+        Carriers restored = new CarriersCodec().read(file, elements::get);
+
+        Carrier carrier = restored.getCarriers().get(Id.create("dhl_30159", Carrier.class));
+        assertEquals(FleetSize.INFINITE, carrier.getCarrierCapabilities().getFleetSize());
+        assertEquals("dhl", carrier.getAttributes().getAttribute("provider"));
+        assertEquals(42, carrier.getAttributes().getAttribute("numberOfParcels"));
+        assertSame(hub, carrier.getAttributes().getAttribute("hub"));
+        MissedParcels missed = (MissedParcels) carrier.getAttributes().getAttribute("missedParcelsPerService");
+        assertEquals(3, missed.getTotal());
+
+        CarrierVehicle vehicle = carrier.getCarrierCapabilities().getCarrierVehicles()
+                .get(Id.create("v1", Vehicle.class));
+        assertSame(vehicleTypes.getVehicleTypes().get(Id.create("van", VehicleType.class)), vehicle.getType());
+        assertEquals(Id.createLinkId("depot"), vehicle.getLinkId());
+        assertEquals(6 * 3600.0, vehicle.getEarliestStartTime(), DELTA);
+        assertEquals(16 * 3600.0, vehicle.getLatestEndTime(), DELTA);
+
+        CarrierService service = carrier.getServices().get(Id.create("s1", CarrierService.class));
+        assertEquals(Id.createLinkId("l1"), service.getLocationLinkId());
+        assertEquals(4, service.getCapacityDemand());
+        assertEquals(180.0, service.getServiceDuration(), DELTA);
+        assertEquals(8 * 3600.0, service.getServiceStartTimeWindow().getStart(), DELTA);
+        assertEquals(18 * 3600.0, service.getServiceStartTimeWindow().getEnd(), DELTA);
+        assertEquals(new Coord(1.5, 2.5), service.getAttributes().getAttribute("coord"));
+        assertEquals(ParcelType.B2C, service.getAttributes().getAttribute("type"));
+        assertEquals(DeliveryMode.PARCEL_LOCKER, service.getAttributes().getAttribute("mode"));
+        assertEquals("AAEC", service.getAttributes().getAttribute("weights"));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsCarriersWithPlans() throws IOException {
+        Carriers carriers = createCarriers(createVehicleTypes());
+        Carrier carrier = carriers.getCarriers().values().iterator().next();
+        carrier.addPlan(new CarrierPlan(carrier, Collections.emptyList()));
+        new CarriersCodec().write(carriers, folder.getRoot().toPath().resolve("carriers.bin"));
+    }
+
+    @Test(expected = IOException.class)
+    public void requiresVehicleTypes() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("carriers.bin");
+        new CarriersCodec().write(createCarriers(createVehicleTypes()), file);
+        new CarriersCodec().read(file, name -> null);
+    }
+}
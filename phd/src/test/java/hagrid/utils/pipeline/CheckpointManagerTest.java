@@ -0,0 +1,84 @@
+package hagrid.utils.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+import hagrid.HagridConfigGroup;
+import hagrid.utils.demand.Hub;
+import hagrid.utils.general.HAGRIDSummary;
+
+/**
+ * Unit tests for saving and restoring checkpoints with the CheckpointManager.
+ */
+public class CheckpointManagerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<PipelineStage> stages = List.of(
+            new PipelineStage("delivery", () -> {
+            }, Set.of(), Set.of("summary")),
+            new PipelineStage("logistics", () -> {
+            }, Set.of(), Set.of("hubList")),
+            new PipelineStage("carrier", () -> {
+            }, Set.of("summary", "hubList"), Set.of("carriers")));
+
+    private CheckpointManager createManager(Scenario scenario) {
+        return new CheckpointManager(scenario, new HagridConfigGroup(), folder.getRoot().toPath(), Map.of());
+    }
+
+    private void writeCheckpoints() {
+        Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+        scenario.addScenarioElement("summary", HAGRIDSummary.builder().totalDeliveries(12).totalParcels(30)
+                .build());
+        Map<Id<Hub>, Hub> hubs = new LinkedHashMap<>();
+        Hub hub = new Hub(Id.create("hub1", Hub.class), "dhl", new Coord(1.0, 2.0));
+        hubs.put(hub.getId(), hub);
+        scenario.addScenarioElement("hubList", hubs);
+
+        CheckpointManager manager = createManager(scenario);
+        manager.save(stages, 0);
+        manager.save(stages, 1);
+    }
+
+    @Test
+    public void restoresElementsOfCompletedStages() {
+        writeCheckpoints();
+        Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+
+        assertEquals(2, createManager(scenario).restore(stages));
+        assertEquals(12, ((HAGRIDSummary) scenario.getScenarioElement("summary")).getTotalDeliveries());
+        assertTrue(((Map<?, ?>) scenario.getScenarioElement("hubList"))
+                .containsKey(Id.create("hub1", Hub.class)));
+    }
+
+    @Test
+    public void leavesTheScenarioUnchangedIfAnElementCannotBeRead() throws Exception {
+        writeCheckpoints();
+        // The hub list is read before the summary
+        Path summaryFile = folder.getRoot().toPath().resolve("delivery").resolve("summary.bin");
+        Files.write(summaryFile, new byte[] { 1, 2, 3 });
+        Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+
+        assertEquals(0, createManager(scenario).restore(stages));
+        assertNull(scenario.getScenarioElement("summary"));
+        assertNull(scenario.getScenarioElement("hubList"));
+    }
+}
@@ -0,0 +1,71 @@
+package hagrid.utils.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.matsim.api.core.v01.Coord;
+
+import hagrid.utils.demand.Delivery;
+import hagrid.utils.demand.Delivery.DeliveryMode;
+import hagrid.utils.demand.Delivery.ParcelType;
+import hagrid.utils.demand.ParcelWeights;
+
+/**
+ * Round-trip tests for the DeliveriesCodec.
+ */
+public class DeliveriesCodecTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void restoresDeliveries() throws IOException {
+        HashMap<String, Integer> supply = new HashMap<>();
+        supply.put("dhl", 2);
+        ArrayList<Delivery> list = new ArrayList<>();
+        list.add(Delivery.builder().id("d1").coordinate(new Coord(1.0, 2.0)).provider("dhl").amount(2)
+                .parcelType(ParcelType.B2C).postalCode("30159").individualWeights(ParcelWeights.of(1.25, 3.5))
+                .deliveryMode(DeliveryMode.HOME).supplyDistribution(supply).build());
+        list.add(Delivery.builder().id("d2").coordinate(new Coord(3.0, 4.0)).provider("dhl").amount(1)
+                .parcelType(ParcelType.B2B).individualWeights(ParcelWeights.of(12.0))
+                .deliveryMode(DeliveryMode.PARCEL_LOCKER).build());
+        list.add(Delivery.builder().id("d3").amount(0).build());
+        Map<String, ArrayList<Delivery>> deliveries = new LinkedHashMap<>();
+        deliveries.put("dhl_30159", list);
+        deliveries.put("gls_30161", new ArrayList<>());
+
+        Path file = folder.getRoot().toPath().resolve("deliveries.bin");
+        new DeliveriesCodec().write(deliveries, file);
+        Map<String, ArrayList<Delivery>> restored = new DeliveriesCodec().read(file, name -> null);
+
+        assertEquals(List.of("dhl_30159", "gls_30161"), new ArrayList<>(restored.keySet()));
+        List<Delivery> restoredList = restored.get("dhl_30159");
+        assertEquals(3, restoredList.size());
+        for (int i = 0; i < list.size(); i++) {
+            Delivery expected = list.get(i);
+            Delivery actual = restoredList.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getCoordinate(), actual.getCoordinate());
+            assertEquals(expected.getProvider(), actual.getProvider());
+            assertEquals(expected.getAmount(), actual.getAmount());
+            assertEquals(expected.getParcelType(), actual.getParcelType());
+            assertEquals(expected.getPostalCode(), actual.getPostalCode());
+            assertEquals(expected.getDeliveryMode(), actual.getDeliveryMode());
+            assertEquals(expected.getIndividualWeights(), actual.getIndividualWeights());
+            assertEquals(expected.getSupplyDistribution(), actual.getSupplyDistribution());
+        }
+        assertNull(restoredList.get(2).getIndividualWeights());
+        assertEquals(0, restored.get("gls_30161").size());
+    }
+}
@@ -0,0 +1,137 @@
+package hagrid.utils.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.referencing.CRS;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+
+/**
+ * Round-trip tests for the FeaturesCodec and the CarrierDemandCodec.
+ */
+public class FeaturesCodecTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+
+    private static SimpleFeatureType createType() throws Exception {
+        SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
+        builder.setName("demand");
+        builder.setCRS(CRS.decode("EPSG:25832"));
+        builder.add("the_geom", Point.class);
+        builder.add("plz", String.class);
+        builder.add("parcels", Integer.class);
+        builder.add("share", Double.class);
+        builder.setDefaultGeometry("the_geom");
+        return builder.buildFeatureType();
+    }
+
+    private List<SimpleFeature> createFeatures(SimpleFeatureType type, int count) {
+        List<SimpleFeature> features = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            features.add(SimpleFeatureBuilder.build(type, new Object[] {
+                    geometryFactory.createPoint(new Coordinate(550000.0 + i, 5800000.0 - i)),
+                    i == 1 ? null : "3015" + i, i * 10, i / 4.0 }, "demand." + i));
+        }
+        return features;
+    }
+
+    private static void assertFeaturesEqual(Collection<SimpleFeature> expected, Collection<SimpleFeature> actual) {
+        assertEquals(expected.size(), actual.size());
+        Iterator<SimpleFeature> iterator = actual.iterator();
+        for (SimpleFeature feature : expected) {
+            SimpleFeature restored = iterator.next();
+            assertEquals(feature.getID(), restored.getID());
+            assertEquals(feature.getFeatureType().getTypeName(), restored.getFeatureType().getTypeName());
+            assertEquals("the_geom", restored.getFeatureType().getGeometryDescriptor().getLocalName());
+            assertTrue(CRS.equalsIgnoreMetadata(feature.getFeatureType().getCoordinateReferenceSystem(),
+                    restored.getFeatureType().getCoordinateReferenceSystem()));
+            assertTrue(((Point) feature.getDefaultGeometry()).equalsExact((Point) restored.getDefaultGeometry()));
+            assertEquals(feature.getAttribute("plz"), restored.getAttribute("plz"));
+            assertEquals(feature.getAttribute("parcels"), restored.getAttribute("parcels"));
+            assertEquals(feature.getAttribute("share"), restored.getAttribute("share"));
+        }
+    }
+
+    @Test
+    public void restoresFeatures() throws Exception {
+        List<SimpleFeature> features = createFeatures(createType(), 3);
+        Path file = folder.getRoot().toPath().resolve("features.bin");
+        new FeaturesCodec().write(features, file);
+        Collection<SimpleFeature> restored = new FeaturesCodec().read(file, name -> null);
+
+        assertFeaturesEqual(features, restored);
+        assertNull(new ArrayList<>(restored).get(1).getAttribute("plz"));
+    }
+
+    @Test
+    public void restoresPolygons() throws Exception {
+        SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
+        builder.setName("regions");
+        builder.add("geometry", Polygon.class);
+        builder.add("name", String.class);
+        SimpleFeatureType type = builder.buildFeatureType();
+        Polygon square = geometryFactory.createPolygon(new Coordinate[] { new Coordinate(0, 0),
+                new Coordinate(1, 0), new Coordinate(1, 1), new Coordinate(0, 1), new Coordinate(0, 0) });
+        List<SimpleFeature> features = List.of(SimpleFeatureBuilder.build(type, new Object[] { square, "Mitte" },
+                "regions.1"));
+
+        Path file = folder.getRoot().toPath().resolve("regions.bin");
+        new FeaturesCodec().write(features, file);
+        SimpleFeature restored = new FeaturesCodec().read(file, name -> null).iterator().next();
+
+        assertTrue(square.equalsExact((Polygon) restored.getDefaultGeometry()));
+        assertEquals("Mitte", restored.getAttribute("name"));
+        assertNull(restored.getFeatureType().getCoordinateReferenceSystem());
+    }
+
+    @Test
+    public void restoresCarrierDemandInOrder() throws Exception {
+        SimpleFeatureType type = createType();
+        Map<String, List<SimpleFeature>> carrierDemand = new LinkedHashMap<>();
+        carrierDemand.put("hermes_30159", createFeatures(type, 2));
+        carrierDemand.put("dhl_30161", createFeatures(type, 4));
+        carrierDemand.put("dpd_30163", new ArrayList<>());
+
+        Path file = folder.getRoot().toPath().resolve("carrierDemand.bin");
+        new CarrierDemandCodec().write(carrierDemand, file);
+        Map<String, List<SimpleFeature>> restored = new CarrierDemandCodec().read(file, name -> null);
+
+        assertEquals(new ArrayList<>(carrierDemand.keySet()), new ArrayList<>(restored.keySet()));
+        for (Map.Entry<String, List<SimpleFeature>> entry : carrierDemand.entrySet()) {
+            assertFeaturesEqual(entry.getValue(), restored.get(entry.getKey()));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsUnsupportedAttributes() throws Exception {
+        SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
+        builder.setName("other");
+        builder.add("value", Object.class);
+        SimpleFeature feature = SimpleFeatureBuilder.build(builder.buildFeatureType(),
+                new Object[] { new StringBuilder("x") }, "other.1");
+        new FeaturesCodec().write(List.of(feature), folder.getRoot().toPath().resolve("other.bin"));
+    }
+}
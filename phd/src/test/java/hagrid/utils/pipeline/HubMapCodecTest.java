@@ -0,0 +1,60 @@
+package hagrid.utils.pipeline;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+
+import hagrid.utils.demand.Hub;
+
+/**
+ * Round-trip tests for the HubMapCodec.
+ */
+public class HubMapCodecTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void restoresHubsInOrder() throws IOException {
+        Map<Id<Hub>, Hub> hubs = new LinkedHashMap<>();
+        for (String id : new String[] { "hub9", "hub1", "hub5" }) {
+            Hub hub = new Hub(Id.create(id, Hub.class), "dhl", new Coord(id.length(), 2.0));
+            hub.setAddress("Street " + id);
+            hub.setType("hub");
+            hub.setLink(Id.createLinkId("link_" + id));
+            hub.setCapacityLimit(100);
+            hub.setAssignedSupplyDemand(40);
+            hub.setProviderWLSupplyDemand("amazon", 7);
+            hub.getAttributes().putAttribute("plz", 30159);
+            hubs.put(hub.getId(), hub);
+        }
+
+        Path file = folder.getRoot().toPath().resolve("hubs.bin");
+        new HubMapCodec().write(hubs, file);
+        Map<Id<Hub>, Hub> restored = new HubMapCodec().read(file, name -> null);
+
+        assertEquals(new ArrayList<>(hubs.keySet()), new ArrayList<>(restored.keySet()));
+        for (Hub hub : hubs.values()) {
+            Hub restoredHub = restored.get(hub.getId());
+            assertEquals(hub.getProvider(), restoredHub.getProvider());
+            assertEquals(hub.getCoord(), restoredHub.getCoord());
+            assertEquals(hub.getAddress(), restoredHub.getAddress());
+            assertEquals(hub.getType(), restoredHub.getType());
+            assertEquals(hub.getLink(), restoredHub.getLink());
+            assertEquals(hub.getCapacityLimit(), restoredHub.getCapacityLimit());
+            assertEquals(hub.getAssignedSupplyDemand(), restoredHub.getAssignedSupplyDemand());
+            assertEquals(hub.getWLSupplyDemandByProvider(), restoredHub.getWLSupplyDemandByProvider());
+            assertEquals(30159, restoredHub.getAttributes().getAttribute("plz"));
+        }
+    }
+}
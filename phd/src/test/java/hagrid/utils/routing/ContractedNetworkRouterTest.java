@@ -0,0 +1,122 @@
+package hagrid.utils.routing;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+import hagrid.utils.network.NetworkContraction;
+
+/**
+ * Compares the paths of the ContractedNetworkRouter with the paths on the
+ * original network.
+ */
+public class ContractedNetworkRouterTest {
+
+    private static final TravelTime FREE_SPEED = (link, time, person, vehicle) -> link.getLength()
+            / link.getFreespeed();
+
+    private static final TravelDisutility DISUTILITY = new TravelDisutility() {
+        @Override
+        public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+            return FREE_SPEED.getLinkTravelTime(link, time, person, vehicle);
+        }
+
+        @Override
+        public double getLinkMinimumTravelDisutility(Link link) {
+            return link.getLength() / link.getFreespeed();
+        }
+    };
+
+    @Test
+    public void returnsPathsWithTheOriginalLinks() {
+        Network network = createNetwork();
+        Network contracted = NetworkContraction.contract(network, Set.of(Id.createNodeId("e")));
+        LeastCostPathCalculator router = createRouter(network, contracted);
+        LeastCostPathCalculator originalRouter = new DijkstraFactory().createPathCalculator(network, DISUTILITY,
+                FREE_SPEED);
+
+        Node a = network.getNodes().get(Id.createNodeId("a"));
+        Node e = network.getNodes().get(Id.createNodeId("e"));
+        Path path = router.calcLeastCostPath(a, e, 0.0, null, null);
+        Path expected = originalRouter.calcLeastCostPath(a, e, 0.0, null, null);
+
+        assertEquals(List.of("ab", "bc", "cd", "de"), linkIds(path));
+        assertEquals(linkIds(expected), linkIds(path));
+        assertEquals(expected.nodes, path.nodes);
+        assertEquals(expected.travelTime, path.travelTime, 1e-9);
+        assertEquals(expected.travelCost, path.travelCost, 1e-9);
+    }
+
+    @Test
+    public void routesFromContractedNodesOnTheOriginalNetwork() {
+        Network network = createNetwork();
+        Network contracted = NetworkContraction.contract(network, Set.of());
+        LeastCostPathCalculator router = createRouter(network, contracted);
+
+        // c is contracted away, the path starts in the middle of the chain
+        Node c = network.getNodes().get(Id.createNodeId("c"));
+        Node a = network.getNodes().get(Id.createNodeId("a"));
+        Path path = router.calcLeastCostPath(c, a, 0.0, null, null);
+
+        assertEquals(List.of("cb", "ba"), linkIds(path));
+        assertEquals(20.0, path.travelTime, 1e-9);
+    }
+
+    private static LeastCostPathCalculator createRouter(Network network, Network contracted) {
+        DijkstraFactory factory = new DijkstraFactory();
+        return new ContractedNetworkRouter(contracted, ContractedNetworkRouter.mapOriginalLinks(contracted, network),
+                factory.createPathCalculator(contracted, DISUTILITY, FREE_SPEED),
+                () -> factory.createPathCalculator(network, DISUTILITY, FREE_SPEED));
+    }
+
+    /**
+     * Creates the chain a-b-c-d in both directions, with a junction at d to e and
+     * f.
+     */
+    private static Network createNetwork() {
+        Network network = NetworkUtils.createNetwork();
+        String[] chain = { "a", "b", "c", "d" };
+        for (int i = 0; i < chain.length; i++) {
+            NetworkUtils.createAndAddNode(network, Id.createNodeId(chain[i]), new Coord(i * 100.0, 0.0));
+        }
+        NetworkUtils.createAndAddNode(network, Id.createNodeId("e"), new Coord(300.0, 100.0));
+        NetworkUtils.createAndAddNode(network, Id.createNodeId("f"), new Coord(400.0, 0.0));
+        for (int i = 0; i + 1 < chain.length; i++) {
+            addLink(network, chain[i], chain[i + 1]);
+            addLink(network, chain[i + 1], chain[i]);
+        }
+        addLink(network, "d", "e");
+        addLink(network, "e", "d");
+        addLink(network, "d", "f");
+        addLink(network, "f", "d");
+        return network;
+    }
+
+    private static void addLink(Network network, String from, String to) {
+        Node fromNode = network.getNodes().get(Id.createNodeId(from));
+        Node toNode = network.getNodes().get(Id.createNodeId(to));
+        NetworkUtils.createAndAddLink(network, Id.createLinkId(from + to), fromNode, toNode, 100.0, 10.0, 1000.0,
+                1.0);
+    }
+
+    private static List<String> linkIds(Path path) {
+        return path.links.stream().map(link -> link.getId().toString()).collect(Collectors.toList());
+    }
+}
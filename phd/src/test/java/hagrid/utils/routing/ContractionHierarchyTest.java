@@ -0,0 +1,137 @@
+package hagrid.utils.routing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+import hagrid.utils.network.IndexedNetwork;
+
+/**
+ * Compares the paths of the ContractionHierarchy with a plain Dijkstra search
+ * on the same network and metric.
+ */
+public class ContractionHierarchyTest {
+
+    private static final int GRID_SIZE = 8;
+    private static final double DELTA = 1e-6;
+
+    @Test
+    public void matchesDijkstraOnAllPairs() {
+        Random random = new Random(4711);
+        IndexedNetwork network = IndexedNetwork.create(createGrid(random));
+        int linkCount = network.getLinkCount();
+        double[] costs = new double[linkCount];
+        double[] times = new double[linkCount];
+        double[] distances = new double[linkCount];
+        for (int l = 0; l < linkCount; l++) {
+            distances[l] = network.getLink(l).getLength();
+            times[l] = distances[l] / network.getLink(l).getFreespeed();
+            costs[l] = times[l] * (0.5 + random.nextDouble());
+        }
+
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(network, costs, times, distances);
+
+        for (int from = 0; from < network.getNodeCount(); from++) {
+            double[][] expected = dijkstra(network, costs, times, distances, from);
+            for (int to = 0; to < network.getNodeCount(); to++) {
+                ContractionHierarchy.PathCosts path = hierarchy.route(from, to);
+                if (expected[0][to] == Double.POSITIVE_INFINITY) {
+                    assertNull("Unreachable node " + to + " from " + from, path);
+                    continue;
+                }
+                assertNotNull("No path from " + from + " to " + to, path);
+                assertEquals(expected[0][to], path.cost, DELTA);
+                assertEquals(expected[1][to], path.time, DELTA);
+                assertEquals(expected[2][to], path.distance, DELTA);
+            }
+        }
+    }
+
+    /**
+     * Creates a grid with random link lengths and speeds. Some links are one-way,
+     * and one node is only reachable from the grid but cannot leave it.
+     */
+    private static Network createGrid(Random random) {
+        Network network = NetworkUtils.createNetwork();
+        Node[][] nodes = new Node[GRID_SIZE][GRID_SIZE];
+        for (int x = 0; x < GRID_SIZE; x++) {
+            for (int y = 0; y < GRID_SIZE; y++) {
+                nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y),
+                        new Coord(x * 100.0, y * 100.0));
+            }
+        }
+        int links = 0;
+        for (int x = 0; x < GRID_SIZE; x++) {
+            for (int y = 0; y < GRID_SIZE; y++) {
+                if (x + 1 < GRID_SIZE) {
+                    links = addLinks(network, random, nodes[x][y], nodes[x + 1][y], links);
+                }
+                if (y + 1 < GRID_SIZE) {
+                    links = addLinks(network, random, nodes[x][y], nodes[x][y + 1], links);
+                }
+            }
+        }
+        Node dead = NetworkUtils.createAndAddNode(network, Id.createNodeId("dead"), new Coord(-100.0, 0.0));
+        NetworkUtils.createAndAddLink(network, Id.createLinkId("dead"), nodes[0][0], dead, 100.0, 10.0, 1000.0, 1.0);
+        return network;
+    }
+
+    private static int addLinks(Network network, Random random, Node a, Node b, int links) {
+        NetworkUtils.createAndAddLink(network, Id.createLinkId(links++), a, b, 80.0 + 80.0 * random.nextDouble(),
+                5.0 + 10.0 * random.nextDouble(), 1000.0, 1.0);
+        if (random.nextDouble() < 0.8) {
+            NetworkUtils.createAndAddLink(network, Id.createLinkId(links++), b, a, 80.0 + 80.0 * random.nextDouble(),
+                    5.0 + 10.0 * random.nextDouble(), 1000.0, 1.0);
+        }
+        return links;
+    }
+
+    /**
+     * Computes the cost, time and distance of the least cost paths from a node to
+     * all nodes.
+     */
+    private static double[][] dijkstra(IndexedNetwork network, double[] costs, double[] times, double[] distances,
+            int from) {
+        int nodeCount = network.getNodeCount();
+        double[] nodeCosts = new double[nodeCount];
+        double[] nodeTimes = new double[nodeCount];
+        double[] nodeDistances = new double[nodeCount];
+        boolean[] settled = new boolean[nodeCount];
+        Arrays.fill(nodeCosts, Double.POSITIVE_INFINITY);
+        nodeCosts[from] = 0.0;
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        queue.add(new double[] { 0.0, from });
+        while (!queue.isEmpty()) {
+            int node = (int) queue.poll()[1];
+            if (settled[node]) {
+                continue;
+            }
+            settled[node] = true;
+            for (int l = 0; l < network.getLinkCount(); l++) {
+                if (network.getFromNode(l) != node) {
+                    continue;
+                }
+                int head = network.getToNode(l);
+                double cost = nodeCosts[node] + costs[l];
+                if (cost < nodeCosts[head]) {
+                    nodeCosts[head] = cost;
+                    nodeTimes[head] = nodeTimes[node] + times[l];
+                    nodeDistances[head] = nodeDistances[node] + distances[l];
+                    queue.add(new double[] { cost, head });
+                }
+            }
+        }
+        return new double[][] { nodeCosts, nodeTimes, nodeDistances };
+    }
+}
@@ -0,0 +1,50 @@
+package hagrid.utils.routing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm;
+import com.graphhopper.jsprit.core.algorithm.box.Jsprit;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import com.graphhopper.jsprit.core.util.Solutions;
+
+/**
+ * Unit tests for the HAGRIDRouterUtils.
+ */
+public class HAGRIDRouterUtilsTest {
+
+    @Test
+    public void objectiveMatchesTheDefaultObjectiveOfJsprit() {
+        VehicleTypeImpl type = VehicleTypeImpl.Builder.newInstance("van").addCapacityDimension(0, 3)
+                .setFixedCost(100.0).setCostPerDistance(2.0).setCostPerTransportTime(0.5).build();
+        VehicleRoutingProblem.Builder builder = VehicleRoutingProblem.Builder.newInstance()
+                .setFleetSize(VehicleRoutingProblem.FleetSize.FINITE);
+        for (int i = 0; i < 2; i++) {
+            builder.addVehicle(VehicleImpl.Builder.newInstance("v" + i).setType(type)
+                    .setStartLocation(Location.newInstance(0.0, 0.0)).build());
+        }
+        for (int i = 0; i < 6; i++) {
+            builder.addJob(Service.Builder.newInstance("s" + i).addSizeDimension(0, 1).setServiceTime(30.0)
+                    .setLocation(Location.newInstance(10.0 * (i + 1), 5.0 * (i % 3))).build());
+        }
+        // Does not fit into any vehicle and stays unassigned
+        builder.addJob(Service.Builder.newInstance("large").addSizeDimension(0, 5).setPriority(1)
+                .setLocation(Location.newInstance(-20.0, 15.0)).build());
+        VehicleRoutingProblem vrp = builder.build();
+
+        VehicleRoutingAlgorithm algorithm = Jsprit.createAlgorithm(vrp);
+        algorithm.setMaxIterations(20);
+        VehicleRoutingProblemSolution solution = Solutions.bestOf(algorithm.searchSolutions());
+
+        assertFalse(solution.getUnassignedJobs().isEmpty());
+        assertEquals(algorithm.getObjectiveFunction().getCosts(solution),
+                HAGRIDRouterUtils.getObjective(vrp, solution), 1e-6);
+    }
+}
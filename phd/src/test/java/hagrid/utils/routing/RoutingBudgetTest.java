@@ -0,0 +1,50 @@
+package hagrid.utils.routing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.freight.carriers.Carrier;
+import org.matsim.freight.carriers.CarriersUtils;
+
+/**
+ * Unit tests for the RoutingBudget.
+ */
+public class RoutingBudgetTest {
+
+    @Test
+    public void allocatesProportionallyToTheSize() {
+        // 100 s wall-clock time on 2 threads give 200 s thread time
+        RoutingBudget budget = new RoutingBudget(100.0, 2, 100, 100, 0.01);
+        assertEquals(20000, budget.allocate(10));
+        // 180 s remain for a size of 90
+        assertEquals(60000, budget.allocate(30));
+    }
+
+    @Test
+    public void capsTheAllocationAtTheWallClockTime() {
+        RoutingBudget budget = new RoutingBudget(10.0, 4, 100, 100, 0.01);
+        // A carrier with all services would get the thread time of all threads
+        long allocation = budget.allocate(100);
+        assertTrue(allocation <= 10000);
+        assertTrue(allocation > 9000);
+    }
+
+    @Test
+    public void allocatesAtLeastOneMillisecond() {
+        RoutingBudget budget = new RoutingBudget(1.0, 1, 10, 100, 0.01);
+        budget.allocate(10);
+        assertEquals(1, budget.allocate(10));
+    }
+
+    @Test
+    public void redistributesUnusedTime() {
+        RoutingBudget budget = new RoutingBudget(100.0, 1, 100, 100, 0.01);
+        long allocation = budget.allocate(50);
+        assertEquals(50000, allocation);
+        budget.complete(CarriersUtils.createCarrier(Id.create("carrier", Carrier.class)), allocation, 10000, 0.0);
+        // 90 s remain for the other half of the services
+        assertEquals(90000, budget.allocate(50));
+    }
+}
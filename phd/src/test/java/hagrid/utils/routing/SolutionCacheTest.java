@@ -0,0 +1,161 @@
+package hagrid.utils.routing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity.JobActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+
+/**
+ * Unit tests for the SolutionCache.
+ */
+public class SolutionCacheTest {
+
+    private static final String SETTINGS = "settings";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static VehicleRoutingProblem createProblem(String prefix, boolean reversed, double serviceTime) {
+        VehicleTypeImpl type = VehicleTypeImpl.Builder.newInstance("van").addCapacityDimension(0, 10)
+                .setCostPerDistance(1.0).build();
+        List<Service> services = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            services.add(Service.Builder.newInstance(prefix + "s" + i).addSizeDimension(0, 1)
+                    .setServiceTime(i == 0 ? serviceTime : 60.0)
+                    .setLocation(Location.newInstance(10.0 * i, 5.0 * (i % 2))).build());
+        }
+        if (reversed) {
+            Collections.reverse(services);
+        }
+        VehicleRoutingProblem.Builder builder = VehicleRoutingProblem.Builder.newInstance()
+                .setFleetSize(VehicleRoutingProblem.FleetSize.FINITE);
+        builder.addVehicle(VehicleImpl.Builder.newInstance(prefix + "v").setType(type)
+                .setStartLocation(Location.newInstance(0.0, 0.0)).build());
+        for (Service service : services) {
+            builder.addJob(service);
+        }
+        return builder.build();
+    }
+
+    private static Service getService(VehicleRoutingProblem vrp, String id) {
+        return (Service) vrp.getJobs().get(id);
+    }
+
+    /**
+     * Routes the services with the given ids in this order with the only
+     * vehicle of the problem.
+     */
+    private static VehicleRoutingProblemSolution createSolution(VehicleRoutingProblem vrp, double cost,
+            String... ids) {
+        Vehicle vehicle = vrp.getVehicles().iterator().next();
+        VehicleRoute.Builder builder = VehicleRoute.Builder.newInstance(vehicle)
+                .setJobActivityFactory(vrp.getJobActivityFactory());
+        List<Job> unassigned = new ArrayList<>(vrp.getJobs().values());
+        for (String id : ids) {
+            builder.addService(getService(vrp, id));
+            unassigned.remove(getService(vrp, id));
+        }
+        List<VehicleRoute> routes = new ArrayList<>();
+        routes.add(builder.build());
+        return new VehicleRoutingProblemSolution(routes, unassigned, cost);
+    }
+
+    private static List<String> getRoutedIds(VehicleRoutingProblemSolution solution) {
+        List<String> ids = new ArrayList<>();
+        for (VehicleRoute route : solution.getRoutes()) {
+            for (TourActivity activity : route.getActivities()) {
+                ids.add(((JobActivity) activity).getJob().getId());
+            }
+        }
+        return ids;
+    }
+
+    @Test
+    public void fingerprintIsStable() {
+        VehicleRoutingProblem vrp = createProblem("", false, 60.0);
+        assertEquals(SolutionCache.fingerprint(vrp, SETTINGS).getHash(),
+                SolutionCache.fingerprint(createProblem("", false, 60.0), SETTINGS).getHash());
+        assertEquals(SolutionCache.fingerprint(vrp, SETTINGS).getHash(),
+                SolutionCache.fingerprint(vrp, SETTINGS).getHash());
+    }
+
+    @Test
+    public void fingerprintIgnoresIdsAndOrder() {
+        assertEquals(SolutionCache.fingerprint(createProblem("a", false, 60.0), SETTINGS).getHash(),
+                SolutionCache.fingerprint(createProblem("b", true, 60.0), SETTINGS).getHash());
+    }
+
+    @Test
+    public void fingerprintChangesWithTheProblemAndTheSettings() {
+        String hash = SolutionCache.fingerprint(createProblem("", false, 60.0), SETTINGS).getHash();
+        assertNotEquals(hash, SolutionCache.fingerprint(createProblem("", false, 120.0), SETTINGS).getHash());
+        assertNotEquals(hash, SolutionCache.fingerprint(createProblem("", false, 60.0), "other").getHash());
+    }
+
+    @Test
+    public void restoresRoutesOnAProblemWithOtherIds() {
+        VehicleRoutingProblem original = createProblem("a", false, 60.0);
+        SolutionCache cache = new SolutionCache(null);
+        cache.put(SolutionCache.fingerprint(original, SETTINGS),
+                createSolution(original, 100.0, "as2", "as0", "as4", "as1"));
+
+        VehicleRoutingProblem equal = createProblem("b", true, 60.0);
+        VehicleRoutingProblemSolution restored = cache.get(equal, SolutionCache.fingerprint(equal, SETTINGS));
+        assertNotNull(restored);
+        assertEquals(List.of("bs2", "bs0", "bs4", "bs1"), getRoutedIds(restored));
+        assertEquals(1, restored.getUnassignedJobs().size());
+        assertSame(getService(equal, "bs3"), restored.getUnassignedJobs().iterator().next());
+        assertEquals(0.0, restored.getCost(), 0.0);
+    }
+
+    @Test
+    public void missesOtherProblems() {
+        VehicleRoutingProblem vrp = createProblem("", false, 60.0);
+        SolutionCache cache = new SolutionCache(null);
+        cache.put(SolutionCache.fingerprint(vrp, SETTINGS), createSolution(vrp, 100.0, "s0"));
+
+        VehicleRoutingProblem other = createProblem("", false, 120.0);
+        assertNull(cache.get(other, SolutionCache.fingerprint(other, SETTINGS)));
+        assertNull(cache.get(vrp, SolutionCache.fingerprint(vrp, "other")));
+    }
+
+    @Test
+    public void keepsTheBetterSolution() {
+        VehicleRoutingProblem vrp = createProblem("", false, 60.0);
+        SolutionCache.Fingerprint fingerprint = SolutionCache.fingerprint(vrp, SETTINGS);
+        SolutionCache cache = new SolutionCache(folder.getRoot().toPath());
+        cache.put(fingerprint, createSolution(vrp, 100.0, "s0", "s1"));
+        cache.put(fingerprint, createSolution(vrp, 200.0, "s2"));
+        assertEquals(List.of("s0", "s1"), getRoutedIds(cache.get(vrp, fingerprint)));
+        cache.put(fingerprint, createSolution(vrp, 50.0, "s3", "s4"));
+        assertEquals(List.of("s3", "s4"), getRoutedIds(cache.get(vrp, fingerprint)));
+
+        // A new cache reads the better solution from the directory
+        SolutionCache restarted = new SolutionCache(folder.getRoot().toPath());
+        assertEquals(List.of("s3", "s4"), getRoutedIds(restarted.get(vrp, fingerprint)));
+        restarted.put(fingerprint, createSolution(vrp, 75.0, "s1"));
+        assertEquals(List.of("s3", "s4"), getRoutedIds(new SolutionCache(folder.getRoot().toPath())
+                .get(vrp, fingerprint)));
+    }
+}
@@ -0,0 +1,79 @@
+package hagrid.utils.routing;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+import hagrid.utils.network.IndexedNetwork;
+
+/**
+ * Unit tests for the TravelTimeProfile.
+ */
+public class TravelTimeProfileTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void interpolatesBetweenBreakpoints() {
+        double[] values = { 10.0, 20.0, 40.0 };
+        assertEquals(10.0, TravelTimeProfile.interpolate(values, 0.0, 900.0), DELTA);
+        assertEquals(15.0, TravelTimeProfile.interpolate(values, 450.0, 900.0), DELTA);
+        assertEquals(20.0, TravelTimeProfile.interpolate(values, 900.0, 900.0), DELTA);
+        assertEquals(30.0, TravelTimeProfile.interpolate(values, 1350.0, 900.0), DELTA);
+    }
+
+    @Test
+    public void clampsOutsideTheProfile() {
+        double[] values = { 10.0, 20.0, 40.0 };
+        assertEquals(10.0, TravelTimeProfile.interpolate(values, -100.0, 900.0), DELTA);
+        assertEquals(40.0, TravelTimeProfile.interpolate(values, 1800.0, 900.0), DELTA);
+        assertEquals(40.0, TravelTimeProfile.interpolate(values, 10000.0, 900.0), DELTA);
+        assertEquals(7.0, TravelTimeProfile.interpolate(new double[] { 7.0 }, 500.0, 900.0), DELTA);
+    }
+
+    @Test
+    public void samplesTheSourceAtBreakpoints() {
+        Network network = createNetwork();
+        Link link = network.getLinks().get(Id.createLinkId("ab"));
+        // Travel time grows by one second per minute of the day
+        TravelTimeProfile profile = new TravelTimeProfile(IndexedNetwork.create(network),
+                (l, time, person, vehicle) -> 60.0 + time / 60.0, 900.0, 3600.0);
+
+        assertEquals(60.0, profile.getLinkTravelTime(link, 0.0, null, null), DELTA);
+        assertEquals(67.5, profile.getLinkTravelTime(link, 450.0, null, null), DELTA);
+        assertEquals(120.0, profile.getLinkTravelTime(link, 3600.0, null, null), DELTA);
+        assertEquals(120.0, profile.getLinkTravelTime(link, 7200.0, null, null), DELTA);
+    }
+
+    @Test
+    public void resetSamplesTheChangedSource() {
+        Network network = createNetwork();
+        Link link = network.getLinks().get(Id.createLinkId("ab"));
+        double[] travelTime = { 100.0 };
+        TravelTimeProfile profile = new TravelTimeProfile(IndexedNetwork.create(network),
+                (l, time, person, vehicle) -> travelTime[0], 900.0, 3600.0);
+
+        assertEquals(100.0, profile.getLinkTravelTime(link, 1000.0, null, null), DELTA);
+
+        // The profile keeps its samples until it is reset
+        travelTime[0] = 250.0;
+        assertEquals(100.0, profile.getLinkTravelTime(link, 1000.0, null, null), DELTA);
+
+        profile.reset();
+        assertEquals(250.0, profile.getLinkTravelTime(link, 1000.0, null, null), DELTA);
+    }
+
+    private static Network createNetwork() {
+        Network network = NetworkUtils.createNetwork();
+        Node a = NetworkUtils.createAndAddNode(network, Id.createNodeId("a"), new Coord(0.0, 0.0));
+        Node b = NetworkUtils.createAndAddNode(network, Id.createNodeId("b"), new Coord(1000.0, 0.0));
+        NetworkUtils.createAndAddLink(network, Id.createLinkId("ab"), a, b, 1000.0, 10.0, 1000.0, 1.0);
+        return network;
+    }
+}